@@ -50,6 +50,20 @@ public class RssSparkConfig {
       .withDescription("The timeout of spilling data to remote shuffle server, "
           + "which will be triggered by Spark TaskMemoryManager. Unit is sec, default value is 1");
 
+  public static final ConfigOption<Integer> RSS_CLIENT_COMPRESS_THREAD_POOL_SIZE = ConfigOptions
+      .key("rss.client.compress.threadPool.size")
+      .intType()
+      .defaultValue(0)
+      .withDescription("The thread size to compress shuffle data before sending it to shuffle server, "
+          + "the data is compressed by the task thread when the buffer is full if it's 0");
+
+  public static final ConfigOption<Boolean> RSS_WRITER_BUFFER_OFF_HEAP_ENABLED = ConfigOptions
+      .key("rss.writer.buffer.offHeap.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to keep the shuffle data of writer in pooled direct buffers instead of heap, "
+          + "the memory is accounted in the off-heap memory of spark if spark.memory.offHeap.enabled is true");
+
   public static final String SPARK_RSS_CONFIG_PREFIX = "spark.";
 
   public static final ConfigEntry<Integer> RSS_PARTITION_NUM_PER_RANGE = createIntegerBuilder(
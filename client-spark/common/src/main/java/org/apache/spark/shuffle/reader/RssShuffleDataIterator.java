@@ -19,6 +19,11 @@ package org.apache.spark.shuffle.reader;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import scala.Product2;
 import scala.Tuple2;
@@ -27,6 +32,7 @@ import scala.collection.Iterator;
 import scala.runtime.BoxedUnit;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.Unpooled;
 import org.apache.spark.executor.ShuffleReadMetrics;
@@ -40,13 +46,18 @@ import org.slf4j.LoggerFactory;
 import org.apache.uniffle.client.api.ShuffleReadClient;
 import org.apache.uniffle.client.response.CompressedShuffleBlock;
 import org.apache.uniffle.common.compression.Codec;
+import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.config.RssConf;
+import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.util.RssUtils;
+import org.apache.uniffle.common.util.ThreadUtils;
 
 public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C>> {
 
   private static final Logger LOG = LoggerFactory.getLogger(RssShuffleDataIterator.class);
 
+  private static ExecutorService decompressionExecutor;
+
   private Iterator<Tuple2<Object, Object>> recordsIterator = null;
   private SerializerInstance serializerInstance;
   private ShuffleReadClient shuffleReadClient;
@@ -60,6 +71,13 @@ public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C
   private long unCompressedBytesLength = 0;
   private ByteBuffer uncompressedData;
   private Codec codec;
+  private int decompressionAheadNum = 0;
+  private long decompressionWaitTime = 0;
+  private boolean allBlocksRead = false;
+  // blocks being decompressed in background, in the order of reading
+  private final Deque<DecompressionTask> decompressionTasks = new ArrayDeque<>();
+  // buffers of the consumed blocks, reused to decompress the next blocks
+  private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
 
   public RssShuffleDataIterator(
       Serializer serializer,
@@ -73,6 +91,18 @@ public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C
             .substring(RssSparkConfig.SPARK_RSS_CONFIG_PREFIX.length()),
         RssSparkConfig.SPARK_SHUFFLE_COMPRESS_DEFAULT);
     this.codec = compress ? Codec.newInstance(rssConf) : null;
+    if (codec != null) {
+      this.decompressionAheadNum = rssConf.get(RssClientConf.RSS_CLIENT_READ_DECOMPRESSION_AHEAD_NUM);
+      if (decompressionAheadNum > 0) {
+        initDecompressionExecutor(rssConf.get(RssClientConf.RSS_CLIENT_READ_DECOMPRESSION_THREADS));
+      }
+    }
+  }
+
+  private static synchronized void initDecompressionExecutor(int threadNum) {
+    if (decompressionExecutor == null) {
+      decompressionExecutor = ThreadUtils.getDaemonFixedThreadPool(threadNum, "RssShuffleDataDecompression");
+    }
   }
 
   public Iterator<Tuple2<Object, Object>> createKVIterator(ByteBuffer data) {
@@ -105,6 +135,9 @@ public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C
 
   @Override
   public boolean hasNext() {
+    if (decompressionAheadNum > 0) {
+      return hasNextWithDecompressionAhead();
+    }
     if (recordsIterator == null || !recordsIterator.hasNext()) {
       // read next segment
       long startFetch = System.currentTimeMillis();
@@ -125,19 +158,113 @@ public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C
         serializeTime += serializationDuration;
       } else {
         // finish reading records, check data consistent
-        shuffleReadClient.checkProcessedBlockIds();
-        shuffleReadClient.logStatics();
-        String decInfo = codec == null ? "." : (", " + decompressTime
-            + " ms to decompress with unCompressionLength["
-            + unCompressedBytesLength + "]");
-        LOG.info("Fetch {} bytes cost {} ms and {} ms to serialize{}",
-            totalRawBytesLength, readTime, serializeTime, decInfo);
+        finishRead();
         return false;
       }
     }
     return recordsIterator.hasNext();
   }
 
+  /**
+   * The next blocks are decompressed in background while the records of current block are being
+   * deserialized. The blocks of the read client may be released when it reads the next data, so
+   * the blocks are read ahead only if they're buffered by the client, or nothing is being
+   * decompressed.
+   */
+  private boolean hasNextWithDecompressionAhead() {
+    while (recordsIterator == null || !recordsIterator.hasNext()) {
+      while (!allBlocksRead && decompressionTasks.size() < decompressionAheadNum
+          && (decompressionTasks.isEmpty() || shuffleReadClient.hasBufferedBlock())) {
+        long startFetch = System.currentTimeMillis();
+        CompressedShuffleBlock rawBlock = shuffleReadClient.readShuffleBlockData();
+        long fetchDuration = System.currentTimeMillis() - startFetch;
+        shuffleReadMetrics.incFetchWaitTime(fetchDuration);
+        readTime += fetchDuration;
+        if (rawBlock == null || rawBlock.getByteBuffer() == null) {
+          allBlocksRead = true;
+        } else {
+          decompressionTasks.add(submitDecompression(rawBlock));
+        }
+      }
+      if (decompressionTasks.isEmpty()) {
+        finishRead();
+        return false;
+      }
+      // the task is kept until it's done, so cleanup can wait for it if the reader is interrupted
+      DecompressionTask task = decompressionTasks.peek();
+      long startWait = System.currentTimeMillis();
+      try {
+        decompressTime += task.future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RssException("Interrupted when waiting for the decompression of shuffle data", e);
+      } catch (ExecutionException e) {
+        decompressionTasks.poll();
+        recycleBuffer(task.buffer);
+        throw new RssException("Failed to decompress shuffle data", e.getCause());
+      }
+      decompressionTasks.poll();
+      decompressionWaitTime += System.currentTimeMillis() - startWait;
+      // the records of previous block are all consumed
+      if (uncompressedData != null) {
+        recycleBuffer(uncompressedData);
+      }
+      uncompressedData = task.buffer;
+      long startSerialization = System.currentTimeMillis();
+      recordsIterator = createKVIterator(uncompressedData);
+      serializeTime += System.currentTimeMillis() - startSerialization;
+    }
+    return true;
+  }
+
+  private DecompressionTask submitDecompression(CompressedShuffleBlock rawBlock) {
+    ByteBuffer rawData = rawBlock.getByteBuffer();
+    long rawDataLength = rawData.limit() - rawData.position();
+    totalRawBytesLength += rawDataLength;
+    shuffleReadMetrics.incRemoteBytesRead(rawDataLength);
+    int uncompressedLen = rawBlock.getUncompressLength();
+    unCompressedBytesLength += uncompressedLen;
+    ByteBuffer buffer = allocateBuffer(uncompressedLen, rawData.isDirect());
+    Future<Long> future = decompressionExecutor.submit(() -> {
+      long startDecompress = System.currentTimeMillis();
+      codec.decompress(rawData, uncompressedLen, buffer, 0);
+      buffer.limit(buffer.position() + uncompressedLen);
+      return System.currentTimeMillis() - startDecompress;
+    });
+    return new DecompressionTask(buffer, future);
+  }
+
+  private ByteBuffer allocateBuffer(int length, boolean direct) {
+    ByteBuffer buffer = freeBuffers.poll();
+    if (buffer != null && (buffer.capacity() < length || buffer.isDirect() != direct)) {
+      RssUtils.releaseByteBuffer(buffer);
+      buffer = null;
+    }
+    if (buffer == null) {
+      buffer = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private void recycleBuffer(ByteBuffer buffer) {
+    freeBuffers.add(buffer);
+  }
+
+  private void finishRead() {
+    // finish reading records, check data consistent
+    shuffleReadClient.checkProcessedBlockIds();
+    shuffleReadClient.logStatics();
+    String decInfo = codec == null ? "." : (", " + decompressTime
+        + " ms to decompress with unCompressionLength["
+        + unCompressedBytesLength + "]");
+    if (decompressionAheadNum > 0) {
+      decInfo += " in background and " + decompressionWaitTime + " ms to wait for decompression";
+    }
+    LOG.info("Fetch {} bytes cost {} ms and {} ms to serialize{}",
+        totalRawBytesLength, readTime, serializeTime, decInfo);
+  }
+
   private int uncompress(CompressedShuffleBlock rawBlock, ByteBuffer rawData) {
     long rawDataLength = rawData.limit() - rawData.position();
     totalRawBytesLength += rawDataLength;
@@ -175,6 +302,18 @@ public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C
 
   public BoxedUnit cleanup() {
     clearDeserializationStream();
+    // the buffers can't be released until the decompression using them is finished
+    for (DecompressionTask task : decompressionTasks) {
+      try {
+        Uninterruptibles.getUninterruptibly(task.future);
+      } catch (ExecutionException e) {
+        // the data isn't needed anymore, ignore the failure
+      }
+      RssUtils.releaseByteBuffer(task.buffer);
+    }
+    decompressionTasks.clear();
+    freeBuffers.forEach(RssUtils::releaseByteBuffer);
+    freeBuffers.clear();
     // Uncompressed data is released in this class, Compressed data is release in the class ShuffleReadClientImpl
     // So if codec is null, we don't release the data when the stream is closed
     if (codec != null) {
@@ -188,9 +327,25 @@ public class RssShuffleDataIterator<K, C> extends AbstractIterator<Product2<K, C
     return BoxedUnit.UNIT;
   }
 
+  @VisibleForTesting
+  static synchronized void setDecompressionExecutor(ExecutorService executor) {
+    decompressionExecutor = executor;
+  }
+
   @VisibleForTesting
   protected ShuffleReadMetrics getShuffleReadMetrics() {
     return shuffleReadMetrics;
   }
+
+  private static class DecompressionTask {
+    private final ByteBuffer buffer;
+    // the duration of decompression
+    private final Future<Long> future;
+
+    DecompressionTask(ByteBuffer buffer, Future<Long> future) {
+      this.buffer = buffer;
+      this.future = future;
+    }
+  }
 }
 
@@ -28,6 +28,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
@@ -48,6 +49,8 @@ public class DataPusher implements Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DataPusher.class);
 
   private final ExecutorService executorService;
+  // compress the deferred compressed blocks before sending, it's null if they're compressed when sending
+  private final ExecutorService compressExecutorService;
 
   private final ShuffleWriteClient shuffleWriteClient;
   // Must be thread safe
@@ -64,6 +67,17 @@ public class DataPusher implements Closeable {
       Set<String> failedTaskIds,
       int threadPoolSize,
       int threadKeepAliveTime) {
+    this(shuffleWriteClient, taskToSuccessBlockIds, taskToFailedBlockIds, failedTaskIds, threadPoolSize,
+        threadKeepAliveTime, 0);
+  }
+
+  public DataPusher(ShuffleWriteClient shuffleWriteClient,
+      Map<String, Set<Long>> taskToSuccessBlockIds,
+      Map<String, Set<Long>> taskToFailedBlockIds,
+      Set<String> failedTaskIds,
+      int threadPoolSize,
+      int threadKeepAliveTime,
+      int compressThreadPoolSize) {
     this.shuffleWriteClient = shuffleWriteClient;
     this.taskToSuccessBlockIds = taskToSuccessBlockIds;
     this.taskToFailedBlockIds = taskToFailedBlockIds;
@@ -76,34 +90,66 @@ public class DataPusher implements Closeable {
         Queues.newLinkedBlockingQueue(Integer.MAX_VALUE),
         ThreadUtils.getThreadFactory(this.getClass().getName())
     );
+    this.compressExecutorService = compressThreadPoolSize > 0
+        ? ThreadUtils.getDaemonFixedThreadPool(compressThreadPoolSize, this.getClass().getName() + "-compress")
+        : null;
   }
 
   public CompletableFuture<Long> send(AddBlockEvent event) {
     if (rssAppId == null) {
       throw new RssException("RssAppId should be set.");
     }
-    return CompletableFuture.supplyAsync(() -> {
-      String taskId = event.getTaskId();
-      List<ShuffleBlockInfo> shuffleBlockInfoList = event.getShuffleDataInfoList();
-      try {
-        SendShuffleDataResult result = shuffleWriteClient.sendShuffleData(
-            rssAppId,
-            shuffleBlockInfoList,
-            () -> !isValidTask(taskId)
-        );
-        putBlockId(taskToSuccessBlockIds, taskId, result.getSuccessBlockIds());
-        putBlockId(taskToFailedBlockIds, taskId, result.getFailedBlockIds());
-      } finally {
-        List<Runnable> callbackChain = Optional.of(event.getProcessedCallbackChain()).orElse(Collections.EMPTY_LIST);
-        for (Runnable runnable : callbackChain) {
-          runnable.run();
+    if (compressExecutorService == null) {
+      return CompletableFuture.supplyAsync(() -> sendEvent(event), executorService);
+    }
+    // compression is a separate stage, so the sending threads aren't occupied by it
+    return CompletableFuture.supplyAsync(() -> compress(event), compressExecutorService)
+        .thenApplyAsync(this::sendEvent, executorService);
+  }
+
+  private AddBlockEvent compress(AddBlockEvent event) {
+    try {
+      for (ShuffleBlockInfo sbi : event.getShuffleDataInfoList()) {
+        if (sbi instanceof DeferredCompressedBlock) {
+          ((DeferredCompressedBlock) sbi).compress();
         }
       }
-      return shuffleBlockInfoList.stream()
-          .map(x -> x.getFreeMemory())
-          .reduce((a, b) -> a + b)
-          .get();
-    }, executorService);
+      return event;
+    } catch (Throwable e) {
+      LOGGER.error("Failed to compress the blocks of task[{}]", event.getTaskId(), e);
+      // the blocks can't be sent, mark them as failed and free the memory
+      putBlockId(taskToFailedBlockIds, event.getTaskId(), event.getShuffleDataInfoList().stream()
+          .map(ShuffleBlockInfo::getBlockId).collect(Collectors.toSet()));
+      runCallbacks(event);
+      throw new RssException("Failed to compress the blocks of task[" + event.getTaskId() + "]", e);
+    }
+  }
+
+  private long sendEvent(AddBlockEvent event) {
+    String taskId = event.getTaskId();
+    List<ShuffleBlockInfo> shuffleBlockInfoList = event.getShuffleDataInfoList();
+    try {
+      SendShuffleDataResult result = shuffleWriteClient.sendShuffleData(
+          rssAppId,
+          shuffleBlockInfoList,
+          () -> !isValidTask(taskId)
+      );
+      putBlockId(taskToSuccessBlockIds, taskId, result.getSuccessBlockIds());
+      putBlockId(taskToFailedBlockIds, taskId, result.getFailedBlockIds());
+    } finally {
+      runCallbacks(event);
+    }
+    return shuffleBlockInfoList.stream()
+        .map(x -> x.getFreeMemory())
+        .reduce((a, b) -> a + b)
+        .get();
+  }
+
+  private void runCallbacks(AddBlockEvent event) {
+    List<Runnable> callbackChain = Optional.of(event.getProcessedCallbackChain()).orElse(Collections.EMPTY_LIST);
+    for (Runnable runnable : callbackChain) {
+      runnable.run();
+    }
   }
 
   private synchronized void putBlockId(
@@ -126,6 +172,9 @@ public class DataPusher implements Closeable {
 
   @Override
   public void close() throws IOException {
+    if (compressExecutorService != null) {
+      compressExecutorService.shutdownNow();
+    }
     if (executorService != null) {
       try {
         ThreadUtils.shutdownThreadPool(executorService, 5);
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.shuffle.writer;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.ShuffleServerInfo;
+import org.apache.uniffle.common.util.ChecksumUtils;
+
+/**
+ * A block which is compressed by {@link DataPusher} before sending instead of by the task
+ * thread. The length, crc and data are only available after compression, they're computed
+ * when they're accessed if the block is not compressed yet. Before compression, the size of
+ * block is estimated by the uncompressed length.
+ *
+ * <p>The compressor takes the ownership of the uncompressed data, and the data of block should
+ * be released by {@link #release()} after it's sent.
+ */
+public class DeferredCompressedBlock extends ShuffleBlockInfo {
+
+  private final Function<ByteBuf, ByteBuf> compressor;
+  private ByteBuf uncompressedData;
+  private boolean compressed = false;
+  private int length;
+  private long crc;
+  private ByteBuf data;
+  private IntConsumer compressedListener;
+
+  public DeferredCompressedBlock(int shuffleId, int partitionId, long blockId, ByteBuf uncompressedData,
+      List<ShuffleServerInfo> shuffleServerInfos, long freeMemory, long taskAttemptId,
+      Function<ByteBuf, ByteBuf> compressor) {
+    super(shuffleId, partitionId, blockId, uncompressedData.readableBytes(), 0L, Unpooled.EMPTY_BUFFER,
+        shuffleServerInfos, uncompressedData.readableBytes(), freeMemory, taskAttemptId);
+    this.uncompressedData = uncompressedData;
+    this.compressor = compressor;
+  }
+
+  public synchronized void compress() {
+    if (compressed) {
+      return;
+    }
+    ByteBuf input = uncompressedData;
+    // the compressor is responsible for releasing the input even if it fails
+    uncompressedData = null;
+    data = compressor.apply(input);
+    length = data.readableBytes();
+    crc = ChecksumUtils.getCrc32(data.nioBuffer());
+    compressed = true;
+    if (compressedListener != null) {
+      compressedListener.accept(length);
+    }
+  }
+
+  /**
+   * @param listener called with the compressed length after the block is compressed, or called
+   *     immediately if it's compressed already
+   */
+  public synchronized void onCompressed(IntConsumer listener) {
+    if (compressed) {
+      listener.accept(length);
+    } else {
+      compressedListener = listener;
+    }
+  }
+
+  /**
+   * Release the compressed data, or the uncompressed data if it's not compressed yet.
+   */
+  public synchronized void release() {
+    if (compressed) {
+      data.release();
+    } else if (uncompressedData != null) {
+      uncompressedData.release();
+      uncompressedData = null;
+    }
+  }
+
+  public synchronized boolean isCompressed() {
+    return compressed;
+  }
+
+  @Override
+  public synchronized int getLength() {
+    compress();
+    return length;
+  }
+
+  @Override
+  public synchronized long getCrc() {
+    compress();
+    return crc;
+  }
+
+  @Override
+  public synchronized ByteBuf getData() {
+    compress();
+    return data;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    if (!compressed) {
+      return super.getSize();
+    }
+    return super.getSize() - super.getLength() + length;
+  }
+}
@@ -32,6 +32,9 @@ import scala.reflect.ManifestFactory$;
 import com.clearspring.analytics.util.Lists;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import org.apache.spark.executor.ShuffleWriteMetrics;
 import org.apache.spark.memory.MemoryConsumer;
 import org.apache.spark.memory.MemoryMode;
@@ -90,6 +93,10 @@ public class WriteBufferManager extends MemoryConsumer {
   private Function<AddBlockEvent, CompletableFuture<Long>> spillFunc;
   private long sendSizeLimit;
   private int memorySpillTimeoutSec;
+  // compress the blocks by data pusher instead of task thread
+  private boolean compressInBackground;
+  // keep the records in pooled direct buffers instead of on-heap segments
+  private boolean offHeap;
 
   public WriteBufferManager(
       int shuffleId,
@@ -125,7 +132,7 @@ public class WriteBufferManager extends MemoryConsumer {
       ShuffleWriteMetrics shuffleWriteMetrics,
       RssConf rssConf,
       Function<AddBlockEvent, CompletableFuture<Long>> spillFunc) {
-    super(taskMemoryManager, taskMemoryManager.pageSizeBytes(), MemoryMode.ON_HEAP);
+    super(taskMemoryManager, taskMemoryManager.pageSizeBytes(), getMemoryMode(taskMemoryManager, rssConf));
     this.bufferSize = bufferManagerOptions.getBufferSize();
     this.spillSize = bufferManagerOptions.getBufferSpillThreshold();
     this.buffers = Maps.newHashMap();
@@ -152,6 +159,17 @@ public class WriteBufferManager extends MemoryConsumer {
     this.spillFunc = spillFunc;
     this.sendSizeLimit = rssConf.get(RssSparkConfig.RSS_CLIENT_SEND_SIZE_LIMITATION);
     this.memorySpillTimeoutSec = rssConf.get(RssSparkConfig.RSS_MEMORY_SPILL_TIMEOUT);
+    this.compressInBackground = rssConf.get(RssSparkConfig.RSS_CLIENT_COMPRESS_THREAD_POOL_SIZE) > 0;
+    this.offHeap = rssConf.get(RssSparkConfig.RSS_WRITER_BUFFER_OFF_HEAP_ENABLED);
+  }
+
+  // the off-heap buffers are accounted in the off-heap pool of spark only if it's enabled
+  private static MemoryMode getMemoryMode(TaskMemoryManager taskMemoryManager, RssConf rssConf) {
+    if (rssConf.get(RssSparkConfig.RSS_WRITER_BUFFER_OFF_HEAP_ENABLED)
+        && taskMemoryManager.getTungstenMemoryMode() == MemoryMode.OFF_HEAP) {
+      return MemoryMode.OFF_HEAP;
+    }
+    return MemoryMode.ON_HEAP;
   }
 
   /**
@@ -181,7 +199,7 @@ public class WriteBufferManager extends MemoryConsumer {
       }
     } else {
       requestMemory(Math.max(bufferSegmentSize, serializedDataLength));
-      WriterBuffer wb = new WriterBuffer(bufferSegmentSize);
+      WriterBuffer wb = new WriterBuffer(bufferSegmentSize, offHeap);
       wb.addRecord(serializedData, serializedDataLength);
       buffers.put(partitionId, wb);
     }
@@ -240,7 +258,17 @@ public class WriteBufferManager extends MemoryConsumer {
 
   // transform records to shuffleBlock
   protected ShuffleBlockInfo createShuffleBlock(int partitionId, WriterBuffer wb) {
+    if (wb.isOffHeap()) {
+      return createDirectShuffleBlock(partitionId, wb);
+    }
     byte[] data = wb.getData();
+    if (compressInBackground) {
+      final long blockId = ClientUtils.getBlockId(partitionId, taskAttemptId, getNextSeqNo(partitionId));
+      uncompressedDataLen += data.length;
+      inSendListBytes.addAndGet(wb.getMemoryUsed());
+      return new DeferredCompressedBlock(shuffleId, partitionId, blockId, Unpooled.wrappedBuffer(data),
+          partitionToServers.get(partitionId), wb.getMemoryUsed(), taskAttemptId, this::compressDeferredData);
+    }
     final int uncompressLength = data.length;
     byte[] compressed = data;
     if (codec != null) {
@@ -258,6 +286,75 @@ public class WriteBufferManager extends MemoryConsumer {
         compressed, partitionToServers.get(partitionId), uncompressLength, wb.getMemoryUsed(), taskAttemptId);
   }
 
+  // the data is kept off-heap, it's released after the block is sent
+  private ShuffleBlockInfo createDirectShuffleBlock(int partitionId, WriterBuffer wb) {
+    ByteBuf data = wb.getDirectData();
+    final int uncompressLength = data.readableBytes();
+    final long blockId = ClientUtils.getBlockId(partitionId, taskAttemptId, getNextSeqNo(partitionId));
+    uncompressedDataLen += uncompressLength;
+    inSendListBytes.addAndGet(wb.getMemoryUsed());
+    if (compressInBackground) {
+      return new DeferredCompressedBlock(shuffleId, partitionId, blockId, data, partitionToServers.get(partitionId),
+          wb.getMemoryUsed(), taskAttemptId, this::compressDeferredData);
+    }
+    long start = System.currentTimeMillis();
+    ByteBuf compressed = compressDirectData(data);
+    compressTime += System.currentTimeMillis() - start;
+    final long crc32 = ChecksumUtils.getCrc32(compressed.nioBuffer());
+    shuffleWriteMetrics.incBytesWritten(compressed.readableBytes());
+    return new ShuffleBlockInfo(shuffleId, partitionId, blockId, compressed.readableBytes(), crc32,
+        compressed, partitionToServers.get(partitionId), uncompressLength, wb.getMemoryUsed(), taskAttemptId);
+  }
+
+  // compress the direct data into a pooled direct buffer, the data is released after compression
+  private ByteBuf compressDirectData(ByteBuf data) {
+    if (codec == null) {
+      return data;
+    }
+    try {
+      int maxLength = codec.maxCompressedLength(data.readableBytes());
+      ByteBuf compressed = PooledByteBufAllocator.DEFAULT.directBuffer(maxLength);
+      try {
+        int length = codec.compress(data.nioBuffer(), compressed.nioBuffer(0, maxLength));
+        return compressed.writerIndex(length);
+      } catch (Throwable e) {
+        compressed.release();
+        throw e;
+      }
+    } finally {
+      data.release();
+    }
+  }
+
+  // it's run in the threads of data pusher
+  private ByteBuf compressDeferredData(ByteBuf data) {
+    ByteBuf compressed;
+    long start = System.currentTimeMillis();
+    if (data.isDirect()) {
+      compressed = compressDirectData(data);
+    } else {
+      compressed = codec == null ? data : Unpooled.wrappedBuffer(codec.compress(data.array()));
+    }
+    long duration = System.currentTimeMillis() - start;
+    synchronized (this) {
+      compressTime += duration;
+      shuffleWriteMetrics.incBytesWritten(compressed.readableBytes());
+    }
+    return compressed;
+  }
+
+  // release the data of blocks after they're sent, it's only needed for the pooled buffers. The sendings
+  // which are still running after fast fail hold their own references, so the data is freed after them
+  private void releaseBlockData(List<ShuffleBlockInfo> shuffleBlockInfoList) {
+    for (ShuffleBlockInfo sbi : shuffleBlockInfoList) {
+      if (sbi instanceof DeferredCompressedBlock) {
+        ((DeferredCompressedBlock) sbi).release();
+      } else if (offHeap) {
+        sbi.getData().release();
+      }
+    }
+  }
+
   // it's run in single thread, and is not thread safe
   private int getNextSeqNo(int partitionId) {
     partitionToSeqNo.putIfAbsent(partitionId, 0);
@@ -318,8 +415,12 @@ public class WriteBufferManager extends MemoryConsumer {
             + " blocks and " + totalSize + " bytes");
         // Use final temporary variables for closures
         final long _memoryUsed = memoryUsed;
+        final List<ShuffleBlockInfo> _blocks = shuffleBlockInfosPerEvent;
         events.add(
-            new AddBlockEvent(taskId, shuffleBlockInfosPerEvent, () -> freeAllocatedMemory(_memoryUsed))
+            new AddBlockEvent(taskId, _blocks, () -> {
+              releaseBlockData(_blocks);
+              freeAllocatedMemory(_memoryUsed);
+            })
         );
         shuffleBlockInfosPerEvent = Lists.newArrayList();
         totalSize = 0;
@@ -331,8 +432,12 @@ public class WriteBufferManager extends MemoryConsumer {
           + " blocks and " + totalSize + " bytes");
       // Use final temporary variables for closures
       final long _memoryUsed = memoryUsed;
+      final List<ShuffleBlockInfo> _blocks = shuffleBlockInfosPerEvent;
       events.add(
-          new AddBlockEvent(taskId, shuffleBlockInfosPerEvent, () -> freeAllocatedMemory(_memoryUsed))
+          new AddBlockEvent(taskId, _blocks, () -> {
+            releaseBlockData(_blocks);
+            freeAllocatedMemory(_memoryUsed);
+          })
       );
     }
     return events;
@@ -366,6 +471,10 @@ public class WriteBufferManager extends MemoryConsumer {
   }
 
   public void freeAllMemory() {
+    // the buffers are left only if the task fails, release the off-heap memory of them
+    for (WriterBuffer wb : buffers.values()) {
+      wb.release();
+    }
     long memory = allocatedBytes.get();
     if (memory > 0) {
       freeMemory(memory);
@@ -391,7 +500,7 @@ public class WriteBufferManager extends MemoryConsumer {
     return writeTime;
   }
 
-  public String getManagerCostInfo() {
+  public synchronized String getManagerCostInfo() {
     return "WriteBufferManager cost copyTime[" + copyTime + "], writeTime[" + writeTime + "], serializeTime["
         + serializeTime + "], compressTime[" + compressTime + "], estimateTime["
         + estimateTime + "], requireMemoryTime[" + requireMemoryTime
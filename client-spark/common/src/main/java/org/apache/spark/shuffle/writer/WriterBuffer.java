@@ -20,9 +20,16 @@ package org.apache.spark.shuffle.writer;
 import java.util.List;
 
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Buffer of the serialized records of one partition. The records are kept in on-heap segments
+ * by default. In off-heap mode, they're appended into a single pooled direct buffer which grows
+ * by segment, so the data can be compressed and sent without copying it to heap.
+ */
 public class WriterBuffer {
 
   private static final Logger LOG = LoggerFactory.getLogger(WriterBuffer.class);
@@ -33,12 +40,24 @@ public class WriterBuffer {
   private List<WrappedBuffer> buffers = Lists.newArrayList();
   private int dataLength = 0;
   private int memoryUsed = 0;
+  private final boolean offHeap;
+  // the data in off-heap mode
+  private ByteBuf directBuffer;
 
   public WriterBuffer(int bufferSize) {
+    this(bufferSize, false);
+  }
+
+  public WriterBuffer(int bufferSize, boolean offHeap) {
     this.bufferSize = bufferSize;
+    this.offHeap = offHeap;
   }
 
   public void addRecord(byte[] recordBuffer, int length) {
+    if (offHeap) {
+      addRecordToDirectBuffer(recordBuffer, length);
+      return;
+    }
     if (askForMemory(length)) {
       // buffer has data already, add buffer to list
       if (nextOffset > 0) {
@@ -62,11 +81,36 @@ public class WriterBuffer {
     dataLength += length;
   }
 
+  private void addRecordToDirectBuffer(byte[] recordBuffer, int length) {
+    if (askForMemory(length)) {
+      // grow the buffer by the same size as a new segment, so the memory used is the same
+      // as on-heap mode
+      memoryUsed += Math.max(length, bufferSize);
+      if (directBuffer == null) {
+        directBuffer = PooledByteBufAllocator.DEFAULT.directBuffer(memoryUsed);
+      } else {
+        long start = System.currentTimeMillis();
+        directBuffer.capacity(memoryUsed);
+        copyTime += System.currentTimeMillis() - start;
+      }
+    }
+    directBuffer.writeBytes(recordBuffer, 0, length);
+    dataLength += length;
+  }
+
   public boolean askForMemory(long length) {
+    if (offHeap) {
+      return directBuffer == null || dataLength + length > memoryUsed;
+    }
     return buffer == null || nextOffset + length > bufferSize;
   }
 
   public byte[] getData() {
+    if (offHeap) {
+      byte[] data = new byte[dataLength];
+      directBuffer.getBytes(directBuffer.readerIndex(), data);
+      return data;
+    }
     byte[] data = new byte[dataLength];
     int offset = 0;
     long start = System.currentTimeMillis();
@@ -80,6 +124,33 @@ public class WriterBuffer {
     return data;
   }
 
+  /**
+   * @return the direct buffer holding the data in off-heap mode, the caller takes the ownership
+   *     of it and is responsible for releasing it
+   */
+  public ByteBuf getDirectData() {
+    if (!offHeap) {
+      throw new IllegalStateException("Direct data is only available in off-heap mode");
+    }
+    ByteBuf data = directBuffer;
+    directBuffer = null;
+    return data;
+  }
+
+  /**
+   * Release the off-heap memory if the data is not taken by {@link #getDirectData()}.
+   */
+  public void release() {
+    if (directBuffer != null) {
+      directBuffer.release();
+      directBuffer = null;
+    }
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
   public int getDataLength() {
     return dataLength;
   }
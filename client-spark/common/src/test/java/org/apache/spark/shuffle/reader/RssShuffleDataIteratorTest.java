@@ -20,6 +20,11 @@ package org.apache.spark.shuffle.reader;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -40,16 +45,21 @@ import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import org.apache.uniffle.client.api.ShuffleReadClient;
 import org.apache.uniffle.client.impl.ShuffleReadClientImpl;
+import org.apache.uniffle.client.response.CompressedShuffleBlock;
 import org.apache.uniffle.client.util.ClientUtils;
 import org.apache.uniffle.client.util.DefaultIdHelper;
 import org.apache.uniffle.common.ShuffleServerInfo;
+import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.config.RssConf;
+import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.util.ChecksumUtils;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.storage.handler.impl.HadoopShuffleWriteHandler;
 import org.apache.uniffle.storage.util.StorageType;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -57,6 +67,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class RssShuffleDataIteratorTest extends AbstractRssReaderTest {
 
@@ -296,6 +307,70 @@ public class RssShuffleDataIteratorTest extends AbstractRssReaderTest {
     assertTrue(rssShuffleDataIterator.getShuffleReadMetrics().fetchWaitTime() > 0);
   }
 
+  @Test
+  public void readTestWithDecompressionAhead() throws Exception {
+    String basePath = HDFS_URI + "readTestWithDecompressionAhead";
+    HadoopShuffleWriteHandler writeHandler =
+        new HadoopShuffleWriteHandler("appId", 0, 0, 1, basePath, ssi1.getId(), conf);
+
+    Map<String, String> expectedData = Maps.newHashMap();
+    Roaring64NavigableMap blockIdBitmap = Roaring64NavigableMap.bitmapOf();
+    Roaring64NavigableMap taskIdBitmap = Roaring64NavigableMap.bitmapOf(0);
+    for (int i = 0; i < 5; i++) {
+      writeTestData(writeHandler, 4, 5, expectedData,
+          blockIdBitmap, "key" + i, KRYO_SERIALIZER, 0);
+    }
+
+    // the small read buffer makes the blocks be read from different buffers
+    ShuffleReadClientImpl readClient = new ShuffleReadClientImpl(
+        StorageType.HDFS.name(), "appId", 0, 1, 100, 2,
+        10, 200, basePath, blockIdBitmap, taskIdBitmap, Lists.newArrayList(ssi1),
+        new Configuration(), new DefaultIdHelper());
+    RssConf rssConf = new RssConf();
+    rssConf.set(RssClientConf.RSS_CLIENT_READ_DECOMPRESSION_AHEAD_NUM, 3);
+    RssShuffleDataIterator rssShuffleDataIterator = new RssShuffleDataIterator(KRYO_SERIALIZER, readClient,
+        new ShuffleReadMetrics(), rssConf);
+
+    validateResult(rssShuffleDataIterator, expectedData, 100);
+    assertEquals(100, rssShuffleDataIterator.getShuffleReadMetrics().recordsRead());
+    rssShuffleDataIterator.cleanup();
+  }
+
+  @Test
+  public void interruptWithDecompressionAhead() throws Exception {
+    // the decompression is blocked until the latch is released
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch latch = new CountDownLatch(1);
+    executor.submit(() -> {
+      latch.await();
+      return null;
+    });
+    RssShuffleDataIterator.setDecompressionExecutor(executor);
+    try {
+      ShuffleReadClient mockClient = mock(ShuffleReadClient.class);
+      when(mockClient.readShuffleBlockData()).thenReturn(new CompressedShuffleBlock(ByteBuffer.allocate(10), 10));
+      RssConf rssConf = new RssConf();
+      rssConf.set(RssClientConf.RSS_CLIENT_READ_DECOMPRESSION_AHEAD_NUM, 1);
+      RssShuffleDataIterator dataIterator =
+          new RssShuffleDataIterator(KRYO_SERIALIZER, mockClient, new ShuffleReadMetrics(), rssConf);
+      Thread.currentThread().interrupt();
+      assertThrows(RssException.class, dataIterator::hasNext);
+      assertTrue(Thread.interrupted());
+
+      // the buffer is still used by the decompression, cleanup must wait for it
+      CompletableFuture<Object> cleanupFuture = CompletableFuture.supplyAsync(dataIterator::cleanup);
+      Thread.sleep(200);
+      assertFalse(cleanupFuture.isDone());
+      latch.countDown();
+      cleanupFuture.get(10, TimeUnit.SECONDS);
+      verify(mockClient, times(1)).close();
+    } finally {
+      latch.countDown();
+      executor.shutdownNow();
+      RssShuffleDataIterator.setDecompressionExecutor(null);
+    }
+  }
+
   @Test
   public void cleanup() throws Exception {
     ShuffleReadClient mockClient = mock(ShuffleReadClient.class);
@@ -24,17 +24,21 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.Test;
 
 import org.apache.uniffle.client.impl.ShuffleWriteClientImpl;
 import org.apache.uniffle.client.response.SendShuffleDataResult;
 import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.exception.RssException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DataPusherTest {
@@ -116,4 +120,49 @@ public class DataPusherTest {
     assertTrue(taskToFailedBlockIds.get("taskId").contains(3L));
     assertTrue(taskToFailedBlockIds.get("taskId").contains(4L));
   }
+
+  @Test
+  public void testSendDataWithCompression() throws ExecutionException, InterruptedException {
+    FakedShuffleWriteClient shuffleWriteClient = new FakedShuffleWriteClient();
+
+    Map<String, Set<Long>> taskToSuccessBlockIds = Maps.newConcurrentMap();
+    Map<String, Set<Long>> taskToFailedBlockIds = Maps.newConcurrentMap();
+    Set<String> failedTaskIds = new HashSet<>();
+
+    DataPusher dataPusher = new DataPusher(
+        shuffleWriteClient,
+        taskToSuccessBlockIds,
+        taskToFailedBlockIds,
+        failedTaskIds,
+        1,
+        2,
+        1
+    );
+    dataPusher.setRssAppId("testSendDataWithCompression_appId");
+    shuffleWriteClient.setFakedShuffleDataResult(
+        new SendShuffleDataResult(Sets.newHashSet(1L), Sets.newHashSet())
+    );
+
+    // the block is compressed before sending
+    DeferredCompressedBlock block = new DeferredCompressedBlock(
+        1, 1, 1, Unpooled.wrappedBuffer(new byte[10]), null, 100, 1, data -> Unpooled.wrappedBuffer(new byte[5]));
+    AtomicInteger callbackNum = new AtomicInteger(0);
+    AddBlockEvent event = new AddBlockEvent("taskId", Arrays.asList(block), callbackNum::incrementAndGet);
+    assertEquals(100, dataPusher.send(event).get());
+    assertTrue(block.isCompressed());
+    assertEquals(5, block.getLength());
+    assertTrue(taskToSuccessBlockIds.get("taskId").contains(1L));
+    assertEquals(1, callbackNum.get());
+
+    // the blocks failed to be compressed are marked as failed and the memory is freed
+    DeferredCompressedBlock failedBlock = new DeferredCompressedBlock(
+        1, 1, 2, Unpooled.wrappedBuffer(new byte[10]), null, 100, 1, data -> {
+          throw new RssException("Compression failure");
+        });
+    event = new AddBlockEvent("taskId", Arrays.asList(failedBlock), callbackNum::incrementAndGet);
+    CompletableFuture<Long> future = dataPusher.send(event);
+    assertThrows(ExecutionException.class, future::get);
+    assertTrue(taskToFailedBlockIds.get("taskId").contains(2L));
+    assertEquals(2, callbackNum.get());
+  }
 }
@@ -23,6 +23,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.spark.SparkConf;
@@ -36,8 +37,11 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.util.ChecksumUtils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doReturn;
@@ -149,6 +153,70 @@ public class WriteBufferManagerTest {
     assertEquals(96, wbm.getInSendListBytes());
   }
 
+  @Test
+  public void compressInBackgroundTest() {
+    SparkConf conf = getConf();
+    conf.set(RssSparkConfig.SPARK_RSS_CONFIG_PREFIX + RssSparkConfig.RSS_CLIENT_COMPRESS_THREAD_POOL_SIZE.key(), "2");
+    WriteBufferManager wbm = createManager(conf);
+    wbm.setShuffleWriteMetrics(new ShuffleWriteMetrics());
+    List<ShuffleBlockInfo> result = null;
+    for (int i = 0; i < 5; i++) {
+      result = wbm.addRecord(0, "Key", "Value");
+    }
+    assertEquals(1, result.size());
+    assertEquals(96, wbm.getInSendListBytes());
+    // the block is sealed without compression
+    DeferredCompressedBlock block = (DeferredCompressedBlock) result.get(0);
+    assertFalse(block.isCompressed());
+    assertEquals(0, wbm.getShuffleWriteMetrics().bytesWritten());
+    int[] compressedLength = new int[1];
+    block.onCompressed(length -> compressedLength[0] = length);
+
+    block.compress();
+    assertTrue(block.isCompressed());
+    assertTrue(block.getLength() > 0);
+    assertEquals(block.getLength(), compressedLength[0]);
+    assertEquals(block.getLength(), wbm.getShuffleWriteMetrics().bytesWritten());
+    byte[] data = new byte[block.getLength()];
+    block.getData().getBytes(0, data);
+    assertEquals(ChecksumUtils.getCrc32(data), block.getCrc());
+  }
+
+  @Test
+  public void offHeapTest() {
+    SparkConf conf = getConf();
+    conf.set(RssSparkConfig.SPARK_RSS_CONFIG_PREFIX + RssSparkConfig.RSS_WRITER_BUFFER_OFF_HEAP_ENABLED.key(), "true");
+    WriteBufferManager wbm = createManager(conf);
+    wbm.setShuffleWriteMetrics(new ShuffleWriteMetrics());
+    List<ShuffleBlockInfo> result = Lists.newArrayList();
+    int recordNum = 0;
+    while (result.isEmpty() && recordNum < 10) {
+      result = wbm.addRecord(0, "Key", "Value");
+      recordNum++;
+    }
+    // the buffer is full after it grows to 3 segments
+    assertEquals(1, result.size());
+    assertEquals(96, wbm.getInSendListBytes());
+    ShuffleBlockInfo block = result.get(0);
+    assertTrue(block.getData().isDirect());
+    assertEquals(block.getLength(), block.getData().readableBytes());
+    assertEquals(ChecksumUtils.getCrc32(block.getData().nioBuffer()), block.getCrc());
+    assertEquals(block.getLength(), wbm.getShuffleWriteMetrics().bytesWritten());
+
+    // the data is released after the block is sent
+    List<AddBlockEvent> events = wbm.buildBlockEvents(result);
+    assertEquals(1, events.size());
+    events.get(0).getProcessedCallbackChain().forEach(Runnable::run);
+    assertEquals(0, block.getData().refCnt());
+    assertEquals(0, wbm.getInSendListBytes());
+
+    // the data left in buffer is released when the task is finished
+    wbm.addRecord(1, "Key", "Value");
+    WriterBuffer wb = wbm.getBuffers().get(1);
+    wbm.freeAllMemory();
+    assertNull(wb.getDirectData());
+  }
+
   @Test
   public void addHugeRecordTest() {
     SparkConf conf = getConf();
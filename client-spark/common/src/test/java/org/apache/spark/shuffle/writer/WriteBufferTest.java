@@ -19,13 +19,17 @@ package org.apache.spark.shuffle.writer;
 
 import scala.reflect.ClassTag$;
 
+import io.netty.buffer.ByteBuf;
 import org.apache.spark.SparkConf;
 import org.apache.spark.serializer.KryoSerializer;
 import org.apache.spark.serializer.SerializationStream;
 import org.apache.spark.serializer.Serializer;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class WriteBufferTest {
 
@@ -82,6 +86,38 @@ public class WriteBufferTest {
     assertEquals(91, wb.getData().length);
   }
 
+  @Test
+  public void offHeapTest() {
+    WriterBuffer heapBuffer = new WriterBuffer(32);
+    WriterBuffer wb = new WriterBuffer(32, true);
+    serializeData("key", "value");
+    for (int i = 0; i < 3; i++) {
+      heapBuffer.addRecord(serializedData, serializedDataLength);
+      wb.addRecord(serializedData, serializedDataLength);
+      // the buffer grows by segment, the memory used is the same as on-heap mode
+      assertEquals(heapBuffer.getMemoryUsed(), wb.getMemoryUsed());
+    }
+    assertEquals(64, wb.getMemoryUsed());
+    assertEquals(36, wb.getDataLength());
+    assertArrayEquals(heapBuffer.getData(), wb.getData());
+
+    ByteBuf data = wb.getDirectData();
+    assertTrue(data.isDirect());
+    assertEquals(36, data.readableBytes());
+    data.release();
+
+    wb = new WriterBuffer(32, true);
+    serializeData("key1111111111111111111111111111", "value222222222222222222222222222");
+    wb.addRecord(serializedData, serializedDataLength);
+    assertEquals(67, wb.getMemoryUsed());
+    serializeData("key", "value");
+    wb.addRecord(serializedData, serializedDataLength);
+    assertEquals(99, wb.getMemoryUsed());
+    assertEquals(79, wb.getDataLength());
+    wb.release();
+    assertNull(wb.getDirectData());
+  }
+
   private void serializeData(Object key, Object value) {
     arrayOutputStream.reset();
     serializeStream.writeKey(key, ClassTag$.MODULE$.apply(key.getClass()));
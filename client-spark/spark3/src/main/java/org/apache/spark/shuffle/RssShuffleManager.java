@@ -201,13 +201,16 @@ public class RssShuffleManager extends RssShuffleManagerBase {
     LOG.info("Rss data pusher is starting...");
     int poolSize = sparkConf.get(RssSparkConfig.RSS_CLIENT_SEND_THREAD_POOL_SIZE);
     int keepAliveTime = sparkConf.get(RssSparkConfig.RSS_CLIENT_SEND_THREAD_POOL_KEEPALIVE);
+    int compressPoolSize = RssSparkConfig.toRssConf(sparkConf)
+        .get(RssSparkConfig.RSS_CLIENT_COMPRESS_THREAD_POOL_SIZE);
     this.dataPusher = new DataPusher(
         shuffleWriteClient,
         taskToSuccessBlockIds,
         taskToFailedBlockIds,
         failedTaskIds,
         poolSize,
-        keepAliveTime
+        keepAliveTime,
+        compressPoolSize
     );
   }
 
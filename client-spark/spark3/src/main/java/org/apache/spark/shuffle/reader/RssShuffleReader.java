@@ -17,6 +17,7 @@
 
 package org.apache.spark.shuffle.reader;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -201,20 +202,42 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
     return hadoopConf;
   }
 
+  /**
+   * Reads the partitions one after another. If partition concurrency is bigger than 1, the data
+   * of the next partitions is prefetched in background while the current one is being consumed,
+   * so the time of fetching these partitions overlaps.
+   */
   class MultiPartitionIterator<K, C> extends AbstractIterator<Product2<K, C>> {
     java.util.Iterator<CompletionIterator<Product2<K, C>, RssShuffleDataIterator<K, C>>> iterator;
     CompletionIterator<Product2<K, C>, RssShuffleDataIterator<K, C>>  dataIterator;
+    java.util.Iterator<ShuffleReadClient> prefetchIterator;
 
     MultiPartitionIterator() {
       List<CompletionIterator<Product2<K, C>, RssShuffleDataIterator<K, C>>> iterators = Lists.newArrayList();
+      List<ShuffleReadClient> readClients = Lists.newArrayList();
       if (numMaps <= 0) {
         return;
       }
+      List<Integer> partitions = Lists.newArrayList();
       for (int partition = startPartition; partition < endPartition; partition++) {
         if (partitionToExpectBlocks.get(partition).isEmpty()) {
           LOG.info("{} partition is empty partition", partition);
           continue;
         }
+        partitions.add(partition);
+      }
+      int concurrency = Math.min(rssConf.get(RssClientConf.RSS_CLIENT_READ_PARTITION_CONCURRENCY), partitions.size());
+      RssConf readConf = rssConf;
+      if (concurrency > 1) {
+        // the memory of prefetch is shared by the partitions fetched concurrently
+        long prefetchMemorySize = rssConf.getSizeAsBytes(
+            RssClientConf.RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE.key(),
+            RssClientConf.RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE.defaultValue());
+        readConf = new RssConf(rssConf);
+        readConf.set(RssClientConf.RSS_CLIENT_READ_PREFETCH_ENABLED, true);
+        readConf.set(RssClientConf.RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE, prefetchMemorySize / concurrency + "b");
+      }
+      for (int partition : partitions) {
         List<ShuffleServerInfo> shuffleServerInfoList = partitionToShuffleServers.get(partition);
         // This mechanism of expectedTaskIdsBitmap filter is to filter out the most of data.
         // especially for AQE skew optimization
@@ -223,8 +246,9 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
         CreateShuffleReadClientRequest request = new CreateShuffleReadClientRequest(
             appId, shuffleId, partition, basePath, 1, partitionNum,
             partitionToExpectBlocks.get(partition), taskIdBitmap, shuffleServerInfoList, hadoopConf,
-            dataDistributionType, expectedTaskIdsBitmapFilterEnable, rssConf);
+            dataDistributionType, expectedTaskIdsBitmapFilterEnable, readConf);
         ShuffleReadClient shuffleReadClient = ShuffleClientFactory.getInstance().createShuffleReadClient(request);
+        readClients.add(shuffleReadClient);
         RssShuffleDataIterator<K, C> iterator = new RssShuffleDataIterator<>(
             shuffleDependency.serializer(), shuffleReadClient,
             readMetrics, rssConf);
@@ -240,6 +264,10 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
         dataIterator = iterator.next();
         iterator.remove();
       }
+      prefetchIterator = concurrency > 1 ? readClients.iterator() : Collections.emptyIterator();
+      for (int i = 0; i < concurrency && prefetchIterator.hasNext(); i++) {
+        prefetchIterator.next().startPrefetch();
+      }
       context.addTaskCompletionListener((taskContext) -> {
         if (dataIterator != null) {
           dataIterator.completion();
@@ -259,6 +287,10 @@ public class RssShuffleReader<K, C> implements ShuffleReader<K, C> {
         }
         dataIterator = iterator.next();
         iterator.remove();
+        // keep the number of partitions being fetched when one of them is finished
+        if (prefetchIterator.hasNext()) {
+          prefetchIterator.next().startPrefetch();
+        }
       }
       return dataIterator.hasNext();
     }
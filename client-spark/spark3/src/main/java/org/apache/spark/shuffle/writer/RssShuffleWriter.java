@@ -222,12 +222,23 @@ public class RssShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
         // update [partition, blockIds], it will be sent to shuffle server
         int partitionId = sbi.getPartitionId();
         partitionToBlockIds.computeIfAbsent(partitionId, k -> Sets.newHashSet()).add(blockId);
-        partitionLengths[partitionId] += sbi.getLength();
+        if (sbi instanceof DeferredCompressedBlock) {
+          // the length is known after the block is compressed by data pusher
+          ((DeferredCompressedBlock) sbi).onCompressed(length -> addPartitionLength(partitionId, length));
+        } else {
+          addPartitionLength(partitionId, sbi.getLength());
+        }
       });
       postBlockEvent(shuffleBlockInfoList);
     }
   }
 
+  private void addPartitionLength(int partitionId, long length) {
+    synchronized (partitionLengths) {
+      partitionLengths[partitionId] += length;
+    }
+  }
+
   protected void postBlockEvent(List<ShuffleBlockInfo> shuffleBlockInfoList) {
     for (AddBlockEvent event : bufferManager.buildBlockEvents(shuffleBlockInfoList)) {
       shuffleManager.sendData(event);
@@ -320,7 +331,10 @@ public class RssShuffleWriter<K, V, C> extends ShuffleWriter<K, V> {
             DUMMY_HOST,
             DUMMY_PORT,
             Option.apply(Long.toString(taskAttemptId)));
-        MapStatus mapStatus = MapStatus.apply(blockManagerId, partitionLengths, taskAttemptId);
+        MapStatus mapStatus;
+        synchronized (partitionLengths) {
+          mapStatus = MapStatus.apply(blockManagerId, partitionLengths, taskAttemptId);
+        }
         return Option.apply(mapStatus);
       } else {
         return Option.empty();
@@ -133,6 +133,27 @@ public class RssShuffleReaderTest extends AbstractRssReaderTest {
     ));
     validateResult(rssShuffleReaderSpy1.read(), expectedData, 18);
 
+    // fetch the partitions concurrently
+    RssConf concurrentConf = new RssConf(rssConf);
+    concurrentConf.set(RssClientConf.RSS_CLIENT_READ_PARTITION_CONCURRENCY, 2);
+    RssShuffleReader<String, String> concurrentReader = new RssShuffleReader<>(
+        0,
+        2,
+        0,
+        Integer.MAX_VALUE,
+        contextMock,
+        handleMock,
+        basePath,
+        conf,
+        2,
+        partitionToExpectBlocks,
+        taskIdBitmap,
+        new ShuffleReadMetrics(),
+        concurrentConf,
+        ShuffleDataDistributionType.NORMAL
+    );
+    validateResult(concurrentReader.read(), expectedData, 18);
+
     RssShuffleReader<String, String> rssShuffleReaderSpy2 = spy(new RssShuffleReader<>(
         0,
         2,
@@ -28,4 +28,19 @@ public interface ShuffleReadClient {
   void close();
 
   void logStatics();
+
+  /**
+   * Start reading the data in background before it's consumed, it does nothing if the client
+   * doesn't support prefetch.
+   */
+  default void startPrefetch() {
+  }
+
+  /**
+   * @return true if the next block can be read without releasing the data of blocks read before,
+   *     otherwise the blocks read before may be invalid after the next read
+   */
+  default boolean hasBufferedBlock() {
+    return false;
+  }
 }
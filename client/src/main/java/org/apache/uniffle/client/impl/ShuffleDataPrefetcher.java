@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.client.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.util.RssUtils;
+import org.apache.uniffle.common.util.ThreadUtils;
+
+/**
+ * Fetches the shuffle data of a read client in background, so the latency of reading storage
+ * overlaps with the consumption of the data fetched before.
+ *
+ * <p>The data is fetched one by one in the order of the fetcher and handed to the consumer in
+ * the same order. The fetching pauses when the number or the size of the data waiting to be
+ * consumed exceeds the limit, but it goes on if nothing is waiting, so a data bigger than the
+ * size limit can still be fetched.
+ */
+class ShuffleDataPrefetcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShuffleDataPrefetcher.class);
+
+  private static final ExecutorService EXECUTOR = ThreadUtils.getDaemonCachedThreadPool("ShuffleDataPrefetcher");
+  private static final ShuffleDataResult END_OF_DATA = new ShuffleDataResult();
+
+  private final Supplier<ShuffleDataResult> fetcher;
+  private final int maxNum;
+  private final long maxSize;
+  private final Deque<ShuffleDataResult> results = new ArrayDeque<>();
+  private long resultsSize = 0;
+  private Throwable error;
+  private boolean closed = false;
+  private boolean running = false;
+  private Future<?> future;
+
+  /**
+   * @param fetcher fetch the next data, or return null if there is no more data
+   */
+  ShuffleDataPrefetcher(Supplier<ShuffleDataResult> fetcher, int maxNum, long maxSize) {
+    this.fetcher = fetcher;
+    this.maxNum = maxNum;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Start fetching in background, it's started by the first {@link #take()} if not called.
+   */
+  synchronized void start() {
+    if (future == null && !closed) {
+      future = EXECUTOR.submit(this::prefetch);
+    }
+  }
+
+  /**
+   * @return the next data in order, or null if all the data is fetched
+   */
+  synchronized ShuffleDataResult take() {
+    start();
+    try {
+      while (results.isEmpty() && error == null) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RssException("Interrupted when waiting for the prefetched shuffle data", e);
+    }
+    ShuffleDataResult result = results.peek();
+    if (result == null) {
+      throw error instanceof RuntimeException ? (RuntimeException) error : new RssException(error);
+    }
+    if (result == END_OF_DATA) {
+      return null;
+    }
+    results.poll();
+    resultsSize -= sizeOf(result);
+    notifyAll();
+    return result;
+  }
+
+  /**
+   * Stop fetching and release the data not consumed, it waits for the data being fetched, so
+   * the fetcher won't be used after it returns.
+   */
+  synchronized void close() {
+    closed = true;
+    if (future != null) {
+      future.cancel(true);
+    }
+    try {
+      while (running) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted when waiting for the prefetch to stop");
+    }
+    for (ShuffleDataResult result : results) {
+      RssUtils.releaseByteBuffer(result.getDataBuffer());
+    }
+    results.clear();
+    resultsSize = 0;
+  }
+
+  private void prefetch() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      running = true;
+    }
+    try {
+      while (true) {
+        synchronized (this) {
+          while (!closed && (results.size() >= maxNum || (!results.isEmpty() && resultsSize >= maxSize))) {
+            wait();
+          }
+          if (closed) {
+            return;
+          }
+        }
+        ShuffleDataResult result = fetcher.get();
+        synchronized (this) {
+          if (closed) {
+            if (result != null) {
+              RssUtils.releaseByteBuffer(result.getDataBuffer());
+            }
+            return;
+          }
+          results.add(result == null ? END_OF_DATA : result);
+          resultsSize += sizeOf(result);
+          notifyAll();
+          if (result == null) {
+            return;
+          }
+        }
+      }
+    } catch (Throwable e) {
+      synchronized (this) {
+        if (!closed) {
+          LOG.warn("Failed to prefetch shuffle data", e);
+          error = e;
+        }
+      }
+    } finally {
+      synchronized (this) {
+        running = false;
+        notifyAll();
+      }
+    }
+  }
+
+  private static long sizeOf(ShuffleDataResult result) {
+    ByteBuffer buffer = result == null ? null : result.getDataBuffer();
+    return buffer == null ? 0 : buffer.capacity();
+  }
+}
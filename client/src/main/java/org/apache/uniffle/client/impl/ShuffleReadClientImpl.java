@@ -63,6 +63,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
   private AtomicLong crcCheckTime = new AtomicLong(0);
   private ClientReadHandler clientReadHandler;
   private IdHelper idHelper;
+  private ShuffleDataPrefetcher prefetcher;
 
   public ShuffleReadClientImpl(
       String appId,
@@ -177,6 +178,12 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
     pendingBlockIds = RssUtils.cloneBitMap(blockIdBitmap);
 
     clientReadHandler = ShuffleHandlerFactory.getInstance().createShuffleReadHandler(request);
+    if (rssConf.get(RssClientConf.RSS_CLIENT_READ_PREFETCH_ENABLED)) {
+      long prefetchMemorySize = rssConf.getSizeAsBytes(RssClientConf.RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE.key(),
+          RssClientConf.RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE.defaultValue());
+      prefetcher = new ShuffleDataPrefetcher(
+          this::fetch, rssConf.get(RssClientConf.RSS_CLIENT_READ_PREFETCH_NUM), prefetchMemorySize);
+    }
   }
 
   public ShuffleReadClientImpl(
@@ -211,28 +218,75 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
       return null;
     }
 
-    // All blocks are processed, so just return
-    if (pendingBlockIds.isEmpty()) {
-      return null;
-    }
-
     // if client need request new data from shuffle server
-    if (bufferSegmentQueue.isEmpty()) {
-      if (read() <= 0) {
+    while (bufferSegmentQueue.isEmpty()) {
+      if (!read()) {
         return null;
       }
     }
 
-    // get next buffer segment
-    BufferSegment bs = null;
+    BufferSegment bs = bufferSegmentQueue.poll();
+    ByteBuffer compressedBuffer = readBuffer.duplicate();
+    compressedBuffer.position(bs.getOffset());
+    compressedBuffer.limit(bs.getOffset() + bs.getLength());
+    return new CompressedShuffleBlock(compressedBuffer, bs.getUncompressLength());
+  }
 
-    // blocks in bufferSegmentQueue may be from different partition in range partition mode,
-    // or may be from speculation task, filter them and just read the necessary block
-    while (true) {
-      bs = bufferSegmentQueue.poll();
-      if (bs == null) {
-        break;
+  @VisibleForTesting
+  protected Roaring64NavigableMap getProcessedBlockIds() {
+    return processedBlockIds;
+  }
+
+  private boolean read() {
+    // the blocks of current buffer are all consumed
+    if (readBuffer != null) {
+      RssUtils.releaseByteBuffer(readBuffer);
+      readBuffer = null;
+    }
+    ShuffleDataResult sdr = prefetcher == null ? fetch() : prefetcher.take();
+    if (sdr == null) {
+      return false;
+    }
+    readBuffer = sdr.getDataBuffer();
+    bufferSegmentQueue.addAll(sdr.getBufferSegments());
+    return true;
+  }
+
+  /**
+   * Read the next data from storage and pick out the blocks to be consumed. If prefetch is
+   * enabled, it's only called by the prefetch thread until all the data is fetched.
+   *
+   * @return the data with the blocks to be consumed, or null if there is no more data
+   */
+  private ShuffleDataResult fetch() {
+    // All blocks are processed, so just return
+    while (!pendingBlockIds.isEmpty()) {
+      long start = System.currentTimeMillis();
+      ShuffleDataResult sdr = clientReadHandler.readShuffleData();
+      readDataTime.addAndGet(System.currentTimeMillis() - start);
+      if (sdr == null) {
+        return null;
+      }
+      ByteBuffer dataBuffer = sdr.getDataBuffer();
+      if (dataBuffer == null || dataBuffer.capacity() == 0 || sdr.getBufferSegments().isEmpty()) {
+        RssUtils.releaseByteBuffer(dataBuffer);
+        return null;
+      }
+      List<BufferSegment> bufferSegments = selectBufferSegments(dataBuffer, sdr.getBufferSegments());
+      if (!bufferSegments.isEmpty()) {
+        return new ShuffleDataResult(dataBuffer, bufferSegments);
       }
+      // current segment hasn't data, try next segment
+      RssUtils.releaseByteBuffer(dataBuffer);
+    }
+    return null;
+  }
+
+  private List<BufferSegment> selectBufferSegments(ByteBuffer dataBuffer, List<BufferSegment> bufferSegments) {
+    List<BufferSegment> selected = Lists.newArrayList();
+    // blocks in bufferSegments may be from different partition in range partition mode,
+    // or may be from speculation task, filter them and just read the necessary block
+    for (BufferSegment bs : bufferSegments) {
       // check 1: if blockId is processed
       // check 2: if blockId is required for current partition
       // check 3: if blockId is generated by required task
@@ -244,7 +298,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
         try {
           long start = System.currentTimeMillis();
           expectedCrc = bs.getCrc();
-          actualCrc = ChecksumUtils.getCrc32(readBuffer, bs.getOffset(), bs.getLength());
+          actualCrc = ChecksumUtils.getCrc32(dataBuffer, bs.getOffset(), bs.getLength());
           crcCheckTime.addAndGet(System.currentTimeMillis() - start);
         } catch (Exception e) {
           LOG.warn("Can't read data for blockId[" + bs.getBlockId() + "]", e);
@@ -260,6 +314,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
             clientReadHandler.updateConsumedBlockInfo(bs, true);
             continue;
           } else {
+            RssUtils.releaseByteBuffer(dataBuffer);
             throw new RssFetchFailedException(errMsg);
           }
         }
@@ -269,56 +324,46 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
         pendingBlockIds.removeLong(bs.getBlockId());
         // only update the statistics of necessary blocks
         clientReadHandler.updateConsumedBlockInfo(bs, false);
-        break;
+        selected.add(bs);
+        if (pendingBlockIds.isEmpty()) {
+          // all blocks are processed, the rest of segments are skipped
+          break;
+        }
+        continue;
       }
       clientReadHandler.updateConsumedBlockInfo(bs, true);
       // mark block as processed
       processedBlockIds.addLong(bs.getBlockId());
       pendingBlockIds.removeLong(bs.getBlockId());
     }
-
-    if (bs != null) {
-      ByteBuffer compressedBuffer = readBuffer.duplicate();
-      compressedBuffer.position(bs.getOffset());
-      compressedBuffer.limit(bs.getOffset() + bs.getLength());
-      return new CompressedShuffleBlock(compressedBuffer, bs.getUncompressLength());
-    }
-    // current segment hasn't data, try next segment
-    return readShuffleBlockData();
+    return selected;
   }
 
-  @VisibleForTesting
-  protected Roaring64NavigableMap getProcessedBlockIds() {
-    return processedBlockIds;
+  @Override
+  public void checkProcessedBlockIds() {
+    RssUtils.checkProcessedBlockIds(blockIdBitmap, processedBlockIds);
   }
 
-  private int read() {
-    long start = System.currentTimeMillis();
-    ShuffleDataResult sdr = clientReadHandler.readShuffleData();
-    readDataTime.addAndGet(System.currentTimeMillis() - start);
-    if (sdr == null) {
-      return 0;
-    }
-    if (readBuffer != null) {
-      RssUtils.releaseByteBuffer(readBuffer);
-    }
-    readBuffer = sdr.getDataBuffer();
-    if (readBuffer == null || readBuffer.capacity() == 0) {
-      return 0;
-    }
-    bufferSegmentQueue.addAll(sdr.getBufferSegments());
-    return sdr.getBufferSegments().size();
+  @Override
+  public boolean hasBufferedBlock() {
+    return !bufferSegmentQueue.isEmpty();
   }
 
   @Override
-  public void checkProcessedBlockIds() {
-    RssUtils.checkProcessedBlockIds(blockIdBitmap, processedBlockIds);
+  public void startPrefetch() {
+    if (prefetcher != null) {
+      prefetcher.start();
+    }
   }
 
   @Override
   public void close() {
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
     if (readBuffer != null) {
       RssUtils.releaseByteBuffer(readBuffer);
+      readBuffer = null;
     }
     if (clientReadHandler != null) {
       clientReadHandler.close();
@@ -30,8 +30,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -180,9 +182,25 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     List<CompletableFuture<Boolean>> futures = new ArrayList<>();
     for (Map.Entry<ShuffleServerInfo, Map<Integer, Map<Integer, List<ShuffleBlockInfo>>>> entry :
         serverToBlocks.entrySet()) {
+      // Each sending holds a reference of the data of its blocks until it's finished or skipped,
+      // so the pooled data released by the caller isn't freed while it's still being sent. A
+      // cancelled future is done immediately while its sending may be still reading the data.
+      List<ShuffleBlockInfo> blocks = entry.getValue().values().stream()
+          .flatMap(partitionToBlocks -> partitionToBlocks.values().stream())
+          .flatMap(Collection::stream)
+          .collect(Collectors.toList());
+      blocks.forEach(block -> block.getData().retain());
+      AtomicBoolean claimed = new AtomicBoolean(false);
+      CompletableFuture<Void> finished = new CompletableFuture<>();
+      finished.whenComplete((r, e) -> blocks.forEach(block -> block.getData().release()));
       CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
+        if (!claimed.compareAndSet(false, true)) {
+          // it's cancelled before running
+          return false;
+        }
         if (needCancelRequest.get()) {
           LOG.info("The upstream task has been failed. Abort this data send.");
+          finished.complete(null);
           return true;
         }
         ShuffleServerInfo ssi = entry.getKey();
@@ -217,9 +235,16 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
           }
           LOG.warn("Send: " + serverToBlockIds.get(ssi).size() + " blocks to [" + ssi.getId() + "] failed.", e);
           return false;
+        } finally {
+          finished.complete(null);
         }
         return true;
       }, dataTransferPool);
+      future.whenComplete((r, e) -> {
+        if (claimed.compareAndSet(false, true)) {
+          finished.complete(null);
+        }
+      });
       futures.add(future);
     }
 
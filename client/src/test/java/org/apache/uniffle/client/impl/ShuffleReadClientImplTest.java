@@ -39,6 +39,8 @@ import org.apache.uniffle.client.response.CompressedShuffleBlock;
 import org.apache.uniffle.client.util.DefaultIdHelper;
 import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.ShuffleServerInfo;
+import org.apache.uniffle.common.config.RssClientConf;
+import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.util.ChecksumUtils;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.storage.HadoopTestBase;
@@ -46,6 +48,7 @@ import org.apache.uniffle.storage.handler.impl.HadoopShuffleWriteHandler;
 import org.apache.uniffle.storage.util.StorageType;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -96,6 +99,45 @@ public class ShuffleReadClientImplTest extends HadoopTestBase {
     }
   }
 
+  @Test
+  public void readWithPrefetchTest() throws Exception {
+    String basePath = HDFS_URI + "clientReadWithPrefetchTest";
+    HadoopShuffleWriteHandler writeHandler =
+        new HadoopShuffleWriteHandler("appId", 0, 1, 1, basePath, ssi1.getId(), conf);
+
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Roaring64NavigableMap blockIdBitmap = Roaring64NavigableMap.bitmapOf();
+    for (int i = 0; i < 5; i++) {
+      writeTestData(writeHandler, 4, 30, 0, expectedData, blockIdBitmap);
+    }
+
+    RssConf rssConf = new RssConf();
+    rssConf.set(RssClientConf.RSS_STORAGE_TYPE, StorageType.HDFS.name());
+    rssConf.set(RssClientConf.RSS_CLIENT_READ_BUFFER_SIZE, "60");
+    rssConf.set(RssClientConf.RSS_CLIENT_READ_PREFETCH_ENABLED, true);
+    rssConf.set(RssClientConf.RSS_CLIENT_READ_PREFETCH_NUM, 2);
+    Roaring64NavigableMap taskIdBitmap = Roaring64NavigableMap.bitmapOf(0);
+    ShuffleReadClientImpl readClient = new ShuffleReadClientImpl("appId", 0, 1, 1, 10, basePath,
+        blockIdBitmap, taskIdBitmap, Lists.newArrayList(ssi1), new Configuration(), new DefaultIdHelper(), rssConf);
+    TestUtils.validateResult(readClient, expectedData);
+    readClient.checkProcessedBlockIds();
+    readClient.close();
+
+    // the read keeps going when a single prefetched data exceeds the memory limit
+    rssConf.set(RssClientConf.RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE, "1b");
+    readClient = new ShuffleReadClientImpl("appId", 0, 1, 1, 10, basePath,
+        blockIdBitmap, taskIdBitmap, Lists.newArrayList(ssi1), new Configuration(), new DefaultIdHelper(), rssConf);
+    TestUtils.validateResult(readClient, expectedData);
+    readClient.checkProcessedBlockIds();
+    readClient.close();
+
+    // close before all the data is read
+    readClient = new ShuffleReadClientImpl("appId", 0, 1, 1, 10, basePath,
+        blockIdBitmap, taskIdBitmap, Lists.newArrayList(ssi1), new Configuration(), new DefaultIdHelper(), rssConf);
+    assertNotNull(readClient.readShuffleBlockData());
+    readClient.close();
+  }
+
   @Test
   public void readTest2() throws Exception {
     String basePath = HDFS_URI + "clientReadTest2";
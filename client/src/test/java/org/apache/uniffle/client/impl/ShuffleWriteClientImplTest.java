@@ -19,10 +19,13 @@ package org.apache.uniffle.client.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -88,6 +91,43 @@ public class ShuffleWriteClientImplTest {
     assertTrue(result.getFailedBlockIds().contains(10L));
   }
 
+  @Test
+  public void testSendDataHoldsBlockDataForRunningSendingsAfterFastFail() throws Exception {
+    // replica skip is disabled, the data is sent to 2 servers in one round with fast fail
+    ShuffleWriteClientImpl shuffleWriteClient =
+        new ShuffleWriteClientImpl("GRPC", 3, 2000, 4, 2, 1, 1, false, 2, 1, 10, 10);
+    ShuffleServerClient failedClient = mock(ShuffleServerClient.class);
+    ShuffleServerClient slowClient = mock(ShuffleServerClient.class);
+    ShuffleServerInfo failedServer = new ShuffleServerInfo("id1", "host1", 0);
+    ShuffleServerInfo slowServer = new ShuffleServerInfo("id2", "host2", 0);
+    ShuffleWriteClientImpl spyClient = Mockito.spy(shuffleWriteClient);
+    doReturn(failedClient).when(spyClient).getShuffleServerClient(failedServer);
+    doReturn(slowClient).when(spyClient).getShuffleServerClient(slowServer);
+    CountDownLatch slowSendingStarted = new CountDownLatch(1);
+    CountDownLatch slowSendingBlocker = new CountDownLatch(1);
+    // fail after the other sending is running, so that it isn't cancelled before starting
+    when(failedClient.sendShuffleData(any())).thenAnswer(invocation -> {
+      slowSendingStarted.await();
+      return new RssSendShuffleDataResponse(StatusCode.NO_BUFFER);
+    });
+    when(slowClient.sendShuffleData(any())).thenAnswer(invocation -> {
+      slowSendingStarted.countDown();
+      slowSendingBlocker.await();
+      return new RssSendShuffleDataResponse(StatusCode.SUCCESS);
+    });
+
+    ByteBuf data = Unpooled.wrappedBuffer(new byte[]{1});
+    List<ShuffleBlockInfo> shuffleBlockInfoList = Lists.newArrayList(new ShuffleBlockInfo(
+        0, 0, 10, 10, 10, data, Lists.newArrayList(failedServer, slowServer), 10, 100, 0));
+    // the sending which fails first makes it return without waiting for the running one
+    SendShuffleDataResult result = spyClient.sendShuffleData("appId", shuffleBlockInfoList, () -> false);
+    assertTrue(result.getFailedBlockIds().contains(10L));
+    // the running sending still holds the data, so the caller can release its own reference
+    assertEquals(2, data.refCnt());
+    slowSendingBlocker.countDown();
+    Awaitility.await().timeout(10, TimeUnit.SECONDS).until(() -> data.refCnt() == 1);
+  }
+
   @Test
   public void testRegisterAndUnRegisterShuffleServer() {
     ShuffleWriteClientImpl shuffleWriteClient =
@@ -132,4 +132,49 @@ public class RssClientConf {
       .stringType()
       .defaultValue("14m")
       .withDescription("The max data size read from storage");
+
+  public static final ConfigOption<Boolean> RSS_CLIENT_READ_PREFETCH_ENABLED = ConfigOptions
+      .key("rss.client.read.prefetch.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to read the next data from storage in background while the current data "
+          + "is being consumed");
+
+  public static final ConfigOption<Integer> RSS_CLIENT_READ_PREFETCH_NUM = ConfigOptions
+      .key("rss.client.read.prefetch.num")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "prefetch num must be positive")
+      .defaultValue(2)
+      .withDescription("The max number of prefetched data waiting to be consumed for every read client");
+
+  public static final ConfigOption<String> RSS_CLIENT_READ_PREFETCH_MEMORY_SIZE = ConfigOptions
+      .key("rss.client.read.prefetch.memory.size")
+      .stringType()
+      .defaultValue("64m")
+      .withDescription("The max size of prefetched data waiting to be consumed for every read client, "
+          + "the next data is still fetched if nothing is waiting");
+
+  public static final ConfigOption<Integer> RSS_CLIENT_READ_PARTITION_CONCURRENCY = ConfigOptions
+      .key("rss.client.read.partition.concurrency")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "partition concurrency must be positive")
+      .defaultValue(1)
+      .withDescription("The max number of partitions fetched concurrently by a reader which reads multiple "
+          + "partitions, if it's bigger than 1, the data of these partitions is prefetched in background and "
+          + "rss.client.read.prefetch.memory.size is shared by them");
+
+  public static final ConfigOption<Integer> RSS_CLIENT_READ_DECOMPRESSION_AHEAD_NUM = ConfigOptions
+      .key("rss.client.read.decompression.ahead.num")
+      .intType()
+      .defaultValue(0)
+      .withDescription("The max number of blocks decompressed in parallel ahead of deserialization by every "
+          + "reader, the blocks are decompressed in the reading thread if it's not positive");
+
+  public static final ConfigOption<Integer> RSS_CLIENT_READ_DECOMPRESSION_THREADS = ConfigOptions
+      .key("rss.client.read.decompression.threads")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "decompression threads must be positive")
+      .defaultValue(4)
+      .withDescription("The size of thread pool to decompress blocks ahead, it's shared by all the readers "
+          + "in the same process");
 }
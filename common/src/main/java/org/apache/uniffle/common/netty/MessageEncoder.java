@@ -57,11 +57,15 @@ public class MessageEncoder extends ChannelOutboundHandlerAdapter {
     } catch (Exception e) {
       LOG.error("Unexpected exception during process encode!", e);
       byteBuf.release();
+      promise.setFailure(e);
+      return;
     }
-    ctx.writeAndFlush(byteBuf);
-    // do transferTo send data after encode buffer send.
     if (message instanceof Transferable) {
-      ((Transferable) message).transferTo(ctx.channel());
+      ctx.write(byteBuf);
+      // do transferTo send data after encode buffer send.
+      ((Transferable) message).transferTo(ctx, promise);
+    } else {
+      ctx.writeAndFlush(byteBuf, promise);
     }
   }
 }
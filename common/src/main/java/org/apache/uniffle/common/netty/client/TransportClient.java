@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.netty.handle.TransportResponseHandler;
 import org.apache.uniffle.common.netty.protocol.Message;
+import org.apache.uniffle.common.netty.protocol.RequestMessage;
 import org.apache.uniffle.common.netty.protocol.RpcResponse;
 import org.apache.uniffle.common.util.NettyUtils;
 
@@ -70,7 +71,8 @@ public class TransportClient implements Closeable {
     if (logger.isTraceEnabled()) {
       logger.trace("Pushing data to {}", NettyUtils.getRemoteAddress(channel));
     }
-    long requestId = requestId();
+    // the response carries the id of its request, so the callback must be registered with the same id
+    long requestId = message instanceof RequestMessage ? ((RequestMessage) message).getRequestId() : requestId();
     handler.addResponseCallback(requestId, callback);
     RpcChannelListener listener = new RpcChannelListener(requestId, callback);
     return channel.writeAndFlush(message).addListener(listener);
@@ -18,7 +18,9 @@
 package org.apache.uniffle.common.netty.protocol;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.Channel;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 
 import org.apache.uniffle.common.netty.buffer.FileSegmentManagedBuffer;
 import org.apache.uniffle.common.netty.buffer.ManagedBuffer;
@@ -74,8 +76,14 @@ public class GetLocalShuffleDataResponse extends RpcResponse implements Transfer
   }
 
   @Override
-  public void transferTo(Channel channel) {
-    channel.write(buffer.convertToNetty());
-    buffer.release();
+  public void transferTo(ChannelHandlerContext ctx, ChannelPromise promise) {
+    if (buffer instanceof FileSegmentManagedBuffer) {
+      // the file region is sent by sendfile and closes the file channel once it is released by netty
+      ctx.writeAndFlush(buffer.convertToNetty(), promise);
+      buffer.release();
+    } else {
+      // the data has been copied into the header buffer in encode
+      ctx.writeAndFlush(Unpooled.EMPTY_BUFFER, promise);
+    }
   }
 }
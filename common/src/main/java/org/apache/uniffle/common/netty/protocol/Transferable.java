@@ -17,9 +17,18 @@
 
 package org.apache.uniffle.common.netty.protocol;
 
-import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 
+/**
+ * A message whose body is not encoded into the header buffer but written to the channel
+ * on its own after the header, e.g. a file region which is sent with zero-copy.
+ */
 public interface Transferable {
 
-  void transferTo(Channel channel);
+  /**
+   * Write the body of the message through the given context, which must not pass the encoder again.
+   * The promise should be completed once the body has been written.
+   */
+  void transferTo(ChannelHandlerContext ctx, ChannelPromise promise);
 }
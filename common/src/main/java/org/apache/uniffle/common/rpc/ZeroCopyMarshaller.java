@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.common.rpc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.protobuf.ByteOutput;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Detachable;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.HasByteBuffer;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A marshaller of unary requests which parses the bytes fields without copying them out of
+ * the gRPC receive buffers.
+ *
+ * <p>The receive buffers are detached from gRPC and kept by the parsed message until the call
+ * is closed. The data converted by {@link #toByteBuf} holds a reference of them, so they are
+ * released only after all the converted data is released as well. If the stream can't be
+ * detached, e.g. the message is compressed, it falls back to the delegated marshaller.
+ */
+public class ZeroCopyMarshaller<T extends MessageLite> implements MethodDescriptor.Marshaller<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZeroCopyMarshaller.class);
+
+  private final MethodDescriptor.Marshaller<T> delegate;
+  private final Parser<T> parser;
+  // the keys are compared by identity
+  private final Map<T, ReceiveBuffers> receiveBuffers = new MapMaker().weakKeys().makeMap();
+
+  @SuppressWarnings("unchecked")
+  public ZeroCopyMarshaller(MethodDescriptor.Marshaller<T> delegate, T defaultInstance) {
+    this.delegate = delegate;
+    this.parser = (Parser<T>) defaultInstance.getParserForType();
+  }
+
+  @Override
+  public InputStream stream(T value) {
+    return delegate.stream(value);
+  }
+
+  @Override
+  public T parse(InputStream stream) {
+    if (stream instanceof Detachable && stream instanceof HasByteBuffer
+        && ((HasByteBuffer) stream).byteBufferSupported()) {
+      return parseDetached(((Detachable) stream).detach());
+    }
+    return delegate.parse(stream);
+  }
+
+  private T parseDetached(InputStream stream) {
+    boolean pinned = false;
+    try {
+      // the buffers skipped are kept by the stream until it is closed
+      stream.mark(Integer.MAX_VALUE);
+      ByteString bytes = ByteString.EMPTY;
+      while (stream.available() > 0) {
+        ByteBuffer buffer = ((HasByteBuffer) stream).getByteBuffer();
+        if (buffer == null) {
+          stream.reset();
+          return delegate.parse(stream);
+        }
+        bytes = bytes.concat(UnsafeByteOperations.unsafeWrap(buffer));
+        stream.skip(buffer.remaining());
+      }
+      CodedInputStream input = bytes.newCodedInput();
+      input.enableAliasing(true);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      T message = parser.parseFrom(input);
+      receiveBuffers.put(message, new ReceiveBuffers(stream));
+      pinned = true;
+      return message;
+    } catch (InvalidProtocolBufferException e) {
+      throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence")
+          .withCause(e).asRuntimeException();
+    } catch (IOException e) {
+      throw Status.INTERNAL.withDescription("Fail to read the message")
+          .withCause(e).asRuntimeException();
+    } finally {
+      if (!pinned) {
+        closeQuietly(stream);
+      }
+    }
+  }
+
+  /**
+   * Convert the bytes field of the message to a buffer without copying, the buffer must be
+   * released after use if the message is parsed by this marshaller.
+   */
+  public ByteBuf toByteBuf(T message, ByteString bytes) {
+    if (bytes.isEmpty()) {
+      return Unpooled.EMPTY_BUFFER;
+    }
+    ByteBufOutput output = new ByteBufOutput();
+    try {
+      UnsafeByteOperations.unsafeWriteTo(bytes, output);
+    } catch (IOException e) {
+      // never happens since the output doesn't write anything
+      throw new IllegalStateException(e);
+    }
+    ByteBuf data = output.components.size() == 1
+        ? output.components.get(0)
+        : Unpooled.wrappedBuffer(output.components.size(), output.components.toArray(new ByteBuf[0]));
+    ReceiveBuffers buffers = output.direct ? receiveBuffers.get(message) : null;
+    if (buffers == null) {
+      return data;
+    }
+    buffers.retain();
+    return new PinnedByteBuf(data, buffers);
+  }
+
+  /**
+   * Release the receive buffers of the message, the buffers converted from it are still valid
+   * until they are released.
+   */
+  public void release(T message) {
+    ReceiveBuffers buffers = receiveBuffers.remove(message);
+    if (buffers != null) {
+      buffers.release();
+    }
+  }
+
+  /**
+   * @return the service definition whose given method is bound to this marshaller, the request
+   *     is released once the call is closed
+   */
+  public <R> ServerServiceDefinition bind(ServerServiceDefinition definition, MethodDescriptor<T, R> method) {
+    MethodDescriptor<T, R> zeroCopyMethod = method.toBuilder(this, method.getResponseMarshaller()).build();
+    ServiceDescriptor serviceDescriptor = definition.getServiceDescriptor();
+    ServiceDescriptor.Builder descriptorBuilder = ServiceDescriptor.newBuilder(serviceDescriptor.getName())
+        .setSchemaDescriptor(serviceDescriptor.getSchemaDescriptor());
+    for (MethodDescriptor<?, ?> methodDescriptor : serviceDescriptor.getMethods()) {
+      descriptorBuilder.addMethod(
+          methodDescriptor.getFullMethodName().equals(method.getFullMethodName()) ? zeroCopyMethod : methodDescriptor);
+    }
+    ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptorBuilder.build());
+    for (ServerMethodDefinition<?, ?> methodDefinition : definition.getMethods()) {
+      if (methodDefinition.getMethodDescriptor().getFullMethodName().equals(method.getFullMethodName())) {
+        @SuppressWarnings("unchecked")
+        ServerCallHandler<T, R> handler = (ServerCallHandler<T, R>) methodDefinition.getServerCallHandler();
+        builder.addMethod(zeroCopyMethod, releaseOnClose(handler));
+      } else {
+        builder.addMethod(methodDefinition);
+      }
+    }
+    return builder.build();
+  }
+
+  private <R> ServerCallHandler<T, R> releaseOnClose(ServerCallHandler<T, R> handler) {
+    return (call, headers) -> new ForwardingServerCallListener.SimpleForwardingServerCallListener<T>(
+        handler.startCall(call, headers)) {
+      // all the parsed requests are kept, a client may send more than one message in a unary
+      // call before it's closed with an error
+      private final List<T> requests = Lists.newArrayList();
+
+      @Override
+      public void onMessage(T message) {
+        synchronized (requests) {
+          requests.add(message);
+        }
+        super.onMessage(message);
+      }
+
+      @Override
+      public void onCancel() {
+        try {
+          super.onCancel();
+        } finally {
+          releaseRequests();
+        }
+      }
+
+      @Override
+      public void onComplete() {
+        try {
+          super.onComplete();
+        } finally {
+          releaseRequests();
+        }
+      }
+
+      private void releaseRequests() {
+        synchronized (requests) {
+          requests.forEach(ZeroCopyMarshaller.this::release);
+          requests.clear();
+        }
+      }
+    };
+  }
+
+  private static void closeQuietly(InputStream stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      LOG.warn("Fail to close the stream of gRPC receive buffers", e);
+    }
+  }
+
+  private static class ReceiveBuffers extends AbstractReferenceCounted {
+    private final InputStream stream;
+
+    ReceiveBuffers(InputStream stream) {
+      this.stream = stream;
+    }
+
+    @Override
+    protected void deallocate() {
+      closeQuietly(stream);
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+      return this;
+    }
+  }
+
+  /**
+   * The buffer which releases the receive buffers it's aliased to when it's released.
+   */
+  private static class PinnedByteBuf extends CompositeByteBuf {
+    private final ReceiveBuffers buffers;
+
+    PinnedByteBuf(ByteBuf data, ReceiveBuffers buffers) {
+      super(UnpooledByteBufAllocator.DEFAULT, data.isDirect(), 1, data);
+      this.buffers = buffers;
+    }
+
+    @Override
+    protected void deallocate() {
+      super.deallocate();
+      buffers.release();
+    }
+  }
+
+  /**
+   * Collects the underlying buffers of a {@link ByteString}, only the eager writes are copied.
+   */
+  private static class ByteBufOutput extends ByteOutput {
+    private final List<ByteBuf> components = Lists.newArrayList();
+    private boolean direct = false;
+
+    @Override
+    public void write(byte value) {
+      components.add(Unpooled.wrappedBuffer(new byte[]{value}));
+    }
+
+    @Override
+    public void write(byte[] value, int offset, int length) {
+      components.add(Unpooled.copiedBuffer(value, offset, length));
+    }
+
+    @Override
+    public void write(ByteBuffer value) {
+      components.add(Unpooled.copiedBuffer(value));
+    }
+
+    @Override
+    public void writeLazy(byte[] value, int offset, int length) {
+      components.add(Unpooled.wrappedBuffer(value, offset, length));
+    }
+
+    @Override
+    public void writeLazy(ByteBuffer value) {
+      if (value.hasArray()) {
+        components.add(Unpooled.wrappedBuffer(
+            value.array(), value.arrayOffset() + value.position(), value.remaining()));
+      } else {
+        components.add(Unpooled.wrappedBuffer(value));
+        direct |= value.isDirect();
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.common.rpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.internal.CompositeReadableBuffer;
+import io.grpc.internal.ForwardingReadableBuffer;
+import io.grpc.internal.ReadableBuffer;
+import io.grpc.internal.ReadableBuffers;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.util.ByteBufUtils;
+import org.apache.uniffle.proto.RssProtos.SendShuffleDataRequest;
+import org.apache.uniffle.proto.RssProtos.SendShuffleDataResponse;
+import org.apache.uniffle.proto.RssProtos.ShuffleBlock;
+import org.apache.uniffle.proto.RssProtos.ShuffleData;
+import org.apache.uniffle.proto.ShuffleServerGrpc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZeroCopyMarshallerTest {
+
+  private final ZeroCopyMarshaller<SendShuffleDataRequest> marshaller = new ZeroCopyMarshaller<>(
+      ShuffleServerGrpc.getSendShuffleDataMethod().getRequestMarshaller(), SendShuffleDataRequest.getDefaultInstance());
+
+  @Test
+  public void parseDetachedTest() throws Exception {
+    byte[] data1 = createData(100, 1);
+    byte[] data2 = createData(200, 2);
+    SendShuffleDataRequest request = createRequest(data1, data2);
+    byte[] serialized = request.toByteArray();
+
+    // the first block is in the first buffer, the second block is split into two buffers
+    AtomicInteger closedNum = new AtomicInteger(0);
+    CompositeReadableBuffer buffers = new CompositeReadableBuffer();
+    int splitOffset = serialized.length - 100;
+    buffers.addBuffer(trackClose(toDirect(serialized, 0, splitOffset), closedNum));
+    buffers.addBuffer(trackClose(toDirect(serialized, splitOffset, serialized.length - splitOffset), closedNum));
+    InputStream stream = ReadableBuffers.openStream(buffers, true);
+
+    SendShuffleDataRequest parsed = marshaller.parse(stream);
+    assertEquals(request, parsed);
+    ByteBuf buf1 = marshaller.toByteBuf(parsed, parsed.getShuffleData(0).getBlock(0).getData());
+    ByteBuf buf2 = marshaller.toByteBuf(parsed, parsed.getShuffleData(0).getBlock(1).getData());
+    assertTrue(buf1.isDirect());
+    assertArrayEquals(data1, ByteBufUtils.readBytes(buf1));
+    assertArrayEquals(data2, ByteBufUtils.readBytes(buf2));
+
+    // the receive buffers are kept until all the aliased data is released
+    marshaller.release(parsed);
+    buf2.release();
+    assertEquals(0, closedNum.get());
+    buf1.release();
+    assertEquals(2, closedNum.get());
+  }
+
+  @Test
+  public void parseFallbackTest() {
+    byte[] data = createData(100, 1);
+    SendShuffleDataRequest request = createRequest(data);
+
+    SendShuffleDataRequest parsed = marshaller.parse(new ByteArrayInputStream(request.toByteArray()));
+    assertEquals(request, parsed);
+    ByteBuf buf = marshaller.toByteBuf(parsed, parsed.getShuffleData(0).getBlock(0).getData());
+    assertFalse(buf.isDirect());
+    assertArrayEquals(data, ByteBufUtils.readBytes(buf));
+    marshaller.release(parsed);
+    buf.release();
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void releaseOnCloseTest() {
+    MethodDescriptor<SendShuffleDataRequest, SendShuffleDataResponse> method =
+        ShuffleServerGrpc.getSendShuffleDataMethod();
+    ServerServiceDefinition definition = marshaller.bind(
+        new ShuffleServerGrpc.ShuffleServerImplBase() { }.bindService(), method);
+    ServerCallHandler handler = definition.getMethod(method.getFullMethodName()).getServerCallHandler();
+    ServerCall.Listener<SendShuffleDataRequest> listener = handler.startCall(new NoopServerCall<>(
+        definition.getMethod(method.getFullMethodName()).getMethodDescriptor()), new Metadata());
+
+    // all the requests received by the call are released when it's cancelled
+    AtomicInteger closedNum = new AtomicInteger(0);
+    listener.onMessage(parseDetached(createRequest(createData(100, 1)), closedNum));
+    listener.onMessage(parseDetached(createRequest(createData(100, 2)), closedNum));
+    assertEquals(0, closedNum.get());
+    listener.onCancel();
+    assertEquals(2, closedNum.get());
+  }
+
+  private SendShuffleDataRequest parseDetached(SendShuffleDataRequest request, AtomicInteger closedNum) {
+    byte[] serialized = request.toByteArray();
+    CompositeReadableBuffer buffers = new CompositeReadableBuffer();
+    buffers.addBuffer(trackClose(toDirect(serialized, 0, serialized.length), closedNum));
+    return marshaller.parse(ReadableBuffers.openStream(buffers, true));
+  }
+
+  private SendShuffleDataRequest createRequest(byte[]... blocks) {
+    ShuffleData.Builder shuffleData = ShuffleData.newBuilder().setPartitionId(1);
+    for (int i = 0; i < blocks.length; i++) {
+      shuffleData.addBlock(ShuffleBlock.newBuilder()
+          .setBlockId(i)
+          .setLength(blocks[i].length)
+          .setData(ByteString.copyFrom(blocks[i])));
+    }
+    return SendShuffleDataRequest.newBuilder()
+        .setAppId("app1")
+        .setShuffleId(1)
+        .addShuffleData(shuffleData)
+        .build();
+  }
+
+  private byte[] createData(int length, int value) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (value + i);
+    }
+    return data;
+  }
+
+  private ByteBuffer toDirect(byte[] bytes, int offset, int length) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+    buffer.put(bytes, offset, length);
+    buffer.flip();
+    return buffer;
+  }
+
+  private ReadableBuffer trackClose(ByteBuffer buffer, AtomicInteger closedNum) {
+    return new ForwardingReadableBuffer(ReadableBuffers.wrap(buffer)) {
+      @Override
+      public void close() {
+        closedNum.incrementAndGet();
+      }
+    };
+  }
+
+  private static class NoopServerCall<ReqT, RespT> extends ServerCall<ReqT, RespT> {
+    private final MethodDescriptor<ReqT, RespT> method;
+
+    NoopServerCall(MethodDescriptor<ReqT, RespT> method) {
+      this.method = method;
+    }
+
+    @Override
+    public void request(int numMessages) {
+    }
+
+    @Override
+    public void sendHeaders(Metadata headers) {
+    }
+
+    @Override
+    public void sendMessage(RespT message) {
+    }
+
+    @Override
+    public void close(Status status, Metadata trailers) {
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+
+    @Override
+    public MethodDescriptor<ReqT, RespT> getMethodDescriptor() {
+      return method;
+    }
+  }
+}
@@ -62,6 +62,7 @@ import org.apache.uniffle.common.rpc.StatusCode;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.coordinator.CoordinatorConf;
 import org.apache.uniffle.proto.RssProtos;
+import org.apache.uniffle.server.PartitionBlockIdIndex;
 import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleServerConf;
 import org.apache.uniffle.server.ShuffleServerGrpcMetrics;
@@ -266,7 +267,7 @@ public class ShuffleServerGrpcTest extends IntegrationTestBase {
     blockIdBitmap = result.getBlockIdBitmap();
     assertEquals(Roaring64NavigableMap.bitmapOf(), blockIdBitmap);
 
-    // test with bitmapNum > 1
+    // test the blocks of several partitions are kept apart in the per-partition PartitionBlockIdIndex
     partitionToBlockIds = Maps.newHashMap();
     blockIds1 = getBlockIdList(1, 3);
     blockIds2 = getBlockIdList(2, 2);
@@ -277,10 +278,10 @@ public class ShuffleServerGrpcTest extends IntegrationTestBase {
     request =
         new RssReportShuffleResultRequest("shuffleResultTest", 2, 1L, partitionToBlockIds, 3);
     shuffleServerClient.reportShuffleResult(request);
-    // validate bitmap in shuffleTaskManager
-    Roaring64NavigableMap[] bitmaps = shuffleServers.get(0).getShuffleTaskManager()
+    // validate the blockId index of the shuffle in shuffleTaskManager has an entry for each partition
+    PartitionBlockIdIndex blockIdIndex = shuffleServers.get(0).getShuffleTaskManager()
         .getPartitionsToBlockIds().get("shuffleResultTest").get(2);
-    assertEquals(3, bitmaps.length);
+    assertEquals(3, blockIdIndex.getPartitionNum());
 
     req = new RssGetShuffleResultRequest("shuffleResultTest", 2, 1);
     result = shuffleServerClient.getShuffleResult(req);
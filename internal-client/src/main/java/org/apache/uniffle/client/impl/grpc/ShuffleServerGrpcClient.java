@@ -17,6 +17,7 @@
 
 package org.apache.uniffle.client.impl.grpc;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.protobuf.ByteOutput;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.UnsafeByteOperations;
 import org.slf4j.Logger;
@@ -591,7 +593,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     switch (statusCode) {
       case SUCCESS:
         response = new RssGetShuffleDataResponse(
-            StatusCode.SUCCESS, ByteBuffer.wrap(rpcResponse.getData().toByteArray()));
+            StatusCode.SUCCESS, toByteBuffer(rpcResponse.getData()));
 
         break;
       default:
@@ -627,7 +629,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
       case SUCCESS:
         response = new RssGetShuffleIndexResponse(
             StatusCode.SUCCESS,
-            ByteBuffer.wrap(rpcResponse.getIndexData().toByteArray()),
+            toByteBuffer(rpcResponse.getIndexData()),
             rpcResponse.getDataFileLen());
 
         break;
@@ -677,7 +679,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     switch (statusCode) {
       case SUCCESS:
         response = new RssGetInMemoryShuffleDataResponse(
-            StatusCode.SUCCESS, ByteBuffer.wrap(rpcResponse.getData().toByteArray()),
+            StatusCode.SUCCESS, toByteBuffer(rpcResponse.getData()),
             toBufferSegments(rpcResponse.getShuffleDataBlockSegmentsList()));
         break;
       default:
@@ -714,6 +716,45 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     return ret;
   }
 
+  /**
+   * The bytes fields of response are parsed into their own arrays by gRPC, so the array is
+   * used directly instead of being copied again when the field is backed by a whole array.
+   */
+  private static ByteBuffer toByteBuffer(ByteString bytes) {
+    ByteBuffer[] result = new ByteBuffer[1];
+    try {
+      UnsafeByteOperations.unsafeWriteTo(bytes, new ByteOutput() {
+        @Override
+        public void write(byte value) {
+        }
+
+        @Override
+        public void write(byte[] value, int offset, int length) {
+        }
+
+        @Override
+        public void write(ByteBuffer value) {
+        }
+
+        @Override
+        public void writeLazy(byte[] value, int offset, int length) {
+          if (offset == 0 && length == value.length && result[0] == null) {
+            result[0] = ByteBuffer.wrap(value);
+          }
+        }
+
+        @Override
+        public void writeLazy(ByteBuffer value) {
+        }
+      });
+    } catch (IOException e) {
+      throw new RssException(e);
+    }
+    // fall back to copy if the field is composed of several buffers or part of an array
+    return result[0] != null && result[0].remaining() == bytes.size()
+        ? result[0] : ByteBuffer.wrap(bytes.toByteArray());
+  }
+
   @VisibleForTesting
   public void adjustTimeout(long timeout) {
     rpcTimeout = timeout;
@@ -47,6 +47,7 @@ import org.apache.uniffle.common.netty.protocol.GetLocalShuffleIndexRequest;
 import org.apache.uniffle.common.netty.protocol.GetLocalShuffleIndexResponse;
 import org.apache.uniffle.common.netty.protocol.GetMemoryShuffleDataRequest;
 import org.apache.uniffle.common.netty.protocol.GetMemoryShuffleDataResponse;
+import org.apache.uniffle.common.netty.protocol.RequestMessage;
 import org.apache.uniffle.common.netty.protocol.RpcResponse;
 import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequest;
 import org.apache.uniffle.common.rpc.StatusCode;
@@ -54,6 +55,8 @@ import org.apache.uniffle.common.util.RetryUtils;
 
 public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
   private static final Logger LOG = LoggerFactory.getLogger(ShuffleServerGrpcNettyClient.class);
+  private static final long RETRY_BACKOFF_BASE_MS = 1000L;
+  private static final long RETRY_INTERVAL_MAX_MS = 10000L;
   private int nettyPort;
   private TransportClientFactory clientFactory;
 
@@ -149,7 +152,7 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
         + "], shuffleId[" + request.getShuffleId()
         + "], partitionId[" + request.getPartitionId()
         + "], lastBlockId[" + request.getLastBlockId() + "]";
-    RpcResponse rpcResponse = transportClient.sendRpcSync(getMemoryShuffleDataRequest, RPC_TIMEOUT_DEFAULT_MS);
+    RpcResponse rpcResponse = sendRpcSyncWithRetry(transportClient, getMemoryShuffleDataRequest);
     GetMemoryShuffleDataResponse getMemoryShuffleDataResponse = (GetMemoryShuffleDataResponse) rpcResponse;
     StatusCode statusCode = rpcResponse.getStatusCode();
     switch (statusCode) {
@@ -177,7 +180,7 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
         request.getPartitionNum()
     );
     long start = System.currentTimeMillis();
-    RpcResponse rpcResponse = transportClient.sendRpcSync(getLocalShuffleIndexRequest, RPC_TIMEOUT_DEFAULT_MS);
+    RpcResponse rpcResponse = sendRpcSyncWithRetry(transportClient, getLocalShuffleIndexRequest);
     String requestInfo = "appId[" + request.getAppId()
                              + "], shuffleId[" + request.getShuffleId()
                              + "], partitionId[" + request.getPartitionId();
@@ -214,7 +217,7 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
         System.currentTimeMillis()
     );
     long start = System.currentTimeMillis();
-    RpcResponse rpcResponse = transportClient.sendRpcSync(getLocalShuffleIndexRequest, RPC_TIMEOUT_DEFAULT_MS);
+    RpcResponse rpcResponse = sendRpcSyncWithRetry(transportClient, getLocalShuffleIndexRequest);
     String requestInfo = "appId[" + request.getAppId() + "], shuffleId["
                              + request.getShuffleId() + "], partitionId[" + request.getPartitionId() + "]";
     LOG.info("GetShuffleData from {}:{} for {} cost {} ms", host, port, requestInfo,
@@ -234,6 +237,29 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
     }
   }
 
+  /**
+   * The shuffle server answers NO_BUFFER instead of blocking the request when it is busy,
+   * so the request is sent again with backoff until it succeeds or the retry times are used up.
+   */
+  private RpcResponse sendRpcSyncWithRetry(TransportClient transportClient, RequestMessage message) {
+    RpcResponse rpcResponse = transportClient.sendRpcSync(message, RPC_TIMEOUT_DEFAULT_MS);
+    int retry = 0;
+    while (rpcResponse.getStatusCode() == StatusCode.NO_BUFFER && retry < maxRetryAttempts) {
+      long backoffTime = Math.min(RETRY_INTERVAL_MAX_MS, RETRY_BACKOFF_BASE_MS * (1L << Math.min(retry, 16)));
+      LOG.info("Shuffle server {}:{} is busy for {}, sleep {} ms and try[{}] again",
+          host, port, message.type(), backoffTime, retry);
+      try {
+        Thread.sleep(backoffTime);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RssException("Interrupted when retry " + message.type() + " to " + host + ":" + port, e);
+      }
+      rpcResponse = transportClient.sendRpcSync(message, RPC_TIMEOUT_DEFAULT_MS);
+      retry++;
+    }
+    return rpcResponse;
+  }
+
   private static final AtomicLong counter = new AtomicLong();
 
   public static long requestId() {
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.common.util.JavaUtils;
+import org.apache.uniffle.common.util.ThreadUtils;
+import org.apache.uniffle.server.buffer.ShuffleBufferManager;
+import org.apache.uniffle.storage.handler.impl.LocalFileServerReadHandler;
+
+/**
+ * Reads the next segment of the local data file in advance, because the data file of a partition
+ * is read sequentially by reducers, one segment per request.
+ *
+ * <p>The prefetched segment is keyed by the partition and its offset, so the readers of the same
+ * partition, e.g. the skewed partition split by AQE, only take the segment at their own position.
+ * The prefetched data is accounted in the read buffer of {@link ShuffleBufferManager} and nothing
+ * is prefetched if the read buffer is full.
+ */
+public class LocalDataPrefetcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalDataPrefetcher.class);
+
+  private final ShuffleBufferManager shuffleBufferManager;
+  private final int maxPrefetchNum;
+  private final long expiredTime;
+  private final ExecutorService executorService;
+  private final Map<SegmentKey, Prefetch> prefetches = JavaUtils.newConcurrentMap();
+
+  public LocalDataPrefetcher(ShuffleServerConf conf, ShuffleBufferManager shuffleBufferManager) {
+    this.shuffleBufferManager = shuffleBufferManager;
+    this.maxPrefetchNum = conf.get(ShuffleServerConf.LOCAL_STORAGE_PREFETCH_MAX_NUM);
+    this.expiredTime = conf.get(ShuffleServerConf.LOCAL_STORAGE_PREFETCH_EXPIRED);
+    this.executorService = ThreadUtils.getDaemonFixedThreadPool(
+        conf.get(ShuffleServerConf.LOCAL_STORAGE_PREFETCH_THREAD_POOL_SIZE), "LocalDataPrefetcher");
+  }
+
+  public ShuffleDataResult getShuffleData(String appId, int shuffleId, int partitionId,
+      LocalFileServerReadHandler handler, long offset, int length) {
+    Prefetch prefetch = prefetches.remove(new SegmentKey(appId, shuffleId, partitionId, offset));
+    byte[] data = prefetch == null ? null : prefetch.take(length);
+    if (data != null) {
+      ShuffleServerMetrics.counterTotalLocalPrefetchHitNum.inc();
+    } else {
+      ShuffleServerMetrics.counterTotalLocalPrefetchMissNum.inc();
+      data = handler.getShuffleData(offset, length).getData();
+    }
+    if (data.length == length) {
+      prefetch(new SegmentKey(appId, shuffleId, partitionId, offset + length), handler, length);
+    }
+    return new ShuffleDataResult(data);
+  }
+
+  private void prefetch(SegmentKey key, LocalFileServerReadHandler handler, int length) {
+    // the next segment is usually as big as the current one except the last one of the file
+    int prefetchLength = (int) Math.min(length, handler.getDataFileLength() - key.offset);
+    // the segment may be prefetched by another reader of the partition already
+    if (prefetchLength <= 0 || prefetches.size() >= maxPrefetchNum || prefetches.containsKey(key)
+        || !shuffleBufferManager.requireReadMemory(prefetchLength)) {
+      return;
+    }
+    Prefetch prefetch = new Prefetch(prefetchLength);
+    Prefetch previous = prefetches.put(key, prefetch);
+    if (previous != null) {
+      previous.discard();
+    }
+    try {
+      CompletableFuture.supplyAsync(() -> handler.getShuffleData(key.offset, prefetchLength).getData(),
+          executorService).whenComplete((data, e) -> {
+            // the prefetch is always completed, the reader falls back to read the file if it's failed
+            prefetch.complete(e == null ? data : new byte[0]);
+            if (e != null) {
+              LOG.warn("Failed to prefetch data of {}, length[{}]", key, prefetchLength, e);
+              // nobody will take the failed prefetch once it's removed
+              if (prefetches.remove(key, prefetch)) {
+                prefetch.discard();
+              }
+            }
+          });
+    } catch (Exception e) {
+      LOG.warn("Failed to prefetch data of {}, length[{}]", key, prefetchLength, e);
+      prefetches.remove(key, prefetch);
+      prefetch.complete(new byte[0]);
+      prefetch.discard();
+    }
+  }
+
+  public void removeExpiredPrefetches() {
+    long expiredTs = System.currentTimeMillis() - expiredTime;
+    prefetches.forEach((key, prefetch) -> {
+      if (prefetch.createTs < expiredTs && prefetches.remove(key, prefetch)) {
+        prefetch.discard();
+      }
+    });
+  }
+
+  public void removeResources(String appId) {
+    prefetches.forEach((key, prefetch) -> {
+      if (key.appId.equals(appId) && prefetches.remove(key, prefetch)) {
+        prefetch.discard();
+      }
+    });
+  }
+
+  public void removeResourcesByShuffleIds(String appId, List<Integer> shuffleIds) {
+    prefetches.forEach((key, prefetch) -> {
+      if (key.appId.equals(appId) && shuffleIds.contains(key.shuffleId) && prefetches.remove(key, prefetch)) {
+        prefetch.discard();
+      }
+    });
+  }
+
+  @VisibleForTesting
+  int getPrefetchNum() {
+    return prefetches.size();
+  }
+
+  private class Prefetch {
+    private final int length;
+    private final long createTs = System.currentTimeMillis();
+    private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    Prefetch(int length) {
+      this.length = length;
+    }
+
+    void complete(byte[] data) {
+      future.complete(data);
+    }
+
+    /**
+     * @return the prefetched data if it's the requested one, or null if it isn't
+     */
+    byte[] take(int requestLength) {
+      if (requestLength > length) {
+        discard();
+        return null;
+      }
+      try {
+        byte[] data = future.join();
+        if (data.length < requestLength) {
+          return null;
+        }
+        return data.length == requestLength ? data : Arrays.copyOf(data, requestLength);
+      } finally {
+        release();
+      }
+    }
+
+    void discard() {
+      // the read memory is in use until the data is read
+      future.whenComplete((data, e) -> release());
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        shuffleBufferManager.releaseReadMemory(length);
+      }
+    }
+  }
+
+  private static class SegmentKey {
+    private final String appId;
+    private final int shuffleId;
+    private final int partitionId;
+    private final long offset;
+
+    SegmentKey(String appId, int shuffleId, int partitionId, long offset) {
+      this.appId = appId;
+      this.shuffleId = shuffleId;
+      this.partitionId = partitionId;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SegmentKey that = (SegmentKey) o;
+      return shuffleId == that.shuffleId && partitionId == that.partitionId && offset == that.offset
+          && appId.equals(that.appId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(appId, shuffleId, partitionId, offset);
+    }
+
+    @Override
+    public String toString() {
+      return "appId[" + appId + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId
+          + "], offset[" + offset + "]";
+    }
+  }
+}
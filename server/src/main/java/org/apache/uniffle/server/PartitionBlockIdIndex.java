@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.util.JavaUtils;
+import org.apache.uniffle.common.util.RssUtils;
+
+/**
+ * The finished blockIds of a shuffle indexed by partition, so the blockIds of the requested
+ * partitions are got without scanning the blockIds of others. The serialized blockIds of
+ * a partition are cached until new blockIds of the partition are reported.
+ */
+public class PartitionBlockIdIndex {
+
+  private final Map<Integer, PartitionBlockIds> partitionToBlockIds = JavaUtils.newConcurrentMap();
+
+  public void addBlockIds(int partitionId, long[] blockIds) {
+    partitionToBlockIds.computeIfAbsent(partitionId, key -> new PartitionBlockIds()).add(blockIds);
+  }
+
+  /**
+   * @return the serialized blockIds of the given partitions, the returned bytes may be shared
+   *     by other requests and must not be modified
+   */
+  public byte[] getSerializedBlockIds(Set<Integer> partitions) throws IOException {
+    if (partitions.size() == 1) {
+      PartitionBlockIds blockIds = partitionToBlockIds.get(partitions.iterator().next());
+      if (blockIds != null) {
+        return blockIds.serialize();
+      }
+    }
+    Roaring64NavigableMap result = Roaring64NavigableMap.bitmapOf();
+    for (int partitionId : partitions) {
+      PartitionBlockIds blockIds = partitionToBlockIds.get(partitionId);
+      if (blockIds != null) {
+        blockIds.addTo(result);
+      }
+    }
+    return RssUtils.serializeBitMap(result);
+  }
+
+  /**
+   * @return a copy of the blockIds of the partition
+   */
+  public Roaring64NavigableMap getBlockIds(int partitionId) {
+    Roaring64NavigableMap result = Roaring64NavigableMap.bitmapOf();
+    PartitionBlockIds blockIds = partitionToBlockIds.get(partitionId);
+    if (blockIds != null) {
+      blockIds.addTo(result);
+    }
+    return result;
+  }
+
+  public int getPartitionNum() {
+    return partitionToBlockIds.size();
+  }
+
+  private static class PartitionBlockIds {
+    private final Roaring64NavigableMap bitmap = Roaring64NavigableMap.bitmapOf();
+    private byte[] serialized;
+
+    synchronized void add(long[] blockIds) {
+      for (long blockId : blockIds) {
+        bitmap.addLong(blockId);
+      }
+      serialized = null;
+    }
+
+    synchronized byte[] serialize() throws IOException {
+      if (serialized == null) {
+        serialized = RssUtils.serializeBitMap(bitmap);
+      }
+      return serialized;
+    }
+
+    synchronized void addTo(Roaring64NavigableMap result) {
+      result.or(bitmap);
+    }
+  }
+}
@@ -18,13 +18,17 @@
 package org.apache.uniffle.server;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -64,7 +68,17 @@ public class ShuffleFlushManager {
   private Configuration hadoopConf;
   // appId -> shuffleId -> committed shuffle blockIds
   private Map<String, Map<Integer, Roaring64NavigableMap>> committedBlockIds = JavaUtils.newConcurrentMap();
+  // appId -> shuffleId -> tracker of the flush events which are not finished
+  private final Map<String, Map<Integer, ShuffleFlushTracker>> flushTrackers = JavaUtils.newConcurrentMap();
   private final int retryMax;
+  private final boolean asyncFlushEnabled;
+  // storage path -> the queue of events bound for the storage
+  private final Map<String, StorageFlushQueue> storageFlushQueues = JavaUtils.newConcurrentMap();
+  private final int storageWorkerBudget;
+  // the threads added to the pool for the workers helping other queues, the workers of the queues
+  // use up to storageWorkerBudget * the number of storages threads, so the helpers never take them
+  private final int helperReserve;
+  private final AtomicInteger helperNum = new AtomicInteger(0);
 
   private final StorageManager storageManager;
   private final BlockingQueue<PendingShuffleFlushEvent> pendingEvents = Queues.newLinkedBlockingQueue();
@@ -80,9 +94,13 @@ public class ShuffleFlushManager {
     retryMax = shuffleServerConf.getInteger(ShuffleServerConf.SERVER_WRITE_RETRY_MAX);
     storageType = shuffleServerConf.get(RssBaseConf.RSS_STORAGE_TYPE);
     storageDataReplica = shuffleServerConf.get(RssBaseConf.RSS_STORAGE_DATA_REPLICA);
+    asyncFlushEnabled = shuffleServerConf.get(ShuffleServerConf.SERVER_FLUSH_ASYNC_ENABLED);
 
     storageBasePaths = RssUtils.getConfiguredLocalDirs(shuffleServerConf);
     pendingEventTimeoutSec = shuffleServerConf.getLong(ShuffleServerConf.PENDING_EVENT_TIMEOUT_SEC);
+    storageWorkerBudget = getStorageWorkerBudget();
+    helperReserve = shuffleServerConf.get(ShuffleServerConf.SERVER_FLUSH_WORK_STEALING_ENABLED)
+        ? shuffleServerConf.get(ShuffleServerConf.SERVER_FLUSH_WORK_STEALING_HELPER_RESERVE) : 0;
     threadPoolExecutor = createFlushEventExecutor();
     startEventProcessor();
     // todo: extract a class named Service, and support stop method
@@ -119,15 +137,35 @@ public class ShuffleFlushManager {
     int waitQueueSize = shuffleServerConf.getInteger(
         ShuffleServerConf.SERVER_FLUSH_THREAD_POOL_QUEUE_SIZE);
     BlockingQueue<Runnable> waitQueue = Queues.newLinkedBlockingQueue(waitQueueSize);
-    int poolSize = shuffleServerConf.getInteger(ShuffleServerConf.SERVER_FLUSH_THREAD_POOL_SIZE);
+    int poolSize = Math.max(shuffleServerConf.getInteger(ShuffleServerConf.SERVER_FLUSH_THREAD_POOL_SIZE),
+        storageWorkerBudget * getStorageNum() + helperReserve);
     long keepAliveTime = shuffleServerConf.getLong(ShuffleServerConf.SERVER_FLUSH_THREAD_ALIVE);
     return new ThreadPoolExecutor(poolSize, poolSize, keepAliveTime, TimeUnit.SECONDS, waitQueue,
         ThreadUtils.getThreadFactory("FlushEventThreadPool"));
   }
 
+  private int getStorageWorkerBudget() {
+    int budget = shuffleServerConf.get(ShuffleServerConf.SERVER_FLUSH_STORAGE_WORKER_BUDGET);
+    if (budget > 0) {
+      return budget;
+    }
+    int poolSize = shuffleServerConf.getInteger(ShuffleServerConf.SERVER_FLUSH_THREAD_POOL_SIZE);
+    return Math.max(1, poolSize / getStorageNum());
+  }
+
+  private int getStorageNum() {
+    return storageBasePaths == null || storageBasePaths.isEmpty() ? 1 : storageBasePaths.size();
+  }
+
   public void addToFlushQueue(ShuffleDataFlushEvent event) {
+    // the pended event was tracked when it was added for the first time,
+    // and the event of a removed app or shuffle is never tracked
+    if (!event.isPended() && event.isValid()) {
+      trackEvent(event);
+    }
     if (!flushQueue.offer(event)) {
       LOG.warn("Flush queue is full, discard event: " + event);
+      onEventFinished(event, false);
     } else {
       ShuffleServerMetrics.gaugeEventQueueSize.inc();
     }
@@ -141,26 +179,150 @@ public class ShuffleFlushManager {
 
   protected void processNextEvent() {
     try {
-      ShuffleDataFlushEvent event = flushQueue.take();
-      threadPoolExecutor.execute(() -> processEvent(event));
+      dispatchEvent(flushQueue.take());
     } catch (Exception e) {
       LOG.error("Exception happened when process event.", e);
     }
   }
 
+  /**
+   * Add the event to the queue of its storage, and start a worker for the queue if its budget
+   * isn't used up.
+   */
+  private void dispatchEvent(ShuffleDataFlushEvent event) {
+    StorageFlushQueue queue = getStorageFlushQueue(event);
+    queue.add(event);
+    if (queue.tryAcquireWorker()) {
+      try {
+        threadPoolExecutor.execute(() -> runWorker(queue));
+      } catch (RejectedExecutionException e) {
+        queue.releaseWorker();
+        // the running workers of the queue will process the event, or nobody will
+        if (!queue.hasWorker() && queue.remove(event)) {
+          LOG.error("Can't start a flush worker for {}, drop event {}", queue, event, e);
+          ShuffleServerMetrics.gaugeEventQueueSize.dec();
+          finishFlush(event, false, System.currentTimeMillis());
+        } else {
+          LOG.warn("Can't start a flush worker for {}", queue, e);
+        }
+      }
+    }
+  }
+
+  private StorageFlushQueue getStorageFlushQueue(ShuffleDataFlushEvent event) {
+    Storage storage = null;
+    try {
+      storage = storageManager.selectStorage(event);
+    } catch (Exception e) {
+      LOG.warn("Exception happened when select storage for {}", event, e);
+    }
+    // the event without storage will be dropped by the flush thread
+    String storagePath = storage == null ? StringUtils.EMPTY : StringUtils.defaultString(storage.getStoragePath());
+    return storageFlushQueues.computeIfAbsent(storagePath,
+        key -> new StorageFlushQueue(key, storageWorkerBudget, helperReserve));
+  }
+
+  /**
+   * Process the events of the queue until it's empty. When the queue is empty, the worker
+   * helps the queue which has the most events and has used up its budget, one event at a time,
+   * so the worker goes back to its own queue as soon as there are new events.
+   */
+  private void runWorker(StorageFlushQueue queue) {
+    while (true) {
+      ShuffleDataFlushEvent event = queue.poll();
+      if (event != null) {
+        processEvent(event);
+        continue;
+      }
+      if (helperReserve > 0 && helpOtherQueue(queue)) {
+        // the worker of the queue may be started by new events while helping
+        if (!queue.tryAcquireWorker()) {
+          return;
+        }
+        continue;
+      }
+      queue.releaseWorker();
+      // the event added after polling but before releasing the worker isn't missed
+      if (queue.isEmpty() || !queue.tryAcquireWorker()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Process an event of the saturated queue which has the most events. The worker is accounted
+   * against the helped queue instead of its own one while processing the event, so the events
+   * added to its own queue meanwhile can start a new worker. The helpers are limited by the
+   * reserved threads of the pool, so that a slow storage can't hold the threads of others.
+   *
+   * @return true if an event is processed, the worker of the home queue is released then
+   */
+  private boolean helpOtherQueue(StorageFlushQueue home) {
+    StorageFlushQueue victim = null;
+    for (StorageFlushQueue queue : storageFlushQueues.values()) {
+      if (queue != home && queue.isSaturated() && (victim == null || queue.size() > victim.size())) {
+        victim = queue;
+      }
+    }
+    if (victim == null || !tryAcquireHelper()) {
+      return false;
+    }
+    if (!victim.tryAcquireHelper()) {
+      helperNum.decrementAndGet();
+      return false;
+    }
+    try {
+      ShuffleDataFlushEvent event = victim.poll();
+      if (event == null) {
+        return false;
+      }
+      ShuffleServerMetrics.counterTotalStolenFlushEventNum.inc();
+      LOG.debug("Worker of {} steals event {} from {}", home.getStoragePath(), event, victim.getStoragePath());
+      home.releaseWorker();
+      processEvent(event);
+      return true;
+    } finally {
+      victim.releaseHelper();
+      helperNum.decrementAndGet();
+    }
+  }
+
+  private boolean tryAcquireHelper() {
+    while (true) {
+      int current = helperNum.get();
+      if (current >= helperReserve) {
+        return false;
+      }
+      if (helperNum.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
   private void processEvent(ShuffleDataFlushEvent event) {
+    ShuffleServerMetrics.gaugeWriteHandler.inc();
+    flushEvent(event);
+  }
+
+  private void flushEvent(ShuffleDataFlushEvent event) {
+    boolean inFlight = false;
     try {
-      ShuffleServerMetrics.gaugeWriteHandler.inc();
-      flushToFile(event);
+      inFlight = flushToFile(event);
     } catch (Exception e) {
       LOG.error("Exception happened when flush data for " + event, e);
     } finally {
-      ShuffleServerMetrics.gaugeWriteHandler.dec();
-      ShuffleServerMetrics.gaugeEventQueueSize.dec();
+      if (!inFlight) {
+        ShuffleServerMetrics.gaugeWriteHandler.dec();
+        ShuffleServerMetrics.gaugeEventQueueSize.dec();
+      }
     }
   }
 
-  private void flushToFile(ShuffleDataFlushEvent event) {
+  /**
+   * @return true if the event is being written asynchronously, it's finished by the completion
+   *     callback of the write instead of the caller
+   */
+  private boolean flushToFile(ShuffleDataFlushEvent event) {
     long start = System.currentTimeMillis();
     boolean writeSuccess = false;
 
@@ -201,7 +363,7 @@ public class ShuffleFlushManager {
             event.increaseRetryTimes();
             event.markPended();
             addPendingEvents(event);
-            return;
+            return false;
           }
         }
 
@@ -223,7 +385,17 @@ public class ShuffleFlushManager {
             user,
             maxConcurrencyPerPartitionToWrite);
         ShuffleWriteHandler handler = storage.getOrCreateWriteHandler(request);
-        writeSuccess = storageManager.write(storage, handler, event);
+        if (asyncFlushEnabled) {
+          CompletableFuture<Boolean> future = storageManager.writeAsync(storage, handler, event);
+          if (!future.isDone()) {
+            future.whenComplete((success, e) ->
+                onAsyncWriteCompleted(event, storage, e == null && Boolean.TRUE.equals(success), start));
+            return true;
+          }
+          writeSuccess = future.join();
+        } else {
+          writeSuccess = storageManager.write(storage, handler, event);
+        }
         if (writeSuccess) {
           updateCommittedBlockIds(event.getAppId(), event.getShuffleId(), blocks);
           ShuffleServerMetrics.incStorageSuccessCounter(storage.getStorageHost());
@@ -239,6 +411,28 @@ public class ShuffleFlushManager {
       }
     }
 
+    finishFlush(event, writeSuccess, start);
+    return false;
+  }
+
+  private void onAsyncWriteCompleted(ShuffleDataFlushEvent event, Storage storage, boolean writeSuccess, long start) {
+    if (writeSuccess) {
+      updateCommittedBlockIds(event.getAppId(), event.getShuffleId(), event.getShuffleBlocks());
+      ShuffleServerMetrics.incStorageSuccessCounter(storage.getStorageHost());
+      finishFlush(event, true, start);
+      ShuffleServerMetrics.gaugeWriteHandler.dec();
+      ShuffleServerMetrics.gaugeEventQueueSize.dec();
+      return;
+    }
+    event.increaseRetryTimes();
+    ShuffleServerMetrics.incStorageRetryCounter(storage.getStorageHost());
+    ShuffleServerMetrics.gaugeWriteHandler.dec();
+    // hand it back to the queue of its storage instead of retrying it on the io thread, the event
+    // is dropped by the flush thread if it has been retried too many times
+    dispatchEvent(event);
+  }
+
+  private void finishFlush(ShuffleDataFlushEvent event, boolean writeSuccess, long start) {
     if (event.getRetryTimes() > retryMax) {
       LOG.error("Failed to write data for {} in {} times, shuffle data will be lost", event, retryMax);
       if (event.getUnderStorage() != null) {
@@ -247,6 +441,8 @@ public class ShuffleFlushManager {
     }
 
     event.doCleanup();
+    // the event without blocks doesn't lose any data even if it isn't written
+    onEventFinished(event, writeSuccess || event.getShuffleBlocks() == null || event.getShuffleBlocks().isEmpty());
     if (shuffleServer != null) {
       long duration = System.currentTimeMillis() - start;
       if (writeSuccess) {
@@ -287,6 +483,14 @@ public class ShuffleFlushManager {
     }
   }
 
+  public void addCommittedBlockIds(String appId, int shuffleId, Roaring64NavigableMap blockIds) {
+    Roaring64NavigableMap bitmap = committedBlockIds.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap())
+        .computeIfAbsent(shuffleId, key -> Roaring64NavigableMap.bitmapOf());
+    synchronized (bitmap) {
+      bitmap.or(blockIds);
+    }
+  }
+
   public Roaring64NavigableMap getCommittedBlockIds(String appId, Integer shuffleId) {
     Map<Integer, Roaring64NavigableMap> shuffleIdToBlockIds = committedBlockIds.get(appId);
     if (shuffleIdToBlockIds == null) {
@@ -301,8 +505,53 @@ public class ShuffleFlushManager {
     return blockIds;
   }
 
+  /**
+   * @return the future which is completed when all the flush events of the shuffle created
+   *     before this call are finished, or completed exceptionally if any of them failed
+   */
+  public CompletableFuture<Void> waitForFlushEvents(String appId, int shuffleId) {
+    ShuffleFlushTracker tracker = getFlushTracker(appId, shuffleId);
+    // no tracker means no event of the shuffle has been tracked, or the shuffle has been removed
+    return tracker == null ? CompletableFuture.completedFuture(null) : tracker.waitForEvents(ATOMIC_EVENT_ID.get());
+  }
+
+  private void trackEvent(ShuffleDataFlushEvent event) {
+    String appId = event.getAppId();
+    int shuffleId = event.getShuffleId();
+    // the trackers of an app are only changed when its entry is locked, so that
+    // an empty entry can be dropped without losing the tracker created concurrently
+    flushTrackers.compute(appId, (key, shuffleIdToTracker) -> {
+      Map<Integer, ShuffleFlushTracker> trackers =
+          shuffleIdToTracker == null ? JavaUtils.newConcurrentMap() : shuffleIdToTracker;
+      trackers.computeIfAbsent(shuffleId, id -> new ShuffleFlushTracker(appId, shuffleId))
+          .onEventStarted(event.getEventId());
+      return trackers;
+    });
+    // the resources may be removed between the validity check and the creation of the tracker,
+    // then the tracker must not outlive them
+    if (!event.isValid()) {
+      removeFlushTrackers(appId, Collections.singletonList(shuffleId));
+    }
+  }
+
+  private ShuffleFlushTracker getFlushTracker(String appId, int shuffleId) {
+    Map<Integer, ShuffleFlushTracker> shuffleIdToTracker = flushTrackers.get(appId);
+    return shuffleIdToTracker == null ? null : shuffleIdToTracker.get(shuffleId);
+  }
+
+  private void onEventFinished(ShuffleDataFlushEvent event, boolean success) {
+    ShuffleFlushTracker tracker = getFlushTracker(event.getAppId(), event.getShuffleId());
+    if (tracker != null) {
+      tracker.onEventFinished(event.getEventId(), success);
+    }
+  }
+
   public void removeResources(String appId) {
     committedBlockIds.remove(appId);
+    Map<Integer, ShuffleFlushTracker> shuffleIdToTracker = flushTrackers.remove(appId);
+    if (shuffleIdToTracker != null) {
+      shuffleIdToTracker.values().forEach(ShuffleFlushTracker::remove);
+    }
   }
 
   protected void initHadoopConf() {
@@ -318,7 +567,11 @@ public class ShuffleFlushManager {
   }
 
   public int getEventNumInFlush() {
-    return flushQueue.size();
+    int eventNum = flushQueue.size();
+    for (StorageFlushQueue queue : storageFlushQueues.values()) {
+      eventNum += queue.size();
+    }
+    return eventNum;
   }
 
   public Configuration getHadoopConf() {
@@ -352,6 +605,7 @@ public class ShuffleFlushManager {
   private void dropPendingEvent(PendingShuffleFlushEvent event) {
     ShuffleServerMetrics.counterTotalDroppedEventNum.inc();
     event.getEvent().doCleanup();
+    onEventFinished(event.getEvent(), false);
   }
 
   @VisibleForTesting
@@ -359,6 +613,11 @@ public class ShuffleFlushManager {
     addPendingEventsInternal(new PendingShuffleFlushEvent(event));
   }
 
+  @VisibleForTesting
+  boolean hasFlushTracker(String appId, int shuffleId) {
+    return getFlushTracker(appId, shuffleId) != null;
+  }
+
   @VisibleForTesting
   int getPendingEventsSize() {
     return pendingEvents.size();
@@ -376,6 +635,15 @@ public class ShuffleFlushManager {
   public void removeResourcesOfShuffleId(String appId, Collection<Integer> shuffleIds) {
     Optional.ofNullable(committedBlockIds.get(appId))
         .ifPresent(shuffleIdToBlockIds -> shuffleIds.forEach(shuffleIdToBlockIds::remove));
+    removeFlushTrackers(appId, shuffleIds);
+  }
+
+  private void removeFlushTrackers(String appId, Collection<Integer> shuffleIds) {
+    flushTrackers.computeIfPresent(appId, (key, shuffleIdToTracker) -> {
+      shuffleIds.forEach(shuffleId ->
+          Optional.ofNullable(shuffleIdToTracker.remove(shuffleId)).ifPresent(ShuffleFlushTracker::remove));
+      return shuffleIdToTracker.isEmpty() ? null : shuffleIdToTracker;
+    });
   }
 
   private static class PendingShuffleFlushEvent {
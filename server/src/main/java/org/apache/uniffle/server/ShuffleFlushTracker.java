@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+import org.apache.uniffle.common.exception.RssException;
+
+/**
+ * Tracks the flush events of one shuffle which are not finished yet. The waiters are completed
+ * once all the events created before them are finished, instead of checking the committed
+ * blockIds periodically. The event ids are increasing, so the events which are created later
+ * won't delay the waiters.
+ */
+class ShuffleFlushTracker {
+
+  private final String appId;
+  private final int shuffleId;
+  private final NavigableSet<Long> inFlightEventIds = new ConcurrentSkipListSet<>();
+  private final AtomicInteger failedEventNum = new AtomicInteger(0);
+  private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator.comparingLong(w -> w.eventId));
+  private boolean removed = false;
+
+  ShuffleFlushTracker(String appId, int shuffleId) {
+    this.appId = appId;
+    this.shuffleId = shuffleId;
+  }
+
+  void onEventStarted(long eventId) {
+    inFlightEventIds.add(eventId);
+  }
+
+  void onEventFinished(long eventId, boolean success) {
+    if (inFlightEventIds.remove(eventId)) {
+      if (!success) {
+        failedEventNum.incrementAndGet();
+      }
+      completeWaiters();
+    }
+  }
+
+  /**
+   * @return the future which is completed when all the events with id smaller than the given
+   *     one are finished, or completed exceptionally if any event of the shuffle failed after
+   *     the future is created. The caller can cancel it if it doesn't wait any more
+   */
+  CompletableFuture<Void> waitForEvents(long eventId) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Waiter waiter = new Waiter(eventId, failedEventNum.get(), future);
+    synchronized (this) {
+      if (removed) {
+        future.completeExceptionally(new RssException(
+            "Shuffle of appId[" + appId + "], shuffleId[" + shuffleId + "] was removed already"));
+        return future;
+      }
+      waiters.add(waiter);
+    }
+    // the waiter cancelled by the caller, e.g. due to the commit timeout, isn't kept
+    future.whenComplete((v, e) -> removeWaiter(waiter));
+    completeWaiters();
+    return future;
+  }
+
+  int getInFlightEventNum() {
+    return inFlightEventIds.size();
+  }
+
+  int getFailedEventNum() {
+    return failedEventNum.get();
+  }
+
+  @VisibleForTesting
+  synchronized int getWaiterNum() {
+    return waiters.size();
+  }
+
+  void remove() {
+    List<CompletableFuture<Void>> removedWaiters = Lists.newArrayList();
+    synchronized (this) {
+      removed = true;
+      while (!waiters.isEmpty()) {
+        removedWaiters.add(waiters.poll().future);
+      }
+    }
+    RssException e = new RssException(
+        "Shuffle of appId[" + appId + "], shuffleId[" + shuffleId + "] was removed during commit");
+    removedWaiters.forEach(future -> future.completeExceptionally(e));
+  }
+
+  private synchronized void removeWaiter(Waiter waiter) {
+    waiters.remove(waiter);
+  }
+
+  private void completeWaiters() {
+    List<Waiter> completed = Lists.newArrayList();
+    synchronized (this) {
+      Long firstInFlight = inFlightEventIds.ceiling(Long.MIN_VALUE);
+      while (!waiters.isEmpty() && (firstInFlight == null || waiters.peek().eventId <= firstInFlight)) {
+        completed.add(waiters.poll());
+      }
+    }
+    // complete the futures out of the lock, the callbacks may take a while
+    int failedNum = failedEventNum.get();
+    for (Waiter waiter : completed) {
+      // only the events failed after the waiter is created are reported to it
+      int newFailedNum = failedNum - waiter.failedEventNum;
+      if (newFailedNum > 0) {
+        waiter.future.completeExceptionally(new RssException(newFailedNum + " flush events of appId[" + appId
+            + "], shuffleId[" + shuffleId + "] failed, shuffle data is lost"));
+      } else {
+        waiter.future.complete(null);
+      }
+    }
+  }
+
+  private static class Waiter {
+    private final long eventId;
+    // the number of failed events when the waiter is created
+    private final int failedEventNum;
+    private final CompletableFuture<Void> future;
+
+    Waiter(long eventId, int failedEventNum, CompletableFuture<Void> future) {
+      this.eventId = eventId;
+      this.failedEventNum = failedEventNum;
+      this.future = future;
+    }
+  }
+}
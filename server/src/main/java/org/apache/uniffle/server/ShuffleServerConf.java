@@ -44,6 +44,21 @@ public class ShuffleServerConf extends RssBaseConf {
           .withDescription("JVM heap size * ratio for the maximum memory of buffer manager for shuffle server, this "
               + "is only effective when `rss.server.buffer.capacity` is not explicitly set");
 
+  public static final ConfigOption<Boolean> SERVER_BUFFER_OFFHEAP_ENABLED = ConfigOptions
+      .key("rss.server.buffer.offheap.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("If enabled, the data of received blocks is copied into fixed size off-heap slabs, "
+          + "and the buffer capacity is derived from the max direct memory instead of JVM heap size "
+          + "when `rss.server.buffer.capacity` is not explicitly set");
+
+  public static final ConfigOption<Long> SERVER_BUFFER_OFFHEAP_SLAB_SIZE = ConfigOptions
+      .key("rss.server.buffer.offheap.slab.size")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR, "slab size must be positive and less than 2g")
+      .defaultValue(4 * 1024 * 1024L)
+      .withDescription("Size of each off-heap slab, blocks larger than it are kept in their original buffer");
+
   public static final ConfigOption<Long> SERVER_READ_BUFFER_CAPACITY = ConfigOptions
       .key("rss.server.read.buffer.capacity")
       .longType()
@@ -93,6 +108,42 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(120L)
       .withDescription("thread idle time in pool (s)");
 
+  public static final ConfigOption<Boolean> SERVER_FLUSH_ASYNC_ENABLED = ConfigOptions
+      .key("rss.server.flush.async.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to write local files by async file channels, the flush threads only submit "
+          + "the writes and the completion is handled by the io threads of each disk");
+
+  public static final ConfigOption<Integer> SERVER_FLUSH_ASYNC_THREAD_PER_DISK = ConfigOptions
+      .key("rss.server.flush.async.thread.per.disk")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "async flush thread number must be positive")
+      .defaultValue(4)
+      .withDescription("The number of io threads of each local disk when rss.server.flush.async.enabled is true");
+
+  public static final ConfigOption<Integer> SERVER_FLUSH_STORAGE_WORKER_BUDGET = ConfigOptions
+      .key("rss.server.flush.storage.worker.budget")
+      .intType()
+      .defaultValue(0)
+      .withDescription("The max number of flush threads working for the events of one storage, "
+          + "it's rss.server.flush.threadPool.size divided by the number of local dirs if it's not positive");
+
+  public static final ConfigOption<Boolean> SERVER_FLUSH_WORK_STEALING_ENABLED = ConfigOptions
+      .key("rss.server.flush.work.stealing.enabled")
+      .booleanType()
+      .defaultValue(true)
+      .withDescription("Whether the flush threads of idle storages help the storages which "
+          + "have used up their worker budget");
+
+  public static final ConfigOption<Integer> SERVER_FLUSH_WORK_STEALING_HELPER_RESERVE = ConfigOptions
+      .key("rss.server.flush.work.stealing.helper.reserve")
+      .intType()
+      .checkValue(value -> value >= 0, "helper reserve must be non-negative")
+      .defaultValue(2)
+      .withDescription("The number of flush threads added to the thread pool for helping the storages which "
+          + "have used up their worker budget, the helpers never take the threads of the storages' own workers");
+
   public static final ConfigOption<Long> SERVER_COMMIT_TIMEOUT = ConfigOptions
       .key("rss.server.commit.timeout")
       .longType()
@@ -123,12 +174,6 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(20 * 1000L)
       .withDescription("Expired time (ms) for pre allocated buffer");
 
-  public static final ConfigOption<Long> SERVER_COMMIT_CHECK_INTERVAL_MAX = ConfigOptions
-      .key("rss.server.commit.check.interval.max.ms")
-      .longType()
-      .defaultValue(10000L)
-      .withDescription("Max interval(ms) for check commit status");
-
   public static final ConfigOption<Long> SERVER_WRITE_SLOW_THRESHOLD = ConfigOptions
       .key("rss.server.write.slow.threshold")
       .longType()
@@ -303,6 +348,200 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(0L)
       .withDescription("For localstorage, it will exit when the failed initialized local storage exceed the number");
 
+  public static final ConfigOption<Boolean> LOCAL_STORAGE_PERSISTENT_WRITER_ENABLED = ConfigOptions
+      .key("rss.server.localstorage.persistent.writer.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to keep the data and index files of partitions open between flushes, "
+          + "the least recently written files are closed when there are too many open files");
+
+  public static final ConfigOption<Integer> LOCAL_STORAGE_PERSISTENT_WRITER_MAX_OPEN_FILES = ConfigOptions
+      .key("rss.server.localstorage.persistent.writer.max.open.files")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "max open files must be positive")
+      .defaultValue(4096)
+      .withDescription("The max number of open files of each local storage "
+          + "when rss.server.localstorage.persistent.writer.enabled is true");
+
+  public static final ConfigOption<Boolean> LOCAL_STORAGE_INDEX_CACHE_ENABLED = ConfigOptions
+      .key("rss.server.localstorage.index.cache.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to cache the index of partitions read from local storages, "
+          + "the index of a partition is invalidated after new data of it is flushed");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_INDEX_CACHE_CAPACITY = ConfigOptions
+      .key("rss.server.localstorage.index.cache.capacity")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "index cache capacity must be positive")
+      .defaultValue(64L * 1024 * 1024)
+      .withDescription("The max size of index cached for all local storages, "
+          + "the least recently used index is evicted when it's exceeded");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_INDEX_MMAP_THRESHOLD = ConfigOptions
+      .key("rss.server.localstorage.index.mmap.threshold")
+      .longType()
+      .defaultValue(-1L)
+      .withDescription("The index files not smaller than this size are read by memory mapping "
+          + "when rss.server.localstorage.index.cache.enabled is true, it's disabled if it's not positive");
+
+  public static final ConfigOption<Boolean> LOCAL_STORAGE_DATA_CACHE_ENABLED = ConfigOptions
+      .key("rss.server.localstorage.data.cache.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to keep the data recently flushed to local storages in off-heap memory, "
+          + "the reads of it are served from memory instead of files");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_DATA_CACHE_CAPACITY = ConfigOptions
+      .key("rss.server.localstorage.data.cache.capacity")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "data cache capacity must be positive")
+      .defaultValue(256L * 1024 * 1024)
+      .withDescription("The max size of data cached for all local storages, "
+          + "the data of the least recently used file is evicted when it's exceeded. "
+          + "The cached data takes the read buffer of the server, it isn't cached if the read buffer is used up");
+
+  public static final ConfigOption<Boolean> LOCAL_STORAGE_PREFETCH_ENABLED = ConfigOptions
+      .key("rss.server.localstorage.prefetch.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to read the next segment of local data file in advance when the shuffle data "
+          + "is read, the prefetched data is accounted in the read buffer");
+
+  public static final ConfigOption<Integer> LOCAL_STORAGE_PREFETCH_THREAD_POOL_SIZE = ConfigOptions
+      .key("rss.server.localstorage.prefetch.threadPool.size")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "prefetch thread number must be positive")
+      .defaultValue(8)
+      .withDescription("The thread number to prefetch local data files");
+
+  public static final ConfigOption<Integer> LOCAL_STORAGE_PREFETCH_MAX_NUM = ConfigOptions
+      .key("rss.server.localstorage.prefetch.max.num")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "max prefetch number must be positive")
+      .defaultValue(1024)
+      .withDescription("The max number of prefetched segments kept in memory");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_PREFETCH_EXPIRED = ConfigOptions
+      .key("rss.server.localstorage.prefetch.expired")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "prefetch expired time must be positive")
+      .defaultValue(60 * 1000L)
+      .withDescription("The prefetched segment is dropped if it isn't read in this time (ms)");
+
+  public static final ConfigOption<Boolean> LOCAL_STORAGE_METADATA_JOURNAL_ENABLED = ConfigOptions
+      .key("rss.server.localstorage.metadata.journal.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to record the shuffle metadata of local storages in journals, the data in "
+          + "local storages is kept and can be read after the shuffle server restarts if it's enabled");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_METADATA_SNAPSHOT_INTERVAL = ConfigOptions
+      .key("rss.server.localstorage.metadata.snapshot.interval")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "snapshot interval must be positive")
+      .defaultValue(10 * 60 * 1000L)
+      .withDescription("The interval in ms to compact the metadata journals into snapshots "
+          + "when rss.server.localstorage.metadata.journal.enabled is true");
+
+  public static final ConfigOption<String> LOCAL_STORAGE_SELECTOR_CLASS = ConfigOptions
+      .key("rss.server.localstorage.selector.class")
+      .stringType()
+      .defaultValue("org.apache.uniffle.server.storage.local.HashLocalStorageSelector")
+      .withDescription("The strategy to choose the local storage for a new partition, "
+          + "org.apache.uniffle.server.storage.local.LoadAwareLocalStorageSelector chooses it by "
+          + "the flush latency, the data being written and the free space of storages");
+
+  public static final ConfigOption<Double> LOCAL_STORAGE_SELECTOR_SSD_WEIGHT = ConfigOptions
+      .key("rss.server.localstorage.selector.ssd.weight")
+      .doubleType()
+      .checkValue(v -> v > 0, "ssd weight must be positive")
+      .defaultValue(4.0)
+      .withDescription("The relative write throughput of SSD for the load aware local storage selector");
+
+  public static final ConfigOption<Double> LOCAL_STORAGE_SELECTOR_HDD_WEIGHT = ConfigOptions
+      .key("rss.server.localstorage.selector.hdd.weight")
+      .doubleType()
+      .checkValue(v -> v > 0, "hdd weight must be positive")
+      .defaultValue(1.0)
+      .withDescription("The relative write throughput of HDD and the storage with unknown media "
+          + "for the load aware local storage selector");
+
+  public static final ConfigOption<Double> LOCAL_STORAGE_SELECTOR_TOLERANCE = ConfigOptions
+      .key("rss.server.localstorage.selector.tolerance")
+      .doubleType()
+      .checkValue(v -> v >= 1, "tolerance must not be less than 1")
+      .defaultValue(1.5)
+      .withDescription("For the load aware local storage selector, the partition is written to the storage "
+          + "chosen by hash if its load is not more than tolerance times of the least loaded storage");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_SELECTOR_LATENCY_HALF_LIFE = ConfigOptions
+      .key("rss.server.localstorage.selector.latency.half.life")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "latency half life must be positive")
+      .defaultValue(60 * 1000L)
+      .withDescription("For the load aware local storage selector, the time in ms for the observed flush latency "
+          + "of a storage to decay by half when no write on it finishes");
+
+  public static final ConfigOption<Boolean> LOCAL_STORAGE_TRASH_ENABLED = ConfigOptions
+      .key("rss.server.localstorage.trash.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to move the shuffle data to be deleted into the trash of its disk, "
+          + "the data in trash is deleted in background with limited speed");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_TRASH_DELETE_BYTES_PER_SECOND = ConfigOptions
+      .key("rss.server.localstorage.trash.delete.bytes.per.second")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "deleted bytes per second must be positive")
+      .defaultValue(512L * 1024 * 1024)
+      .withDescription("The max bytes of files deleted from the trash per second for every disk");
+
+  public static final ConfigOption<Integer> LOCAL_STORAGE_TRASH_DELETE_FILES_PER_SECOND = ConfigOptions
+      .key("rss.server.localstorage.trash.delete.files.per.second")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "deleted files per second must be positive")
+      .defaultValue(1000)
+      .withDescription("The max number of files deleted from the trash per second for every disk");
+
+  public static final ConfigOption<Boolean> REMOTE_STORAGE_COMPACTION_ENABLED = ConfigOptions
+      .key("rss.server.remote.storage.compaction.enabled")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("Whether to merge the small files of a partition in remote storage into one data "
+          + "file and one index file in background after the shuffle is committed");
+
+  public static final ConfigOption<Integer> REMOTE_STORAGE_COMPACTION_MIN_FILE_NUM = ConfigOptions
+      .key("rss.server.remote.storage.compaction.min.file.num")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "min file num must be positive")
+      .defaultValue(4)
+      .withDescription("The files of a partition written by this server are compacted only when "
+          + "there are at least this number of them");
+
+  public static final ConfigOption<Integer> REMOTE_STORAGE_COMPACTION_THREAD_POOL_SIZE = ConfigOptions
+      .key("rss.server.remote.storage.compaction.threadPool.size")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "thread pool size must be positive")
+      .defaultValue(2)
+      .withDescription("The thread number to compact the files in remote storage");
+
+  public static final ConfigOption<Long> REMOTE_STORAGE_COMPACTION_DELAY = ConfigOptions
+      .key("rss.server.remote.storage.compaction.delay")
+      .longType()
+      .checkValue(ConfigUtils.NON_NEGATIVE_LONG_VALIDATOR, "compaction delay must be non-negative")
+      .defaultValue(30 * 1000L)
+      .withDescription("The shuffle is compacted once after no task commits it for this time (ms), "
+          + "so the files aren't compacted again for every committed task");
+
+  public static final ConfigOption<Long> REMOTE_STORAGE_COMPACTION_MERGED_FILE_EXPIRED = ConfigOptions
+      .key("rss.server.remote.storage.compaction.merged.file.expired")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "merged file expired time must be positive")
+      .defaultValue(10 * 60 * 1000L)
+      .withDescription("The files merged by compaction are deleted after this time (ms), "
+          + "so the readers opened them before the compaction can finish reading");
+
   public static final ConfigOption<Boolean> SINGLE_BUFFER_FLUSH_ENABLED = ConfigOptions
        .key("rss.server.single.buffer.flush.enabled")
        .booleanType()
@@ -315,6 +554,30 @@ public class ShuffleServerConf extends RssBaseConf {
         .defaultValue(64 * 1024 * 1024L)
         .withDescription("The threshold of single shuffle buffer flush");
 
+  public static final ConfigOption<String> SERVER_BUFFER_FLUSH_POLICY_CLASS = ConfigOptions
+      .key("rss.server.buffer.flush.policy.class")
+      .stringType()
+      .defaultValue("org.apache.uniffle.server.buffer.DefaultFlushPolicy")
+      .withDescription("The policy to pick buffers to flush when the data in buffer exceeds high watermark, "
+          + "DefaultFlushPolicy flushes the whole shuffles and PartitionFlushPolicy flushes the partition buffers "
+          + "by score of size, age and huge partition");
+
+  public static final ConfigOption<Long> SERVER_BUFFER_FLUSH_POLICY_PARTITION_MIN_SIZE = ConfigOptions
+      .key("rss.server.buffer.flush.policy.partition.min.size")
+      .longType()
+      .checkValue(ConfigUtils.NON_NEGATIVE_LONG_VALIDATOR, "partition min size must be non negative")
+      .defaultValue(1024 * 1024L)
+      .withDescription("For PartitionFlushPolicy, the partition buffer smaller than it is kept in memory "
+          + "unless it's old enough or the other buffers are not enough to be flushed");
+
+  public static final ConfigOption<Long> SERVER_BUFFER_FLUSH_POLICY_PARTITION_MAX_AGE = ConfigOptions
+      .key("rss.server.buffer.flush.policy.partition.max.age")
+      .longType()
+      .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "partition max age must be positive")
+      .defaultValue(60 * 1000L)
+      .withDescription("For PartitionFlushPolicy, the partition buffer kept in memory longer than it (ms) "
+          + "will be flushed regardless of its size");
+
   public static final ConfigOption<Long> STORAGEMANAGER_CACHE_TIMEOUT = ConfigOptions
       .key("rss.server.multistorage.storagemanager.cache.timeout")
       .longType()
@@ -404,6 +667,20 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(false)
       .withDescription("If enable epoll model with netty server");
 
+  public static final ConfigOption<Boolean> NETTY_SERVER_ZERO_COPY_READ_ENABLE = ConfigOptions
+      .key("rss.server.netty.zeroCopy.read.enable")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("If enabled, the local shuffle data is sent by netty file region with zero-copy "
+          + "instead of being read into memory, the read buffer won't be required for it");
+
+  public static final ConfigOption<Boolean> GRPC_SERVER_ZERO_COPY_RECEIVE_ENABLE = ConfigOptions
+      .key("rss.server.grpc.zeroCopy.receive.enable")
+      .booleanType()
+      .defaultValue(false)
+      .withDescription("If enabled, the shuffle data sent by gRPC is kept in the receive buffers of gRPC "
+          + "instead of being copied to heap, the buffers are released after the data is flushed");
+
   public static final ConfigOption<Integer> NETTY_SERVER_ACCEPT_THREAD = ConfigOptions
       .key("rss.server.netty.accept.thread")
       .intType()
@@ -416,6 +693,21 @@ public class ShuffleServerConf extends RssBaseConf {
       .defaultValue(100)
       .withDescription("Worker thread count in netty");
 
+  public static final ConfigOption<Integer> NETTY_SERVER_EXECUTOR_THREAD = ConfigOptions
+      .key("rss.server.netty.executor.thread")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "executor thread count must be positive")
+      .defaultValue(100)
+      .withDescription("Thread count of the executor which processes netty requests out of the event loop");
+
+  public static final ConfigOption<Integer> NETTY_SERVER_EXECUTOR_QUEUE_SIZE = ConfigOptions
+      .key("rss.server.netty.executor.queue.size")
+      .intType()
+      .checkValue(ConfigUtils.POSITIVE_INTEGER_VALIDATOR_2, "executor queue size must be positive")
+      .defaultValue(10000)
+      .withDescription("Size of waiting queue of the netty request executor, the request will be rejected "
+          + "with a retryable status once the queue is full");
+
   public static final ConfigOption<Long> SERVER_NETTY_HANDLER_IDLE_TIMEOUT = ConfigOptions
       .key("rss.server.netty.handler.idle.timeout")
       .longType()
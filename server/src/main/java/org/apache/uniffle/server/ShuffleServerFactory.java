@@ -36,10 +36,12 @@ public class ShuffleServerFactory {
     // supports both grpc and grpc_netty, so coordinator and shuffle server could have unified
     // configuration
     if (type == ServerType.GRPC || type == ServerType.GRPC_NETTY) {
+      ShuffleServerGrpcService service = new ShuffleServerGrpcService(shuffleServer);
       return GrpcServer.Builder.newBuilder()
           .conf(conf)
           .grpcMetrics(shuffleServer.getGrpcMetrics())
-          .addService(new ShuffleServerGrpcService(shuffleServer))
+          .addService(conf.get(ShuffleServerConf.GRPC_SERVER_ZERO_COPY_RECEIVE_ENABLE)
+              ? service::bindZeroCopyService : service)
           // todo: Add ServerInterceptor for authentication
           .addService(new ShuffleServerInternalGrpcService(shuffleServer))
           .build();
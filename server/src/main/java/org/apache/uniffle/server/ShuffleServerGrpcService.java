@@ -18,9 +18,11 @@
 package org.apache.uniffle.server;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.Lists;
@@ -29,6 +31,7 @@ import com.google.common.collect.Sets;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.Context;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.lang3.StringUtils;
@@ -47,6 +50,7 @@ import org.apache.uniffle.common.ShufflePartitionedData;
 import org.apache.uniffle.common.config.RssBaseConf;
 import org.apache.uniffle.common.exception.FileNotFoundException;
 import org.apache.uniffle.common.rpc.StatusCode;
+import org.apache.uniffle.common.rpc.ZeroCopyMarshaller;
 import org.apache.uniffle.common.util.RssUtils;
 import org.apache.uniffle.proto.RssProtos;
 import org.apache.uniffle.proto.RssProtos.AppHeartBeatRequest;
@@ -79,6 +83,7 @@ import org.apache.uniffle.proto.RssProtos.ShuffleDataBlockSegment;
 import org.apache.uniffle.proto.RssProtos.ShufflePartitionRange;
 import org.apache.uniffle.proto.RssProtos.ShuffleRegisterRequest;
 import org.apache.uniffle.proto.RssProtos.ShuffleRegisterResponse;
+import org.apache.uniffle.proto.ShuffleServerGrpc;
 import org.apache.uniffle.proto.ShuffleServerGrpc.ShuffleServerImplBase;
 import org.apache.uniffle.server.buffer.PreAllocatedBufferInfo;
 import org.apache.uniffle.storage.common.Storage;
@@ -89,11 +94,21 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
 
   private static final Logger LOG = LoggerFactory.getLogger(ShuffleServerGrpcService.class);
   private final ShuffleServer shuffleServer;
+  private final ZeroCopyMarshaller<SendShuffleDataRequest> sendShuffleDataMarshaller = new ZeroCopyMarshaller<>(
+      ShuffleServerGrpc.getSendShuffleDataMethod().getRequestMarshaller(), SendShuffleDataRequest.getDefaultInstance());
 
   public ShuffleServerGrpcService(ShuffleServer shuffleServer) {
     this.shuffleServer = shuffleServer;
   }
 
+  /**
+   * @return the service definition which keeps the shuffle data in the gRPC receive buffers
+   *     instead of copying it to heap
+   */
+  public ServerServiceDefinition bindZeroCopyService() {
+    return sendShuffleDataMarshaller.bind(bindService(), ShuffleServerGrpc.getSendShuffleDataMethod());
+  }
+
   @Override
   public void unregisterShuffle(RssProtos.ShuffleUnregisterRequest request,
       StreamObserver<RssProtos.ShuffleUnregisterResponse> responseStreamObserver) {
@@ -218,6 +233,7 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
       final long start = System.currentTimeMillis();
       List<ShufflePartitionedData> shufflePartitionedData = toPartitionedData(req);
       long alreadyReleasedSize = 0;
+      int cachedNum = 0;
       for (ShufflePartitionedData spd : shufflePartitionedData) {
         String shuffleDataInfo = "appId[" + appId + "], shuffleId[" + shuffleId
             + "], partitionId[" + spd.getPartitionId() + "]";
@@ -235,16 +251,24 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
             manager.releasePreAllocatedSize(toReleasedSize);
             alreadyReleasedSize += toReleasedSize;
             manager.updateCachedBlockIds(appId, shuffleId, spd.getPartitionId(), spd.getBlockList());
+            cachedNum++;
           }
         } catch (Exception e) {
           String errorMsg = "Error happened when shuffleEngine.write for "
               + shuffleDataInfo + ": " + e.getMessage();
+          // the blocks may be cached already, leave them to the buffer
+          cachedNum++;
           ret = StatusCode.INTERNAL_ERROR;
           responseMessage = errorMsg;
           LOG.error(errorMsg);
           break;
         }
       }
+      if (ret != StatusCode.SUCCESS) {
+        // the blocks which are not cached may hold the receive buffers of request
+        shufflePartitionedData.stream().skip(cachedNum).flatMap(spd -> Arrays.stream(spd.getBlockList()))
+            .forEach(block -> block.getData().release());
+      }
       // since the required buffer id is only used once, the shuffle client would try to require another buffer whether
       // current connection succeeded or not. Therefore, the preAllocatedBuffer is first get and removed, then after
       // cacheShuffleData finishes, the preAllocatedSize should be updated accordingly.
@@ -309,30 +333,35 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
       StreamObserver<FinishShuffleResponse> responseObserver) {
     String appId = req.getAppId();
     int shuffleId = req.getShuffleId();
-    StatusCode status;
-    String msg = "OK";
     String errorMsg = "Fail to finish shuffle for appId["
         + appId + "], shuffleId[" + shuffleId + "], data may be lost";
+    CompletableFuture<StatusCode> future;
     try {
       LOG.info("Get finishShuffle request for appId[" + appId + "], shuffleId[" + shuffleId + "]");
-      status = shuffleServer.getShuffleTaskManager().commitShuffle(appId, shuffleId);
-      if (status != StatusCode.SUCCESS) {
+      future = shuffleServer.getShuffleTaskManager().commitShuffleAsync(appId, shuffleId);
+    } catch (Exception e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    // the response is sent once the data is flushed, the rpc thread isn't blocked by the commit
+    future.whenComplete((status, e) -> {
+      String msg = "OK";
+      if (e != null) {
+        status = StatusCode.INTERNAL_ERROR;
+        msg = errorMsg;
+        LOG.error(errorMsg, e);
+      } else if (status != StatusCode.SUCCESS) {
         status = StatusCode.INTERNAL_ERROR;
         msg = errorMsg;
       }
-    } catch (Exception e) {
-      status = StatusCode.INTERNAL_ERROR;
-      msg = errorMsg;
-      LOG.error(errorMsg, e);
-    }
-
-    FinishShuffleResponse response =
-        FinishShuffleResponse
-            .newBuilder()
-            .setStatus(status.toProto())
-            .setRetMsg(msg).build();
-    responseObserver.onNext(response);
-    responseObserver.onCompleted();
+      FinishShuffleResponse response =
+          FinishShuffleResponse
+              .newBuilder()
+              .setStatus(status.toProto())
+              .setRetMsg(msg).build();
+      responseObserver.onNext(response);
+      responseObserver.onCompleted();
+    });
   }
 
   @Override
@@ -397,7 +426,6 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     String appId = request.getAppId();
     int shuffleId = request.getShuffleId();
     long taskAttemptId = request.getTaskAttemptId();
-    int bitmapNum = request.getBitmapNum();
     Map<Integer, long[]> partitionToBlockIds = toPartitionBlocksMap(request.getPartitionToBlockIdsList());
     StatusCode status = StatusCode.SUCCESS;
     String msg = "OK";
@@ -406,7 +434,7 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
 
     try {
       LOG.info("Report " + partitionToBlockIds.size() + " blocks as shuffle result for the task of " + requestInfo);
-      shuffleServer.getShuffleTaskManager().addFinishedBlockIds(appId, shuffleId, partitionToBlockIds, bitmapNum);
+      shuffleServer.getShuffleTaskManager().addFinishedBlockIds(appId, shuffleId, partitionToBlockIds);
     } catch (Exception e) {
       status = StatusCode.INTERNAL_ERROR;
       msg = "error happened when report shuffle result, check shuffle server for detail";
@@ -746,13 +774,13 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
     for (ShuffleData data : req.getShuffleDataList()) {
       ret.add(new ShufflePartitionedData(
           data.getPartitionId(),
-          toPartitionedBlock(data.getBlockList())));
+          toPartitionedBlock(req, data.getBlockList())));
     }
 
     return ret;
   }
 
-  private ShufflePartitionedBlock[] toPartitionedBlock(List<ShuffleBlock> blocks) {
+  private ShufflePartitionedBlock[] toPartitionedBlock(SendShuffleDataRequest req, List<ShuffleBlock> blocks) {
     if (blocks == null || blocks.size() == 0) {
       return new ShufflePartitionedBlock[]{};
     }
@@ -765,7 +793,7 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
           block.getCrc(),
           block.getBlockId(),
           block.getTaskAttemptId(),
-          block.getData().toByteArray());
+          sendShuffleDataMarshaller.toByteBuf(req, block.getData()));
       i++;
     }
     return ret;
@@ -24,6 +24,7 @@ import com.google.common.collect.Maps;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
 import org.apache.commons.lang3.StringUtils;
 
 import org.apache.uniffle.common.metrics.MetricsManager;
@@ -55,6 +56,19 @@ public class ShuffleServerMetrics {
   private static final String TOTAL_REQUIRE_READ_MEMORY = "total_require_read_memory_num";
   private static final String TOTAL_REQUIRE_READ_MEMORY_RETRY = "total_require_read_memory_retry_num";
   private static final String TOTAL_REQUIRE_READ_MEMORY_FAILED = "total_require_read_memory_failed_num";
+  private static final String TOTAL_NETTY_REQUEST_REJECTED = "total_netty_request_rejected_num";
+  private static final String NETTY_REQUEST_QUEUE_SIZE = "netty_request_queue_size";
+  private static final String TOTAL_OFFHEAP_ALLOCATION_FALLBACK = "total_offheap_allocation_fallback_num";
+  private static final String OFFHEAP_SLAB_USED_SIZE = "offheap_slab_used_size";
+  private static final String OFFHEAP_SLAB_PINNED_SIZE = "offheap_slab_pinned_size";
+  private static final String TOTAL_LOCAL_INDEX_CACHE_HIT = "total_local_index_cache_hit_num";
+  private static final String TOTAL_LOCAL_INDEX_CACHE_MISS = "total_local_index_cache_miss_num";
+  private static final String TOTAL_LOCAL_DATA_CACHE_HIT = "total_local_data_cache_hit_num";
+  private static final String TOTAL_LOCAL_DATA_CACHE_MISS = "total_local_data_cache_miss_num";
+  private static final String TOTAL_REMOTE_STORAGE_COMPACTION = "total_remote_storage_compaction_num";
+  private static final String TOTAL_REMOTE_STORAGE_COMPACTED_FILE = "total_remote_storage_compacted_file_num";
+  private static final String TOTAL_LOCAL_PREFETCH_HIT = "total_local_prefetch_hit_num";
+  private static final String TOTAL_LOCAL_PREFETCH_MISS = "total_local_prefetch_miss_num";
 
   private static final String LOCAL_STORAGE_TOTAL_DIRS_NUM = "local_storage_total_dirs_num";
   private static final String LOCAL_STORAGE_CORRUPTED_DIRS_NUM = "local_storage_corrupted_dirs_num";
@@ -81,6 +95,14 @@ public class ShuffleServerMetrics {
   private static final String STORAGE_FAILED_WRITE_LOCAL = "storage_failed_write_local";
   private static final String STORAGE_SUCCESS_WRITE_LOCAL = "storage_success_write_local";
   private static final String STORAGE_HOST_LABEL = "storage_host";
+  private static final String STORAGE_PATH_LABEL = "storage_path";
+  private static final String STORAGE_FLUSH_QUEUE_SIZE = "storage_flush_queue_size";
+  private static final String STORAGE_FLUSH_QUEUE_WAIT_TIME = "storage_flush_queue_wait_time";
+  private static final String STORAGE_TRASH_BACKLOG_NUM = "storage_trash_backlog_num";
+  private static final String STORAGE_TRASH_BACKLOG_SIZE = "storage_trash_backlog_size";
+  private static final String STORAGE_TRASH_RECLAIMED_SIZE = "storage_trash_reclaimed_size";
+  private static final String STORAGE_TRASH_RECLAIMED_FILE_NUM = "storage_trash_reclaimed_file_num";
+  private static final String TOTAL_STOLEN_FLUSH_EVENT = "total_stolen_flush_event_num";
   public static final String STORAGE_TOTAL_WRITE_REMOTE = "storage_total_write_remote";
   public static final String STORAGE_RETRY_WRITE_REMOTE = "storage_retry_write_remote";
   public static final String STORAGE_FAILED_WRITE_REMOTE = "storage_failed_write_remote";
@@ -130,6 +152,16 @@ public class ShuffleServerMetrics {
   public static Counter.Child  counterTotalRequireReadMemoryNum;
   public static Counter.Child  counterTotalRequireReadMemoryRetryNum;
   public static Counter.Child  counterTotalRequireReadMemoryFailedNum;
+  public static Counter.Child  counterTotalNettyRequestRejectedNum;
+  public static Counter.Child  counterTotalOffHeapAllocationFallbackNum;
+  public static Counter.Child  counterTotalLocalIndexCacheHitNum;
+  public static Counter.Child  counterTotalLocalIndexCacheMissNum;
+  public static Counter.Child  counterTotalLocalDataCacheHitNum;
+  public static Counter.Child  counterTotalLocalDataCacheMissNum;
+  public static Counter.Child  counterTotalRemoteStorageCompactionNum;
+  public static Counter.Child  counterTotalRemoteStorageCompactedFileNum;
+  public static Counter.Child  counterTotalLocalPrefetchHitNum;
+  public static Counter.Child  counterTotalLocalPrefetchMissNum;
 
   public static Gauge.Child gaugeHugePartitionNum;
   public static Gauge.Child gaugeAppWithHugePartitionNum;
@@ -147,12 +179,22 @@ public class ShuffleServerMetrics {
   public static Gauge.Child gaugeReadBufferUsedSize;
   public static Gauge.Child gaugeWriteHandler;
   public static Gauge.Child gaugeEventQueueSize;
+  public static Gauge.Child gaugeNettyRequestQueueSize;
+  public static Gauge.Child gaugeOffHeapSlabUsedSize;
+  public static Gauge.Child gaugeOffHeapSlabPinnedSize;
   public static Gauge.Child gaugeAppNum;
   public static Gauge.Child gaugeTotalPartitionNum;
   public static Counter counterRemoteStorageTotalWrite;
   public static Counter counterRemoteStorageRetryWrite;
   public static Counter counterRemoteStorageFailedWrite;
   public static Counter counterRemoteStorageSuccessWrite;
+  public static Gauge gaugeStorageFlushQueueSize;
+  public static Histogram histogramStorageFlushQueueWaitTime;
+  public static Counter.Child counterTotalStolenFlushEventNum;
+  public static Gauge gaugeStorageTrashBacklogNum;
+  public static Gauge gaugeStorageTrashBacklogSize;
+  public static Counter counterStorageTrashReclaimedSize;
+  public static Counter counterStorageTrashReclaimedFileNum;
   private static String tags;
 
   private static MetricsManager metricsManager;
@@ -220,6 +262,30 @@ public class ShuffleServerMetrics {
     }
   }
 
+  public static Gauge.Child getStorageFlushQueueSizeGauge(String storagePath) {
+    return gaugeStorageFlushQueueSize.labels(tags, storagePath);
+  }
+
+  public static Histogram.Child getStorageFlushQueueWaitTimeHistogram(String storagePath) {
+    return histogramStorageFlushQueueWaitTime.labels(tags, storagePath);
+  }
+
+  public static Gauge.Child getStorageTrashBacklogNumGauge(String storagePath) {
+    return gaugeStorageTrashBacklogNum.labels(tags, storagePath);
+  }
+
+  public static Gauge.Child getStorageTrashBacklogSizeGauge(String storagePath) {
+    return gaugeStorageTrashBacklogSize.labels(tags, storagePath);
+  }
+
+  public static Counter.Child getStorageTrashReclaimedSizeCounter(String storagePath) {
+    return counterStorageTrashReclaimedSize.labels(tags, storagePath);
+  }
+
+  public static Counter.Child getStorageTrashReclaimedFileNumCounter(String storagePath) {
+    return counterStorageTrashReclaimedFileNum.labels(tags, storagePath);
+  }
+
   private static void setUpMetrics() {
     counterTotalReceivedDataSize = metricsManager.addLabeledCounter(TOTAL_RECEIVED_DATA);
     counterTotalWriteDataSize = metricsManager.addLabeledCounter(TOTAL_WRITE_DATA);
@@ -258,9 +324,33 @@ public class ShuffleServerMetrics {
         STORAGE_FAILED_WRITE_REMOTE, Constants.METRICS_TAG_LABEL_NAME, STORAGE_HOST_LABEL);
     counterRemoteStorageSuccessWrite = metricsManager.addCounter(
         STORAGE_SUCCESS_WRITE_REMOTE, Constants.METRICS_TAG_LABEL_NAME, STORAGE_HOST_LABEL);
+    gaugeStorageFlushQueueSize = metricsManager.addGauge(
+        STORAGE_FLUSH_QUEUE_SIZE, Constants.METRICS_TAG_LABEL_NAME, STORAGE_PATH_LABEL);
+    histogramStorageFlushQueueWaitTime = metricsManager.addHistogram(STORAGE_FLUSH_QUEUE_WAIT_TIME,
+        new double[] {1, 10, 100, 1000, 10000, 60000}, Constants.METRICS_TAG_LABEL_NAME, STORAGE_PATH_LABEL);
+    counterTotalStolenFlushEventNum = metricsManager.addLabeledCounter(TOTAL_STOLEN_FLUSH_EVENT);
+    gaugeStorageTrashBacklogNum = metricsManager.addGauge(
+        STORAGE_TRASH_BACKLOG_NUM, Constants.METRICS_TAG_LABEL_NAME, STORAGE_PATH_LABEL);
+    gaugeStorageTrashBacklogSize = metricsManager.addGauge(
+        STORAGE_TRASH_BACKLOG_SIZE, Constants.METRICS_TAG_LABEL_NAME, STORAGE_PATH_LABEL);
+    counterStorageTrashReclaimedSize = metricsManager.addCounter(
+        STORAGE_TRASH_RECLAIMED_SIZE, Constants.METRICS_TAG_LABEL_NAME, STORAGE_PATH_LABEL);
+    counterStorageTrashReclaimedFileNum = metricsManager.addCounter(
+        STORAGE_TRASH_RECLAIMED_FILE_NUM, Constants.METRICS_TAG_LABEL_NAME, STORAGE_PATH_LABEL);
     counterTotalRequireReadMemoryNum = metricsManager.addLabeledCounter(TOTAL_REQUIRE_READ_MEMORY);
     counterTotalRequireReadMemoryRetryNum = metricsManager.addLabeledCounter(TOTAL_REQUIRE_READ_MEMORY_RETRY);
     counterTotalRequireReadMemoryFailedNum = metricsManager.addLabeledCounter(TOTAL_REQUIRE_READ_MEMORY_FAILED);
+    counterTotalNettyRequestRejectedNum = metricsManager.addLabeledCounter(TOTAL_NETTY_REQUEST_REJECTED);
+    counterTotalOffHeapAllocationFallbackNum = metricsManager.addLabeledCounter(TOTAL_OFFHEAP_ALLOCATION_FALLBACK);
+    counterTotalLocalIndexCacheHitNum = metricsManager.addLabeledCounter(TOTAL_LOCAL_INDEX_CACHE_HIT);
+    counterTotalLocalIndexCacheMissNum = metricsManager.addLabeledCounter(TOTAL_LOCAL_INDEX_CACHE_MISS);
+    counterTotalLocalDataCacheHitNum = metricsManager.addLabeledCounter(TOTAL_LOCAL_DATA_CACHE_HIT);
+    counterTotalLocalDataCacheMissNum = metricsManager.addLabeledCounter(TOTAL_LOCAL_DATA_CACHE_MISS);
+    counterTotalRemoteStorageCompactionNum = metricsManager.addLabeledCounter(TOTAL_REMOTE_STORAGE_COMPACTION);
+    counterTotalRemoteStorageCompactedFileNum =
+        metricsManager.addLabeledCounter(TOTAL_REMOTE_STORAGE_COMPACTED_FILE);
+    counterTotalLocalPrefetchHitNum = metricsManager.addLabeledCounter(TOTAL_LOCAL_PREFETCH_HIT);
+    counterTotalLocalPrefetchMissNum = metricsManager.addLabeledCounter(TOTAL_LOCAL_PREFETCH_MISS);
 
     counterTotalAppNum = metricsManager.addLabeledCounter(TOTAL_APP_NUM);
     counterTotalAppWithHugePartitionNum = metricsManager.addLabeledCounter(TOTAL_APP_WITH_HUGE_PARTITION_NUM);
@@ -280,6 +370,9 @@ public class ShuffleServerMetrics {
     gaugeReadBufferUsedSize = metricsManager.addLabeledGauge(READ_USED_BUFFER_SIZE);
     gaugeWriteHandler = metricsManager.addLabeledGauge(TOTAL_WRITE_HANDLER);
     gaugeEventQueueSize = metricsManager.addLabeledGauge(EVENT_QUEUE_SIZE);
+    gaugeNettyRequestQueueSize = metricsManager.addLabeledGauge(NETTY_REQUEST_QUEUE_SIZE);
+    gaugeOffHeapSlabUsedSize = metricsManager.addLabeledGauge(OFFHEAP_SLAB_USED_SIZE);
+    gaugeOffHeapSlabPinnedSize = metricsManager.addLabeledGauge(OFFHEAP_SLAB_PINNED_SIZE);
     gaugeAppNum = metricsManager.addLabeledGauge(APP_NUM_WITH_NODE);
     gaugeTotalPartitionNum = metricsManager.addLabeledGauge(PARTITION_NUM_WITH_NODE);
 
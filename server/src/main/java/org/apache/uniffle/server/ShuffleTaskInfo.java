@@ -45,7 +45,6 @@ public class ShuffleTaskInfo {
    * shuffleId -> commit count
    */
   private Map<Integer, AtomicInteger> commitCounts;
-  private Map<Integer, Object> commitLocks;
   /**
    * shuffleId -> blockIds
     */
@@ -69,7 +68,6 @@ public class ShuffleTaskInfo {
     this.appId = appId;
     this.currentTimes = System.currentTimeMillis();
     this.commitCounts = JavaUtils.newConcurrentMap();
-    this.commitLocks = JavaUtils.newConcurrentMap();
     this.cachedBlockIds = JavaUtils.newConcurrentMap();
     this.user = new AtomicReference<>();
     this.partitionDataSizes = JavaUtils.newConcurrentMap();
@@ -90,10 +88,6 @@ public class ShuffleTaskInfo {
     return commitCounts;
   }
 
-  public Map<Integer, Object> getCommitLocks() {
-    return commitLocks;
-  }
-
   public Map<Integer, Roaring64NavigableMap> getCachedBlockIds() {
     return cachedBlockIds;
   }
@@ -20,20 +20,21 @@ package org.apache.uniffle.server;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
@@ -53,9 +54,7 @@ import org.apache.uniffle.common.config.RssBaseConf;
 import org.apache.uniffle.common.exception.FileNotFoundException;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.rpc.StatusCode;
-import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.common.util.JavaUtils;
-import org.apache.uniffle.common.util.RssUtils;
 import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.server.buffer.PreAllocatedBufferInfo;
 import org.apache.uniffle.server.buffer.ShuffleBuffer;
@@ -63,9 +62,12 @@ import org.apache.uniffle.server.buffer.ShuffleBufferManager;
 import org.apache.uniffle.server.event.AppPurgeEvent;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.server.event.ShufflePurgeEvent;
+import org.apache.uniffle.server.storage.ShuffleMetadata;
 import org.apache.uniffle.server.storage.StorageManager;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.common.StorageReadMetrics;
+import org.apache.uniffle.storage.handler.api.ServerReadHandler;
+import org.apache.uniffle.storage.handler.impl.LocalFileServerReadHandler;
 import org.apache.uniffle.storage.request.CreateShuffleReadHandlerRequest;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
@@ -85,16 +87,14 @@ public class ShuffleTaskManager {
   private ShuffleServerConf conf;
   private long appExpiredWithoutHB;
   private long preAllocationExpired;
-  private long commitCheckIntervalMax;
   private long leakShuffleDataCheckInterval;
   private long triggerFlushInterval;
-  // appId -> shuffleId -> blockIds to avoid too many appId
-  // store taskAttemptId info to filter speculation task
-  // Roaring64NavigableMap instance will cost much memory,
-  // merge different blockId of partition to one bitmap can reduce memory cost,
-  // but when get blockId, performance will degrade a little which can be optimized by client configuration
-  private Map<String, Map<Integer, Roaring64NavigableMap[]>> partitionsToBlockIds;
+  // appId -> shuffleId -> the finished blockIds indexed by partition, the blockIds of the requested
+  // partitions are got from their own bitmaps, and the serialized bitmap of a partition is cached
+  // until new blockIds of it are reported
+  private Map<String, Map<Integer, PartitionBlockIdIndex>> partitionsToBlockIds;
   private final ShuffleBufferManager shuffleBufferManager;
+  private final LocalDataPrefetcher localDataPrefetcher;
   private Map<String, ShuffleTaskInfo> shuffleTaskInfos = JavaUtils.newConcurrentMap();
   private Map<Long, PreAllocatedBufferInfo> requireBufferIds = JavaUtils.newConcurrentMap();
   private Runnable clearResourceThread;
@@ -111,7 +111,6 @@ public class ShuffleTaskManager {
     this.shuffleBufferManager = shuffleBufferManager;
     this.storageManager = storageManager;
     this.appExpiredWithoutHB = conf.getLong(ShuffleServerConf.SERVER_APP_EXPIRED_WITHOUT_HEARTBEAT);
-    this.commitCheckIntervalMax = conf.getLong(ShuffleServerConf.SERVER_COMMIT_CHECK_INTERVAL_MAX);
     this.preAllocationExpired = conf.getLong(ShuffleServerConf.SERVER_PRE_ALLOCATION_EXPIRED);
     this.leakShuffleDataCheckInterval = conf.getLong(ShuffleServerConf.SERVER_LEAK_SHUFFLE_DATA_CHECK_INTERVAL);
     this.triggerFlushInterval = conf.getLong(ShuffleServerConf.SERVER_TRIGGER_FLUSH_CHECK_INTERVAL);
@@ -141,6 +140,14 @@ public class ShuffleTaskManager {
     if (shuffleBufferManager != null) {
       shuffleBufferManager.setShuffleTaskManager(this);
     }
+    if (shuffleBufferManager != null && conf.get(ShuffleServerConf.LOCAL_STORAGE_PREFETCH_ENABLED)) {
+      localDataPrefetcher = new LocalDataPrefetcher(conf, shuffleBufferManager);
+      long prefetchExpired = conf.get(ShuffleServerConf.LOCAL_STORAGE_PREFETCH_EXPIRED);
+      scheduledExecutorService.scheduleAtFixedRate(
+          localDataPrefetcher::removeExpiredPrefetches, prefetchExpired, prefetchExpired, TimeUnit.MILLISECONDS);
+    } else {
+      localDataPrefetcher = null;
+    }
 
     // the thread for clear expired resources
     clearResourceThread = () -> {
@@ -196,14 +203,18 @@ public class ShuffleTaskManager {
     refreshAppId(appId);
 
     ShuffleTaskInfo taskInfo = shuffleTaskInfos.get(appId);
+    int maxConcurrencyWriting = getMaxConcurrencyWriting(maxConcurrencyPerPartitionToWrite, conf);
     taskInfo.setUser(user);
     taskInfo.setSpecification(
         ShuffleSpecification
             .builder()
-            .maxConcurrencyPerPartitionToWrite(getMaxConcurrencyWriting(maxConcurrencyPerPartitionToWrite, conf))
+            .maxConcurrencyPerPartitionToWrite(maxConcurrencyWriting)
             .dataDistributionType(dataDistType)
             .build()
     );
+    if (storageManager != null) {
+      storageManager.recordAppInfo(appId, new ShuffleMetadata.AppInfo(user, dataDistType, maxConcurrencyWriting));
+    }
 
     partitionsToBlockIds.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap());
     for (PartitionRange partitionRange : partitionRanges) {
@@ -251,72 +262,96 @@ public class ShuffleTaskManager {
   }
 
   public StatusCode commitShuffle(String appId, int shuffleId) throws Exception {
-    long start = System.currentTimeMillis();
+    try {
+      return commitShuffleAsync(appId, shuffleId).get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * Flush the buffers of the shuffle and wait for the flush events asynchronously, the
+   * returned future is completed when all the data cached before the commit is flushed.
+   */
+  public CompletableFuture<StatusCode> commitShuffleAsync(String appId, int shuffleId) {
+    final long start = System.currentTimeMillis();
     refreshAppId(appId);
     Roaring64NavigableMap cachedBlockIds = getCachedBlockIds(appId, shuffleId);
-    Roaring64NavigableMap cloneBlockIds;
-    ShuffleTaskInfo shuffleTaskInfo = shuffleTaskInfos.computeIfAbsent(appId, x -> new ShuffleTaskInfo(appId));
-    Object lock = shuffleTaskInfo.getCommitLocks().computeIfAbsent(shuffleId, x -> new Object());
-    synchronized (lock) {
-      long commitTimeout = conf.get(ShuffleServerConf.SERVER_COMMIT_TIMEOUT);
-      if (System.currentTimeMillis() - start > commitTimeout) {
-        throw new RssException("Shuffle data commit timeout for " + commitTimeout + " ms");
-      }
-      synchronized (cachedBlockIds) {
-        cloneBlockIds = RssUtils.cloneBitMap(cachedBlockIds);
-      }
-      long expectedCommitted = cloneBlockIds.getLongCardinality();
-      shuffleBufferManager.commitShuffleTask(appId, shuffleId);
-      Roaring64NavigableMap committedBlockIds;
-      Roaring64NavigableMap cloneCommittedBlockIds;
-      long checkInterval = 1000L;
-      while (true) {
-        committedBlockIds = shuffleFlushManager.getCommittedBlockIds(appId, shuffleId);
-        synchronized (committedBlockIds) {
-          cloneCommittedBlockIds = RssUtils.cloneBitMap(committedBlockIds);
-        }
-        cloneBlockIds.andNot(cloneCommittedBlockIds);
-        if (cloneBlockIds.isEmpty()) {
-          break;
-        }
-        Thread.sleep(checkInterval);
-        if (System.currentTimeMillis() - start > commitTimeout) {
-          throw new RssException("Shuffle data commit timeout for " + commitTimeout + " ms");
-        }
-        LOG.info("Checking commit result for appId[" + appId + "], shuffleId[" + shuffleId
-            + "], expect committed[" + expectedCommitted
-            + "], remain[" + cloneBlockIds.getLongCardinality() + "]");
-        checkInterval = Math.min(checkInterval * 2, commitCheckIntervalMax);
+    long expectedCommitted;
+    synchronized (cachedBlockIds) {
+      expectedCommitted = cachedBlockIds.getLongCardinality();
+    }
+    shuffleBufferManager.commitShuffleTask(appId, shuffleId);
+    CompletableFuture<StatusCode> result = new CompletableFuture<>();
+    CompletableFuture<Void> flushFuture = shuffleFlushManager.waitForFlushEvents(appId, shuffleId);
+    long commitTimeout = conf.get(ShuffleServerConf.SERVER_COMMIT_TIMEOUT);
+    ScheduledFuture<?> timeoutFuture = scheduledExecutorService.schedule(() -> {
+      result.completeExceptionally(new RssException("Shuffle data commit timeout for " + commitTimeout + " ms"));
+      // stop waiting for the flush events, so the waiter isn't left in the flush tracker
+      flushFuture.cancel(false);
+    }, commitTimeout, TimeUnit.MILLISECONDS);
+    flushFuture.whenComplete((v, e) -> {
+      timeoutFuture.cancel(false);
+      if (e != null) {
+        result.completeExceptionally(e);
+        return;
       }
       LOG.info("Finish commit for appId[" + appId + "], shuffleId[" + shuffleId
           + "] with expectedCommitted[" + expectedCommitted + "], cost "
-          + (System.currentTimeMillis() - start) + " ms to check");
-    }
-    return StatusCode.SUCCESS;
+          + (System.currentTimeMillis() - start) + " ms to wait");
+      result.complete(StatusCode.SUCCESS);
+      if (storageManager != null) {
+        storageManager.onShuffleCommitted(appId, shuffleId);
+      }
+    });
+    return result;
   }
 
-  public void addFinishedBlockIds(
-      String appId, Integer shuffleId, Map<Integer, long[]> partitionToBlockIds, int bitmapNum) {
+  public void addFinishedBlockIds(String appId, Integer shuffleId, Map<Integer, long[]> partitionToBlockIds) {
     refreshAppId(appId);
-    Map<Integer, Roaring64NavigableMap[]> shuffleIdToPartitions = partitionsToBlockIds.get(appId);
+    Map<Integer, PartitionBlockIdIndex> shuffleIdToPartitions = partitionsToBlockIds.get(appId);
     if (shuffleIdToPartitions == null) {
       throw new RssException("appId[" + appId  + "] is expired!");
     }
-    shuffleIdToPartitions.computeIfAbsent(shuffleId, key -> {
-      Roaring64NavigableMap[] blockIds = new Roaring64NavigableMap[bitmapNum];
-      for (int i = 0; i < bitmapNum; i++) {
-        blockIds[i] = Roaring64NavigableMap.bitmapOf();
-      }
-      return blockIds;
-    });
-    Roaring64NavigableMap[] blockIds = shuffleIdToPartitions.get(shuffleId);
+    PartitionBlockIdIndex blockIdIndex =
+        shuffleIdToPartitions.computeIfAbsent(shuffleId, key -> new PartitionBlockIdIndex());
     for (Map.Entry<Integer, long[]> entry : partitionToBlockIds.entrySet()) {
-      Integer partitionId = entry.getKey();
-      Roaring64NavigableMap bitmap = blockIds[partitionId % bitmapNum];
-      synchronized (bitmap) {
-        for (long blockId : entry.getValue()) {
-          bitmap.addLong(blockId);
-        }
+      blockIdIndex.addBlockIds(entry.getKey(), entry.getValue());
+    }
+    if (storageManager != null) {
+      storageManager.recordFinishedBlockIds(appId, shuffleId, partitionToBlockIds);
+    }
+  }
+
+  /**
+   * Recover the apps and their finished blockIds recorded before the server restarted,
+   * the recovered apps are removed as usual if their heartbeats don't come back.
+   */
+  public void recoverShuffleMetadata(ShuffleMetadata metadata) {
+    for (String appId : metadata.getAppIds()) {
+      refreshAppId(appId);
+      // the app recorded without its info is written with the default specification
+      ShuffleMetadata.AppInfo appInfo = metadata.getAppInfo(appId);
+      ShuffleTaskInfo taskInfo = shuffleTaskInfos.get(appId);
+      taskInfo.setUser(appInfo == null ? null : appInfo.getUser());
+      taskInfo.setSpecification(
+          ShuffleSpecification
+              .builder()
+              .maxConcurrencyPerPartitionToWrite(appInfo == null
+                  ? getMaxConcurrencyWriting(-1, conf) : appInfo.getMaxConcurrencyPerPartitionToWrite())
+              .dataDistributionType(appInfo == null
+                  ? ShuffleDataDistributionType.NORMAL : appInfo.getDataDistributionType())
+              .build()
+      );
+      Map<Integer, PartitionBlockIdIndex> shuffleIdToPartitions =
+          partitionsToBlockIds.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap());
+      for (Map.Entry<Integer, ShuffleMetadata.ShuffleInfo> entry : metadata.getShuffles(appId).entrySet()) {
+        int shuffleId = entry.getKey();
+        PartitionBlockIdIndex blockIdIndex =
+            shuffleIdToPartitions.computeIfAbsent(shuffleId, key -> new PartitionBlockIdIndex());
+        entry.getValue().getFinishedBlockIds().forEach(
+            (partitionId, blockIds) -> blockIdIndex.addBlockIds(partitionId, blockIds.toArray()));
+        shuffleFlushManager.addCommittedBlockIds(appId, shuffleId, entry.getValue().getCommittedBlockIds());
       }
     }
   }
@@ -430,47 +465,16 @@ public class ShuffleTaskManager {
         storage.updateReadMetrics(new StorageReadMetrics(appId, shuffleId));
       }
     }
-    Map<Integer, Roaring64NavigableMap[]> shuffleIdToPartitions = partitionsToBlockIds.get(appId);
+    Map<Integer, PartitionBlockIdIndex> shuffleIdToPartitions = partitionsToBlockIds.get(appId);
     if (shuffleIdToPartitions == null) {
       return null;
     }
 
-    Roaring64NavigableMap[] blockIds = shuffleIdToPartitions.get(shuffleId);
-    if (blockIds == null) {
+    PartitionBlockIdIndex blockIdIndex = shuffleIdToPartitions.get(shuffleId);
+    if (blockIdIndex == null) {
       return new byte[]{};
     }
-    Map<Integer, Set<Integer>> bitmapIndexToPartitions = Maps.newHashMap();
-    for (int partitionId : partitions) {
-      int bitmapIndex = partitionId % blockIds.length;
-      if (bitmapIndexToPartitions.containsKey(bitmapIndex)) {
-        bitmapIndexToPartitions.get(bitmapIndex).add(partitionId);
-      } else {
-        HashSet<Integer> newHashSet = Sets.newHashSet(partitionId);
-        bitmapIndexToPartitions.put(bitmapIndex, newHashSet);
-      }
-    }
-
-    Roaring64NavigableMap res = Roaring64NavigableMap.bitmapOf();
-    for (Map.Entry<Integer, Set<Integer>> entry : bitmapIndexToPartitions.entrySet()) {
-      Set<Integer> requestPartitions = entry.getValue();
-      Roaring64NavigableMap bitmap = blockIds[entry.getKey()];
-      getBlockIdsByPartitionId(requestPartitions, bitmap, res);
-    }
-    return RssUtils.serializeBitMap(res);
-  }
-
-
-  // filter the specific partition blockId in the bitmap to the resultBitmap
-  protected Roaring64NavigableMap getBlockIdsByPartitionId(Set<Integer> requestPartitions,
-      Roaring64NavigableMap bitmap, Roaring64NavigableMap resultBitmap) {
-    final long mask = (1L << Constants.PARTITION_ID_MAX_LENGTH) - 1;
-    bitmap.forEach(blockId -> {
-      int partitionId = Math.toIntExact((blockId >> Constants.TASK_ATTEMPT_ID_MAX_LENGTH) & mask);
-      if (requestPartitions.contains(partitionId)) {
-        resultBitmap.addLong(blockId);
-      }
-    });
-    return resultBitmap;
+    return blockIdIndex.getSerializedBlockIds(partitions);
   }
 
   public ShuffleDataResult getInMemoryShuffleData(
@@ -485,7 +489,30 @@ public class ShuffleTaskManager {
       String appId, Integer shuffleId, Integer partitionId, int partitionNumPerRange,
       int partitionNum, String storageType, long offset, int length) {
     refreshAppId(appId);
+    ServerReadHandler handler =
+        getServerReadHandler(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, storageType);
+    if (localDataPrefetcher != null && handler instanceof LocalFileServerReadHandler) {
+      return localDataPrefetcher.getShuffleData(
+          appId, shuffleId, partitionId, (LocalFileServerReadHandler) handler, offset, length);
+    }
+    return handler.getShuffleData(offset, length);
+  }
 
+  /**
+   * Get the shuffle data as a file segment which isn't read into memory,
+   * it's expected to be sent by zero-copy, e.g. the netty file region.
+   */
+  public ShuffleDataResult getShuffleDataSegment(
+      String appId, Integer shuffleId, Integer partitionId, int partitionNumPerRange,
+      int partitionNum, String storageType, long offset, int length) {
+    refreshAppId(appId);
+    return getServerReadHandler(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, storageType)
+        .getShuffleDataSegment(offset, length);
+  }
+
+  private ServerReadHandler getServerReadHandler(
+      String appId, Integer shuffleId, Integer partitionId, int partitionNumPerRange,
+      int partitionNum, String storageType) {
     CreateShuffleReadHandlerRequest request = new CreateShuffleReadHandlerRequest();
     request.setAppId(appId);
     request.setShuffleId(shuffleId);
@@ -500,7 +527,7 @@ public class ShuffleTaskManager {
       throw new FileNotFoundException("No such data stored in current storage manager.");
     }
 
-    return storage.getOrCreateReadHandler(request).getShuffleData(offset, length);
+    return storage.getOrCreateReadHandler(request);
   }
 
   public ShuffleIndexResult getShuffleIndex(
@@ -561,7 +588,6 @@ public class ShuffleTaskManager {
       for (Integer shuffleId : shuffleIds) {
         taskInfo.getCachedBlockIds().remove(shuffleId);
         taskInfo.getCommitCounts().remove(shuffleId);
-        taskInfo.getCommitLocks().remove(shuffleId);
       }
     }
     Optional.ofNullable(partitionsToBlockIds.get(appId)).ifPresent(x -> {
@@ -571,6 +597,9 @@ public class ShuffleTaskManager {
     });
     shuffleBufferManager.removeBufferByShuffleId(appId, shuffleIds);
     shuffleFlushManager.removeResourcesOfShuffleId(appId, shuffleIds);
+    if (localDataPrefetcher != null) {
+      localDataPrefetcher.removeResourcesByShuffleIds(appId, shuffleIds);
+    }
     storageManager.removeResources(
         new ShufflePurgeEvent(appId, getUserByAppId(appId), shuffleIds)
     );
@@ -602,6 +631,9 @@ public class ShuffleTaskManager {
     partitionsToBlockIds.remove(appId);
     shuffleBufferManager.removeBuffer(appId);
     shuffleFlushManager.removeResources(appId);
+    if (localDataPrefetcher != null) {
+      localDataPrefetcher.removeResources(appId);
+    }
     if (!shuffleToCachedBlockIds.isEmpty()) {
       storageManager.removeResources(
           new AppPurgeEvent(appId, getUserByAppId(appId), new ArrayList<>(shuffleToCachedBlockIds.keySet()))
@@ -671,7 +703,7 @@ public class ShuffleTaskManager {
   }
 
   @VisibleForTesting
-  public Map<String, Map<Integer, Roaring64NavigableMap[]>> getPartitionsToBlockIds() {
+  public Map<String, Map<Integer, PartitionBlockIdIndex>> getPartitionsToBlockIds() {
     return partitionsToBlockIds;
   }
 
@@ -694,8 +726,6 @@ public class ShuffleTaskManager {
   }
 
   private void triggerFlush() {
-    synchronized (this.shuffleBufferManager) {
-      this.shuffleBufferManager.flushIfNecessary();
-    }
+    this.shuffleBufferManager.flushIfNecessary();
   }
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+/**
+ * The queue of flush events bound for one storage. At most {@code budget} workers are
+ * started for the queue, so a slow storage can't occupy the flush threads of others.
+ * The idle workers of other queues help a saturated queue, at most {@code maxHelpers} of them
+ * at the same time, and they are accounted against this queue while they help it.
+ */
+class StorageFlushQueue {
+
+  private final String storagePath;
+  private final int budget;
+  private final int maxHelpers;
+  private final Queue<QueuedEvent> events = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger(0);
+  private final AtomicInteger workers = new AtomicInteger(0);
+  private final AtomicInteger helpers = new AtomicInteger(0);
+  private final Gauge.Child sizeGauge;
+  private final Histogram.Child waitTimeHistogram;
+
+  StorageFlushQueue(String storagePath, int budget, int maxHelpers) {
+    this.storagePath = storagePath;
+    this.budget = budget;
+    this.maxHelpers = maxHelpers;
+    this.sizeGauge = ShuffleServerMetrics.getStorageFlushQueueSizeGauge(storagePath);
+    this.waitTimeHistogram = ShuffleServerMetrics.getStorageFlushQueueWaitTimeHistogram(storagePath);
+  }
+
+  void add(ShuffleDataFlushEvent event) {
+    events.offer(new QueuedEvent(event));
+    sizeGauge.set(size.incrementAndGet());
+  }
+
+  ShuffleDataFlushEvent poll() {
+    QueuedEvent queuedEvent = events.poll();
+    if (queuedEvent == null) {
+      return null;
+    }
+    sizeGauge.set(size.decrementAndGet());
+    waitTimeHistogram.observe(System.currentTimeMillis() - queuedEvent.enqueueTime);
+    return queuedEvent.event;
+  }
+
+  /**
+   * @return true if the event was still in the queue and it's removed
+   */
+  boolean remove(ShuffleDataFlushEvent event) {
+    if (!events.removeIf(queuedEvent -> queuedEvent.event == event)) {
+      return false;
+    }
+    sizeGauge.set(size.decrementAndGet());
+    return true;
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  boolean isEmpty() {
+    return events.isEmpty();
+  }
+
+  /**
+   * @return true if a new worker can be started for this queue
+   */
+  boolean tryAcquireWorker() {
+    while (true) {
+      int current = workers.get();
+      if (current >= budget) {
+        return false;
+      }
+      if (workers.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  void releaseWorker() {
+    workers.decrementAndGet();
+  }
+
+  boolean hasWorker() {
+    return workers.get() > 0;
+  }
+
+  /**
+   * @return true if a worker of another queue can help this queue
+   */
+  boolean tryAcquireHelper() {
+    while (true) {
+      int current = helpers.get();
+      if (current >= maxHelpers) {
+        return false;
+      }
+      if (helpers.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  void releaseHelper() {
+    helpers.decrementAndGet();
+  }
+
+  /**
+   * @return true if the queue has events but no more worker can be started for it,
+   *     workers of other queues can help it
+   */
+  boolean isSaturated() {
+    return workers.get() >= budget && helpers.get() < maxHelpers && !events.isEmpty();
+  }
+
+  String getStoragePath() {
+    return storagePath;
+  }
+
+  @Override
+  public String toString() {
+    return "StorageFlushQueue{storagePath=" + storagePath + ", size=" + size.get()
+        + ", workers=" + workers.get() + ", helpers=" + helpers.get() + ", budget=" + budget
+        + ", maxHelpers=" + maxHelpers + "}";
+  }
+
+  private static class QueuedEvent {
+    private final ShuffleDataFlushEvent event;
+    private final long enqueueTime = System.currentTimeMillis();
+
+    QueuedEvent(ShuffleDataFlushEvent event) {
+      this.event = event;
+    }
+  }
+}
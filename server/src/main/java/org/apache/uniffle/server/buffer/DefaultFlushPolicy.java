@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.server.ShuffleServerConf;
+
+/**
+ * Flushes the whole shuffles from the biggest one, shuffles smaller than
+ * `rss.server.shuffle.flush.threshold` are kept in memory if possible.
+ */
+public class DefaultFlushPolicy implements FlushPolicy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultFlushPolicy.class);
+
+  // when shuffle buffer manager flushes data, shuffles with data size < shuffleFlushThreshold is kept in memory to
+  // reduce small I/Os to persistent storage, especially for local HDDs.
+  private final long shuffleFlushThreshold;
+
+  public DefaultFlushPolicy(ShuffleServerConf conf) {
+    this.shuffleFlushThreshold = conf.getLong(ShuffleServerConf.SERVER_SHUFFLE_FLUSH_THRESHOLD);
+  }
+
+  @Override
+  public List<FlushCandidate> pickFlushCandidates(Iterator<List<FlushCandidate>> shuffles, long expectedFlushSize) {
+    List<FlushCandidate> picked = Lists.newArrayList();
+    // The algorithm here is to flush data size > highWaterMark - lowWaterMark
+    // the remaining data in buffer maybe more than lowWaterMark
+    // because shuffle server is still receiving data, but it should be ok
+    long atLeastFlushSizeIgnoreThreshold = expectedFlushSize >>> 1;
+    long pickedFlushSize = 0L;
+    int printIndex = 0;
+    int printIgnoreIndex = 0;
+    int printMax = 10;
+    while (shuffles.hasNext()) {
+      List<FlushCandidate> buffers = shuffles.next();
+      if (buffers.isEmpty()) {
+        continue;
+      }
+      long size = 0;
+      for (FlushCandidate buffer : buffers) {
+        size += buffer.getSize();
+      }
+      FlushCandidate first = buffers.get(0);
+      if (size > this.shuffleFlushThreshold || pickedFlushSize <= atLeastFlushSizeIgnoreThreshold) {
+        pickedFlushSize += size;
+        picked.addAll(buffers);
+        // print detail picked info
+        if (printIndex < printMax) {
+          LOG.info("Pick application_shuffleId[{}_{}] with {} bytes", first.getAppId(), first.getShuffleId(), size);
+          printIndex++;
+        }
+        if (pickedFlushSize > expectedFlushSize) {
+          LOG.info("Finish flush pick with {} bytes", pickedFlushSize);
+          break;
+        }
+      } else {
+        // since shuffle size is ordered by size desc, we can skip process more shuffle data once some shuffle's size
+        // is less than threshold
+        if (printIgnoreIndex < printMax) {
+          LOG.info("Ignore application_shuffleId[{}_{}] with {} bytes", first.getAppId(), first.getShuffleId(), size);
+          printIgnoreIndex++;
+        } else {
+          break;
+        }
+      }
+    }
+    return picked;
+  }
+}
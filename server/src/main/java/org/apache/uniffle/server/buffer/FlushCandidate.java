@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+/**
+ * A partition buffer which can be flushed, the buffer may cover a range of partitions.
+ */
+public class FlushCandidate {
+
+  private final String appId;
+  private final int shuffleId;
+  private final int startPartition;
+  private final int endPartition;
+  private final ShuffleBuffer buffer;
+  private final boolean hugePartition;
+
+  public FlushCandidate(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      ShuffleBuffer buffer,
+      boolean hugePartition) {
+    this.appId = appId;
+    this.shuffleId = shuffleId;
+    this.startPartition = startPartition;
+    this.endPartition = endPartition;
+    this.buffer = buffer;
+    this.hugePartition = hugePartition;
+  }
+
+  public String getAppId() {
+    return appId;
+  }
+
+  public int getShuffleId() {
+    return shuffleId;
+  }
+
+  public int getStartPartition() {
+    return startPartition;
+  }
+
+  public int getEndPartition() {
+    return endPartition;
+  }
+
+  public ShuffleBuffer getBuffer() {
+    return buffer;
+  }
+
+  public boolean isHugePartition() {
+    return hugePartition;
+  }
+
+  public long getSize() {
+    return buffer.getSize();
+  }
+
+  /**
+   * @return how long the data has been kept in buffer, 0 if there is no data
+   */
+  public long getAge(long currentTime) {
+    long firstAppendTime = buffer.getFirstAppendTime();
+    return firstAppendTime > 0 ? Math.max(0L, currentTime - firstAppendTime) : 0L;
+  }
+
+  @Override
+  public String toString() {
+    return "FlushCandidate{appId[" + appId + "], shuffleId[" + shuffleId + "], partition["
+        + startPartition + "-" + endPartition + "], size[" + getSize() + "], hugePartition[" + hugePartition + "]}";
+  }
+}
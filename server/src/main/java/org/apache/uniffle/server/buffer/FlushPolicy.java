@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Decides which buffers are flushed when the size of data in buffer exceeds the high watermark.
+ * The implementation should have a constructor with {@link org.apache.uniffle.server.ShuffleServerConf}.
+ */
+public interface FlushPolicy {
+
+  /**
+   * @param shuffles the buffers of each shuffle, the shuffles are ordered by the size of data in buffer desc
+   * @param expectedFlushSize the size of data expected to be flushed, it's the gap between high watermark
+   *     and low watermark
+   * @return the buffers to flush
+   */
+  List<FlushCandidate> pickFlushCandidates(Iterator<List<FlushCandidate>> shuffles, long expectedFlushSize);
+}
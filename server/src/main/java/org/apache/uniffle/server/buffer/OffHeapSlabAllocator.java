@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.UnpooledDirectByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+
+/**
+ * Allocates the memory of shuffle data from fixed size off-heap slabs.
+ *
+ * <p>Buffers are carved out of the current slab one after another and every buffer holds a
+ * reference of its slab. A slab is recycled when it is full and all the buffers from it are
+ * released. The number of slabs is limited by the capacity, so the off-heap memory used by
+ * shuffle data never exceeds it.
+ *
+ * <p>A live buffer pins its whole slab, the bytes of the slabs in use which are not taken by live
+ * buffers are reported as the pinned size, so they can be accounted as used memory by the caller.
+ */
+public class OffHeapSlabAllocator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OffHeapSlabAllocator.class);
+
+  private final int slabSize;
+  private final int maxSlabNum;
+  private final Queue<ByteBuffer> freeSlabs = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger usedSlabNum = new AtomicInteger(0);
+  // the total length of the buffers which are not released
+  private final AtomicLong liveSize = new AtomicLong(0);
+  private int allocatedSlabNum = 0;
+  private Slab currentSlab;
+
+  public OffHeapSlabAllocator(long capacity, int slabSize) {
+    this.slabSize = slabSize;
+    this.maxSlabNum = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, capacity / slabSize));
+    LOG.info("Init off-heap slab allocator with slab size: {}, max slab num: {}", slabSize, maxSlabNum);
+  }
+
+  /**
+   * Copy the data of blocks into slabs and release the original buffers, the block is kept
+   * as it is if there is no slab available for it.
+   */
+  public void copyToSlabs(ShufflePartitionedBlock[] blocks) {
+    for (ShufflePartitionedBlock block : blocks) {
+      ByteBuf data = block.getData();
+      int length = data.readableBytes();
+      ByteBuf slabBuffer = allocate(length);
+      if (slabBuffer == null) {
+        ShuffleServerMetrics.counterTotalOffHeapAllocationFallbackNum.inc();
+        continue;
+      }
+      slabBuffer.writeBytes(data, data.readerIndex(), length);
+      data.release();
+      block.setData(slabBuffer);
+    }
+  }
+
+  /**
+   * @return a buffer with the given capacity, or null if the length is bigger than
+   *     slab size or all the slabs are in use
+   */
+  public synchronized ByteBuf allocate(int length) {
+    if (length > slabSize) {
+      return null;
+    }
+    if (currentSlab != null && currentSlab.remaining() < length && currentSlab.refCnt() == 1) {
+      // all the buffers from current slab are released, the reference count can't be
+      // increased by others, so it's safe to reuse it from the beginning
+      currentSlab.reset();
+    }
+    if (currentSlab == null || currentSlab.remaining() < length) {
+      ByteBuffer memory = freeSlabs.poll();
+      if (memory == null) {
+        if (allocatedSlabNum >= maxSlabNum) {
+          return null;
+        }
+        memory = ByteBuffer.allocateDirect(slabSize);
+        allocatedSlabNum++;
+      }
+      ShuffleServerMetrics.gaugeOffHeapSlabUsedSize.set((long) usedSlabNum.incrementAndGet() * slabSize);
+      if (currentSlab != null) {
+        // the slab will be recycled after all the buffers from it are released
+        currentSlab.release();
+      }
+      currentSlab = new Slab(memory);
+    }
+    ByteBuf buffer = currentSlab.allocate(length);
+    liveSize.addAndGet(length);
+    updatePinnedSize();
+    return buffer;
+  }
+
+  /**
+   * @return the bytes of the slabs in use which are not taken by live buffers, including the
+   *     unallocated part of current slab
+   */
+  public long getPinnedSize() {
+    return Math.max(0L, (long) usedSlabNum.get() * slabSize - liveSize.get());
+  }
+
+  private void onBufferReleased(int length) {
+    liveSize.addAndGet(-length);
+    updatePinnedSize();
+  }
+
+  private void updatePinnedSize() {
+    ShuffleServerMetrics.gaugeOffHeapSlabPinnedSize.set(getPinnedSize());
+  }
+
+  private void recycle(ByteBuffer memory) {
+    memory.clear();
+    freeSlabs.offer(memory);
+    ShuffleServerMetrics.gaugeOffHeapSlabUsedSize.set((long) usedSlabNum.decrementAndGet() * slabSize);
+    updatePinnedSize();
+  }
+
+  @VisibleForTesting
+  int getUsedSlabNum() {
+    return usedSlabNum.get();
+  }
+
+  @VisibleForTesting
+  synchronized int getAllocatedSlabNum() {
+    return allocatedSlabNum;
+  }
+
+  private class Slab extends UnpooledDirectByteBuf {
+    private final ByteBuffer memory;
+    private int allocatedOffset = 0;
+
+    Slab(ByteBuffer memory) {
+      super(UnpooledByteBufAllocator.DEFAULT, memory, memory.capacity());
+      this.memory = memory;
+    }
+
+    int remaining() {
+      return capacity() - allocatedOffset;
+    }
+
+    void reset() {
+      allocatedOffset = 0;
+    }
+
+    ByteBuf allocate(int length) {
+      ByteBuffer duplicate = memory.duplicate();
+      duplicate.position(allocatedOffset);
+      duplicate.limit(allocatedOffset + length);
+      ByteBuf buffer = new SlabBuffer(this, duplicate.slice(), length);
+      allocatedOffset += length;
+      return buffer.clear();
+    }
+
+    @Override
+    protected void deallocate() {
+      // the memory of slab is not freed by super class, reuse it for later slabs
+      super.deallocate();
+      recycle(memory);
+    }
+  }
+
+  /**
+   * The buffer carved out of a slab, it has its own reference count, so the allocator knows
+   * when it's released.
+   */
+  private class SlabBuffer extends UnpooledDirectByteBuf {
+    private final Slab slab;
+    private final int length;
+
+    SlabBuffer(Slab slab, ByteBuffer memory, int length) {
+      super(UnpooledByteBufAllocator.DEFAULT, memory, length);
+      this.slab = slab;
+      this.length = length;
+      slab.retain();
+    }
+
+    @Override
+    protected void deallocate() {
+      // the memory is a part of the slab, it's not freed by super class
+      super.deallocate();
+      onBufferReleased(length);
+      slab.release();
+    }
+  }
+}
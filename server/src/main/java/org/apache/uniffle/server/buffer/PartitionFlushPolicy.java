@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.server.ShuffleServerConf;
+
+/**
+ * Flushes the partition buffers by score instead of the whole shuffles. The score of a buffer
+ * grows with its size and age, and is doubled for huge partition, so the biggest or oldest
+ * buffers are flushed with large sequential writes, while the small and fresh ones are kept
+ * in memory to be read from memory.
+ *
+ * <p>Only the buffers of the biggest shuffles are scored, whose total size is several times
+ * of the expected flush size.
+ */
+public class PartitionFlushPolicy implements FlushPolicy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionFlushPolicy.class);
+
+  private static final int CANDIDATE_SIZE_FACTOR = 4;
+
+  private final long minBufferSize;
+  private final long maxAge;
+
+  public PartitionFlushPolicy(ShuffleServerConf conf) {
+    this.minBufferSize = conf.getSizeAsBytes(ShuffleServerConf.SERVER_BUFFER_FLUSH_POLICY_PARTITION_MIN_SIZE);
+    this.maxAge = conf.get(ShuffleServerConf.SERVER_BUFFER_FLUSH_POLICY_PARTITION_MAX_AGE);
+  }
+
+  @Override
+  public List<FlushCandidate> pickFlushCandidates(Iterator<List<FlushCandidate>> shuffles, long expectedFlushSize) {
+    long currentTime = System.currentTimeMillis();
+    List<FlushCandidate> candidates = Lists.newArrayList();
+    long candidateSize = 0L;
+    while (shuffles.hasNext() && candidateSize < expectedFlushSize * CANDIDATE_SIZE_FACTOR) {
+      for (FlushCandidate candidate : shuffles.next()) {
+        long size = candidate.getSize();
+        if (size > 0) {
+          candidates.add(candidate);
+          candidateSize += size;
+        }
+      }
+    }
+    // the score may change when data is appended, calculate it once for sorting
+    Map<FlushCandidate, Double> scores = Maps.newHashMapWithExpectedSize(candidates.size());
+    for (FlushCandidate candidate : candidates) {
+      scores.put(candidate, score(candidate, currentTime));
+    }
+    candidates.sort(Comparator.comparingDouble((FlushCandidate candidate) -> scores.get(candidate)).reversed());
+
+    List<FlushCandidate> picked = Lists.newArrayList();
+    List<FlushCandidate> skipped = Lists.newArrayList();
+    long pickedFlushSize = 0L;
+    for (FlushCandidate candidate : candidates) {
+      if (pickedFlushSize > expectedFlushSize) {
+        break;
+      }
+      if (candidate.getSize() >= minBufferSize || candidate.getAge(currentTime) >= maxAge
+          || candidate.isHugePartition()) {
+        picked.add(candidate);
+        pickedFlushSize += candidate.getSize();
+      } else {
+        skipped.add(candidate);
+      }
+    }
+    // small and fresh buffers are flushed only if the others are not enough to release memory
+    long atLeastFlushSize = expectedFlushSize >>> 1;
+    for (FlushCandidate candidate : skipped) {
+      if (pickedFlushSize > atLeastFlushSize) {
+        break;
+      }
+      picked.add(candidate);
+      pickedFlushSize += candidate.getSize();
+    }
+    LOG.info("Finish flush pick with {} buffers and {} bytes from {} candidates",
+        picked.size(), pickedFlushSize, candidates.size());
+    return picked;
+  }
+
+  private double score(FlushCandidate candidate, long currentTime) {
+    double score = candidate.getSize() * (1.0 + (double) candidate.getAge(currentTime) / maxAge);
+    return candidate.isHugePartition() ? score * 2 : score;
+  }
+}
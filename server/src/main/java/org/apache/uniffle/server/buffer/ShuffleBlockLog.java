@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.common.util.JavaUtils;
+
+/**
+ * An append-only log of blocks stored in fixed size chunks, with an index from
+ * blockId to the position of the block in the log.
+ *
+ * <p>Appends must be serialized by the owner, readers don't need any lock: the
+ * block at position i is visible to readers once {@link #size()} is bigger than i.
+ */
+public class ShuffleBlockLog extends AbstractList<ShufflePartitionedBlock> {
+
+  private static final int CHUNK_SHIFT = 8;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private volatile ShufflePartitionedBlock[][] chunks = new ShufflePartitionedBlock[1][];
+  private volatile int count = 0;
+  // blockId -> position, only the first position is kept for duplicated blockId
+  private final Map<Long, Integer> blockIdIndex = JavaUtils.newConcurrentMap();
+
+  void append(ShufflePartitionedBlock block) {
+    int position = count;
+    int chunkIndex = position >>> CHUNK_SHIFT;
+    ShufflePartitionedBlock[][] currentChunks = chunks;
+    if (chunkIndex >= currentChunks.length) {
+      currentChunks = Arrays.copyOf(currentChunks, currentChunks.length * 2);
+      chunks = currentChunks;
+    }
+    if (currentChunks[chunkIndex] == null) {
+      currentChunks[chunkIndex] = new ShufflePartitionedBlock[CHUNK_SIZE];
+    }
+    currentChunks[chunkIndex][position & CHUNK_MASK] = block;
+    // publish the block to readers
+    count = position + 1;
+    blockIdIndex.putIfAbsent(block.getBlockId(), position);
+  }
+
+  /**
+   * @return the position of the block in this log, or -1 if it doesn't exist
+   */
+  public int getPosition(long blockId) {
+    Integer position = blockIdIndex.get(blockId);
+    return position == null ? -1 : position;
+  }
+
+  @Override
+  public ShufflePartitionedBlock get(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+    }
+    return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+}
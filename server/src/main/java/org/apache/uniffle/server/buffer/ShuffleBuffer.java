@@ -17,10 +17,13 @@
 
 package org.apache.uniffle.server.buffer;
 
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -37,7 +40,6 @@ import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.ShufflePartitionedData;
 import org.apache.uniffle.common.util.Constants;
-import org.apache.uniffle.common.util.JavaUtils;
 import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleFlushManager;
 
@@ -46,26 +48,37 @@ public class ShuffleBuffer {
   private static final Logger LOG = LoggerFactory.getLogger(ShuffleBuffer.class);
 
   private final long capacity;
-  private long size;
+  private volatile long size;
+  // the time when the first block in current blocks is appended, it's used as the age of buffer
+  private volatile long firstAppendTime;
   // blocks will be added to inFlushBlockMap as <eventId, blocks> pair
   // it will be removed after flush to storage
-  // the strategy ensure that shuffle is in memory or storage
-  private List<ShufflePartitionedBlock> blocks;
-  private Map<Long, List<ShufflePartitionedBlock>> inFlushBlockMap;
+  // the strategy ensure that shuffle is in memory or storage.
+  // Appends and flushes are serialized by the monitor of this buffer, reads
+  // don't take the monitor and resume from lastBlockId by the index of ShuffleBlockLog
+  private volatile ShuffleBlockLog blocks;
+  private final ConcurrentSkipListMap<Long, ShuffleBlockLog> inFlushBlockMap;
+  // readers find and retain the blocks under the read lock, and the blocks are removed
+  // under the write lock before they're released, so a reader never retains a released block
+  private final ReadWriteLock releaseLock = new ReentrantReadWriteLock();
+  private boolean released = false;
 
   public ShuffleBuffer(long capacity) {
     this.capacity = capacity;
     this.size = 0;
-    this.blocks = new LinkedList<>();
-    this.inFlushBlockMap = JavaUtils.newConcurrentMap();
+    this.blocks = new ShuffleBlockLog();
+    this.inFlushBlockMap = new ConcurrentSkipListMap<>();
   }
 
   public long append(ShufflePartitionedData data) {
     long mSize = 0;
 
     synchronized (this) {
+      if (blocks.isEmpty()) {
+        firstAppendTime = System.currentTimeMillis();
+      }
       for (ShufflePartitionedBlock block : data.getBlockList()) {
-        blocks.add(block);
+        blocks.append(block);
         mSize += block.getSize();
       }
       size += mSize;
@@ -84,19 +97,21 @@ public class ShuffleBuffer {
     if (blocks.isEmpty()) {
       return null;
     }
-    // buffer will be cleared, and new list must be created for async flush
-    List<ShufflePartitionedBlock> spBlocks = new LinkedList<>(blocks);
-    List<ShufflePartitionedBlock> inFlushedQueueBlocks = spBlocks;
+    // the log won't be changed after it is moved to inFlushBlockMap,
+    // so it can be used by async flush directly
+    ShuffleBlockLog inFlushedQueueBlocks = blocks;
+    List<ShufflePartitionedBlock> spBlocks = inFlushedQueueBlocks;
     if (dataDistributionType == ShuffleDataDistributionType.LOCAL_ORDER) {
       /**
        * When reordering the blocks, it will break down the original reads sequence to cause
        * the data lost in some cases.
-       * So we should create a reference copy to avoid this.
+       * So we should sort a copy to avoid this.
        */
-      inFlushedQueueBlocks = new LinkedList<>(spBlocks);
+      spBlocks = new ArrayList<>(inFlushedQueueBlocks);
       spBlocks.sort(Comparator.comparingLong(ShufflePartitionedBlock::getTaskAttemptId));
     }
     long eventId = ShuffleFlushManager.ATOMIC_EVENT_ID.getAndIncrement();
+    final List<ShufflePartitionedBlock> flushBlocks = spBlocks;
     final ShuffleDataFlushEvent event = new ShuffleDataFlushEvent(
         eventId,
         appId,
@@ -104,16 +119,23 @@ public class ShuffleBuffer {
         startPartition,
         endPartition,
         size,
-        spBlocks,
+        flushBlocks,
         isValid,
         this);
     event.addCleanupCallback(() -> {
-      this.clearInFlushBuffer(event.getEventId());
-      spBlocks.forEach(spb -> spb.getData().release());
+      releaseLock.writeLock().lock();
+      try {
+        this.clearInFlushBuffer(event.getEventId());
+      } finally {
+        releaseLock.writeLock().unlock();
+      }
+      flushBlocks.forEach(spb -> spb.getData().release());
     });
+    // put to inFlushBlockMap before replacing blocks, then readers can always find the data
     inFlushBlockMap.put(eventId, inFlushedQueueBlocks);
-    blocks.clear();
+    blocks = new ShuffleBlockLog();
     size = 0;
+    firstAppendTime = 0;
     return event;
   }
 
@@ -137,20 +159,39 @@ public class ShuffleBuffer {
     return size;
   }
 
+  public long getFirstAppendTime() {
+    return firstAppendTime;
+  }
+
   public boolean isFull() {
     return size > capacity;
   }
 
-  public synchronized void clearInFlushBuffer(long eventId) {
+  /**
+   * Release the blocks which are not flushed yet, it's called when the buffer is removed.
+   */
+  public void release() {
+    List<ShufflePartitionedBlock> releasedBlocks;
+    releaseLock.writeLock().lock();
+    try {
+      released = true;
+      releasedBlocks = blocks;
+    } finally {
+      releaseLock.writeLock().unlock();
+    }
+    releasedBlocks.forEach(spb -> spb.getData().release());
+  }
+
+  public void clearInFlushBuffer(long eventId) {
     inFlushBlockMap.remove(eventId);
   }
 
   @VisibleForTesting
-  public Map<Long, List<ShufflePartitionedBlock>> getInFlushBlockMap() {
+  public Map<Long, ShuffleBlockLog> getInFlushBlockMap() {
     return inFlushBlockMap;
   }
 
-  public synchronized ShuffleDataResult getShuffleData(
+  public ShuffleDataResult getShuffleData(
       long lastBlockId, int readBufferSize) {
     return getShuffleData(lastBlockId, readBufferSize, null);
   }
@@ -158,9 +199,13 @@ public class ShuffleBuffer {
   // 1. generate buffer segments and other info: if blockId exist, start with which eventId
   // 2. according to info from step 1, generate data
   // todo: if block was flushed, it's possible to get duplicated data
-  public synchronized ShuffleDataResult getShuffleData(
+  public ShuffleDataResult getShuffleData(
       long lastBlockId, int readBufferSize, Roaring64NavigableMap expectedTaskIds) {
+    releaseLock.readLock().lock();
     try {
+      if (released) {
+        return new ShuffleDataResult();
+      }
       List<BufferSegment> bufferSegments = Lists.newArrayList();
       List<ShufflePartitionedBlock> readBlocks = Lists.newArrayList();
       updateBufferSegmentsAndResultBlocks(
@@ -174,160 +219,84 @@ public class ShuffleBuffer {
       }
     } catch (Exception e) {
       LOG.error("Exception happened when getShuffleData in buffer", e);
+    } finally {
+      releaseLock.readLock().unlock();
     }
     return new ShuffleDataResult();
   }
 
   // here is the rule to read data in memory:
   // 1. read from inFlushBlockMap order by eventId asc, then from blocks
-  // 2. if can't find lastBlockId, means related data may be flushed to storage, repeat step 1
+  // 2. if can't find lastBlockId, means related data may be flushed to storage, read from the beginning
   private void updateBufferSegmentsAndResultBlocks(
       long lastBlockId,
       long readBufferSize,
       List<BufferSegment> bufferSegments,
       List<ShufflePartitionedBlock> resultBlocks,
       Roaring64NavigableMap expectedTaskIds) {
-    long nextBlockId = lastBlockId;
-    List<Long> sortedEventId = sortFlushingEventId();
-    int offset = 0;
-    boolean hasLastBlockId = false;
-    // read from inFlushBlockMap first to make sure the order of
-    // data read is according to the order of data received
-    // The number of events means how many batches are in flushing status,
-    // it should be less than 5, or there has some problem with storage
-    if (!inFlushBlockMap.isEmpty()) {
-      for (Long eventId : sortedEventId) {
-        // update bufferSegments with different strategy according to lastBlockId
-        if (nextBlockId == Constants.INVALID_BLOCK_ID) {
-          updateSegmentsWithoutBlockId(offset, inFlushBlockMap.get(eventId), readBufferSize,
-              bufferSegments, resultBlocks, expectedTaskIds);
-          hasLastBlockId = true;
-        } else {
-          hasLastBlockId = updateSegmentsWithBlockId(offset, inFlushBlockMap.get(eventId),
-              readBufferSize, nextBlockId, bufferSegments, resultBlocks, expectedTaskIds);
-          // if last blockId is found, read from begin with next cached blocks
-          if (hasLastBlockId) {
-            // reset blockId to read from begin in next cached blocks
-            nextBlockId = Constants.INVALID_BLOCK_ID;
-          }
+    List<ShuffleBlockLog> blockLogs = getBlockLogs();
+    int startLogIndex = 0;
+    int startPosition = 0;
+    if (lastBlockId != Constants.INVALID_BLOCK_ID) {
+      for (int i = 0; i < blockLogs.size(); i++) {
+        int position = blockLogs.get(i).getPosition(lastBlockId);
+        if (position >= 0) {
+          startLogIndex = i;
+          startPosition = position + 1;
+          break;
         }
-        if (!bufferSegments.isEmpty()) {
-          offset = calculateDataLength(bufferSegments);
+      }
+    }
+    int offset = 0;
+    for (int i = startLogIndex; i < blockLogs.size() && offset < readBufferSize; i++) {
+      ShuffleBlockLog blockLog = blockLogs.get(i);
+      int blockNum = blockLog.size();
+      for (int position = i == startLogIndex ? startPosition : 0; position < blockNum; position++) {
+        ShufflePartitionedBlock block = blockLog.get(position);
+        if (expectedTaskIds != null && !expectedTaskIds.contains(block.getTaskAttemptId())) {
+          continue;
         }
+        // add bufferSegment with block
+        bufferSegments.add(new BufferSegment(block.getBlockId(), offset, block.getLength(),
+            block.getUncompressLength(), block.getCrc(), block.getTaskAttemptId()));
+        resultBlocks.add(block);
+        // update offset
+        offset += block.getLength();
+        // check if length >= request buffer size
         if (offset >= readBufferSize) {
           break;
         }
       }
     }
-    // try to read from cached blocks which is not in flush queue
-    if (blocks.size() > 0 && offset < readBufferSize) {
-      if (nextBlockId == Constants.INVALID_BLOCK_ID) {
-        updateSegmentsWithoutBlockId(offset, blocks, readBufferSize, bufferSegments, resultBlocks, expectedTaskIds);
-        hasLastBlockId = true;
-      } else {
-        hasLastBlockId = updateSegmentsWithBlockId(offset, blocks,
-            readBufferSize, nextBlockId, bufferSegments, resultBlocks, expectedTaskIds);
-      }
-    }
-    if ((!inFlushBlockMap.isEmpty() || blocks.size() > 0) && offset == 0 && !hasLastBlockId) {
-      // can't find lastBlockId, it should be flushed
-      // but there still has data in memory
-      // try read again with blockId = Constants.INVALID_BLOCK_ID
-      updateBufferSegmentsAndResultBlocks(
-          Constants.INVALID_BLOCK_ID, readBufferSize, bufferSegments, resultBlocks, expectedTaskIds);
-    }
   }
 
-  private int calculateDataLength(List<BufferSegment> bufferSegments) {
-    BufferSegment bufferSegment = bufferSegments.get(bufferSegments.size() - 1);
-    return bufferSegment.getOffset() + bufferSegment.getLength();
+  // read from inFlushBlockMap first to make sure the order of
+  // data read is according to the order of data received
+  private List<ShuffleBlockLog> getBlockLogs() {
+    // get cached blocks first, it may be moved to inFlushBlockMap concurrently
+    ShuffleBlockLog cachedBlocks = blocks;
+    List<ShuffleBlockLog> blockLogs = Lists.newArrayList(inFlushBlockMap.values());
+    for (ShuffleBlockLog blockLog : blockLogs) {
+      if (blockLog == cachedBlocks) {
+        return blockLogs;
+      }
+    }
+    blockLogs.add(cachedBlocks);
+    return blockLogs;
   }
 
+  // it's called under the read lock, the blocks can't be released concurrently
   private void updateShuffleData(List<ShufflePartitionedBlock> readBlocks, CompositeByteBuf data) {
-    int offset = 0;
     for (ShufflePartitionedBlock block : readBlocks) {
       // fill shuffle data
       try {
         data.addComponent(true, block.getData().retain());
       } catch (Exception e) {
         LOG.error("Unexpected exception for System.arraycopy, length["
-            + block.getLength() + "], offset["
-            + offset + "], dataLength[" + data.capacity() + "]", e);
+            + block.getLength() + "], dataLength[" + data.capacity() + "]", e);
+        data.release();
         throw e;
       }
-      offset += block.getLength();
-    }
-  }
-
-  private List<Long> sortFlushingEventId() {
-    List<Long> eventIdList = Lists.newArrayList(inFlushBlockMap.keySet());
-    eventIdList.sort((id1, id2) -> {
-      if (id1 > id2) {
-        return 1;
-      }
-      return -1;
-    });
-    return eventIdList;
-  }
-
-  private void updateSegmentsWithoutBlockId(
-      int offset,
-      List<ShufflePartitionedBlock> cachedBlocks,
-      long readBufferSize,
-      List<BufferSegment> bufferSegments,
-      List<ShufflePartitionedBlock> readBlocks,
-      Roaring64NavigableMap expectedTaskIds) {
-    int currentOffset = offset;
-    // read from first block
-    for (ShufflePartitionedBlock block : cachedBlocks) {
-      if (expectedTaskIds != null && !expectedTaskIds.contains(block.getTaskAttemptId())) {
-        continue;
-      }
-      // add bufferSegment with block
-      bufferSegments.add(new BufferSegment(block.getBlockId(), currentOffset, block.getLength(),
-          block.getUncompressLength(), block.getCrc(), block.getTaskAttemptId()));
-      readBlocks.add(block);
-      // update offset
-      currentOffset += block.getLength();
-      // check if length >= request buffer size
-      if (currentOffset >= readBufferSize) {
-        break;
-      }
-    }
-  }
-
-  private boolean updateSegmentsWithBlockId(
-      int offset,
-      List<ShufflePartitionedBlock> cachedBlocks,
-      long readBufferSize,
-      long lastBlockId,
-      List<BufferSegment> bufferSegments,
-      List<ShufflePartitionedBlock> readBlocks,
-      Roaring64NavigableMap expectedTaskIds) {
-    int currentOffset = offset;
-    // find lastBlockId, then read from next block
-    boolean foundBlockId = false;
-    for (ShufflePartitionedBlock block : cachedBlocks) {
-      if (!foundBlockId) {
-        // find lastBlockId
-        if (block.getBlockId() == lastBlockId) {
-          foundBlockId = true;
-        }
-        continue;
-      }
-      if (expectedTaskIds != null && !expectedTaskIds.contains(block.getTaskAttemptId())) {
-        continue;
-      }
-      // add bufferSegment with block
-      bufferSegments.add(new BufferSegment(block.getBlockId(), currentOffset, block.getLength(),
-          block.getUncompressLength(), block.getCrc(), block.getTaskAttemptId()));
-      readBlocks.add(block);
-      // update offset
-      currentOffset += block.getLength();
-      if (currentOffset >= readBufferSize) {
-        break;
-      }
     }
-    return foundBlockId;
   }
 }
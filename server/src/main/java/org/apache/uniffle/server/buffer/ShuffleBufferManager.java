@@ -17,21 +17,24 @@
 
 package org.apache.uniffle.server.buffer;
 
+import java.lang.reflect.Constructor;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
-import com.google.common.collect.Sets;
 import com.google.common.collect.TreeRangeMap;
+import io.netty.util.internal.PlatformDependent;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,9 +42,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.ShufflePartitionedData;
 import org.apache.uniffle.common.rpc.StatusCode;
-import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.common.util.JavaUtils;
-import org.apache.uniffle.common.util.RssUtils;
 import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleFlushManager;
 import org.apache.uniffle.server.ShuffleServerConf;
@@ -61,28 +62,40 @@ public class ShuffleBufferManager {
   private long lowWaterMark;
   private boolean bufferFlushEnabled;
   private long bufferFlushThreshold;
-  // when shuffle buffer manager flushes data, shuffles with data size < shuffleFlushThreshold is kept in memory to
-  // reduce small I/Os to persistent storage, especially for local HDDs.
-  private long shuffleFlushThreshold;
+  private final FlushPolicy flushPolicy;
   // Huge partition vars
   private long hugePartitionSizeThreshold;
   private long hugePartitionMemoryLimitSize;
+  // it is null if off-heap buffer is disabled
+  private OffHeapSlabAllocator offHeapSlabAllocator;
 
   protected long bufferSize = 0;
   protected AtomicLong preAllocatedSize = new AtomicLong(0L);
   protected AtomicLong inFlushSize = new AtomicLong(0L);
   protected AtomicLong usedMemory = new AtomicLong(0L);
   private AtomicLong readDataMemory = new AtomicLong(0L);
+  // only one thread picks and flushes the buffers when the memory exceeds the high watermark,
+  // the other threads won't wait for it
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final AtomicBoolean flushPending = new AtomicBoolean(false);
   // appId -> shuffleId -> partitionId -> ShuffleBuffer to avoid too many appId
   protected Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool;
   // appId -> shuffleId -> shuffle size in buffer
   protected Map<String, Map<Integer, AtomicLong>> shuffleSizeMap = JavaUtils.newConcurrentMap();
+  // shuffle size in buffer ordered by size, to pick the biggest shuffles for flush
+  private final ShuffleSizeIndex shuffleSizeIndex = new ShuffleSizeIndex();
 
   public ShuffleBufferManager(ShuffleServerConf conf, ShuffleFlushManager shuffleFlushManager) {
     long heapSize = Runtime.getRuntime().maxMemory();
+    boolean offHeapEnabled = conf.get(ShuffleServerConf.SERVER_BUFFER_OFFHEAP_ENABLED);
     this.capacity = conf.getSizeAsBytes(ShuffleServerConf.SERVER_BUFFER_CAPACITY);
     if (this.capacity < 0) {
-      this.capacity = (long) (heapSize * conf.getDouble(ShuffleServerConf.SERVER_BUFFER_CAPACITY_RATIO));
+      long maxMemory = offHeapEnabled ? PlatformDependent.maxDirectMemory() : heapSize;
+      this.capacity = (long) (maxMemory * conf.getDouble(ShuffleServerConf.SERVER_BUFFER_CAPACITY_RATIO));
+    }
+    if (offHeapEnabled) {
+      this.offHeapSlabAllocator = new OffHeapSlabAllocator(
+          capacity, (int) conf.getSizeAsBytes(ShuffleServerConf.SERVER_BUFFER_OFFHEAP_SLAB_SIZE));
     }
     this.readCapacity = conf.getSizeAsBytes(ShuffleServerConf.SERVER_READ_BUFFER_CAPACITY);
     if (this.readCapacity < 0) {
@@ -98,7 +111,7 @@ public class ShuffleBufferManager {
         * conf.get(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_LOWWATERMARK_PERCENTAGE));
     this.bufferFlushEnabled = conf.getBoolean(ShuffleServerConf.SINGLE_BUFFER_FLUSH_ENABLED);
     this.bufferFlushThreshold = conf.getLong(ShuffleServerConf.SINGLE_BUFFER_FLUSH_THRESHOLD);
-    this.shuffleFlushThreshold = conf.getLong(ShuffleServerConf.SERVER_SHUFFLE_FLUSH_THRESHOLD);
+    this.flushPolicy = loadFlushPolicy(conf);
     this.hugePartitionSizeThreshold = conf.getSizeAsBytes(ShuffleServerConf.HUGE_PARTITION_SIZE_THRESHOLD);
     this.hugePartitionMemoryLimitSize = Math.round(
         capacity * conf.get(ShuffleServerConf.HUGE_PARTITION_MEMORY_USAGE_LIMITATION_RATIO)
@@ -142,31 +155,33 @@ public class ShuffleBufferManager {
       return StatusCode.NO_REGISTER;
     }
 
+    if (offHeapSlabAllocator != null) {
+      offHeapSlabAllocator.copyToSlabs(spd.getBlockList());
+    }
     ShuffleBuffer buffer = entry.getValue();
     long size = buffer.append(spd);
     if (!isPreAllocated) {
       updateUsedMemory(size);
     }
     updateShuffleSize(appId, shuffleId, size);
-    synchronized (this) {
-      flushSingleBufferIfNecessary(
-          buffer,
-          appId,
-          shuffleId,
-          spd.getPartitionId(),
-          entry.getKey().lowerEndpoint(),
-          entry.getKey().upperEndpoint()
-      );
-      flushIfNecessary();
-    }
+    flushSingleBufferIfNecessary(
+        buffer,
+        appId,
+        shuffleId,
+        spd.getPartitionId(),
+        entry.getKey().lowerEndpoint(),
+        entry.getKey().upperEndpoint()
+    );
+    flushIfNecessary();
     return StatusCode.SUCCESS;
   }
 
   private void updateShuffleSize(String appId, int shuffleId, long size) {
-    shuffleSizeMap.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap());
-    Map<Integer, AtomicLong> shuffleIdToSize = shuffleSizeMap.get(appId);
-    shuffleIdToSize.computeIfAbsent(shuffleId, key -> new AtomicLong(0));
-    shuffleIdToSize.get(shuffleId).addAndGet(size);
+    Map<Integer, AtomicLong> shuffleIdToSize =
+        shuffleSizeMap.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap());
+    AtomicLong shuffleSize =
+        shuffleIdToSize.computeIfAbsent(shuffleId, key -> new ShuffleSizeIndex.ShuffleSize(appId, shuffleId));
+    shuffleSizeIndex.update((ShuffleSizeIndex.ShuffleSize) shuffleSize, size);
   }
 
   public Entry<Range<Integer>, ShuffleBuffer> getShuffleBufferEntry(
@@ -226,23 +241,53 @@ public class ShuffleBufferManager {
     // When we use multi storage and trigger single buffer flush, the buffer size should be bigger
     // than rss.server.flush.cold.storage.threshold.size, otherwise cold storage will be useless.
     if ((isHugePartition || this.bufferFlushEnabled) && buffer.getSize() > this.bufferFlushThreshold) {
-      flushBuffer(buffer, appId, shuffleId, startPartition, endPartition, isHugePartition);
-      return;
+      // lock the buffer only, avoid flushing it again by the concurrent appends
+      synchronized (buffer) {
+        if (buffer.getSize() > this.bufferFlushThreshold) {
+          flushBuffer(buffer, appId, shuffleId, startPartition, endPartition, isHugePartition);
+        }
+      }
     }
   }
 
   public void flushIfNecessary() {
     // if data size in buffer > highWaterMark, do the flush
-    if (usedMemory.get() - preAllocatedSize.get() - inFlushSize.get() > highWaterMark) {
-      // todo: add a metric here to track how many times flush occurs.
-      LOG.info("Start to flush with usedMemory[{}], preAllocatedSize[{}], inFlushSize[{}]",
-          usedMemory.get(), preAllocatedSize.get(), inFlushSize.get());
-      Map<String, Set<Integer>> pickedShuffle = pickFlushedShuffle();
-      flush(pickedShuffle);
+    if (!needToFlush()) {
+      return;
+    }
+    // The thread which fails to get the lock doesn't wait, it leaves the request
+    // to the lock holder, which will check the watermark again after releasing the lock
+    flushPending.set(true);
+    while (flushPending.get() && flushLock.tryLock()) {
+      try {
+        flushPending.set(false);
+        if (needToFlush()) {
+          // todo: add a metric here to track how many times flush occurs.
+          LOG.info("Start to flush with usedMemory[{}], preAllocatedSize[{}], inFlushSize[{}]",
+              usedMemory.get(), preAllocatedSize.get(), inFlushSize.get());
+          List<FlushCandidate> pickedBuffers =
+              flushPolicy.pickFlushCandidates(getFlushCandidates(), highWaterMark - lowWaterMark);
+          for (FlushCandidate buffer : pickedBuffers) {
+            flushBuffer(buffer.getBuffer(), buffer.getAppId(), buffer.getShuffleId(),
+                buffer.getStartPartition(), buffer.getEndPartition(), buffer.isHugePartition());
+          }
+        }
+      } finally {
+        flushLock.unlock();
+      }
     }
   }
 
-  public synchronized void commitShuffleTask(String appId, int shuffleId) {
+  private boolean needToFlush() {
+    return usedMemory.get() + getOffHeapPinnedSize() - preAllocatedSize.get() - inFlushSize.get() > highWaterMark;
+  }
+
+  // the slab memory pinned by live buffers is used memory too, though it isn't taken by any data
+  private long getOffHeapPinnedSize() {
+    return offHeapSlabAllocator == null ? 0L : offHeapSlabAllocator.getPinnedSize();
+  }
+
+  public void commitShuffleTask(String appId, int shuffleId) {
     RangeMap<Integer, ShuffleBuffer> buffers = bufferPool.get(appId).get(shuffleId);
     for (Map.Entry<Range<Integer>, ShuffleBuffer> entry : buffers.asMapOfRanges().entrySet()) {
       ShuffleBuffer buffer = entry.getValue();
@@ -260,24 +305,28 @@ public class ShuffleBufferManager {
 
   protected void flushBuffer(ShuffleBuffer buffer, String appId,
       int shuffleId, int startPartition, int endPartition, boolean isHugePartition) {
-    ShuffleDataFlushEvent event =
-        buffer.toFlushEvent(
-            appId,
-            shuffleId,
-            startPartition,
-            endPartition,
-            () -> bufferPool.containsKey(appId),
-            shuffleFlushManager.getDataDistributionType(appId)
-        );
-    if (event != null) {
-      event.addCleanupCallback(() -> releaseMemory(event.getSize(), true, false));
-      updateShuffleSize(appId, shuffleId, -event.getSize());
-      inFlushSize.addAndGet(event.getSize());
-      if (isHugePartition) {
-        event.markOwnedByHugePartition();
+    // the event is added to flush queue with the buffer locked, then the commit which flushes
+    // the same buffer later can always find the event in flush manager
+    synchronized (buffer) {
+      ShuffleDataFlushEvent event =
+          buffer.toFlushEvent(
+              appId,
+              shuffleId,
+              startPartition,
+              endPartition,
+              () -> isShuffleRegistered(appId, shuffleId),
+              shuffleFlushManager.getDataDistributionType(appId)
+          );
+      if (event != null) {
+        event.addCleanupCallback(() -> releaseMemory(event.getSize(), true, false));
+        updateShuffleSize(appId, shuffleId, -event.getSize());
+        inFlushSize.addAndGet(event.getSize());
+        if (isHugePartition) {
+          event.markOwnedByHugePartition();
+        }
+        ShuffleServerMetrics.gaugeInFlushBufferSize.set(inFlushSize.get());
+        shuffleFlushManager.addToFlushQueue(event);
       }
-      ShuffleServerMetrics.gaugeInFlushBufferSize.set(inFlushSize.get());
-      shuffleFlushManager.addToFlushQueue(event);
     }
   }
 
@@ -287,18 +336,24 @@ public class ShuffleBufferManager {
       return;
     }
     removeBufferByShuffleId(appId, shuffleIdToBuffers.keySet());
-    shuffleSizeMap.remove(appId);
+    Map<Integer, AtomicLong> shuffleIdToSize = shuffleSizeMap.remove(appId);
+    if (shuffleIdToSize != null) {
+      shuffleIdToSize.values().forEach(size -> shuffleSizeIndex.remove((ShuffleSizeIndex.ShuffleSize) size));
+    }
     bufferPool.remove(appId);
   }
 
-  public synchronized boolean requireMemory(long size, boolean isPreAllocated) {
-    if (capacity - usedMemory.get() >= size) {
-      usedMemory.addAndGet(size);
-      ShuffleServerMetrics.gaugeUsedBufferSize.set(usedMemory.get());
-      if (isPreAllocated) {
-        requirePreAllocatedSize(size);
+  public boolean requireMemory(long size, boolean isPreAllocated) {
+    long current = usedMemory.get();
+    while (capacity - current - getOffHeapPinnedSize() >= size) {
+      if (usedMemory.compareAndSet(current, current + size)) {
+        ShuffleServerMetrics.gaugeUsedBufferSize.set(usedMemory.get());
+        if (isPreAllocated) {
+          requirePreAllocatedSize(size);
+        }
+        return true;
       }
-      return true;
+      current = usedMemory.get();
     }
     LOG.debug("Require memory failed with " + size + " bytes, usedMemory[" + usedMemory.get()
         + "] include preAllocation[" + preAllocatedSize.get()
@@ -337,15 +392,38 @@ public class ShuffleBufferManager {
     ShuffleServerMetrics.gaugeInFlushBufferSize.set(inFlushSize.get());
   }
 
+  /**
+   * Require the read memory without any retry, it's used by the caller which can't be blocked,
+   * and the caller is expected to tell the client to retry later once it fails.
+   */
+  public boolean requireReadMemory(long size) {
+    ShuffleServerMetrics.counterTotalRequireReadMemoryNum.inc();
+    if (tryRequireReadMemory(size)) {
+      return true;
+    }
+    LOG.debug("Can't require[" + size + "] for read data, current[" + readDataMemory.get()
+        + "], capacity[" + readCapacity + "]");
+    ShuffleServerMetrics.counterTotalRequireReadMemoryFailedNum.inc();
+    return false;
+  }
+
+  private boolean tryRequireReadMemory(long size) {
+    long current = readDataMemory.get();
+    while (current + size < readCapacity) {
+      if (readDataMemory.compareAndSet(current, current + size)) {
+        ShuffleServerMetrics.gaugeReadBufferUsedSize.inc(size);
+        return true;
+      }
+      current = readDataMemory.get();
+    }
+    return false;
+  }
+
   public boolean requireReadMemoryWithRetry(long size) {
     ShuffleServerMetrics.counterTotalRequireReadMemoryNum.inc();
     for (int i = 0; i < retryNum; i++) {
-      synchronized (this) {
-        if (readDataMemory.get() + size < readCapacity) {
-          readDataMemory.addAndGet(size);
-          ShuffleServerMetrics.gaugeReadBufferUsedSize.inc(size);
-          return true;
-        }
+      if (tryRequireReadMemory(size)) {
+        return true;
       }
       LOG.info("Can't require[" + size + "] for read data, current[" + readDataMemory.get()
           + "], capacity[" + readCapacity + "], re-try " + i + " times");
@@ -372,35 +450,6 @@ public class ShuffleBufferManager {
     }
   }
 
-  // flush the buffer with required map which is <appId -> shuffleId>
-  public synchronized void flush(Map<String, Set<Integer>> requiredFlush) {
-    for (Map.Entry<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>>
-        appIdToBuffers : bufferPool.entrySet()) {
-      String appId = appIdToBuffers.getKey();
-      if (requiredFlush.containsKey(appId)) {
-        for (Map.Entry<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers :
-            appIdToBuffers.getValue().entrySet()) {
-          int shuffleId = shuffleIdToBuffers.getKey();
-          Set<Integer> requiredShuffleId = requiredFlush.get(appId);
-          if (requiredShuffleId != null && requiredShuffleId.contains(shuffleId)) {
-            for (Map.Entry<Range<Integer>, ShuffleBuffer> rangeEntry :
-                shuffleIdToBuffers.getValue().asMapOfRanges().entrySet()) {
-              Range<Integer> range = rangeEntry.getKey();
-              flushBuffer(
-                  rangeEntry.getValue(),
-                  appId,
-                  shuffleId,
-                  range.lowerEndpoint(),
-                  range.upperEndpoint(),
-                  isHugePartition(appId, shuffleId, range.lowerEndpoint())
-              );
-            }
-          }
-        }
-      }
-    }
-  }
-
   public void updateUsedMemory(long delta) {
     // add size if not allocated
     usedMemory.addAndGet(delta);
@@ -464,86 +513,52 @@ public class ShuffleBufferManager {
     return preAllocatedSize.get();
   }
 
-  // sort for shuffle according to data size, then pick properly data which will be flushed
-  private Map<String, Set<Integer>> pickFlushedShuffle() {
-    // create list for sort
-    List<Entry<String, AtomicLong>> sizeList = generateSizeList();
-    sizeList.sort((entry1, entry2) -> {
-      if (entry1 == null && entry2 == null) {
-        return 0;
-      }
-      if (entry1 == null) {
-        return 1;
-      }
-      if (entry2 == null) {
-        return -1;
-      }
-      if (entry1.getValue().get() > entry2.getValue().get()) {
-        return -1;
-      } else if (entry1.getValue().get() == entry2.getValue().get()) {
-        return 0;
-      }
-      return 1;
-    });
-
-    Map<String, Set<Integer>> pickedShuffle = Maps.newHashMap();
-    // The algorithm here is to flush data size > highWaterMark - lowWaterMark
-    // the remaining data in buffer maybe more than lowWaterMark
-    // because shuffle server is still receiving data, but it should be ok
-    long expectedFlushSize = highWaterMark - lowWaterMark;
-    long atLeastFlushSizeIgnoreThreshold = expectedFlushSize >>> 1;
-    long pickedFlushSize = 0L;
-    int printIndex = 0;
-    int printIgnoreIndex = 0;
-    int printMax = 10;
-    for (Map.Entry<String, AtomicLong> entry : sizeList) {
-      long size = entry.getValue().get();
-      String appIdShuffleIdKey = entry.getKey();
-      if (size > this.shuffleFlushThreshold || pickedFlushSize <= atLeastFlushSizeIgnoreThreshold) {
-        pickedFlushSize += size;
-        addPickedShuffle(appIdShuffleIdKey, pickedShuffle);
-        // print detail picked info
-        if (printIndex < printMax) {
-          LOG.info("Pick application_shuffleId[{}] with {} bytes", appIdShuffleIdKey, size);
-          printIndex++;
-        }
-        if (pickedFlushSize > expectedFlushSize) {
-          LOG.info("Finish flush pick with {} bytes", pickedFlushSize);
-          break;
-        }
-      } else {
-        // since shuffle size is ordered by size desc, we can skip process more shuffle data once some shuffle's size
-        // is less than threshold
-        if (printIgnoreIndex < printMax) {
-          LOG.info("Ignore application_shuffleId[{}] with {} bytes", appIdShuffleIdKey, size);
-          printIgnoreIndex++;
-        } else {
-          break;
-        }
-      }
+  // the flush policy picks the buffers to be flushed from the candidates when memory is insufficient
+  private static FlushPolicy loadFlushPolicy(ShuffleServerConf conf) {
+    String name = conf.get(ShuffleServerConf.SERVER_BUFFER_FLUSH_POLICY_CLASS);
+    try {
+      Class<?> klass = Class.forName(name);
+      Constructor<?> constructor = klass.getConstructor(ShuffleServerConf.class);
+      return (FlushPolicy) constructor.newInstance(conf);
+    } catch (Exception e) {
+      LOG.error("Failed to load flush policy " + name, e);
+      throw new IllegalArgumentException("The flush policy " + name + " init fail");
     }
-    return pickedShuffle;
   }
 
-  private List<Map.Entry<String, AtomicLong>> generateSizeList() {
-    Map<String, AtomicLong> sizeMap = Maps.newHashMap();
-    for (Map.Entry<String, Map<Integer, AtomicLong>> appEntry : shuffleSizeMap.entrySet()) {
-      String appId = appEntry.getKey();
-      for (Map.Entry<Integer, AtomicLong> shuffleEntry : appEntry.getValue().entrySet()) {
-        Integer shuffleId = shuffleEntry.getKey();
-        sizeMap.put(RssUtils.generateShuffleKey(appId, shuffleId), shuffleEntry.getValue());
-      }
+  // the buffers of shuffles ordered by size desc, buffers of a shuffle are got only when it's visited
+  private Iterator<List<FlushCandidate>> getFlushCandidates() {
+    return Iterators.transform(shuffleSizeIndex.descendingIterator(),
+        shuffleSize -> getFlushCandidates(shuffleSize.getAppId(), shuffleSize.getShuffleId()));
+  }
+
+  private List<FlushCandidate> getFlushCandidates(String appId, int shuffleId) {
+    List<FlushCandidate> candidates = Lists.newArrayList();
+    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
+    if (shuffleIdToBuffers == null) {
+      return candidates;
+    }
+    RangeMap<Integer, ShuffleBuffer> rangeToBuffers = shuffleIdToBuffers.get(shuffleId);
+    if (rangeToBuffers == null) {
+      return candidates;
     }
-    return Lists.newArrayList(sizeMap.entrySet());
+    for (Map.Entry<Range<Integer>, ShuffleBuffer> rangeEntry : rangeToBuffers.asMapOfRanges().entrySet()) {
+      Range<Integer> range = rangeEntry.getKey();
+      candidates.add(new FlushCandidate(
+          appId,
+          shuffleId,
+          range.lowerEndpoint(),
+          range.upperEndpoint(),
+          rangeEntry.getValue(),
+          isHugePartition(appId, shuffleId, range.lowerEndpoint())));
+    }
+    return candidates;
   }
 
-  private void addPickedShuffle(String shuffleIdKey, Map<String, Set<Integer>> pickedShuffle) {
-    String[] splits = shuffleIdKey.split(Constants.KEY_SPLIT_CHAR);
-    String appId = splits[0];
-    Integer shuffleId = Integer.parseInt(splits[1]);
-    pickedShuffle.computeIfAbsent(appId, key -> Sets.newHashSet());
-    Set<Integer> shuffleIdSet = pickedShuffle.get(appId);
-    shuffleIdSet.add(shuffleId);
+  // the events of a removed shuffle are invalid, so they are neither flushed nor tracked
+  private boolean isShuffleRegistered(String appId, int shuffleId) {
+    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
+    return shuffleIdToBuffers != null && shuffleIdToBuffers.containsKey(shuffleId);
   }
 
   public void removeBufferByShuffleId(String appId, Collection<Integer> shuffleIds) {
@@ -563,14 +578,17 @@ public class ShuffleBufferManager {
       Collection<ShuffleBuffer> buffers = bufferRangeMap.asMapOfRanges().values();
       if (buffers != null) {
         for (ShuffleBuffer buffer : buffers) {
-          buffer.getBlocks().forEach(spb -> spb.getData().release());
+          buffer.release();
           ShuffleServerMetrics.gaugeTotalPartitionNum.dec();
           size += buffer.getSize();
         }
       }
       releaseMemory(size, false, false);
       if (shuffleIdToSizeMap != null) {
-        shuffleIdToSizeMap.remove(shuffleId);
+        AtomicLong shuffleSize = shuffleIdToSizeMap.remove(shuffleId);
+        if (shuffleSize != null) {
+          shuffleSizeIndex.remove((ShuffleSizeIndex.ShuffleSize) shuffleSize);
+        }
       }
     }
   }
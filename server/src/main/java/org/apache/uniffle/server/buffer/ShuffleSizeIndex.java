@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+
+/**
+ * Index of the data size of shuffles in buffer. Shuffles are put into buckets by the highest
+ * bit of their size and moved only when the size crosses a power of two, so the biggest
+ * shuffles can be found by visiting the top buckets instead of sorting all of them.
+ */
+class ShuffleSizeIndex {
+
+  private static final int BUCKET_NUM = Long.SIZE;
+
+  private final List<Set<ShuffleSize>> buckets = Lists.newArrayListWithCapacity(BUCKET_NUM);
+
+  ShuffleSizeIndex() {
+    for (int i = 0; i < BUCKET_NUM; i++) {
+      buckets.add(ConcurrentHashMap.newKeySet());
+    }
+  }
+
+  void update(ShuffleSize shuffleSize, long delta) {
+    long size = shuffleSize.addAndGet(delta);
+    if (bucketOf(size) == shuffleSize.bucket) {
+      return;
+    }
+    synchronized (shuffleSize) {
+      if (shuffleSize.removed) {
+        return;
+      }
+      int newBucket = bucketOf(shuffleSize.get());
+      if (newBucket != shuffleSize.bucket) {
+        // shuffle with empty buffer is not indexed
+        if (shuffleSize.bucket > 0) {
+          buckets.get(shuffleSize.bucket).remove(shuffleSize);
+        }
+        if (newBucket > 0) {
+          buckets.get(newBucket).add(shuffleSize);
+        }
+        shuffleSize.bucket = newBucket;
+      }
+    }
+  }
+
+  void remove(ShuffleSize shuffleSize) {
+    synchronized (shuffleSize) {
+      shuffleSize.removed = true;
+      if (shuffleSize.bucket > 0) {
+        buckets.get(shuffleSize.bucket).remove(shuffleSize);
+      }
+      shuffleSize.bucket = 0;
+    }
+  }
+
+  /**
+   * @return the iterator of shuffles ordered by size desc, only the buckets which are
+   *     reached by the iterator will be sorted
+   */
+  Iterator<ShuffleSize> descendingIterator() {
+    return new AbstractIterator<ShuffleSize>() {
+      private int bucketIndex = BUCKET_NUM;
+      private Iterator<ShuffleSize> bucketIterator;
+
+      @Override
+      protected ShuffleSize computeNext() {
+        while (bucketIterator == null || !bucketIterator.hasNext()) {
+          if (--bucketIndex <= 0) {
+            return endOfData();
+          }
+          List<ShuffleSize> shuffles = Lists.newArrayList(buckets.get(bucketIndex));
+          shuffles.sort(Comparator.comparingLong(ShuffleSize::get).reversed());
+          bucketIterator = shuffles.iterator();
+        }
+        return bucketIterator.next();
+      }
+    };
+  }
+
+  private static int bucketOf(long size) {
+    return size <= 0 ? 0 : BUCKET_NUM - Long.numberOfLeadingZeros(size);
+  }
+
+  /**
+   * The size of shuffle data in buffer with its appId and shuffleId, it's used as the handle of
+   * the shuffle in index.
+   */
+  static class ShuffleSize extends AtomicLong {
+    private static final long serialVersionUID = 1L;
+
+    private final String appId;
+    private final int shuffleId;
+    private volatile int bucket = 0;
+    private boolean removed = false;
+
+    ShuffleSize(String appId, int shuffleId) {
+      this.appId = appId;
+      this.shuffleId = shuffleId;
+    }
+
+    String getAppId() {
+      return appId;
+    }
+
+    int getShuffleId() {
+      return shuffleId;
+    }
+  }
+}
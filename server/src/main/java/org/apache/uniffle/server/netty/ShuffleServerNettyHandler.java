@@ -18,12 +18,16 @@
 package org.apache.uniffle.server.netty;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,26 +67,82 @@ import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 public class ShuffleServerNettyHandler implements BaseMessageHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(ShuffleServerNettyHandler.class);
-  private static final int RPC_TIMEOUT = 60000;
+  private static final String BUSY_MESSAGE = "Shuffle server is busy, please retry later";
   private final ShuffleServer shuffleServer;
+  private final ThreadPoolExecutor executor;
+  private final boolean zeroCopyReadEnabled;
 
-  public ShuffleServerNettyHandler(ShuffleServer shuffleServer) {
+  public ShuffleServerNettyHandler(ShuffleServer shuffleServer, ThreadPoolExecutor executor) {
     this.shuffleServer = shuffleServer;
+    this.executor = executor;
+    this.zeroCopyReadEnabled = shuffleServer.getShuffleServerConf()
+                                   .get(ShuffleServerConf.NETTY_SERVER_ZERO_COPY_READ_ENABLE);
   }
 
   @Override
   public void receive(TransportClient client, RequestMessage msg) {
+    Runnable task;
     if (msg instanceof SendShuffleDataRequest) {
-      handleSendShuffleDataRequest(client, (SendShuffleDataRequest)msg);
+      task = () -> handleSendShuffleDataRequest(client, (SendShuffleDataRequest)msg);
     } else if (msg instanceof GetLocalShuffleDataRequest) {
-      handleGetLocalShuffleData(client, (GetLocalShuffleDataRequest)msg);
+      task = () -> handleGetLocalShuffleData(client, (GetLocalShuffleDataRequest)msg);
     } else if (msg instanceof GetLocalShuffleIndexRequest) {
-      handleGetLocalShuffleIndexRequest(client, (GetLocalShuffleIndexRequest)msg);
+      task = () -> handleGetLocalShuffleIndexRequest(client, (GetLocalShuffleIndexRequest)msg);
     } else if (msg instanceof GetMemoryShuffleDataRequest) {
-      handleGetMemoryShuffleDataRequest(client, (GetMemoryShuffleDataRequest)msg);
+      task = () -> handleGetMemoryShuffleDataRequest(client, (GetMemoryShuffleDataRequest)msg);
     } else {
       throw new RssException("Can not handle message " + msg.type());
     }
+    // The handlers may be blocked by disk reading or buffer flushing, they are processed out of
+    // the event loop so that one slow request won't stall all the connections of the event loop.
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (Exception e) {
+          LOG.error("Error happened when handle {} from {}", msg.type(), client.getSocketAddress(), e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      ShuffleServerMetrics.counterTotalNettyRequestRejectedNum.inc();
+      rejectRequest(client, msg);
+    }
+    ShuffleServerMetrics.gaugeNettyRequestQueueSize.set(executor.getQueue().size());
+  }
+
+  private void rejectRequest(TransportClient client, RequestMessage msg) {
+    LOG.warn("The request executor is full, reject {} from {}", msg.type(), client.getSocketAddress());
+    RpcResponse response;
+    if (msg instanceof SendShuffleDataRequest) {
+      SendShuffleDataRequest req = (SendShuffleDataRequest) msg;
+      PreAllocatedBufferInfo info = shuffleServer.getShuffleTaskManager().getAndRemovePreAllocatedBuffer(
+          req.getRequireId());
+      if (info != null) {
+        shuffleServer.getShuffleBufferManager().releaseMemory(info.getRequireSize(), false, true);
+      }
+      req.getPartitionToBlocks().values().stream().flatMap(Collection::stream)
+          .forEach(block -> block.getData().release());
+      response = new RpcResponse(req.getRequestId(), StatusCode.NO_BUFFER, BUSY_MESSAGE);
+    } else if (msg instanceof GetLocalShuffleDataRequest) {
+      response = new GetLocalShuffleDataResponse(msg.getRequestId(), StatusCode.NO_BUFFER, BUSY_MESSAGE,
+          new NettyManagedBuffer(Unpooled.EMPTY_BUFFER));
+    } else if (msg instanceof GetLocalShuffleIndexRequest) {
+      response = new GetLocalShuffleIndexResponse(msg.getRequestId(), StatusCode.NO_BUFFER, BUSY_MESSAGE,
+          Unpooled.EMPTY_BUFFER, 0L);
+    } else {
+      response = new GetMemoryShuffleDataResponse(msg.getRequestId(), StatusCode.NO_BUFFER, BUSY_MESSAGE,
+          Lists.newArrayList(), Unpooled.EMPTY_BUFFER);
+    }
+    writeResponse(client, response);
+  }
+
+  private void writeResponse(TransportClient client, RpcResponse response) {
+    client.getChannel().writeAndFlush(response).addListener((ChannelFutureListener) future -> {
+      if (!future.isSuccess()) {
+        LOG.warn("Failed to write the response of request {} to {}",
+            response.getRequestId(), client.getSocketAddress(), future.cause());
+      }
+    });
   }
 
   @Override
@@ -127,7 +187,7 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
         LOG.warn(errorMsg);
         responseMessage = errorMsg;
         rpcResponse = new RpcResponse(req.getRequestId(), StatusCode.INTERNAL_ERROR, responseMessage);
-        client.sendRpcSync(rpcResponse, RPC_TIMEOUT);
+        writeResponse(client, rpcResponse);
         return;
       }
       final long start = System.currentTimeMillis();
@@ -176,7 +236,7 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
       rpcResponse =  new RpcResponse(req.getRequestId(), StatusCode.INTERNAL_ERROR, "No data in request");
     }
 
-    client.sendRpcSync(rpcResponse, RPC_TIMEOUT);
+    writeResponse(client, rpcResponse);
   }
 
   public void handleGetMemoryShuffleDataRequest(
@@ -203,7 +263,7 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
                              + partitionId + "]";
 
     // todo: if can get the exact memory size?
-    if (shuffleServer.getShuffleBufferManager().requireReadMemoryWithRetry(readBufferSize)) {
+    if (shuffleServer.getShuffleBufferManager().requireReadMemory(readBufferSize)) {
       try {
         ShuffleDataResult shuffleDataResult = shuffleServer
                                                   .getShuffleTaskManager()
@@ -241,13 +301,13 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
         shuffleServer.getShuffleBufferManager().releaseReadMemory(readBufferSize);
       }
     } else {
-      status = StatusCode.INTERNAL_ERROR;
+      status = StatusCode.NO_BUFFER;
       msg = "Can't require memory to get in memory shuffle data";
       LOG.error(msg + " for " + requestInfo);
       response = new GetMemoryShuffleDataResponse(req.getRequestId(),
           status, msg, Lists.newArrayList(), Unpooled.EMPTY_BUFFER);
     }
-    client.sendRpcSync(response, RPC_TIMEOUT);
+    writeResponse(client, response);
   }
 
   public void handleGetLocalShuffleIndexRequest(
@@ -273,7 +333,7 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
     // with the default size - 2MB, it can support 50k blocks for shuffle data.
     long assumedFileSize = shuffleServer
                                .getShuffleServerConf().getLong(ShuffleServerConf.SERVER_SHUFFLE_INDEX_SIZE_HINT);
-    if (shuffleServer.getShuffleBufferManager().requireReadMemoryWithRetry(assumedFileSize)) {
+    if (shuffleServer.getShuffleBufferManager().requireReadMemory(assumedFileSize)) {
       try {
         final long start = System.currentTimeMillis();
         ShuffleIndexResult shuffleIndexResult = shuffleServer.getShuffleTaskManager().getShuffleIndex(
@@ -300,12 +360,12 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
         shuffleServer.getShuffleBufferManager().releaseReadMemory(assumedFileSize);
       }
     } else {
-      status = StatusCode.INTERNAL_ERROR;
+      status = StatusCode.NO_BUFFER;
       msg = "Can't require memory to get shuffle index";
       LOG.error(msg + " for " + requestInfo);
       response = new GetLocalShuffleIndexResponse(req.getRequestId(), status, msg, Unpooled.EMPTY_BUFFER, 0L);
     }
-    client.sendRpcSync(response, RPC_TIMEOUT);
+    writeResponse(client, response);
   }
 
   public void handleGetLocalShuffleData(
@@ -343,7 +403,32 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
       storage.updateReadMetrics(new StorageReadMetrics(appId, shuffleId));
     }
 
-    if (shuffleServer.getShuffleBufferManager().requireReadMemoryWithRetry(length)) {
+    if (zeroCopyReadEnabled) {
+      // the data is sent from the file by sendfile and never lands in the heap,
+      // so there is no need to require the read buffer for it.
+      try {
+        long start = System.currentTimeMillis();
+        sdr = shuffleServer.getShuffleTaskManager().getShuffleDataSegment(appId, shuffleId, partitionId,
+            partitionNumPerRange, partitionNum, storageType, offset, length);
+        long readTime = System.currentTimeMillis() - start;
+        int dataSize = sdr.getManagedBuffer().size();
+        ShuffleServerMetrics.counterTotalReadTime.inc(readTime);
+        ShuffleServerMetrics.counterTotalReadDataSize.inc(dataSize);
+        ShuffleServerMetrics.counterTotalReadLocalDataFileSize.inc(dataSize);
+        shuffleServer.getGrpcMetrics().recordProcessTime(
+            ShuffleServerGrpcMetrics.GET_SHUFFLE_DATA_METHOD, readTime);
+        LOG.info("Successfully getShuffleDataSegment cost {} ms for shuffle"
+            + " data with {}", readTime, requestInfo);
+        response = new GetLocalShuffleDataResponse(req.getRequestId(),
+            status, msg, sdr.getManagedBuffer());
+      } catch (Exception e) {
+        status = StatusCode.INTERNAL_ERROR;
+        msg = "Error happened when get shuffle data segment for " + requestInfo + ", " + e.getMessage();
+        LOG.error(msg, e);
+        response = new GetLocalShuffleDataResponse(req.getRequestId(), status, msg,
+            new NettyManagedBuffer(Unpooled.EMPTY_BUFFER));
+      }
+    } else if (shuffleServer.getShuffleBufferManager().requireReadMemory(length)) {
       try {
         long start = System.currentTimeMillis();
         sdr = shuffleServer.getShuffleTaskManager().getShuffleData(appId, shuffleId, partitionId,
@@ -368,13 +453,13 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
         shuffleServer.getShuffleBufferManager().releaseReadMemory(length);
       }
     } else {
-      status = StatusCode.INTERNAL_ERROR;
+      status = StatusCode.NO_BUFFER;
       msg = "Can't require memory to get shuffle data";
       LOG.error(msg + " for " + requestInfo);
       response = new GetLocalShuffleDataResponse(req.getRequestId(), status, msg,
           new NettyManagedBuffer(Unpooled.EMPTY_BUFFER));
     }
-    client.sendRpcSync(response, RPC_TIMEOUT);
+    writeResponse(client, response);
   }
 
   private List<ShufflePartitionedData> toPartitionedData(SendShuffleDataRequest req) {
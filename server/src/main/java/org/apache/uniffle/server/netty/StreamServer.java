@@ -18,6 +18,8 @@
 package org.apache.uniffle.server.netty;
 
 import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import io.netty.bootstrap.ServerBootstrap;
@@ -41,6 +43,7 @@ import org.apache.uniffle.common.rpc.ServerInterface;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.common.util.ExitUtils;
 import org.apache.uniffle.common.util.RssUtils;
+import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.server.ShuffleServer;
 import org.apache.uniffle.server.ShuffleServerConf;
 
@@ -51,6 +54,7 @@ public class StreamServer implements ServerInterface {
   private ShuffleServer shuffleServer;
   private EventLoopGroup shuffleBossGroup;
   private EventLoopGroup shuffleWorkerGroup;
+  private ThreadPoolExecutor requestExecutor;
   private ShuffleServerConf shuffleServerConf;
   private ChannelFuture channelFuture;
 
@@ -67,6 +71,10 @@ public class StreamServer implements ServerInterface {
       shuffleBossGroup = new NioEventLoopGroup(acceptThreads);
       shuffleWorkerGroup = new NioEventLoopGroup(workerThreads);
     }
+    int executorThreads = shuffleServerConf.get(ShuffleServerConf.NETTY_SERVER_EXECUTOR_THREAD);
+    int executorQueueSize = shuffleServerConf.get(ShuffleServerConf.NETTY_SERVER_EXECUTOR_QUEUE_SIZE);
+    requestExecutor = new ThreadPoolExecutor(executorThreads, executorThreads, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(executorQueueSize), ThreadUtils.getThreadFactory("NettyRequestHandler"));
   }
 
   private ServerBootstrap bootstrapChannel(
@@ -83,7 +91,7 @@ public class StreamServer implements ServerInterface {
       serverBootstrap.channel(NioServerSocketChannel.class);
     }
 
-    ShuffleServerNettyHandler serverNettyHandler = new ShuffleServerNettyHandler(shuffleServer);
+    ShuffleServerNettyHandler serverNettyHandler = new ShuffleServerNettyHandler(shuffleServer, requestExecutor);
     TransportContext transportContext =
         new TransportContext(new TransportConf(shuffleServerConf), serverNettyHandler, true);
     serverBootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
@@ -154,6 +162,10 @@ public class StreamServer implements ServerInterface {
       shuffleBossGroup = null;
       shuffleWorkerGroup = null;
     }
+    if (requestExecutor != null) {
+      requestExecutor.shutdownNow();
+      requestExecutor = null;
+    }
   }
 
   @Override
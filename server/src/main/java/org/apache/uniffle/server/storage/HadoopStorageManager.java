@@ -21,6 +21,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -37,6 +41,7 @@ import org.apache.uniffle.common.filesystem.HadoopFilesystemProvider;
 import org.apache.uniffle.common.storage.StorageInfo;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.common.util.JavaUtils;
+import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.server.Checker;
 import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
@@ -47,7 +52,9 @@ import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.storage.common.HadoopStorage;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.factory.ShuffleHandlerFactory;
+import org.apache.uniffle.storage.handler.api.CompactableShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleDeleteHandler;
+import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.request.CreateShuffleDeleteHandlerRequest;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 import org.apache.uniffle.storage.util.StorageType;
@@ -59,10 +66,26 @@ public class HadoopStorageManager extends SingleStorageManager {
   private final Configuration hadoopConf;
   private Map<String, HadoopStorage> appIdToStorages = JavaUtils.newConcurrentMap();
   private Map<String, HadoopStorage> pathToStorages = JavaUtils.newConcurrentMap();
+  private final int compactionMinFileNum;
+  private final long mergedFileExpired;
+  private final long compactionDelay;
+  private ExecutorService compactionExecutor;
+  private ScheduledExecutorService compactionScheduler;
+  // appId -> shuffleId -> the compaction scheduled after the last commit of the shuffle,
+  // the entries are removed when the shuffle or the app is purged
+  private final Map<String, Map<Integer, ScheduledFuture<?>>> pendingCompactions = JavaUtils.newConcurrentMap();
 
   HadoopStorageManager(ShuffleServerConf conf) {
     super(conf);
     hadoopConf = conf.getHadoopConf();
+    compactionMinFileNum = conf.get(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_MIN_FILE_NUM);
+    mergedFileExpired = conf.get(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_MERGED_FILE_EXPIRED);
+    compactionDelay = conf.get(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_DELAY);
+    if (conf.get(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_ENABLED)) {
+      compactionExecutor = ThreadUtils.getDaemonFixedThreadPool(
+          conf.get(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_THREAD_POOL_SIZE), "RemoteStorageCompactor");
+      compactionScheduler = ThreadUtils.getDaemonSingleThreadScheduledExecutor("RemoteStorageCompactionScheduler");
+    }
   }
 
   @Override
@@ -86,6 +109,7 @@ public class HadoopStorageManager extends SingleStorageManager {
   @Override
   public void removeResources(PurgeEvent event) {
     String appId = event.getAppId();
+    cancelPendingCompactions(event);
     HadoopStorage storage = getStorageByAppId(appId);
     if (storage != null) {
       if (event instanceof AppPurgeEvent) {
@@ -114,6 +138,101 @@ public class HadoopStorageManager extends SingleStorageManager {
     }
   }
 
+  /**
+   * Compact the small files of the committed shuffle in background, the merged files are
+   * deleted after the readers opened them before could finish reading. Every task commits the
+   * shuffle, so the compaction is delayed and rescheduled by the later commits, then the shuffle
+   * is compacted once after its last commit.
+   */
+  @Override
+  public void onShuffleCommitted(String appId, int shuffleId) {
+    if (compactionExecutor == null || !appIdToStorages.containsKey(appId)) {
+      return;
+    }
+    Map<Integer, ScheduledFuture<?>> shuffleToCompactions =
+        pendingCompactions.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap());
+    shuffleToCompactions.compute(shuffleId, (key, pending) -> {
+      if (pending != null) {
+        pending.cancel(false);
+      }
+      return compactionScheduler.schedule(() -> submitCompaction(appId, shuffleId),
+          compactionDelay, TimeUnit.MILLISECONDS);
+    });
+  }
+
+  private void submitCompaction(String appId, int shuffleId) {
+    HadoopStorage storage = appIdToStorages.get(appId);
+    if (storage == null) {
+      return;
+    }
+    for (ShuffleWriteHandler handler : storage.getWriteHandlers(appId, shuffleId)) {
+      if (handler instanceof CompactableShuffleWriteHandler) {
+        compactionExecutor.execute(() -> compact(appId, shuffleId, (CompactableShuffleWriteHandler) handler));
+      }
+    }
+  }
+
+  private void cancelPendingCompactions(PurgeEvent event) {
+    if (event instanceof AppPurgeEvent) {
+      Map<Integer, ScheduledFuture<?>> shuffleToCompactions = pendingCompactions.remove(event.getAppId());
+      if (shuffleToCompactions != null) {
+        shuffleToCompactions.values().forEach(pending -> pending.cancel(false));
+      }
+    } else {
+      Map<Integer, ScheduledFuture<?>> shuffleToCompactions = pendingCompactions.get(event.getAppId());
+      if (shuffleToCompactions != null && event.getShuffleIds() != null) {
+        for (Integer shuffleId : event.getShuffleIds()) {
+          ScheduledFuture<?> pending = shuffleToCompactions.remove(shuffleId);
+          if (pending != null) {
+            pending.cancel(false);
+          }
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  boolean hasPendingCompaction(String appId, int shuffleId) {
+    Map<Integer, ScheduledFuture<?>> shuffleToCompactions = pendingCompactions.get(appId);
+    ScheduledFuture<?> pending = shuffleToCompactions == null ? null : shuffleToCompactions.get(shuffleId);
+    return pending != null && !pending.isDone();
+  }
+
+  private void compact(String appId, int shuffleId, CompactableShuffleWriteHandler handler) {
+    if (!appIdToStorages.containsKey(appId)) {
+      return;
+    }
+    try {
+      List<Path> mergedFiles = handler.compact(compactionMinFileNum);
+      if (!mergedFiles.isEmpty()) {
+        ShuffleServerMetrics.counterTotalRemoteStorageCompactionNum.inc();
+        ShuffleServerMetrics.counterTotalRemoteStorageCompactedFileNum.inc(mergedFiles.size());
+        compactionScheduler.schedule(() -> deleteMergedFiles(handler, mergedFiles),
+            mergedFileExpired, TimeUnit.MILLISECONDS);
+      }
+    } catch (Exception e) {
+      LOG.warn("Fail to compact files for appId[" + appId + "], shuffleId[" + shuffleId + "]", e);
+    }
+  }
+
+  private void deleteMergedFiles(CompactableShuffleWriteHandler handler, List<Path> mergedFiles) {
+    try {
+      handler.deleteFiles(mergedFiles);
+    } catch (Exception e) {
+      LOG.warn("Fail to delete merged files {}", mergedFiles, e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (compactionExecutor != null) {
+      pendingCompactions.clear();
+      compactionExecutor.shutdownNow();
+      compactionScheduler.shutdownNow();
+    }
+  }
+
   @Override
   public Checker getStorageChecker() {
     throw new RssException("Not support storage checker");
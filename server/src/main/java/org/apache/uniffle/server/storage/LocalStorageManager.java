@@ -17,6 +17,7 @@
 
 package org.apache.uniffle.server.storage;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -28,8 +29,11 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -39,12 +43,15 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.RemoteStorageInfo;
+import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.UnionKey;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.storage.StorageInfo;
@@ -59,14 +66,21 @@ import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
 import org.apache.uniffle.server.ShuffleServerConf;
 import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.server.buffer.ShuffleBufferManager;
 import org.apache.uniffle.server.event.AppPurgeEvent;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.server.event.ShufflePurgeEvent;
+import org.apache.uniffle.server.storage.local.LocalStorageSelector;
+import org.apache.uniffle.server.storage.local.LocalStorageTrash;
 import org.apache.uniffle.storage.common.LocalStorage;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.common.StorageMediaProvider;
 import org.apache.uniffle.storage.factory.ShuffleHandlerFactory;
+import org.apache.uniffle.storage.handler.api.AsyncShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleDeleteHandler;
+import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
+import org.apache.uniffle.storage.handler.impl.LocalFileDataCache;
+import org.apache.uniffle.storage.handler.impl.LocalFileIndexCache;
 import org.apache.uniffle.storage.request.CreateShuffleDeleteHandlerRequest;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 import org.apache.uniffle.storage.util.StorageType;
@@ -80,6 +94,14 @@ public class LocalStorageManager extends SingleStorageManager {
   private final List<LocalStorage> localStorages;
   private final List<String> storageBasePaths;
   private final LocalStorageChecker checker;
+  private final LocalFileIndexCache indexCache;
+  private final LocalFileDataCache dataCache;
+  private volatile ShuffleBufferManager shuffleBufferManager;
+  private final LocalStorageSelector storageSelector;
+  // base path -> metadata journal of the local storage, it's empty if the journal is disabled
+  private final Map<String, ShuffleMetadataJournal> journals = JavaUtils.newConcurrentMap();
+  private ScheduledExecutorService journalCompactor;
+  private final Map<String, LocalStorageTrash> trashes = Maps.newHashMap();
 
   private final Map<String, LocalStorage> partitionsOfStorage;
   private final List<StorageMediaProvider> typeProviders = Lists.newArrayList();
@@ -99,6 +121,17 @@ public class LocalStorageManager extends SingleStorageManager {
     if (highWaterMarkOfWrite < lowWaterMarkOfWrite) {
       throw new IllegalArgumentException("highWaterMarkOfWrite must be larger than lowWaterMarkOfWrite");
     }
+    int maxOpenFiles = conf.get(ShuffleServerConf.LOCAL_STORAGE_PERSISTENT_WRITER_ENABLED)
+        ? conf.get(ShuffleServerConf.LOCAL_STORAGE_PERSISTENT_WRITER_MAX_OPEN_FILES) : 0;
+    int asyncFlushThreads = conf.get(ShuffleServerConf.SERVER_FLUSH_ASYNC_ENABLED)
+        ? conf.get(ShuffleServerConf.SERVER_FLUSH_ASYNC_THREAD_PER_DISK) : 0;
+    this.indexCache = conf.get(ShuffleServerConf.LOCAL_STORAGE_INDEX_CACHE_ENABLED)
+        ? newIndexCache(conf) : null;
+    this.dataCache = conf.get(ShuffleServerConf.LOCAL_STORAGE_DATA_CACHE_ENABLED)
+        ? newDataCache(conf) : null;
+    final boolean journalEnabled = conf.get(ShuffleServerConf.LOCAL_STORAGE_METADATA_JOURNAL_ENABLED);
+    this.storageSelector = RssUtils.loadExtensions(LocalStorageSelector.class,
+        Collections.singletonList(conf.get(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_CLASS)), conf).get(0);
 
     // We must make sure the order of `storageBasePaths` and `localStorages` is same, or some unit test may be fail
     CountDownLatch countDownLatch = new CountDownLatch(storageBasePaths.size());
@@ -123,6 +156,11 @@ public class LocalStorageManager extends SingleStorageManager {
               .lowWaterMarkOfWrite(lowWaterMarkOfWrite)
               .highWaterMarkOfWrite(highWaterMarkOfWrite)
               .localStorageMedia(storageType)
+              .maxOpenFiles(maxOpenFiles)
+              .asyncFlushThreads(asyncFlushThreads)
+              .indexCache(indexCache)
+              .dataCache(dataCache)
+              .keepExistingData(journalEnabled)
               .build();
           successCount.incrementAndGet();
         } catch (Exception e) {
@@ -155,6 +193,69 @@ public class LocalStorageManager extends SingleStorageManager {
         StringUtils.join(localStorages.stream().map(LocalStorage::getBasePath).collect(Collectors.toList()))
     );
     this.checker = new LocalStorageChecker(conf, localStorages);
+    if (journalEnabled) {
+      for (LocalStorage storage : localStorages) {
+        journals.put(storage.getBasePath(), new ShuffleMetadataJournal(storage.getBasePath()));
+      }
+      long snapshotInterval = conf.get(ShuffleServerConf.LOCAL_STORAGE_METADATA_SNAPSHOT_INTERVAL);
+      journalCompactor = ThreadUtils.getDaemonSingleThreadScheduledExecutor("MetadataJournalCompactor");
+      journalCompactor.scheduleWithFixedDelay(
+          this::compactJournals, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+    }
+    if (conf.get(ShuffleServerConf.LOCAL_STORAGE_TRASH_ENABLED)) {
+      long bytesPerSecond = conf.get(ShuffleServerConf.LOCAL_STORAGE_TRASH_DELETE_BYTES_PER_SECOND);
+      int filesPerSecond = conf.get(ShuffleServerConf.LOCAL_STORAGE_TRASH_DELETE_FILES_PER_SECOND);
+      for (LocalStorage storage : localStorages) {
+        LocalStorageTrash trash = new LocalStorageTrash(storage.getBasePath(), bytesPerSecond, filesPerSecond);
+        trash.start();
+        trashes.put(storage.getBasePath(), trash);
+      }
+    }
+  }
+
+  private static LocalFileIndexCache newIndexCache(ShuffleServerConf conf) {
+    return new LocalFileIndexCache(
+        conf.get(ShuffleServerConf.LOCAL_STORAGE_INDEX_CACHE_CAPACITY),
+        conf.get(ShuffleServerConf.LOCAL_STORAGE_INDEX_MMAP_THRESHOLD)) {
+      @Override
+      protected void onHit() {
+        ShuffleServerMetrics.counterTotalLocalIndexCacheHitNum.inc();
+      }
+
+      @Override
+      protected void onMiss() {
+        ShuffleServerMetrics.counterTotalLocalIndexCacheMissNum.inc();
+      }
+    };
+  }
+
+  private LocalFileDataCache newDataCache(ShuffleServerConf conf) {
+    return new LocalFileDataCache(conf.get(ShuffleServerConf.LOCAL_STORAGE_DATA_CACHE_CAPACITY)) {
+      @Override
+      protected void onHit() {
+        ShuffleServerMetrics.counterTotalLocalDataCacheHitNum.inc();
+      }
+
+      @Override
+      protected void onMiss() {
+        ShuffleServerMetrics.counterTotalLocalDataCacheMissNum.inc();
+      }
+
+      @Override
+      protected boolean requireMemory(long length) {
+        // the cached data is accounted as the read memory of the server
+        ShuffleBufferManager bufferManager = shuffleBufferManager;
+        return bufferManager == null || bufferManager.requireReadMemory(length);
+      }
+
+      @Override
+      protected void releaseMemory(long length) {
+        ShuffleBufferManager bufferManager = shuffleBufferManager;
+        if (bufferManager != null) {
+          bufferManager.releaseReadMemory(length);
+        }
+      }
+    };
   }
 
   private StorageMedia getStorageTypeForBasePath(String basePath) {
@@ -188,23 +289,11 @@ public class LocalStorageManager extends SingleStorageManager {
       }
     }
 
-    List<LocalStorage> candidates = localStorages
-        .stream()
-        .filter(x -> x.canWrite() && !x.isCorrupted())
-        .collect(Collectors.toList());
-
-    if (candidates.size() == 0) {
+    final LocalStorage selectedStorage = storageSelector.select(localStorages, appId, shuffleId, partitionId);
+    if (selectedStorage == null) {
       return null;
     }
-    final LocalStorage selectedStorage = candidates.get(
-        ShuffleStorageUtils.getStorageIndex(
-            candidates.size(),
-            appId,
-            shuffleId,
-            partitionId
-        )
-    );
-    return partitionsOfStorage.compute(
+    LocalStorage result = partitionsOfStorage.compute(
         UnionKey.buildKey(appId, shuffleId, partitionId),
         (key, localStorage) -> {
           // If this is the first time to select storage or existing storage is corrupted,
@@ -215,6 +304,11 @@ public class LocalStorageManager extends SingleStorageManager {
           }
           return localStorage;
         });
+    ShuffleMetadataJournal journal = journals.get(result.getBasePath());
+    if (journal != null) {
+      journal.appendPartition(appId, shuffleId, partitionId);
+    }
+    return result;
   }
 
   @Override
@@ -226,10 +320,169 @@ public class LocalStorageManager extends SingleStorageManager {
     return partitionsOfStorage.get(UnionKey.buildKey(appId, shuffleId, partitionId));
   }
 
+  @Override
+  public boolean write(Storage storage, ShuffleWriteHandler handler, ShuffleDataFlushEvent event) {
+    if (!(storage instanceof LocalStorage)) {
+      return super.write(storage, handler, event);
+    }
+    LocalStorage localStorage = (LocalStorage) storage;
+    long size = event.getSize();
+    long startWrite = System.currentTimeMillis();
+    boolean success = false;
+    storageSelector.onWriteStart(localStorage, size);
+    try {
+      success = writeOnce(storage, handler, event);
+    } finally {
+      storageSelector.onWriteFinish(localStorage, size, System.currentTimeMillis() - startWrite, success);
+    }
+    // the wait after a failure isn't taken as the write latency of the storage
+    if (!success) {
+      waitBeforeRetry();
+    }
+    return success;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> writeAsync(Storage storage, ShuffleWriteHandler handler,
+      ShuffleDataFlushEvent event) {
+    // the synchronous write is tracked by the storage selector in write
+    if (!(storage instanceof LocalStorage) || !(handler instanceof AsyncShuffleWriteHandler)) {
+      return super.writeAsync(storage, handler, event);
+    }
+    LocalStorage localStorage = (LocalStorage) storage;
+    long size = event.getSize();
+    long startWrite = System.currentTimeMillis();
+    storageSelector.onWriteStart(localStorage, size);
+    // the exceptions of the write are handled by the returned future
+    return super.writeAsync(storage, handler, event).whenComplete((success, e) -> storageSelector.onWriteFinish(
+        localStorage, size, System.currentTimeMillis() - startWrite, e == null && success));
+  }
+
   @Override
   public void updateWriteMetrics(ShuffleDataFlushEvent event, long writeTime) {
     super.updateWriteMetrics(event, writeTime);
     ShuffleServerMetrics.counterTotalLocalFileWriteDataSize.inc(event.getSize());
+    Storage storage = event.getUnderStorage();
+    ShuffleMetadataJournal journal = storage == null ? null : journals.get(storage.getStoragePath());
+    if (journal != null) {
+      long[] blockIds = event.getShuffleBlocks().stream().mapToLong(ShufflePartitionedBlock::getBlockId).toArray();
+      journal.appendCommittedBlockIds(event.getAppId(), event.getShuffleId(), blockIds);
+    }
+  }
+
+  @Override
+  public void setShuffleBufferManager(ShuffleBufferManager shuffleBufferManager) {
+    this.shuffleBufferManager = shuffleBufferManager;
+  }
+
+  @Override
+  public void recordAppInfo(String appId, ShuffleMetadata.AppInfo appInfo) {
+    // the info is small, it's recorded in all the journals to be recovered with the data of any storage
+    for (ShuffleMetadataJournal journal : journals.values()) {
+      journal.appendAppInfo(appId, appInfo);
+    }
+  }
+
+  @Override
+  public void recordFinishedBlockIds(String appId, int shuffleId, Map<Integer, long[]> partitionToBlockIds) {
+    if (journals.isEmpty()) {
+      return;
+    }
+    // the records of all the journals are merged when recovering, pick one by hashcode to spread the writes
+    for (Map.Entry<Integer, long[]> entry : partitionToBlockIds.entrySet()) {
+      int index = ShuffleStorageUtils.getStorageIndex(localStorages.size(), appId, shuffleId, entry.getKey());
+      ShuffleMetadataJournal journal = journals.get(localStorages.get(index).getBasePath());
+      journal.appendFinishedBlockIds(appId, shuffleId, entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public ShuffleMetadata recoverShuffleMetadata() {
+    if (journals.isEmpty()) {
+      return null;
+    }
+    ShuffleMetadata result = new ShuffleMetadata();
+    for (LocalStorage storage : localStorages) {
+      ShuffleMetadata metadata;
+      try {
+        metadata = journals.get(storage.getBasePath()).replay();
+      } catch (Exception e) {
+        LOG.warn("Failed to replay the metadata journal of {}, its data won't be recovered", storage.getBasePath(), e);
+        metadata = new ShuffleMetadata();
+      }
+      // the data is kept on startup for recovery, the data which can't be recovered is deleted
+      deleteUnrecoveredData(storage, metadata);
+      for (String appId : metadata.getAppIds()) {
+        for (Map.Entry<Integer, ShuffleMetadata.ShuffleInfo> entry : metadata.getShuffles(appId).entrySet()) {
+          int shuffleId = entry.getKey();
+          Set<Integer> startPartitions = entry.getValue().getStartPartitions();
+          if (startPartitions.isEmpty()) {
+            continue;
+          }
+          for (int startPartition : startPartitions) {
+            partitionsOfStorage.put(UnionKey.buildKey(appId, shuffleId, startPartition), storage);
+          }
+          File shuffleFolder = new File(ShuffleStorageUtils.getFullShuffleDataFolder(
+              storage.getBasePath(), ShuffleStorageUtils.getShuffleDataPath(appId, shuffleId)));
+          String shuffleKey = RssUtils.generateShuffleKey(appId, shuffleId);
+          storage.createMetadataIfNotExist(shuffleKey);
+          storage.updateWrite(shuffleKey, shuffleFolder.exists() ? FileUtils.sizeOfDirectory(shuffleFolder) : 0L,
+              Lists.newArrayList(startPartitions));
+        }
+      }
+      result.merge(metadata);
+    }
+    LOG.info("Recovered the metadata of {} apps from local storages", result.getAppIds().size());
+    return result;
+  }
+
+  /**
+   * Delete the data of the apps and shuffles which aren't recovered from the journal of the
+   * storage, e.g. the data left before the journal is enabled or whose records are lost.
+   */
+  private void deleteUnrecoveredData(LocalStorage storage, ShuffleMetadata metadata) {
+    File[] appFolders = new File(storage.getBasePath()).listFiles(File::isDirectory);
+    if (appFolders == null) {
+      return;
+    }
+    List<String> deletePaths = new ArrayList<>();
+    for (File appFolder : appFolders) {
+      // the hidden folders are used by the storage itself, such as the journal and the trash
+      if (appFolder.getName().startsWith(".")) {
+        continue;
+      }
+      String appPath = ShuffleStorageUtils.getFullShuffleDataFolder(storage.getBasePath(), appFolder.getName());
+      Map<Integer, ShuffleMetadata.ShuffleInfo> shuffles = metadata.getShuffles(appFolder.getName());
+      File[] shuffleFolders = appFolder.listFiles(File::isDirectory);
+      if (shuffles.isEmpty() || shuffleFolders == null) {
+        deletePaths.add(appPath);
+        continue;
+      }
+      for (File shuffleFolder : shuffleFolders) {
+        ShuffleMetadata.ShuffleInfo info = shuffles.get(NumberUtils.toInt(shuffleFolder.getName(), -1));
+        if (info == null || info.getStartPartitions().isEmpty()) {
+          deletePaths.add(ShuffleStorageUtils.getFullShuffleDataFolder(appPath, shuffleFolder.getName()));
+        }
+      }
+    }
+    if (deletePaths.isEmpty()) {
+      return;
+    }
+    LOG.info("Delete {} folders of {} which aren't recovered", deletePaths.size(), storage.getBasePath());
+    ShuffleDeleteHandler deleteHandler = ShuffleHandlerFactory.getInstance()
+        .createShuffleDeleteHandler(
+            new CreateShuffleDeleteHandlerRequest(StorageType.LOCALFILE.name(), new Configuration()));
+    deleteHandler.delete(moveToTrash(deletePaths), StringUtils.EMPTY, StringUtils.EMPTY);
+  }
+
+  private void compactJournals() {
+    for (Map.Entry<String, ShuffleMetadataJournal> entry : journals.entrySet()) {
+      try {
+        entry.getValue().compact();
+      } catch (Exception e) {
+        LOG.warn("Failed to compact the metadata journal of {}", entry.getKey(), e);
+      }
+    }
   }
 
   @Override
@@ -240,17 +493,41 @@ public class LocalStorageManager extends SingleStorageManager {
   @Override
   public void removeResources(PurgeEvent event) {
     String appId = event.getAppId();
-    String user = event.getUser();
     List<Integer> shuffleSet = Optional.ofNullable(event.getShuffleIds()).orElse(Collections.emptyList());
 
     // Remove partitions to storage mapping cache
     cleanupStorageSelectionCache(event);
+    for (ShuffleMetadataJournal journal : journals.values()) {
+      if (event instanceof AppPurgeEvent) {
+        journal.appendRemoveApp(appId);
+      }
+      for (Integer shuffleId : shuffleSet) {
+        journal.appendRemoveShuffle(appId, shuffleId);
+      }
+    }
+    if (indexCache != null) {
+      if (event instanceof AppPurgeEvent) {
+        indexCache.invalidate(appId);
+      }
+      for (Integer shuffleId : shuffleSet) {
+        indexCache.invalidate(appId, shuffleId);
+      }
+    }
+    if (dataCache != null) {
+      if (event instanceof AppPurgeEvent) {
+        dataCache.invalidate(appId);
+      }
+      for (Integer shuffleId : shuffleSet) {
+        dataCache.invalidate(appId, shuffleId);
+      }
+    }
 
     for (LocalStorage storage : localStorages) {
       if (event instanceof AppPurgeEvent) {
         storage.removeHandlers(appId);
       }
       for (Integer shuffleId : shuffleSet) {
+        storage.closeWriteHandlers(appId, shuffleId);
         storage.removeResources(RssUtils.generateShuffleKey(appId, shuffleId));
       }
     }
@@ -274,7 +551,30 @@ public class LocalStorageManager extends SingleStorageManager {
       }
     }).collect(Collectors.toList());
 
-    deleteHandler.delete(deletePaths.toArray(new String[deletePaths.size()]), appId, user);
+    deleteHandler.delete(moveToTrash(deletePaths), appId, event.getUser());
+  }
+
+  /**
+   * Move the paths into the trash of their storages if it's enabled.
+   *
+   * @return the paths which are not moved and should be deleted directly
+   */
+  private String[] moveToTrash(List<String> paths) {
+    if (trashes.isEmpty()) {
+      return paths.toArray(new String[0]);
+    }
+    List<String> leftPaths = new ArrayList<>();
+    for (String path : paths) {
+      LocalStorageTrash trash = trashes.entrySet().stream()
+          .filter(entry -> path.startsWith(ShuffleStorageUtils.getFullShuffleDataFolder(entry.getKey(), "")))
+          .map(Map.Entry::getValue)
+          .findFirst()
+          .orElse(null);
+      if (trash == null || !trash.moveToTrash(path)) {
+        leftPaths.add(path);
+      }
+    }
+    return leftPaths.toArray(new String[0]);
   }
 
   private void cleanupStorageSelectionCache(PurgeEvent event) {
@@ -322,11 +622,11 @@ public class LocalStorageManager extends SingleStorageManager {
         ShuffleDeleteHandler deleteHandler = ShuffleHandlerFactory.getInstance()
             .createShuffleDeleteHandler(
                new CreateShuffleDeleteHandlerRequest(StorageType.LOCALFILE.name(), new Configuration()));
-        String[] deletePaths = new String[storageBasePaths.size()];
-        for (int i = 0; i < storageBasePaths.size(); i++) {
-          deletePaths[i] = ShuffleStorageUtils.getFullShuffleDataFolder(storageBasePaths.get(i), appId);
+        List<String> deletePaths = new ArrayList<>();
+        for (String basePath : storageBasePaths) {
+          deletePaths.add(ShuffleStorageUtils.getFullShuffleDataFolder(basePath, appId));
         }
-        deleteHandler.delete(deletePaths, appId, UNKNOWN_USER_NAME);
+        deleteHandler.delete(moveToTrash(deletePaths), appId, UNKNOWN_USER_NAME);
       }
     }
   }
@@ -362,4 +662,19 @@ public class LocalStorageManager extends SingleStorageManager {
   public List<LocalStorage> getStorages() {
     return localStorages;
   }
+
+  @VisibleForTesting
+  LocalStorageSelector getStorageSelector() {
+    return storageSelector;
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (journalCompactor != null) {
+      journalCompactor.shutdownNow();
+    }
+    journals.values().forEach(ShuffleMetadataJournal::close);
+    trashes.values().forEach(LocalStorageTrash::stop);
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.uniffle.server.storage;
 import java.lang.reflect.Constructor;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.cache.Cache;
@@ -34,6 +35,7 @@ import org.apache.uniffle.server.Checker;
 import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
 import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.server.buffer.ShuffleBufferManager;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.server.storage.multi.StorageManagerSelector;
 import org.apache.uniffle.storage.common.Storage;
@@ -145,10 +147,24 @@ public class MultiStorageManager implements StorageManager {
     return underStorageManager.write(storage, handler, event);
   }
 
+  @Override
+  public CompletableFuture<Boolean> writeAsync(Storage storage, ShuffleWriteHandler handler,
+      ShuffleDataFlushEvent event) {
+    StorageManager underStorageManager = eventOfUnderStorageManagers.getIfPresent(event);
+    if (underStorageManager == null) {
+      return CompletableFuture.completedFuture(false);
+    }
+    return underStorageManager.writeAsync(storage, handler, event);
+  }
+
   public void start() {
+    warmStorageManager.start();
+    coldStorageManager.start();
   }
 
   public void stop() {
+    warmStorageManager.stop();
+    coldStorageManager.stop();
   }
 
   @Override
@@ -179,6 +195,32 @@ public class MultiStorageManager implements StorageManager {
     coldStorageManager.removeResources(event);
   }
 
+  @Override
+  public void setShuffleBufferManager(ShuffleBufferManager shuffleBufferManager) {
+    warmStorageManager.setShuffleBufferManager(shuffleBufferManager);
+  }
+
+  @Override
+  public void recordAppInfo(String appId, ShuffleMetadata.AppInfo appInfo) {
+    warmStorageManager.recordAppInfo(appId, appInfo);
+  }
+
+  @Override
+  public void recordFinishedBlockIds(String appId, int shuffleId, Map<Integer, long[]> partitionToBlockIds) {
+    warmStorageManager.recordFinishedBlockIds(appId, shuffleId, partitionToBlockIds);
+  }
+
+  @Override
+  public void onShuffleCommitted(String appId, int shuffleId) {
+    warmStorageManager.onShuffleCommitted(appId, shuffleId);
+    coldStorageManager.onShuffleCommitted(appId, shuffleId);
+  }
+
+  @Override
+  public ShuffleMetadata recoverShuffleMetadata() {
+    return warmStorageManager.recoverShuffleMetadata();
+  }
+
   public StorageManager getColdStorageManager() {
     return coldStorageManager;
   }
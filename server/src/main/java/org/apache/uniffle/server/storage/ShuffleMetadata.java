@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server.storage;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+
+/**
+ * The metadata of shuffles recorded by {@link ShuffleMetadataJournal}, it's used to fold the
+ * records of journals and isn't thread safe. All the updates are idempotent, so a record
+ * can be applied more than once.
+ */
+public class ShuffleMetadata {
+
+  private final Map<String, Map<Integer, ShuffleInfo>> appToShuffles = Maps.newHashMap();
+  private final Map<String, AppInfo> appInfos = Maps.newHashMap();
+
+  public void setAppInfo(String appId, AppInfo appInfo) {
+    appInfos.put(appId, appInfo);
+  }
+
+  public void addPartition(String appId, int shuffleId, int startPartition) {
+    getOrCreate(appId, shuffleId).startPartitions.add(startPartition);
+  }
+
+  public void addFinishedBlockIds(String appId, int shuffleId, int partitionId, long[] blockIds) {
+    Roaring64NavigableMap bitmap = getOrCreate(appId, shuffleId).finishedBlockIds
+        .computeIfAbsent(partitionId, key -> Roaring64NavigableMap.bitmapOf());
+    for (long blockId : blockIds) {
+      bitmap.addLong(blockId);
+    }
+  }
+
+  public void addCommittedBlockIds(String appId, int shuffleId, long[] blockIds) {
+    Roaring64NavigableMap bitmap = getOrCreate(appId, shuffleId).committedBlockIds;
+    for (long blockId : blockIds) {
+      bitmap.addLong(blockId);
+    }
+  }
+
+  public void removeApp(String appId) {
+    appToShuffles.remove(appId);
+    appInfos.remove(appId);
+  }
+
+  public void removeShuffle(String appId, int shuffleId) {
+    Map<Integer, ShuffleInfo> shuffles = appToShuffles.get(appId);
+    if (shuffles != null) {
+      shuffles.remove(shuffleId);
+    }
+  }
+
+  public void merge(ShuffleMetadata other) {
+    appInfos.putAll(other.appInfos);
+    for (Map.Entry<String, Map<Integer, ShuffleInfo>> appEntry : other.appToShuffles.entrySet()) {
+      for (Map.Entry<Integer, ShuffleInfo> shuffleEntry : appEntry.getValue().entrySet()) {
+        ShuffleInfo info = getOrCreate(appEntry.getKey(), shuffleEntry.getKey());
+        ShuffleInfo otherInfo = shuffleEntry.getValue();
+        info.startPartitions.addAll(otherInfo.startPartitions);
+        otherInfo.finishedBlockIds.forEach((partitionId, blockIds) ->
+            info.finishedBlockIds.computeIfAbsent(partitionId, key -> Roaring64NavigableMap.bitmapOf()).or(blockIds));
+        info.committedBlockIds.or(otherInfo.committedBlockIds);
+      }
+    }
+  }
+
+  public Set<String> getAppIds() {
+    return appToShuffles.keySet();
+  }
+
+  /**
+   * @return the info of the app, or null if it isn't recorded
+   */
+  public AppInfo getAppInfo(String appId) {
+    return appInfos.get(appId);
+  }
+
+  Map<String, AppInfo> getAppInfos() {
+    return appInfos;
+  }
+
+  public Map<Integer, ShuffleInfo> getShuffles(String appId) {
+    return appToShuffles.getOrDefault(appId, Maps.newHashMap());
+  }
+
+  private ShuffleInfo getOrCreate(String appId, int shuffleId) {
+    return appToShuffles.computeIfAbsent(appId, key -> Maps.newHashMap())
+        .computeIfAbsent(shuffleId, key -> new ShuffleInfo());
+  }
+
+  public static class ShuffleInfo {
+    private final Set<Integer> startPartitions = Sets.newHashSet();
+    private final Map<Integer, Roaring64NavigableMap> finishedBlockIds = Maps.newHashMap();
+    private final Roaring64NavigableMap committedBlockIds = Roaring64NavigableMap.bitmapOf();
+
+    /**
+     * @return the start partitions of the partition ranges which are written to the local storage
+     */
+    public Set<Integer> getStartPartitions() {
+      return startPartitions;
+    }
+
+    public Map<Integer, Roaring64NavigableMap> getFinishedBlockIds() {
+      return finishedBlockIds;
+    }
+
+    public Roaring64NavigableMap getCommittedBlockIds() {
+      return committedBlockIds;
+    }
+  }
+
+  /**
+   * The info of the app registered by the client, which is the same for all its shuffles.
+   */
+  public static class AppInfo {
+    private final String user;
+    private final ShuffleDataDistributionType dataDistributionType;
+    private final int maxConcurrencyPerPartitionToWrite;
+
+    public AppInfo(
+        String user,
+        ShuffleDataDistributionType dataDistributionType,
+        int maxConcurrencyPerPartitionToWrite) {
+      this.user = user;
+      this.dataDistributionType = dataDistributionType;
+      this.maxConcurrencyPerPartitionToWrite = maxConcurrencyPerPartitionToWrite;
+    }
+
+    public String getUser() {
+      return user;
+    }
+
+    public ShuffleDataDistributionType getDataDistributionType() {
+      return dataDistributionType;
+    }
+
+    public int getMaxConcurrencyPerPartitionToWrite() {
+      return maxConcurrencyPerPartitionToWrite;
+    }
+  }
+}
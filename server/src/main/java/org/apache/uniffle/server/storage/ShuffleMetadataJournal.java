@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.CountingInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+
+/**
+ * An append-only journal of the shuffle metadata of a local storage, which is replayed to
+ * recover the metadata after the shuffle server restarts.
+ *
+ * <p>The journal is compacted into a snapshot periodically: the journal file is rotated first,
+ * then the old snapshot and the rotated journal are folded into a new snapshot, so appending
+ * isn't blocked by compaction. Records are written to the page cache once they are appended,
+ * so they survive the restart of the process but not the crash of the machine.
+ */
+public class ShuffleMetadataJournal implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShuffleMetadataJournal.class);
+
+  // the directory is hidden, so it isn't treated as the directory of an app
+  public static final String METADATA_DIR = ".metadata";
+  private static final String JOURNAL_FILE = "journal";
+  private static final String ROTATED_JOURNAL_FILE = "journal.old";
+  private static final String SNAPSHOT_FILE = "snapshot";
+  private static final String SNAPSHOT_TMP_FILE = "snapshot.tmp";
+
+  private static final byte PARTITION = 1;
+  private static final byte FINISHED_BLOCK_IDS = 2;
+  private static final byte COMMITTED_BLOCK_IDS = 3;
+  private static final byte REMOVE_SHUFFLE = 4;
+  private static final byte REMOVE_APP = 5;
+  private static final byte APP_INFO = 6;
+
+  private final File dir;
+  private DataOutputStream out;
+
+  public ShuffleMetadataJournal(String basePath) {
+    this.dir = new File(basePath, METADATA_DIR);
+  }
+
+  /**
+   * @return the metadata folded from the snapshot and the journals
+   */
+  public synchronized ShuffleMetadata replay() throws IOException {
+    ShuffleMetadata metadata = new ShuffleMetadata();
+    read(new File(dir, SNAPSHOT_FILE), metadata);
+    read(new File(dir, ROTATED_JOURNAL_FILE), metadata);
+    File journal = new File(dir, JOURNAL_FILE);
+    long validLength = read(journal, metadata);
+    if (journal.length() > validLength) {
+      // drop the incomplete record, otherwise the records appended later can't be read
+      try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE)) {
+        channel.truncate(validLength);
+      }
+    }
+    return metadata;
+  }
+
+  public void appendPartition(String appId, int shuffleId, int startPartition) {
+    append(PARTITION, appId, shuffleId, output -> output.writeInt(startPartition));
+  }
+
+  public void appendFinishedBlockIds(String appId, int shuffleId, int partitionId, long[] blockIds) {
+    append(FINISHED_BLOCK_IDS, appId, shuffleId, output -> {
+      output.writeInt(partitionId);
+      writeLongs(output, blockIds);
+    });
+  }
+
+  public void appendCommittedBlockIds(String appId, int shuffleId, long[] blockIds) {
+    append(COMMITTED_BLOCK_IDS, appId, shuffleId, output -> writeLongs(output, blockIds));
+  }
+
+  public void appendAppInfo(String appId, ShuffleMetadata.AppInfo appInfo) {
+    append(APP_INFO, appId, -1, output -> writeAppInfo(output, appInfo));
+  }
+
+  public void appendRemoveShuffle(String appId, int shuffleId) {
+    append(REMOVE_SHUFFLE, appId, shuffleId, output -> { });
+  }
+
+  public void appendRemoveApp(String appId) {
+    append(REMOVE_APP, appId, -1, output -> { });
+  }
+
+  /**
+   * Fold the snapshot and the records appended before into a new snapshot.
+   */
+  public void compact() throws IOException {
+    File rotatedJournal = new File(dir, ROTATED_JOURNAL_FILE);
+    synchronized (this) {
+      // the rotated journal is left by the failed compaction, fold it before rotating again
+      if (!rotatedJournal.exists()) {
+        closeOutput();
+        File journal = new File(dir, JOURNAL_FILE);
+        if (journal.exists()) {
+          Files.move(journal.toPath(), rotatedJournal.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+      }
+    }
+    File snapshot = new File(dir, SNAPSHOT_FILE);
+    ShuffleMetadata metadata = new ShuffleMetadata();
+    read(snapshot, metadata);
+    read(rotatedJournal, metadata);
+    File snapshotTmp = new File(dir, SNAPSHOT_TMP_FILE);
+    try (FileOutputStream fileOutput = new FileOutputStream(snapshotTmp);
+         DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput))) {
+      write(metadata, output);
+      output.flush();
+      fileOutput.getFD().sync();
+    }
+    Files.move(snapshotTmp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    Files.deleteIfExists(rotatedJournal.toPath());
+  }
+
+  @Override
+  public synchronized void close() {
+    closeOutput();
+  }
+
+  @VisibleForTesting
+  File getDir() {
+    return dir;
+  }
+
+  private synchronized void append(byte type, String appId, int shuffleId, RecordWriter writer) {
+    try {
+      if (out == null) {
+        Files.createDirectories(dir.toPath());
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, JOURNAL_FILE), true)));
+      }
+      writeRecord(out, type, appId, shuffleId, writer);
+      out.flush();
+    } catch (IOException e) {
+      // the metadata can't be recovered completely, the data of lost records will be recomputed
+      LOG.warn("Failed to append the shuffle metadata of appId[{}], shuffleId[{}] to {}", appId, shuffleId, dir, e);
+      closeOutput();
+    }
+  }
+
+  private void closeOutput() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close the metadata journal in {}", dir, e);
+      }
+      out = null;
+    }
+  }
+
+  private static void write(ShuffleMetadata metadata, DataOutputStream output) throws IOException {
+    for (Map.Entry<String, ShuffleMetadata.AppInfo> entry : metadata.getAppInfos().entrySet()) {
+      writeRecord(output, APP_INFO, entry.getKey(), -1, o -> writeAppInfo(o, entry.getValue()));
+    }
+    for (String appId : metadata.getAppIds()) {
+      for (Map.Entry<Integer, ShuffleMetadata.ShuffleInfo> entry : metadata.getShuffles(appId).entrySet()) {
+        int shuffleId = entry.getKey();
+        ShuffleMetadata.ShuffleInfo info = entry.getValue();
+        for (int startPartition : info.getStartPartitions()) {
+          writeRecord(output, PARTITION, appId, shuffleId, o -> o.writeInt(startPartition));
+        }
+        for (Map.Entry<Integer, Roaring64NavigableMap> blockIds : info.getFinishedBlockIds().entrySet()) {
+          writeRecord(output, FINISHED_BLOCK_IDS, appId, shuffleId, o -> {
+            o.writeInt(blockIds.getKey());
+            writeLongs(o, blockIds.getValue().toArray());
+          });
+        }
+        if (!info.getCommittedBlockIds().isEmpty()) {
+          writeRecord(output, COMMITTED_BLOCK_IDS, appId, shuffleId,
+              o -> writeLongs(o, info.getCommittedBlockIds().toArray()));
+        }
+      }
+    }
+  }
+
+  private static void writeRecord(
+      DataOutputStream output,
+      byte type,
+      String appId,
+      int shuffleId,
+      RecordWriter writer) throws IOException {
+    output.writeByte(type);
+    output.writeUTF(appId);
+    output.writeInt(shuffleId);
+    writer.write(output);
+  }
+
+  private static void writeAppInfo(DataOutputStream output, ShuffleMetadata.AppInfo appInfo) throws IOException {
+    output.writeUTF(StringUtils.defaultString(appInfo.getUser()));
+    output.writeUTF(appInfo.getDataDistributionType().name());
+    output.writeInt(appInfo.getMaxConcurrencyPerPartitionToWrite());
+  }
+
+  private static ShuffleMetadata.AppInfo readAppInfo(DataInputStream input) throws IOException {
+    String user = input.readUTF();
+    ShuffleDataDistributionType dataDistributionType = ShuffleDataDistributionType.valueOf(input.readUTF());
+    return new ShuffleMetadata.AppInfo(user, dataDistributionType, input.readInt());
+  }
+
+  private static void writeLongs(DataOutputStream output, long[] values) throws IOException {
+    output.writeInt(values.length);
+    for (long value : values) {
+      output.writeLong(value);
+    }
+  }
+
+  /**
+   * @return the length of the complete records in the file
+   */
+  private static long read(File file, ShuffleMetadata metadata) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    long validLength = 0;
+    CountingInputStream countingInput = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try (DataInputStream input = new DataInputStream(countingInput)) {
+      while (true) {
+        int type = input.read();
+        if (type < 0) {
+          return validLength;
+        }
+        String appId = input.readUTF();
+        int shuffleId = input.readInt();
+        switch (type) {
+          case PARTITION:
+            metadata.addPartition(appId, shuffleId, input.readInt());
+            break;
+          case FINISHED_BLOCK_IDS:
+            int partitionId = input.readInt();
+            metadata.addFinishedBlockIds(appId, shuffleId, partitionId, readLongs(input));
+            break;
+          case COMMITTED_BLOCK_IDS:
+            metadata.addCommittedBlockIds(appId, shuffleId, readLongs(input));
+            break;
+          case REMOVE_SHUFFLE:
+            metadata.removeShuffle(appId, shuffleId);
+            break;
+          case REMOVE_APP:
+            metadata.removeApp(appId);
+            break;
+          case APP_INFO:
+            metadata.setAppInfo(appId, readAppInfo(input));
+            break;
+          default:
+            LOG.warn("Unknown record type {} in {}, skip the rest of it", type, file);
+            return validLength;
+        }
+        validLength = countingInput.getCount();
+      }
+    } catch (EOFException e) {
+      // the last record is partially written when the process is killed
+      LOG.warn("Incomplete record at the end of {}", file);
+      return validLength;
+    }
+  }
+
+  private static long[] readLongs(DataInputStream input) throws IOException {
+    long[] values = new long[input.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = input.readLong();
+    }
+    return values;
+  }
+
+  private interface RecordWriter {
+    void write(DataOutputStream output) throws IOException;
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.uniffle.server.storage;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
@@ -32,6 +33,7 @@ import org.apache.uniffle.server.ShuffleServerConf;
 import org.apache.uniffle.server.ShuffleServerMetrics;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.common.StorageWriteMetrics;
+import org.apache.uniffle.storage.handler.api.AsyncShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 
 
@@ -53,9 +55,21 @@ public abstract class SingleStorageManager implements StorageManager {
 
   @Override
   public boolean write(Storage storage, ShuffleWriteHandler handler, ShuffleDataFlushEvent event) {
-    String shuffleKey = RssUtils.generateShuffleKey(event.getAppId(), event.getShuffleId());
-    storage.createMetadataIfNotExist(shuffleKey);
+    boolean success = writeOnce(storage, handler, event);
+    if (!success) {
+      waitBeforeRetry();
+    }
+    return success;
+  }
+
+  /**
+   * Write the event without waiting after a failure, the caller should call {@link #waitBeforeRetry()}
+   * before the event is written again.
+   */
+  protected boolean writeOnce(Storage storage, ShuffleWriteHandler handler, ShuffleDataFlushEvent event) {
     try {
+      String shuffleKey = RssUtils.generateShuffleKey(event.getAppId(), event.getShuffleId());
+      storage.createMetadataIfNotExist(shuffleKey);
       long startWrite = System.currentTimeMillis();
       handler.write(event.getShuffleBlocks());
       long writeTime = System.currentTimeMillis() - startWrite;
@@ -64,11 +78,41 @@ public abstract class SingleStorageManager implements StorageManager {
     } catch (Exception e) {
       LOG.warn("Exception happened when write data for " + event + ", try again", e);
       ShuffleServerMetrics.counterWriteException.inc();
-      Uninterruptibles.sleepUninterruptibly(1000, TimeUnit.MILLISECONDS);
     }
     return false;
   }
 
+  protected void waitBeforeRetry() {
+    Uninterruptibles.sleepUninterruptibly(1000, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> writeAsync(Storage storage, ShuffleWriteHandler handler,
+      ShuffleDataFlushEvent event) {
+    if (!(handler instanceof AsyncShuffleWriteHandler)) {
+      return CompletableFuture.completedFuture(write(storage, handler, event));
+    }
+    long startWrite = System.currentTimeMillis();
+    CompletableFuture<Void> future;
+    try {
+      String shuffleKey = RssUtils.generateShuffleKey(event.getAppId(), event.getShuffleId());
+      storage.createMetadataIfNotExist(shuffleKey);
+      future = ((AsyncShuffleWriteHandler) handler).writeAsync(event.getShuffleBlocks());
+    } catch (Exception e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    return future.handle((v, e) -> {
+      if (e != null) {
+        LOG.warn("Exception happened when write data for " + event + ", try again", e);
+        ShuffleServerMetrics.counterWriteException.inc();
+        return false;
+      }
+      updateWriteMetrics(event, System.currentTimeMillis() - startWrite);
+      return true;
+    });
+  }
+
   @Override
   public void updateWriteMetrics(ShuffleDataFlushEvent event, long writeTime) {
     // the metrics update shouldn't block normal process
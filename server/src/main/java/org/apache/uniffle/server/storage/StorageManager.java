@@ -19,12 +19,14 @@ package org.apache.uniffle.server.storage;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.uniffle.common.RemoteStorageInfo;
 import org.apache.uniffle.common.storage.StorageInfo;
 import org.apache.uniffle.server.Checker;
 import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
+import org.apache.uniffle.server.buffer.ShuffleBufferManager;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
@@ -37,6 +39,16 @@ public interface StorageManager {
 
   boolean write(Storage storage, ShuffleWriteHandler handler, ShuffleDataFlushEvent event);
 
+  /**
+   * Write the event without blocking the caller if the handler supports async write,
+   * otherwise it's written by the caller thread.
+   * @return the future of the result which is same as {@link #write}
+   */
+  default CompletableFuture<Boolean> writeAsync(Storage storage, ShuffleWriteHandler handler,
+      ShuffleDataFlushEvent event) {
+    return CompletableFuture.completedFuture(write(storage, handler, event));
+  }
+
   void updateWriteMetrics(ShuffleDataFlushEvent event, long writeTime);
 
   // todo: add an interface for updateReadMetrics
@@ -64,4 +76,37 @@ public interface StorageManager {
    * @return a map of storage mount point -> storage info.
    */
   Map<String, StorageInfo> getStorageInfo();
+
+  /**
+   * Record the info of the app registered by the client, so it can be recovered after the server restarts.
+   */
+  default void recordAppInfo(String appId, ShuffleMetadata.AppInfo appInfo) {
+  }
+
+  /**
+   * Record the finished blockIds of partitions, so they can be recovered after the server restarts.
+   */
+  default void recordFinishedBlockIds(String appId, int shuffleId, Map<Integer, long[]> partitionToBlockIds) {
+  }
+
+  /**
+   * Notify that all the data of the shuffle received before is flushed to the storages.
+   */
+  default void onShuffleCommitted(String appId, int shuffleId) {
+  }
+
+  /**
+   * Set the buffer manager whose read memory is used by the data cached in memory for reading.
+   */
+  default void setShuffleBufferManager(ShuffleBufferManager shuffleBufferManager) {
+  }
+
+  /**
+   * Recover the shuffle metadata recorded before the server restarted, the recovered data
+   * can be read from the storages afterwards.
+   * @return the recovered metadata, or null if the metadata isn't recorded
+   */
+  default ShuffleMetadata recoverShuffleMetadata() {
+    return null;
+  }
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server.storage.local;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.uniffle.common.util.JavaUtils;
+import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.storage.common.LocalStorage;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
+
+/**
+ * Chooses the storage by its load, which is estimated by the bytes being written, the observed
+ * flush latency, the media and the free space of the storage.
+ *
+ * <p>The partition is kept on the storage chosen by hashing over all the storages as long as its
+ * load is not much higher than the least loaded one, so the assignment of new partitions doesn't
+ * change when some storage becomes unwritable, and a busy storage only gives its new partitions
+ * to the others.
+ */
+public class LoadAwareLocalStorageSelector implements LocalStorageSelector {
+
+  private static final long MB = 1024L * 1024L;
+  private static final double LATENCY_DECAY = 0.2;
+  private static final double MIN_FREE_RATIO = 0.01;
+
+  private final double ssdWeight;
+  private final double hddWeight;
+  private final double tolerance;
+  private final long latencyHalfLife;
+  // base path -> load of the storage
+  private final Map<String, StorageLoad> loads = JavaUtils.newConcurrentMap();
+
+  public LoadAwareLocalStorageSelector(ShuffleServerConf conf) {
+    this.ssdWeight = conf.get(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_SSD_WEIGHT);
+    this.hddWeight = conf.get(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_HDD_WEIGHT);
+    this.tolerance = conf.get(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_TOLERANCE);
+    this.latencyHalfLife = conf.get(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_LATENCY_HALF_LIFE);
+  }
+
+  @Override
+  public LocalStorage select(List<LocalStorage> storages, String appId, int shuffleId, int partitionId) {
+    LocalStorage best = null;
+    double bestCost = Double.MAX_VALUE;
+    for (LocalStorage storage : storages) {
+      if (!isWritable(storage)) {
+        continue;
+      }
+      double cost = getCost(storage);
+      if (cost < bestCost) {
+        best = storage;
+        bestCost = cost;
+      }
+    }
+    if (best == null) {
+      return null;
+    }
+    LocalStorage preferred = storages.get(
+        ShuffleStorageUtils.getStorageIndex(storages.size(), appId, shuffleId, partitionId));
+    if (preferred != best && isWritable(preferred) && getCost(preferred) <= bestCost * tolerance) {
+      return preferred;
+    }
+    return best;
+  }
+
+  @Override
+  public void onWriteStart(LocalStorage storage, long size) {
+    getLoad(storage).inFlightBytes.addAndGet(size);
+  }
+
+  @Override
+  public void onWriteFinish(LocalStorage storage, long size, long writeTime, boolean success) {
+    StorageLoad load = getLoad(storage);
+    load.inFlightBytes.addAndGet(-size);
+    // the time of a failed write doesn't tell how fast the storage writes
+    if (success) {
+      load.updateLatency((double) writeTime * MB / Math.max(size, MB), System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * @return the estimated cost to write a partition to the storage, the lower the better
+   */
+  @VisibleForTesting
+  public double getCost(LocalStorage storage) {
+    StorageLoad load = getLoad(storage);
+    // the time to drain the data being written, assume at least 1MB is written and 1ms per MB
+    double drainTime = (double) (Math.max(load.inFlightBytes.get(), 0) + MB) / MB
+        * Math.max(load.getLatency(System.currentTimeMillis()), 1.0) / getMediaWeight(storage);
+    double freeRatio = 1.0;
+    if (storage.getCapacity() > 0) {
+      freeRatio = Math.max(1.0 - (double) storage.getDiskSize() / storage.getCapacity(), MIN_FREE_RATIO);
+    }
+    return drainTime / freeRatio;
+  }
+
+  private double getMediaWeight(LocalStorage storage) {
+    switch (storage.getStorageMedia()) {
+      case SSD:
+        return ssdWeight;
+      case HDD:
+      default:
+        return hddWeight;
+    }
+  }
+
+  private boolean isWritable(LocalStorage storage) {
+    return storage.canWrite() && !storage.isCorrupted();
+  }
+
+  private StorageLoad getLoad(LocalStorage storage) {
+    return loads.computeIfAbsent(storage.getBasePath(), key -> new StorageLoad(latencyHalfLife));
+  }
+
+  private static class StorageLoad {
+    private final AtomicLong inFlightBytes = new AtomicLong(0);
+    private final long latencyHalfLife;
+    // the exponentially weighted moving average of the milliseconds to write 1MB
+    private double latencyPerMb = 0;
+    private long latencyUpdateTime = 0;
+
+    StorageLoad(long latencyHalfLife) {
+      this.latencyHalfLife = latencyHalfLife;
+    }
+
+    synchronized void updateLatency(double sample, long now) {
+      double latency = getLatency(now);
+      latencyPerMb = latency == 0 ? sample : latency + LATENCY_DECAY * (sample - latency);
+      latencyUpdateTime = now;
+    }
+
+    /**
+     * The latency decays towards the baseline when no write finishes, so that a storage
+     * which got a slow sample isn't avoided forever.
+     */
+    synchronized double getLatency(long now) {
+      long elapsed = Math.max(now - latencyUpdateTime, 0);
+      return latencyPerMb * Math.pow(0.5, (double) elapsed / latencyHalfLife);
+    }
+  }
+}
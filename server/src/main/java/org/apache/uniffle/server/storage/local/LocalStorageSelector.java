@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server.storage.local;
+
+import java.util.List;
+
+import org.apache.uniffle.storage.common.LocalStorage;
+
+/**
+ * The strategy to choose the local storage for a partition which isn't assigned to any storage.
+ * The implementation must have a public constructor with {@code ShuffleServerConf} or without
+ * any argument.
+ */
+public interface LocalStorageSelector {
+
+  /**
+   * @param storages all the local storages of the shuffle server, the order is always the same
+   * @return a writable and not corrupted storage for the partition, or null if there is none
+   */
+  LocalStorage select(List<LocalStorage> storages, String appId, int shuffleId, int partitionId);
+
+  /**
+   * Called before the data of size is written to the storage.
+   */
+  default void onWriteStart(LocalStorage storage, long size) {
+  }
+
+  /**
+   * Called after the data of size is written to the storage, no matter it succeeds or not.
+   */
+  default void onWriteFinish(LocalStorage storage, long size, long writeTime, boolean success) {
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.storage.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.util.ThreadUtils;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+
+/**
+ * The trash of a local storage. The shuffle data to be deleted is renamed into the trash folder
+ * of the same disk, which is cheap no matter how big the data is, and deleted by a background
+ * thread later. The deletion is throttled by the bytes and the files deleted per second, so it
+ * won't stall the flushes and the reads on the same disk.
+ */
+public class LocalStorageTrash {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalStorageTrash.class);
+
+  public static final String TRASH_DIR = ".trash";
+
+  private final String basePath;
+  private final File trashDir;
+  private final long bytesPerSecond;
+  private final int filesPerSecond;
+  private final BlockingQueue<File> pendingFiles = new LinkedBlockingQueue<>();
+  private final AtomicLong trashedNum = new AtomicLong(0);
+  private final Gauge.Child backlogNumGauge;
+  private final Gauge.Child backlogSizeGauge;
+  private final Counter.Child reclaimedSizeCounter;
+  private final Counter.Child reclaimedFileNumCounter;
+  private ExecutorService cleaner;
+  private long nextDeleteTimeNanos = 0;
+
+  public LocalStorageTrash(String basePath, long bytesPerSecond, int filesPerSecond) {
+    this.basePath = basePath;
+    this.trashDir = new File(basePath, TRASH_DIR);
+    this.bytesPerSecond = bytesPerSecond;
+    this.filesPerSecond = filesPerSecond;
+    this.backlogNumGauge = ShuffleServerMetrics.getStorageTrashBacklogNumGauge(basePath);
+    this.backlogSizeGauge = ShuffleServerMetrics.getStorageTrashBacklogSizeGauge(basePath);
+    this.reclaimedSizeCounter = ShuffleServerMetrics.getStorageTrashReclaimedSizeCounter(basePath);
+    this.reclaimedFileNumCounter = ShuffleServerMetrics.getStorageTrashReclaimedFileNumCounter(basePath);
+  }
+
+  /**
+   * Start deleting the files in trash, including the ones left before the server restarted.
+   */
+  public synchronized void start() {
+    if (cleaner != null) {
+      return;
+    }
+    File[] leftFiles = trashDir.listFiles();
+    if (leftFiles != null) {
+      for (File file : leftFiles) {
+        addPendingFile(file);
+      }
+    }
+    cleaner = ThreadUtils.getDaemonSingleThreadExecutor("LocalStorageTrashCleaner-" + basePath);
+    cleaner.execute(this::cleanLoop);
+  }
+
+  public synchronized void stop() {
+    if (cleaner != null) {
+      cleaner.shutdownNow();
+      cleaner = null;
+    }
+  }
+
+  /**
+   * Move the file or folder into trash, it will be deleted in background.
+   *
+   * @return false if the path doesn't exist or it can't be moved
+   */
+  public boolean moveToTrash(String path) {
+    File file = new File(path);
+    if (!file.exists()) {
+      return false;
+    }
+    File trashedFile = new File(trashDir,
+        System.currentTimeMillis() + "_" + trashedNum.incrementAndGet() + "_" + file.getName());
+    try {
+      Files.createDirectories(trashDir.toPath());
+      Files.move(file.toPath(), trashedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Can't move {} to trash {}", path, trashDir, e);
+      return false;
+    }
+    addPendingFile(trashedFile);
+    return true;
+  }
+
+  private void addPendingFile(File file) {
+    backlogNumGauge.inc();
+    pendingFiles.add(file);
+  }
+
+  private void cleanLoop() {
+    while (!Thread.currentThread().isInterrupted()) {
+      File file;
+      try {
+        file = pendingFiles.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      long start = System.currentTimeMillis();
+      // the size is measured by the cleaner instead of the caller of moveToTrash, so moving to trash
+      // stays cheap no matter how many files there are. The backlog size covers the file being deleted
+      long size = 0;
+      try {
+        size = sizeOf(file.toPath());
+      } catch (IOException e) {
+        LOG.warn("Can't get the size of {} in trash", file, e);
+      }
+      backlogSizeGauge.inc(size);
+      AtomicLong backlogSize = new AtomicLong(size);
+      try {
+        delete(file.toPath(), backlogSize);
+        LOG.info("Delete {} with {} bytes from trash cost {} ms", file, size, System.currentTimeMillis() - start);
+      } catch (IOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+          // the left files will be deleted after restart
+          return;
+        }
+        LOG.warn("Can't delete {} from trash", file, e);
+      } finally {
+        backlogSizeGauge.dec(backlogSize.get());
+        backlogNumGauge.dec();
+      }
+    }
+  }
+
+  private long sizeOf(Path path) throws IOException {
+    AtomicLong size = new AtomicLong(0);
+    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        size.addAndGet(attrs.size());
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return size.get();
+  }
+
+  private void delete(Path path, AtomicLong backlogSize) throws IOException {
+    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        deleteIfExists(file);
+        backlogSize.addAndGet(-attrs.size());
+        backlogSizeGauge.dec(attrs.size());
+        reclaimedSizeCounter.inc(attrs.size());
+        reclaimedFileNumCounter.inc();
+        throttle(attrs.size());
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        if (exc != null) {
+          throw exc;
+        }
+        deleteIfExists(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void deleteIfExists(Path path) throws IOException {
+    try {
+      Files.delete(path);
+    } catch (NoSuchFileException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * Wait until the deleted bytes and files are within the budget, the budget isn't accumulated
+   * when the trash is idle, so the deletion never bursts.
+   */
+  private void throttle(long size) throws IOException {
+    long costNanos = Math.max(
+        TimeUnit.SECONDS.toNanos(1) / filesPerSecond,
+        (long) (size * (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond));
+    long now = System.nanoTime();
+    if (nextDeleteTimeNanos < now) {
+      nextDeleteTimeNanos = now;
+    }
+    long waitNanos = nextDeleteTimeNanos - now;
+    nextDeleteTimeNanos += costNanos;
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted when deleting files in trash " + trashDir, e);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int getPendingNum() {
+    return pendingFiles.size();
+  }
+}
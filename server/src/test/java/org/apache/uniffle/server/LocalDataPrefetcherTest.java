@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.server.buffer.ShuffleBufferManager;
+import org.apache.uniffle.storage.handler.impl.LocalFileServerReadHandler;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalDataPrefetcherTest {
+
+  private static final String APP_ID = "LocalDataPrefetcherTest";
+
+  private byte[] data;
+  private LocalFileServerReadHandler handler;
+  private LocalDataPrefetcher prefetcher;
+
+  @BeforeEach
+  public void prepare(@TempDir File tmpDir) throws Exception {
+    ShuffleServerMetrics.register();
+    File shuffleDir = new File(ShuffleStorageUtils.getFullShuffleDataFolder(tmpDir.getAbsolutePath(),
+        ShuffleStorageUtils.getShuffleDataPathWithRange(APP_ID, 1, 0, 1, 1)));
+    shuffleDir.mkdirs();
+    data = new byte[250];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    Files.write(new File(shuffleDir, "prefix.data").toPath(), data);
+    Files.write(new File(shuffleDir, "prefix.index").toPath(), new byte[0]);
+    handler = new LocalFileServerReadHandler(APP_ID, 1, 0, 1, 1, tmpDir.getAbsolutePath());
+
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.SERVER_BUFFER_CAPACITY, 1000L);
+    conf.set(ShuffleServerConf.SERVER_READ_BUFFER_CAPACITY, 1000L);
+    prefetcher = new LocalDataPrefetcher(conf, new ShuffleBufferManager(conf, null));
+  }
+
+  @AfterEach
+  public void clear() {
+    ShuffleServerMetrics.clear();
+  }
+
+  @Test
+  public void sequentialReadTest() {
+    assertArrayEquals(Arrays.copyOfRange(data, 0, 100), read(0, 100));
+    assertEquals(1, prefetcher.getPrefetchNum());
+    assertArrayEquals(Arrays.copyOfRange(data, 100, 200), read(100, 100));
+    // the last segment is shorter than the previous one
+    assertArrayEquals(Arrays.copyOfRange(data, 200, 250), read(200, 50));
+    assertEquals(0, prefetcher.getPrefetchNum());
+    assertEquals(2, (int) ShuffleServerMetrics.counterTotalLocalPrefetchHitNum.get());
+    assertEquals(1, (int) ShuffleServerMetrics.counterTotalLocalPrefetchMissNum.get());
+    assertEquals(0, (int) ShuffleServerMetrics.gaugeReadBufferUsedSize.get());
+  }
+
+  @Test
+  public void randomReadTest() {
+    assertArrayEquals(Arrays.copyOfRange(data, 0, 100), read(0, 100));
+    assertArrayEquals(Arrays.copyOfRange(data, 150, 200), read(150, 50));
+    // the segment prefetched after the first read is kept and hit
+    assertArrayEquals(Arrays.copyOfRange(data, 100, 140), read(100, 40));
+    assertEquals(1, (int) ShuffleServerMetrics.counterTotalLocalPrefetchHitNum.get());
+    assertEquals(2, (int) ShuffleServerMetrics.counterTotalLocalPrefetchMissNum.get());
+    assertEquals(2, prefetcher.getPrefetchNum());
+
+    // the discarded prefetches release their memory
+    prefetcher.removeResources(APP_ID);
+    assertEquals(0, prefetcher.getPrefetchNum());
+    await().until(() -> ShuffleServerMetrics.gaugeReadBufferUsedSize.get() == 0);
+  }
+
+  @Test
+  public void multipleReadersTest() {
+    // both readers read the same partition, the second one reads from the middle
+    assertArrayEquals(Arrays.copyOfRange(data, 0, 100), read(0, 100));
+    assertArrayEquals(Arrays.copyOfRange(data, 150, 200), read(150, 50));
+    // the segment prefetched for the first reader isn't taken by the second one
+    assertArrayEquals(Arrays.copyOfRange(data, 100, 200), read(100, 100));
+    assertArrayEquals(Arrays.copyOfRange(data, 200, 250), read(200, 50));
+    assertEquals(2, (int) ShuffleServerMetrics.counterTotalLocalPrefetchHitNum.get());
+    assertEquals(2, (int) ShuffleServerMetrics.counterTotalLocalPrefetchMissNum.get());
+  }
+
+  @Test
+  public void prefetchFailureTest() {
+    LocalFileServerReadHandler mockHandler = mock(LocalFileServerReadHandler.class);
+    when(mockHandler.getDataFileLength()).thenReturn(200L);
+    when(mockHandler.getShuffleData(0, 100)).thenReturn(new ShuffleDataResult(Arrays.copyOfRange(data, 0, 100)));
+    // the prefetch fails, and the reader reads the file by itself
+    when(mockHandler.getShuffleData(100, 100))
+        .thenThrow(new RssException("Prefetch failure"))
+        .thenReturn(new ShuffleDataResult(Arrays.copyOfRange(data, 100, 200)));
+    assertArrayEquals(Arrays.copyOfRange(data, 0, 100),
+        prefetcher.getShuffleData(APP_ID, 1, 0, mockHandler, 0, 100).getData());
+    assertArrayEquals(Arrays.copyOfRange(data, 100, 200),
+        prefetcher.getShuffleData(APP_ID, 1, 0, mockHandler, 100, 100).getData());
+    assertEquals(0, prefetcher.getPrefetchNum());
+    assertEquals(0, (int) ShuffleServerMetrics.gaugeReadBufferUsedSize.get());
+  }
+
+  private byte[] read(long offset, int length) {
+    return prefetcher.getShuffleData(APP_ID, 1, 0, handler, offset, length).getData();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.util.RssUtils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class PartitionBlockIdIndexTest {
+
+  @Test
+  public void getSerializedBlockIdsTest() throws Exception {
+    PartitionBlockIdIndex index = new PartitionBlockIdIndex();
+    index.addBlockIds(1, new long[]{1L, 2L});
+    index.addBlockIds(2, new long[]{3L});
+    index.addBlockIds(3, new long[]{4L, 5L});
+    assertEquals(3, index.getPartitionNum());
+
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L),
+        RssUtils.deserializeBitMap(index.getSerializedBlockIds(Sets.newHashSet(1))));
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L, 4L, 5L),
+        RssUtils.deserializeBitMap(index.getSerializedBlockIds(Sets.newHashSet(1, 3, 4))));
+    assertArrayEquals(RssUtils.serializeBitMap(Roaring64NavigableMap.bitmapOf()),
+        index.getSerializedBlockIds(Sets.newHashSet(4)));
+  }
+
+  @Test
+  public void serializedCacheTest() throws Exception {
+    PartitionBlockIdIndex index = new PartitionBlockIdIndex();
+    index.addBlockIds(1, new long[]{1L, 2L});
+    byte[] serialized = index.getSerializedBlockIds(Sets.newHashSet(1));
+    assertSame(serialized, index.getSerializedBlockIds(Sets.newHashSet(1)));
+
+    // the cache is invalidated by new blockIds of the partition only
+    index.addBlockIds(2, new long[]{3L});
+    assertSame(serialized, index.getSerializedBlockIds(Sets.newHashSet(1)));
+    index.addBlockIds(1, new long[]{4L});
+    byte[] newSerialized = index.getSerializedBlockIds(Sets.newHashSet(1));
+    assertNotSame(serialized, newSerialized);
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L, 4L), RssUtils.deserializeBitMap(newSerialized));
+
+    // the returned bitmap is a copy
+    index.getBlockIds(1).addLong(5L);
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L, 4L), index.getBlockIds(1));
+  }
+}
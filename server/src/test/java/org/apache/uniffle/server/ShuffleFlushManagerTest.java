@@ -24,6 +24,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -172,7 +174,8 @@ public class ShuffleFlushManagerTest extends HadoopTestBase {
       ShuffleDataFlushEvent event = createShuffleDataFlushEvent(appId, 1, 1, 1, null);
       manager.addToFlushQueue(event);
     });
-    waitForFlush(manager, appId, 1, 10 * 5);
+    // wait for all the events, otherwise the rest of them are still flushed in the following tests
+    waitForFlush(manager, appId, 1, 20 * 5);
 
     FileStatus[] fileStatuses = fs.listStatus(new Path(HDFS_URI + "/rss/test/" + appId + "/1/1-1"));
     long actual = Arrays.stream(fileStatuses).filter(x -> x.getPath().getName().endsWith("data")).count();
@@ -263,6 +266,57 @@ public class ShuffleFlushManagerTest extends HadoopTestBase {
     validateLocalMetadata(storageManager, 320L);
   }
 
+  @Test
+  public void asyncLocalWriteTest(@TempDir File tempDir) throws Exception {
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, Arrays.asList(tempDir.getAbsolutePath()));
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.MEMORY_LOCALFILE.name());
+    shuffleServerConf.set(ShuffleServerConf.SERVER_FLUSH_ASYNC_ENABLED, true);
+    shuffleServerConf.set(ShuffleServerConf.SERVER_FLUSH_ASYNC_THREAD_PER_DISK, 2);
+
+    String appId = "asyncLocalWriteTest_appId";
+    StorageManager storageManager =
+        StorageManagerFactory.getInstance().createStorageManager(shuffleServerConf);
+    ShuffleFlushManager manager =
+        new ShuffleFlushManager(shuffleServerConf, mockShuffleServer, storageManager);
+    for (int i = 0; i < 10; i++) {
+      manager.addToFlushQueue(createShuffleDataFlushEvent(appId, 1, i % 2, i % 2, null));
+    }
+    waitForFlush(manager, appId, 1, 50);
+    waitForQueueClear(manager);
+    validateLocalMetadata(storageManager, 1600L);
+    waitForMetrics(ShuffleServerMetrics.gaugeWriteHandler, 0, 0.5);
+    waitForMetrics(ShuffleServerMetrics.gaugeEventQueueSize, 0, 0.5);
+  }
+
+  @Test
+  public void storageFlushQueueTest(@TempDir File tempDir) throws Exception {
+    File dir1 = new File(tempDir, "dir1");
+    File dir2 = new File(tempDir, "dir2");
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH,
+        Arrays.asList(dir1.getAbsolutePath(), dir2.getAbsolutePath()));
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.MEMORY_LOCALFILE.name());
+    shuffleServerConf.set(ShuffleServerConf.SERVER_FLUSH_THREAD_POOL_SIZE, 2);
+
+    String appId = "storageFlushQueueTest_appId";
+    StorageManager storageManager =
+        StorageManagerFactory.getInstance().createStorageManager(shuffleServerConf);
+    ShuffleFlushManager manager =
+        new ShuffleFlushManager(shuffleServerConf, mockShuffleServer, storageManager);
+    for (int i = 0; i < 20; i++) {
+      manager.addToFlushQueue(createShuffleDataFlushEvent(appId, 1, i % 4, i % 4, null));
+    }
+    waitForFlush(manager, appId, 1, 100);
+    waitForQueueClear(manager);
+    long diskSize = 0;
+    for (LocalStorage storage : ((LocalStorageManager) storageManager).getStorages()) {
+      diskSize += storage.getDiskSize();
+    }
+    assertEquals(3200L, diskSize);
+    for (String path : Arrays.asList(dir1.getAbsolutePath(), dir2.getAbsolutePath())) {
+      assertEquals(0, ShuffleServerMetrics.getStorageFlushQueueSizeGauge(path).get());
+    }
+  }
+
   @Test
   public void complexWriteTest() throws Exception {
     shuffleServerConf.setString("rss.server.flush.handler.expired", "3");
@@ -425,9 +479,9 @@ public class ShuffleFlushManagerTest extends HadoopTestBase {
       }
       retry++;
       try {
-        assertEquals(0, gauge.get(), delta);
+        assertEquals(expected, gauge.get(), delta);
         match = true;
-      } catch (Exception e) {
+      } catch (AssertionError e) {
         // ignore
       }
     } while (!match);
@@ -582,6 +636,40 @@ public class ShuffleFlushManagerTest extends HadoopTestBase {
     assertEquals(1, event.getRetryTimes());
   }
 
+  @Test
+  public void flushTrackerOfRemovedResourcesTest(@TempDir File tempDir) throws Exception {
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, Arrays.asList(tempDir.getAbsolutePath()));
+    shuffleServerConf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.LOCALFILE.name());
+    String appId = "flushTrackerOfRemovedResourcesTest";
+    StorageManager storageManager = StorageManagerFactory.getInstance().createStorageManager(shuffleServerConf);
+    ShuffleFlushManager manager = new ShuffleFlushManager(shuffleServerConf, mockShuffleServer, storageManager);
+    AtomicBoolean shuffle1Registered = new AtomicBoolean(true);
+    AtomicBoolean shuffle2Registered = new AtomicBoolean(true);
+
+    manager.addToFlushQueue(createShuffleDataFlushEvent(appId, 1, 1, 1, shuffle1Registered::get));
+    manager.addToFlushQueue(createShuffleDataFlushEvent(appId, 2, 1, 1, shuffle2Registered::get));
+    assertTrue(manager.hasFlushTracker(appId, 1));
+    assertTrue(manager.hasFlushTracker(appId, 2));
+    manager.waitForFlushEvents(appId, 1).get(5, TimeUnit.SECONDS);
+
+    // the tracker of the removed shuffle is removed and never created again
+    shuffle1Registered.set(false);
+    manager.removeResourcesOfShuffleId(appId, Collections.singletonList(1));
+    assertFalse(manager.hasFlushTracker(appId, 1));
+    assertTrue(manager.hasFlushTracker(appId, 2));
+    manager.addToFlushQueue(createShuffleDataFlushEvent(appId, 1, 1, 1, shuffle1Registered::get));
+    assertTrue(manager.waitForFlushEvents(appId, 1).isDone());
+    assertFalse(manager.hasFlushTracker(appId, 1));
+
+    // the late calls after the app is removed don't create the trackers either
+    shuffle2Registered.set(false);
+    manager.removeResources(appId);
+    assertFalse(manager.hasFlushTracker(appId, 2));
+    manager.addToFlushQueue(createShuffleDataFlushEvent(appId, 2, 1, 1, shuffle2Registered::get));
+    assertTrue(manager.waitForFlushEvents(appId, 2).isDone());
+    assertFalse(manager.hasFlushTracker(appId, 2));
+  }
+
   @Test
   public void processPendingEventsTest(@TempDir File tempDir) throws Exception {
     shuffleServerConf.set(RssBaseConf.RSS_STORAGE_TYPE, StorageType.LOCALFILE.toString());
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.exception.RssException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShuffleFlushTrackerTest {
+
+  @Test
+  public void waitForEventsTest() {
+    ShuffleFlushTracker tracker = new ShuffleFlushTracker("app1", 1);
+    assertTrue(tracker.waitForEvents(10).isDone());
+
+    tracker.onEventStarted(1);
+    tracker.onEventStarted(5);
+    CompletableFuture<Void> future1 = tracker.waitForEvents(3);
+    final CompletableFuture<Void> future2 = tracker.waitForEvents(6);
+    // the event created after the waiter doesn't block it
+    tracker.onEventStarted(7);
+    assertFalse(future1.isDone());
+
+    tracker.onEventFinished(1, true);
+    assertTrue(future1.isDone());
+    assertFalse(future2.isDone());
+    // the unknown event is ignored
+    tracker.onEventFinished(2, false);
+    assertEquals(0, tracker.getFailedEventNum());
+    tracker.onEventFinished(5, true);
+    assertTrue(future2.isDone());
+    assertFalse(future2.isCompletedExceptionally());
+    assertEquals(1, tracker.getInFlightEventNum());
+  }
+
+  @Test
+  public void failedEventTest() {
+    ShuffleFlushTracker tracker = new ShuffleFlushTracker("app1", 1);
+    tracker.onEventStarted(1);
+    CompletableFuture<Void> future = tracker.waitForEvents(2);
+    tracker.onEventFinished(1, false);
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertTrue(e.getCause() instanceof RssException);
+    assertEquals(1, tracker.getFailedEventNum());
+
+    // the events failed before the waiter is created aren't reported to it
+    tracker.onEventStarted(3);
+    future = tracker.waitForEvents(4);
+    tracker.onEventFinished(3, true);
+    assertTrue(future.isDone());
+    assertFalse(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void cancelTest() {
+    ShuffleFlushTracker tracker = new ShuffleFlushTracker("app1", 1);
+    tracker.onEventStarted(1);
+    CompletableFuture<Void> future = tracker.waitForEvents(2);
+    assertEquals(1, tracker.getWaiterNum());
+    // the waiter is removed once it's cancelled, e.g. when the commit times out
+    future.cancel(false);
+    assertEquals(0, tracker.getWaiterNum());
+    tracker.onEventFinished(1, true);
+    assertEquals(0, tracker.getInFlightEventNum());
+  }
+
+  @Test
+  public void removeTest() {
+    ShuffleFlushTracker tracker = new ShuffleFlushTracker("app1", 1);
+    tracker.onEventStarted(1);
+    CompletableFuture<Void> future = tracker.waitForEvents(2);
+    tracker.remove();
+    assertTrue(future.isCompletedExceptionally());
+    assertTrue(tracker.waitForEvents(2).isCompletedExceptionally());
+  }
+}
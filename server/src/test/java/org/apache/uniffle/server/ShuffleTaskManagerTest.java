@@ -46,6 +46,7 @@ import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.apache.uniffle.common.BufferSegment;
 import org.apache.uniffle.common.PartitionRange;
 import org.apache.uniffle.common.RemoteStorageInfo;
+import org.apache.uniffle.common.ShuffleDataDistributionType;
 import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.ShufflePartitionedData;
@@ -57,6 +58,7 @@ import org.apache.uniffle.server.buffer.PreAllocatedBufferInfo;
 import org.apache.uniffle.server.buffer.ShuffleBuffer;
 import org.apache.uniffle.server.buffer.ShuffleBufferManager;
 import org.apache.uniffle.server.storage.LocalStorageManager;
+import org.apache.uniffle.server.storage.ShuffleMetadata;
 import org.apache.uniffle.server.storage.StorageManager;
 import org.apache.uniffle.storage.HadoopTestBase;
 import org.apache.uniffle.storage.common.LocalStorage;
@@ -374,13 +376,9 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
 
     // 2 new blocks should be committed
     waitForFlush(shuffleFlushManager, appId, shuffleId, 2 + 1 + 3 + 2 + 2);
+    // the commit waits for the flush events instead of the committed blockIds
     shuffleFlushManager.removeResources(appId);
-    try {
-      shuffleTaskManager.commitShuffle(appId, shuffleId);
-      fail("Exception should be thrown");
-    } catch (Exception e) {
-      assertTrue(e.getMessage().startsWith("Shuffle data commit timeout for"));
-    }
+    assertEquals(StatusCode.SUCCESS, shuffleTaskManager.commitShuffle(appId, shuffleId));
   }
 
   /**
@@ -687,88 +685,12 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
     assertEquals(0, (int) ShuffleServerMetrics.gaugeTotalPartitionNum.get());
   }
 
-  @Test
-  public void getBlockIdsByPartitionIdTest() {
-    ShuffleServerConf conf = new ShuffleServerConf();
-    ShuffleTaskManager shuffleTaskManager = new ShuffleTaskManager(
-        conf, null, null, null);
-
-    Roaring64NavigableMap expectedBlockIds = Roaring64NavigableMap.bitmapOf();
-    int expectedPartitionId = 5;
-    Roaring64NavigableMap bitmapBlockIds = Roaring64NavigableMap.bitmapOf();
-    for (int taskId = 1; taskId < 10; taskId++) {
-      for (int partitionId = 1; partitionId < 10; partitionId++) {
-        for (int i = 0; i < 2; i++) {
-          long blockId = getBlockId(partitionId, taskId, i);
-          bitmapBlockIds.addLong(blockId);
-          if (partitionId == expectedPartitionId) {
-            expectedBlockIds.addLong(blockId);
-          }
-        }
-      }
-    }
-    Roaring64NavigableMap resultBlockIds = shuffleTaskManager.getBlockIdsByPartitionId(
-        Sets.newHashSet(expectedPartitionId), bitmapBlockIds, Roaring64NavigableMap.bitmapOf());
-    assertEquals(expectedBlockIds, resultBlockIds);
-
-    bitmapBlockIds.addLong(getBlockId(0, 0, 0));
-    resultBlockIds = shuffleTaskManager.getBlockIdsByPartitionId(Sets.newHashSet(0), bitmapBlockIds,
-        Roaring64NavigableMap.bitmapOf());
-    assertEquals(Roaring64NavigableMap.bitmapOf(0L), resultBlockIds);
-
-    long expectedBlockId = getBlockId(
-        Constants.MAX_PARTITION_ID, Constants.MAX_TASK_ATTEMPT_ID, Constants.MAX_SEQUENCE_NO);
-    bitmapBlockIds.addLong(expectedBlockId);
-    resultBlockIds = shuffleTaskManager.getBlockIdsByPartitionId(Sets.newHashSet(Math.toIntExact(
-        Constants.MAX_PARTITION_ID)), bitmapBlockIds, Roaring64NavigableMap.bitmapOf());
-    assertEquals(Roaring64NavigableMap.bitmapOf(expectedBlockId), resultBlockIds);
-  }
-
-  @Test
-  public void getBlockIdsByMultiPartitionTest() {
-    ShuffleServerConf conf = new ShuffleServerConf();
-    ShuffleTaskManager shuffleTaskManager = new ShuffleTaskManager(
-        conf, null, null, null);
-
-    Roaring64NavigableMap expectedBlockIds = Roaring64NavigableMap.bitmapOf();
-    int startPartition = 3;
-    int endPartition = 5;
-    Roaring64NavigableMap bitmapBlockIds = Roaring64NavigableMap.bitmapOf();
-    for (int taskId = 1; taskId < 10; taskId++) {
-      for (int partitionId = 1; partitionId < 10; partitionId++) {
-        for (int i = 0; i < 2; i++) {
-          long blockId = getBlockId(partitionId, taskId, i);
-          bitmapBlockIds.addLong(blockId);
-          if (partitionId >= startPartition && partitionId <= endPartition) {
-            expectedBlockIds.addLong(blockId);
-          }
-        }
-      }
-    }
-    Set<Integer> requestPartitions = Sets.newHashSet();
-    Set<Integer> allPartitions = Sets.newHashSet();
-    for (int partitionId = 1; partitionId < 10; partitionId++) {
-      allPartitions.add(partitionId);
-      if (partitionId >= startPartition && partitionId <= endPartition) {
-        requestPartitions.add(partitionId);
-      }
-    }
-
-    Roaring64NavigableMap resultBlockIds =
-        shuffleTaskManager.getBlockIdsByPartitionId(requestPartitions, bitmapBlockIds,
-            Roaring64NavigableMap.bitmapOf());
-    assertEquals(expectedBlockIds, resultBlockIds);
-    assertEquals(bitmapBlockIds, shuffleTaskManager.getBlockIdsByPartitionId(allPartitions, bitmapBlockIds,
-        Roaring64NavigableMap.bitmapOf()));
-  }
-
   @Test
   public void testGetFinishedBlockIds() throws Exception {
     ShuffleServerConf conf = new ShuffleServerConf();
     String storageBasePath = HDFS_URI + "rss/test";
     String appId = "test_app";
     final int shuffleId = 1;
-    final int bitNum = 3;
     final int partitionNum = 10;
     final int taskNum = 10;
     final int blocksPerTask = 2;
@@ -821,7 +743,7 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
     assertEquals((endPartition - startPartition + 1) * taskNum *  blocksPerTask,
         expectedBlockIds.getLongCardinality());
 
-    shuffleTaskManager.addFinishedBlockIds(appId, shuffleId, blockIdsToReport, bitNum);
+    shuffleTaskManager.addFinishedBlockIds(appId, shuffleId, blockIdsToReport);
     Set<Integer> requestPartitions = Sets.newHashSet();
     for (int partitionId = startPartition; partitionId <= endPartition; partitionId++) {
       requestPartitions.add(partitionId);
@@ -833,13 +755,53 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
   }
 
 
+  @Test
+  public void testRecoverShuffleMetadata() throws Exception {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.RPC_SERVER_PORT, 1234);
+    conf.set(ShuffleServerConf.RSS_COORDINATOR_QUORUM, "localhost:9527");
+    conf.set(ShuffleServerConf.JETTY_HTTP_PORT, 12345);
+    conf.set(ShuffleServerConf.JETTY_CORE_POOL_SIZE, 64);
+    conf.set(ShuffleServerConf.SERVER_BUFFER_CAPACITY, 128L);
+    conf.set(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_HIGHWATERMARK_PERCENTAGE, 50.0);
+    conf.set(ShuffleServerConf.SERVER_MEMORY_SHUFFLE_LOWWATERMARK_PERCENTAGE, 0.0);
+    conf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, Arrays.asList(HDFS_URI + "rss/test"));
+    conf.set(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.HDFS.name());
+    conf.set(ShuffleServerConf.RSS_TEST_MODE_ENABLE, true);
+    conf.set(ShuffleServerConf.HEALTH_CHECK_ENABLE, false);
+
+    shuffleServer = new ShuffleServer(conf);
+    String appId = "testRecoverShuffleMetadata";
+    ShuffleMetadata metadata = new ShuffleMetadata();
+    metadata.addPartition(appId, 1, 0);
+    metadata.addFinishedBlockIds(appId, 1, 0, new long[]{1L, 2L});
+    metadata.addFinishedBlockIds(appId, 1, 1, new long[]{3L});
+    metadata.addCommittedBlockIds(appId, 1, new long[]{1L});
+    metadata.setAppInfo(appId, new ShuffleMetadata.AppInfo("user", ShuffleDataDistributionType.LOCAL_ORDER, 2));
+    // the app without info is recovered with the default specification
+    metadata.addPartition("appWithoutInfo", 1, 0);
+    ShuffleFlushManager shuffleFlushManager = shuffleServer.getShuffleFlushManager();
+    ShuffleTaskManager shuffleTaskManager = new ShuffleTaskManager(conf, shuffleFlushManager,
+        shuffleServer.getShuffleBufferManager(), shuffleServer.getStorageManager());
+    shuffleTaskManager.recoverShuffleMetadata(metadata);
+
+    ShuffleTaskInfo taskInfo = shuffleTaskManager.getShuffleTaskInfo(appId);
+    assertEquals("user", taskInfo.getUser());
+    assertEquals(ShuffleDataDistributionType.LOCAL_ORDER, taskInfo.getDataDistType());
+    assertEquals(2, taskInfo.getMaxConcurrencyPerPartitionToWrite());
+    assertEquals(ShuffleDataDistributionType.NORMAL,
+        shuffleTaskManager.getShuffleTaskInfo("appWithoutInfo").getDataDistType());
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L), RssUtils.deserializeBitMap(
+        shuffleTaskManager.getFinishedBlockIds(appId, 1, Sets.newHashSet(0))));
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L), shuffleFlushManager.getCommittedBlockIds(appId, 1));
+  }
+
   @Test
   public void testAddFinishedBlockIdsWithoutRegister() throws Exception {
     ShuffleServerConf conf = new ShuffleServerConf();
     String storageBasePath = HDFS_URI + "rss/test";
     String appId = "testAddFinishedBlockIdsToExpiredApp";
     final int shuffleId = 1;
-    final int bitNum = 3;
     conf.set(ShuffleServerConf.RPC_SERVER_PORT, 1234);
     conf.set(ShuffleServerConf.RSS_COORDINATOR_QUORUM, "localhost:9527");
     conf.set(ShuffleServerConf.JETTY_HTTP_PORT, 12345);
@@ -862,7 +824,7 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
         shuffleBufferManager, storageManager);
     Map<Integer, long[]>  blockIdsToReport = Maps.newHashMap();
     try {
-      shuffleTaskManager.addFinishedBlockIds(appId, shuffleId, blockIdsToReport, bitNum);
+      shuffleTaskManager.addFinishedBlockIds(appId, shuffleId, blockIdsToReport);
       fail("Exception should be thrown");
     } catch (RuntimeException e) {
       assertTrue(e.getMessage().equals("appId[" + appId + "] is expired!"));
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.uniffle.server.ShuffleFlushManagerTest.createShuffleDataFlushEvent;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageFlushQueueTest {
+
+  @BeforeEach
+  public void prepare() {
+    ShuffleServerMetrics.register();
+  }
+
+  @AfterEach
+  public void clear() {
+    ShuffleServerMetrics.clear();
+  }
+
+  @Test
+  public void workerBudgetTest() {
+    StorageFlushQueue queue = new StorageFlushQueue("/path", 2, 2);
+    ShuffleDataFlushEvent event1 = createShuffleDataFlushEvent("appId", 1, 1, 1, null);
+    ShuffleDataFlushEvent event2 = createShuffleDataFlushEvent("appId", 1, 2, 2, null);
+    queue.add(event1);
+    queue.add(event2);
+    assertEquals(2, queue.size());
+    assertEquals(2, ShuffleServerMetrics.getStorageFlushQueueSizeGauge("/path").get());
+
+    assertTrue(queue.tryAcquireWorker());
+    assertFalse(queue.isSaturated());
+    assertTrue(queue.tryAcquireWorker());
+    assertFalse(queue.tryAcquireWorker());
+    // no more worker can be started, the events can be stolen by others
+    assertTrue(queue.isSaturated());
+
+    assertSame(event1, queue.poll());
+    assertSame(event2, queue.poll());
+    assertNull(queue.poll());
+    assertFalse(queue.isSaturated());
+    assertEquals(0, ShuffleServerMetrics.getStorageFlushQueueSizeGauge("/path").get());
+
+    queue.releaseWorker();
+    assertTrue(queue.tryAcquireWorker());
+  }
+
+  @Test
+  public void helperBudgetTest() {
+    StorageFlushQueue queue = new StorageFlushQueue("/path", 2, 1);
+    ShuffleDataFlushEvent event1 = createShuffleDataFlushEvent("appId", 1, 1, 1, null);
+    ShuffleDataFlushEvent event2 = createShuffleDataFlushEvent("appId", 1, 2, 2, null);
+    queue.add(event1);
+    queue.add(event2);
+    assertTrue(queue.tryAcquireWorker());
+    assertTrue(queue.tryAcquireWorker());
+    assertTrue(queue.isSaturated());
+
+    // the helpers are limited by their own budget
+    assertTrue(queue.tryAcquireHelper());
+    assertFalse(queue.isSaturated());
+    assertFalse(queue.tryAcquireHelper());
+    queue.releaseHelper();
+    assertTrue(queue.isSaturated());
+
+    // the event which isn't polled by any worker can be removed
+    assertTrue(queue.remove(event2));
+    assertFalse(queue.remove(event2));
+    assertEquals(1, queue.size());
+    assertEquals(1, ShuffleServerMetrics.getStorageFlushQueueSizeGauge("/path").get());
+    assertTrue(queue.hasWorker());
+    queue.releaseWorker();
+    queue.releaseWorker();
+    assertFalse(queue.hasWorker());
+  }
+}
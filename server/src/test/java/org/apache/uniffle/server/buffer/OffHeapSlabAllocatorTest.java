@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.common.ShufflePartitionedData;
+import org.apache.uniffle.common.util.ByteBufUtils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapSlabAllocatorTest extends BufferTestBase {
+
+  @Test
+  public void allocateTest() {
+    OffHeapSlabAllocator allocator = new OffHeapSlabAllocator(200, 100);
+    // bigger than slab size
+    assertNull(allocator.allocate(101));
+
+    final ByteBuf buffer1 = allocator.allocate(60);
+    final ByteBuf buffer2 = allocator.allocate(40);
+    assertEquals(1, allocator.getUsedSlabNum());
+    final ByteBuf buffer3 = allocator.allocate(50);
+    assertEquals(2, allocator.getUsedSlabNum());
+    // no slab available
+    assertNull(allocator.allocate(60));
+    assertEquals(60, buffer1.capacity());
+    assertEquals(0, buffer1.writerIndex());
+    // the unallocated part of current slab
+    assertEquals(50, allocator.getPinnedSize());
+
+    // the first slab is recycled after all its buffers are released
+    buffer1.release();
+    assertEquals(2, allocator.getUsedSlabNum());
+    // the first slab is pinned by the live buffer
+    assertEquals(110, allocator.getPinnedSize());
+    buffer2.release();
+    assertEquals(1, allocator.getUsedSlabNum());
+    assertNotNull(allocator.allocate(60));
+    assertEquals(2, allocator.getUsedSlabNum());
+    assertEquals(2, allocator.getAllocatedSlabNum());
+    buffer3.release();
+    assertEquals(40, allocator.getPinnedSize());
+  }
+
+  @Test
+  public void copyToSlabsTest() {
+    OffHeapSlabAllocator allocator = new OffHeapSlabAllocator(100, 100);
+    ShufflePartitionedData spd1 = createData(40);
+    ShufflePartitionedData spd2 = createData(80);
+    ShufflePartitionedBlock block1 = spd1.getBlockList()[0];
+    ShufflePartitionedBlock block2 = spd2.getBlockList()[0];
+    byte[] expectedData1 = ByteBufUtils.readBytes(block1.getData());
+    final ByteBuf originalData2 = block2.getData();
+
+    allocator.copyToSlabs(spd1.getBlockList());
+    assertTrue(block1.getData().isDirect());
+    assertArrayEquals(expectedData1, ByteBufUtils.readBytes(block1.getData()));
+    // the slab is full, keep the original data
+    allocator.copyToSlabs(spd2.getBlockList());
+    assertSame(originalData2, block2.getData());
+
+    // the slab is reused after all its buffers are released
+    block1.getData().release();
+    allocator.copyToSlabs(spd2.getBlockList());
+    assertTrue(block2.getData().isDirect());
+    assertEquals(1, allocator.getAllocatedSlabNum());
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.server.ShuffleServerConf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PartitionFlushPolicyTest extends BufferTestBase {
+
+  @Test
+  public void pickFlushCandidatesTest() throws Exception {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.SERVER_BUFFER_FLUSH_POLICY_PARTITION_MIN_SIZE, 100L);
+    conf.set(ShuffleServerConf.SERVER_BUFFER_FLUSH_POLICY_PARTITION_MAX_AGE, 500L);
+    FlushPolicy policy = new PartitionFlushPolicy(conf);
+
+    final FlushCandidate oldSmall = createCandidate(1, 0, 10, false);
+    Thread.sleep(600);
+    FlushCandidate big = createCandidate(1, 1, 200, false);
+    FlushCandidate small = createCandidate(1, 2, 10, false);
+    FlushCandidate hugeSmall = createCandidate(2, 0, 20, true);
+    FlushCandidate medium = createCandidate(2, 1, 150, false);
+
+    // small and fresh buffer is kept in memory
+    List<FlushCandidate> picked = policy.pickFlushCandidates(Lists.<List<FlushCandidate>>newArrayList(
+        Lists.newArrayList(big, small, oldSmall), Lists.newArrayList(medium, hugeSmall)).iterator(), 1000);
+    assertEquals(Lists.newArrayList(big, medium, hugeSmall, oldSmall), picked);
+
+    // the biggest buffer is enough
+    picked = policy.pickFlushCandidates(Lists.<List<FlushCandidate>>newArrayList(
+        Lists.newArrayList(big, small, oldSmall), Lists.newArrayList(medium, hugeSmall)).iterator(), 150);
+    assertEquals(Lists.newArrayList(big), picked);
+
+    // small buffer is flushed if the others are not enough
+    picked = policy.pickFlushCandidates(Lists.<List<FlushCandidate>>newArrayList(
+        Lists.newArrayList(small)).iterator(), 10);
+    assertEquals(Lists.newArrayList(small), picked);
+  }
+
+  private FlushCandidate createCandidate(int shuffleId, int partitionId, int len, boolean hugePartition) {
+    ShuffleBuffer buffer = new ShuffleBuffer(1000);
+    buffer.append(createData(partitionId, len));
+    return new FlushCandidate("appId", shuffleId, partitionId, partitionId, buffer, hugePartition);
+  }
+}
@@ -20,9 +20,15 @@ package org.apache.uniffle.server.buffer;
 import java.io.File;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.RangeMap;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeEach;
@@ -638,6 +644,43 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> shuffleBufferManager.getUsedMemory() == 0);
   }
 
+  @Test
+  public void requireMemoryConcurrentlyTest() throws Exception {
+    int threadNum = 10;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadNum);
+    AtomicInteger successNum = new AtomicInteger(0);
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(executorService.submit(() -> {
+        for (int j = 0; j < 100; j++) {
+          if (shuffleBufferManager.requireMemory(1, true)) {
+            successNum.incrementAndGet();
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdownNow();
+    // capacity is 500, the reservation never exceeds it
+    assertEquals(500, successNum.get());
+    assertEquals(500, shuffleBufferManager.getUsedMemory());
+    assertEquals(500, shuffleBufferManager.getPreAllocatedSize());
+  }
+
+  @Test
+  public void requireReadMemoryTest() {
+    ShuffleServerConf serverConf = new ShuffleServerConf();
+    serverConf.set(ShuffleServerConf.SERVER_READ_BUFFER_CAPACITY, 100L);
+    shuffleBufferManager = new ShuffleBufferManager(serverConf, mockShuffleFlushManager);
+    assertTrue(shuffleBufferManager.requireReadMemory(60));
+    // not enough read memory, fail fast instead of waiting
+    assertFalse(shuffleBufferManager.requireReadMemory(60));
+    shuffleBufferManager.releaseReadMemory(60);
+    assertTrue(shuffleBufferManager.requireReadMemory(60));
+  }
+
   @Test
   public void bufferManagerInitTest() {
     ShuffleServerConf serverConf = new ShuffleServerConf();
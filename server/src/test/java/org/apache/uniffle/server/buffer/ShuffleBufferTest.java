@@ -595,6 +595,68 @@ public class ShuffleBufferTest extends BufferTestBase {
     assertArrayEquals(expectedData, sdr.getData());
   }
 
+  @Test
+  public void getShuffleDataWithManyBlocksTest() {
+    ShuffleBuffer shuffleBuffer = new ShuffleBuffer(100000);
+    List<ShufflePartitionedData> spds = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      ShufflePartitionedData spd = createData(10);
+      spds.add(spd);
+      shuffleBuffer.append(spd);
+      if (i == 599) {
+        shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+      }
+    }
+    assertEquals(400, shuffleBuffer.getBlocks().size());
+    assertEquals(600, shuffleBuffer.getInFlushBlockMap().values().iterator().next().size());
+
+    // read across chunks and from flushing blocks to cached blocks
+    long lastBlockId = spds.get(299).getBlockList()[0].getBlockId();
+    ShuffleDataResult sdr = shuffleBuffer.getShuffleData(lastBlockId, 500);
+    assertEquals(50, sdr.getBufferSegments().size());
+    assertEquals(spds.get(300).getBlockList()[0].getBlockId(), sdr.getBufferSegments().get(0).getBlockId());
+    lastBlockId = spds.get(579).getBlockList()[0].getBlockId();
+    sdr = shuffleBuffer.getShuffleData(lastBlockId, 500);
+    assertEquals(50, sdr.getBufferSegments().size());
+    assertArrayEquals(getExpectedData(spds.subList(580, 630).toArray(new ShufflePartitionedData[0])),
+        sdr.getData());
+
+    // read from the last block returns nothing
+    lastBlockId = spds.get(999).getBlockList()[0].getBlockId();
+    sdr = shuffleBuffer.getShuffleData(lastBlockId, 500);
+    assertEquals(0, sdr.getBufferSegments().size());
+  }
+
+  @Test
+  public void getShuffleDataWithReleasedBlocksTest() {
+    ShuffleBuffer shuffleBuffer = new ShuffleBuffer(100000);
+    ShufflePartitionedData spd1 = createData(10);
+    ShufflePartitionedData spd2 = createData(10);
+    shuffleBuffer.append(spd1);
+    final ShuffleDataFlushEvent event = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    shuffleBuffer.append(spd2);
+    ShufflePartitionedBlock flushBlock = spd1.getBlockList()[0];
+
+    // the data read before the cleanup of flush event holds a reference of block
+    ShuffleDataResult sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 100);
+    assertEquals(2, sdr.getBufferSegments().size());
+    assertEquals(2, flushBlock.getData().refCnt());
+    event.doCleanup();
+    assertEquals(1, flushBlock.getData().refCnt());
+    assertArrayEquals(getExpectedData(spd1, spd2), sdr.getData());
+    sdr.getManagedBuffer().release();
+    assertEquals(0, flushBlock.getData().refCnt());
+
+    // the released blocks can't be found by later reads
+    sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 100);
+    assertEquals(1, sdr.getBufferSegments().size());
+    assertArrayEquals(getExpectedData(spd2), sdr.getData());
+    sdr.getManagedBuffer().release();
+    shuffleBuffer.release();
+    assertEquals(0, spd2.getBlockList()[0].getData().refCnt());
+    assertTrue(shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 100).isEmpty());
+  }
+
   private byte[] getExpectedData(ShufflePartitionedData... spds) {
     int size = 0;
     for (ShufflePartitionedData spd : spds) {
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShuffleSizeIndexTest {
+
+  @Test
+  public void descendingIteratorTest() {
+    ShuffleSizeIndex index = new ShuffleSizeIndex();
+    ShuffleSizeIndex.ShuffleSize size1 = new ShuffleSizeIndex.ShuffleSize("app1", 1);
+    ShuffleSizeIndex.ShuffleSize size2 = new ShuffleSizeIndex.ShuffleSize("app1", 2);
+    ShuffleSizeIndex.ShuffleSize size3 = new ShuffleSizeIndex.ShuffleSize("app2", 1);
+    ShuffleSizeIndex.ShuffleSize size4 = new ShuffleSizeIndex.ShuffleSize("app2", 2);
+    index.update(size1, 100);
+    index.update(size2, 1000);
+    index.update(size3, 120);
+    index.update(size4, 10);
+    assertEquals(Lists.newArrayList(size2, size3, size1, size4), toList(index));
+
+    // move to lower bucket and empty shuffle is skipped
+    index.update(size2, -950);
+    index.update(size4, -10);
+    assertEquals(Lists.newArrayList(size3, size1, size2), toList(index));
+
+    index.remove(size3);
+    index.update(size3, 10000);
+    assertEquals(Lists.newArrayList(size1, size2), toList(index));
+  }
+
+  private List<ShuffleSizeIndex.ShuffleSize> toList(ShuffleSizeIndex index) {
+    return Lists.newArrayList(index.descendingIterator());
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.netty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.netty.client.TransportClient;
+import org.apache.uniffle.common.netty.handle.TransportResponseHandler;
+import org.apache.uniffle.common.netty.protocol.GetMemoryShuffleDataRequest;
+import org.apache.uniffle.common.netty.protocol.GetMemoryShuffleDataResponse;
+import org.apache.uniffle.common.netty.protocol.RpcResponse;
+import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequest;
+import org.apache.uniffle.common.rpc.StatusCode;
+import org.apache.uniffle.server.ShuffleFlushManager;
+import org.apache.uniffle.server.ShuffleServer;
+import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.server.ShuffleTaskManager;
+import org.apache.uniffle.server.buffer.PreAllocatedBufferInfo;
+import org.apache.uniffle.server.buffer.ShuffleBufferManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShuffleServerNettyHandlerTest {
+
+  private ShuffleServer mockShuffleServer;
+  private ShuffleTaskManager mockShuffleTaskManager;
+  private ShuffleBufferManager shuffleBufferManager;
+  private ThreadPoolExecutor executor;
+  private CountDownLatch blocker;
+
+  @BeforeAll
+  public static void setup() {
+    ShuffleServerMetrics.register();
+  }
+
+  @AfterAll
+  public static void clear() {
+    ShuffleServerMetrics.clear();
+  }
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.SERVER_BUFFER_CAPACITY, 500L);
+    shuffleBufferManager = new ShuffleBufferManager(conf, mock(ShuffleFlushManager.class));
+    mockShuffleTaskManager = mock(ShuffleTaskManager.class);
+    mockShuffleServer = mock(ShuffleServer.class);
+    when(mockShuffleServer.getShuffleServerConf()).thenReturn(conf);
+    when(mockShuffleServer.getShuffleTaskManager()).thenReturn(mockShuffleTaskManager);
+    when(mockShuffleServer.getShuffleBufferManager()).thenReturn(shuffleBufferManager);
+
+    // one running task blocks the only thread and another one fills the queue,
+    // so that any further request is rejected by the executor
+    executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+    blocker = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    executor.execute(() -> {
+      started.countDown();
+      try {
+        blocker.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    started.await();
+    executor.execute(() -> { });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    blocker.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void rejectSendShuffleDataTest() {
+    assertTrue(shuffleBufferManager.requireMemory(100, true));
+    when(mockShuffleTaskManager.getAndRemovePreAllocatedBuffer(1L))
+        .thenReturn(new PreAllocatedBufferInfo(1L, System.currentTimeMillis(), 100));
+    ByteBuf data = Unpooled.buffer(100).writeBytes(new byte[100]);
+    Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks = Maps.newHashMap();
+    partitionToBlocks.put(0, Lists.newArrayList(
+        new ShuffleBlockInfo(0, 0, 1L, 100, 0L, data, Lists.newArrayList(), 100, 0L, 0L)));
+    SendShuffleDataRequest request = new SendShuffleDataRequest(
+        10L, "rejectSendShuffleDataTest", 0, 1L, partitionToBlocks, System.currentTimeMillis());
+    EmbeddedChannel channel = new EmbeddedChannel();
+    ShuffleServerNettyHandler handler = new ShuffleServerNettyHandler(mockShuffleServer, executor);
+    final double rejectedNum = ShuffleServerMetrics.counterTotalNettyRequestRejectedNum.get();
+
+    handler.receive(new TransportClient(channel, mock(TransportResponseHandler.class)), request);
+
+    RpcResponse response = channel.readOutbound();
+    assertEquals(10L, response.getRequestId());
+    assertEquals(StatusCode.NO_BUFFER, response.getStatusCode());
+    // the pre-allocated memory and the data of the rejected request are released
+    assertEquals(0, shuffleBufferManager.getUsedMemory());
+    assertEquals(0, shuffleBufferManager.getPreAllocatedSize());
+    assertEquals(0, data.refCnt());
+    assertEquals(rejectedNum + 1, ShuffleServerMetrics.counterTotalNettyRequestRejectedNum.get());
+  }
+
+  @Test
+  public void rejectGetMemoryShuffleDataTest() {
+    GetMemoryShuffleDataRequest request = new GetMemoryShuffleDataRequest(11L, "rejectGetMemoryShuffleDataTest",
+        0, 0, -1L, 100, System.currentTimeMillis(), Roaring64NavigableMap.bitmapOf());
+    EmbeddedChannel channel = new EmbeddedChannel();
+    ShuffleServerNettyHandler handler = new ShuffleServerNettyHandler(mockShuffleServer, executor);
+
+    handler.receive(new TransportClient(channel, mock(TransportResponseHandler.class)), request);
+
+    GetMemoryShuffleDataResponse response = channel.readOutbound();
+    assertEquals(11L, response.getRequestId());
+    assertEquals(StatusCode.NO_BUFFER, response.getStatusCode());
+    assertEquals(0, shuffleBufferManager.getUsedMemory());
+  }
+}
@@ -36,8 +36,10 @@ import org.apache.uniffle.storage.common.HadoopStorage;
 import org.apache.uniffle.storage.util.StorageType;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HadoopStorageManagerTest {
 
@@ -76,6 +78,31 @@ public class HadoopStorageManagerTest {
     assertEquals(0, appStorageMap.size());
   }
 
+  @Test
+  public void testCompactOnceAfterLastCommit() {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.setString(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.MEMORY_LOCALFILE_HDFS.name());
+    conf.set(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_ENABLED, true);
+    conf.set(ShuffleServerConf.REMOTE_STORAGE_COMPACTION_DELAY, 60 * 1000L);
+    HadoopStorageManager hadoopStorageManager = new HadoopStorageManager(conf);
+    String appId = "testCompactOnceAfterLastCommit_appId";
+    hadoopStorageManager.registerRemoteStorage(appId, new RemoteStorageInfo("hdfs://path1", Maps.newHashMap()));
+
+    // the compaction is rescheduled by every commit of the shuffle
+    hadoopStorageManager.onShuffleCommitted(appId, 1);
+    hadoopStorageManager.onShuffleCommitted(appId, 1);
+    hadoopStorageManager.onShuffleCommitted(appId, 2);
+    assertTrue(hadoopStorageManager.hasPendingCompaction(appId, 1));
+    assertTrue(hadoopStorageManager.hasPendingCompaction(appId, 2));
+
+    hadoopStorageManager.removeResources(new ShufflePurgeEvent(appId, "", Arrays.asList(1)));
+    assertFalse(hadoopStorageManager.hasPendingCompaction(appId, 1));
+    assertTrue(hadoopStorageManager.hasPendingCompaction(appId, 2));
+    hadoopStorageManager.removeResources(new AppPurgeEvent(appId, ""));
+    assertFalse(hadoopStorageManager.hasPendingCompaction(appId, 2));
+    hadoopStorageManager.stop();
+  }
+
   @Test
   public void testRegisterRemoteStorage() {
     ShuffleServerConf conf = new ShuffleServerConf();
@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,8 +32,12 @@ import org.apache.commons.lang3.SystemUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
+import org.apache.uniffle.common.ShuffleDataDistributionType;
 import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.storage.StorageInfo;
 import org.apache.uniffle.common.storage.StorageMedia;
 import org.apache.uniffle.common.storage.StorageStatus;
@@ -40,15 +45,23 @@ import org.apache.uniffle.server.ShuffleDataFlushEvent;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
 import org.apache.uniffle.server.ShuffleServerConf;
 import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.server.storage.local.LoadAwareLocalStorageSelector;
 import org.apache.uniffle.storage.common.LocalStorage;
 import org.apache.uniffle.storage.common.Storage;
+import org.apache.uniffle.storage.handler.api.AsyncShuffleWriteHandler;
+import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.util.StorageType;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 import static uk.org.webcompere.systemstubs.SystemStubs.withEnvironmentVariables;
@@ -108,6 +121,48 @@ public class LocalStorageManagerTest {
     assertNotEquals(storage1, storage2);
   }
 
+  @Test
+  public void testRecoverShuffleMetadata(@TempDir File tmpDir) throws Exception {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH,
+        Arrays.asList(new File(tmpDir, "data1").getAbsolutePath(), new File(tmpDir, "data2").getAbsolutePath()));
+    conf.setString(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.LOCALFILE.name());
+    conf.set(ShuffleServerConf.LOCAL_STORAGE_METADATA_JOURNAL_ENABLED, true);
+    LocalStorageManager localStorageManager = new LocalStorageManager(conf);
+    String appId = "testRecoverShuffleMetadata";
+    LocalStorage storage = (LocalStorage) localStorageManager.selectStorage(toDataFlushEvent(appId, 1, 1));
+    File dataFile = new File(storage.getBasePath(), appId + "/1/1-1/test.data");
+    assertTrue(dataFile.getParentFile().mkdirs());
+    Files.write(dataFile.toPath(), new byte[10]);
+    Map<Integer, long[]> partitionToBlockIds = new HashMap<>();
+    partitionToBlockIds.put(1, new long[]{1L, 2L});
+    localStorageManager.recordFinishedBlockIds(appId, 1, partitionToBlockIds);
+    localStorageManager.recordAppInfo(
+        appId, new ShuffleMetadata.AppInfo("user", ShuffleDataDistributionType.LOCAL_ORDER, 2));
+    localStorageManager.stop();
+    // the data of the shuffle and the app which aren't recorded can't be recovered
+    File unrecoveredShuffle = new File(storage.getBasePath(), appId + "/2/1-1");
+    assertTrue(unrecoveredShuffle.mkdirs());
+    File unrecoveredApp = new File(storage.getBasePath(), "unrecoveredApp/1/1-1");
+    assertTrue(unrecoveredApp.mkdirs());
+
+    // the data is kept after restarting and the partition is read from the same storage
+    localStorageManager = new LocalStorageManager(conf);
+    final ShuffleMetadata metadata = localStorageManager.recoverShuffleMetadata();
+    assertTrue(dataFile.exists());
+    assertFalse(unrecoveredShuffle.getParentFile().exists());
+    assertFalse(unrecoveredApp.getParentFile().getParentFile().exists());
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L),
+        metadata.getShuffles(appId).get(1).getFinishedBlockIds().get(1));
+    assertEquals("user", metadata.getAppInfo(appId).getUser());
+    assertEquals(ShuffleDataDistributionType.LOCAL_ORDER, metadata.getAppInfo(appId).getDataDistributionType());
+    LocalStorage recoveredStorage =
+        (LocalStorage) localStorageManager.selectStorage(new ShuffleDataReadEvent(appId, 1, 1, 1));
+    assertEquals(storage.getBasePath(), recoveredStorage.getBasePath());
+    assertEquals(10, recoveredStorage.getDiskSize());
+    localStorageManager.stop();
+  }
+
   @Test
   public void testStorageSelection() {
     String[] storagePaths = {"/tmp/rss-data1", "/tmp/rss-data2", "/tmp/rss-data3"};
@@ -167,6 +222,32 @@ public class LocalStorageManagerTest {
     assertNull(localStorageManager.selectStorage(dataFlushEvent3));
   }
 
+  @Test
+  public void testStorageLoadAfterFailedWrite(@TempDir File tmpDir) throws Exception {
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.RSS_STORAGE_BASE_PATH, Arrays.asList(tmpDir.getAbsolutePath()));
+    conf.setString(ShuffleServerConf.RSS_STORAGE_TYPE, StorageType.LOCALFILE.name());
+    conf.set(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_CLASS, LoadAwareLocalStorageSelector.class.getName());
+    LocalStorageManager localStorageManager = new LocalStorageManager(conf);
+    LoadAwareLocalStorageSelector selector = (LoadAwareLocalStorageSelector) localStorageManager.getStorageSelector();
+    LocalStorage storage = localStorageManager.getStorages().get(0);
+    double cost = selector.getCost(storage);
+
+    ShuffleDataFlushEvent event = new ShuffleDataFlushEvent(
+        1, "testStorageLoadAfterFailedWrite", 1, 1, 1, 64L * 1024 * 1024, new ArrayList<>(), null, null);
+    ShuffleWriteHandler handler = mock(ShuffleWriteHandler.class);
+    doThrow(new IOException("write failure")).when(handler).write(any());
+    assertFalse(localStorageManager.write(storage, handler, event));
+    // the bytes of the failed write aren't in flight any more, and the wait before retry isn't the latency
+    assertEquals(cost, selector.getCost(storage), 0.001);
+
+    AsyncShuffleWriteHandler asyncHandler = mock(AsyncShuffleWriteHandler.class);
+    when(asyncHandler.writeAsync(any())).thenThrow(new RssException("write failure"));
+    assertFalse(localStorageManager.writeAsync(storage, asyncHandler, event).get());
+    assertEquals(cost, selector.getCost(storage), 0.001);
+    localStorageManager.stop();
+  }
+
   @Test
   public void testInitLocalStorageManager() {
     String[] storagePaths = {"/tmp/rssdata", "/tmp/rssdata2"};
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShuffleMetadataJournalTest {
+
+  @Test
+  public void replayTest(@TempDir File tmpDir) throws Exception {
+    ShuffleMetadataJournal journal = new ShuffleMetadataJournal(tmpDir.getAbsolutePath());
+    journal.appendPartition("app1", 1, 0);
+    journal.appendPartition("app1", 1, 2);
+    journal.appendFinishedBlockIds("app1", 1, 0, new long[]{1L, 2L});
+    journal.appendFinishedBlockIds("app1", 1, 0, new long[]{3L});
+    journal.appendCommittedBlockIds("app1", 1, new long[]{1L, 3L});
+    journal.appendPartition("app1", 2, 0);
+    journal.appendPartition("app2", 1, 0);
+    journal.appendRemoveShuffle("app1", 2);
+    journal.appendRemoveApp("app2");
+    journal.close();
+
+    ShuffleMetadata metadata = new ShuffleMetadataJournal(tmpDir.getAbsolutePath()).replay();
+    assertEquals(Sets.newHashSet("app1"), metadata.getAppIds());
+    assertEquals(Sets.newHashSet(1), metadata.getShuffles("app1").keySet());
+    ShuffleMetadata.ShuffleInfo info = metadata.getShuffles("app1").get(1);
+    assertEquals(Sets.newHashSet(0, 2), info.getStartPartitions());
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 2L, 3L), info.getFinishedBlockIds().get(0));
+    assertEquals(Roaring64NavigableMap.bitmapOf(1L, 3L), info.getCommittedBlockIds());
+  }
+
+  @Test
+  public void incompleteRecordTest(@TempDir File tmpDir) throws Exception {
+    ShuffleMetadataJournal journal = new ShuffleMetadataJournal(tmpDir.getAbsolutePath());
+    journal.appendPartition("app1", 1, 0);
+    journal.close();
+    // the process is killed when writing the record
+    try (FileOutputStream output = new FileOutputStream(new File(journal.getDir(), "journal"), true)) {
+      output.write(new byte[]{2, 0});
+    }
+
+    journal = new ShuffleMetadataJournal(tmpDir.getAbsolutePath());
+    assertEquals(Sets.newHashSet(0), journal.replay().getShuffles("app1").get(1).getStartPartitions());
+    // the records appended after the incomplete one can be read
+    journal.appendPartition("app1", 1, 1);
+    journal.close();
+    ShuffleMetadata metadata = new ShuffleMetadataJournal(tmpDir.getAbsolutePath()).replay();
+    assertEquals(Sets.newHashSet(0, 1), metadata.getShuffles("app1").get(1).getStartPartitions());
+  }
+
+  @Test
+  public void compactTest(@TempDir File tmpDir) throws Exception {
+    ShuffleMetadataJournal journal = new ShuffleMetadataJournal(tmpDir.getAbsolutePath());
+    journal.appendPartition("app1", 1, 0);
+    journal.appendFinishedBlockIds("app1", 1, 0, new long[]{1L, 2L});
+    journal.appendAppInfo("app1", new ShuffleMetadata.AppInfo("user", ShuffleDataDistributionType.LOCAL_ORDER, 2));
+    journal.appendPartition("app2", 1, 0);
+    journal.appendAppInfo("app2", new ShuffleMetadata.AppInfo("user", ShuffleDataDistributionType.NORMAL, 1));
+    journal.appendRemoveApp("app2");
+    journal.compact();
+    assertTrue(new File(journal.getDir(), "snapshot").exists());
+    assertFalse(new File(journal.getDir(), "journal").exists());
+
+    // the records appended after compaction are replayed after the snapshot
+    journal.appendFinishedBlockIds("app1", 1, 0, new long[]{3L});
+    journal.appendCommittedBlockIds("app1", 1, new long[]{1L});
+    journal.compact();
+    journal.appendRemoveShuffle("app1", 1);
+    journal.appendPartition("app1", 2, 0);
+    journal.close();
+
+    ShuffleMetadata metadata = new ShuffleMetadataJournal(tmpDir.getAbsolutePath()).replay();
+    assertEquals(Sets.newHashSet("app1"), metadata.getAppIds());
+    assertEquals(Sets.newHashSet(2), metadata.getShuffles("app1").keySet());
+    assertEquals("user", metadata.getAppInfo("app1").getUser());
+    assertEquals(ShuffleDataDistributionType.LOCAL_ORDER, metadata.getAppInfo("app1").getDataDistributionType());
+    assertEquals(2, metadata.getAppInfo("app1").getMaxConcurrencyPerPartitionToWrite());
+    assertNull(metadata.getAppInfo("app2"));
+
+    journal = new ShuffleMetadataJournal(tmpDir.getAbsolutePath());
+    journal.appendPartition("app1", 1, 0);
+    journal.appendFinishedBlockIds("app1", 1, 0, new long[]{4L});
+    journal.close();
+    metadata = journal.replay();
+    assertEquals(Roaring64NavigableMap.bitmapOf(4L), metadata.getShuffles("app1").get(1).getFinishedBlockIds().get(0));
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.server.storage.local;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.uniffle.common.storage.StorageMedia;
+import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.storage.common.LocalStorage;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadAwareLocalStorageSelectorTest {
+
+  private static final long MB = 1024L * 1024L;
+
+  @Test
+  public void selectTest(@TempDir File tmpDir) {
+    List<LocalStorage> storages = Lists.newArrayList(
+        createStorage(tmpDir, "d1", StorageMedia.HDD),
+        createStorage(tmpDir, "d2", StorageMedia.HDD),
+        createStorage(tmpDir, "d3", StorageMedia.HDD));
+    LoadAwareLocalStorageSelector selector = new LoadAwareLocalStorageSelector(new ShuffleServerConf());
+    String appId = "selectTest";
+    LocalStorage preferred = storages.get(ShuffleStorageUtils.getStorageIndex(storages.size(), appId, 1, 1));
+    assertEquals(preferred, selector.select(storages, appId, 1, 1));
+
+    // the partition isn't moved if other storages become unwritable
+    for (LocalStorage storage : storages) {
+      if (storage != preferred) {
+        storage.markCorrupted();
+        assertEquals(preferred, selector.select(storages, appId, 1, 1));
+      }
+    }
+    assertEquals(preferred, selector.select(storages, appId, 1, 1));
+    preferred.markCorrupted();
+    assertNull(selector.select(storages, appId, 1, 1));
+  }
+
+  @Test
+  public void loadTest(@TempDir File tmpDir) {
+    LocalStorage storage1 = createStorage(tmpDir, "d1", StorageMedia.HDD);
+    LocalStorage storage2 = createStorage(tmpDir, "d2", StorageMedia.HDD);
+    List<LocalStorage> storages = Lists.newArrayList(storage1, storage2);
+    LoadAwareLocalStorageSelector selector = new LoadAwareLocalStorageSelector(new ShuffleServerConf());
+    String appId = "loadTest";
+    LocalStorage preferred = storages.get(ShuffleStorageUtils.getStorageIndex(storages.size(), appId, 1, 1));
+    LocalStorage other = preferred == storage1 ? storage2 : storage1;
+
+    // the busy storage gives the new partition to the idle one
+    selector.onWriteStart(preferred, 10 * MB);
+    assertEquals(other, selector.select(storages, appId, 1, 1));
+    selector.onWriteFinish(preferred, 10 * MB, 10, true);
+    assertEquals(preferred, selector.select(storages, appId, 1, 1));
+
+    // the slow storage gives the new partition to the fast one
+    selector.onWriteStart(preferred, 10 * MB);
+    selector.onWriteFinish(preferred, 10 * MB, 1000, true);
+    selector.onWriteStart(other, 10 * MB);
+    selector.onWriteFinish(other, 10 * MB, 100, true);
+    assertTrue(selector.getCost(preferred) > selector.getCost(other));
+    assertEquals(other, selector.select(storages, appId, 1, 1));
+  }
+
+  @Test
+  public void latencyTest(@TempDir File tmpDir) {
+    LocalStorage storage1 = createStorage(tmpDir, "d1", StorageMedia.HDD);
+    LocalStorage storage2 = createStorage(tmpDir, "d2", StorageMedia.HDD);
+    List<LocalStorage> storages = Lists.newArrayList(storage1, storage2);
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(ShuffleServerConf.LOCAL_STORAGE_SELECTOR_LATENCY_HALF_LIFE, 100L);
+    LoadAwareLocalStorageSelector selector = new LoadAwareLocalStorageSelector(conf);
+    String appId = "latencyTest";
+    LocalStorage preferred = storages.get(ShuffleStorageUtils.getStorageIndex(storages.size(), appId, 1, 1));
+    final LocalStorage other = preferred == storage1 ? storage2 : storage1;
+
+    // the time of the failed write isn't taken as the latency
+    double cost = selector.getCost(preferred);
+    selector.onWriteStart(preferred, 10 * MB);
+    selector.onWriteFinish(preferred, 10 * MB, 100000, false);
+    assertEquals(cost, selector.getCost(preferred), 0.001);
+    assertEquals(preferred, selector.select(storages, appId, 1, 1));
+
+    // the storage with a slow sample gets the new partition again once the latency decays
+    selector.onWriteStart(preferred, 10 * MB);
+    selector.onWriteFinish(preferred, 10 * MB, 100000, true);
+    assertEquals(other, selector.select(storages, appId, 1, 1));
+    await().timeout(5, TimeUnit.SECONDS).until(() -> selector.select(storages, appId, 1, 1) == preferred);
+  }
+
+  @Test
+  public void mediaAndSpaceTest(@TempDir File tmpDir) {
+    LocalStorage hdd = createStorage(tmpDir, "hdd", StorageMedia.HDD);
+    LocalStorage ssd = createStorage(tmpDir, "ssd", StorageMedia.SSD);
+    LoadAwareLocalStorageSelector selector = new LoadAwareLocalStorageSelector(new ShuffleServerConf());
+    assertEquals(4 * selector.getCost(ssd), selector.getCost(hdd), 0.001);
+
+    double cost = selector.getCost(hdd);
+    hdd.updateWrite("app_1", 500, Lists.newArrayList(1));
+    assertEquals(2 * cost, selector.getCost(hdd), 0.001);
+  }
+
+  private LocalStorage createStorage(File tmpDir, String name, StorageMedia media) {
+    return LocalStorage.newBuilder()
+        .basePath(new File(tmpDir, name).getAbsolutePath())
+        .capacity(1000L)
+        .lowWaterMarkOfWrite(80)
+        .highWaterMarkOfWrite(95)
+        .localStorageMedia(media)
+        .build();
+  }
+}
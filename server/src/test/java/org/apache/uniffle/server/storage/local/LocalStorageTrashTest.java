@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.storage.local;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.uniffle.server.ShuffleServerMetrics;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LocalStorageTrashTest {
+
+  @BeforeAll
+  public static void setUp() {
+    ShuffleServerMetrics.register();
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    ShuffleServerMetrics.clear();
+  }
+
+  @Test
+  public void moveToTrashTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    File shuffleDir = new File(basePath, "app1/0/0-0");
+    shuffleDir.mkdirs();
+    Files.write(new File(shuffleDir, "test.data").toPath(), new byte[100]);
+    Files.write(new File(shuffleDir, "test.index").toPath(), new byte[40]);
+    // the data left in trash before restart
+    File leftDir = new File(basePath, LocalStorageTrash.TRASH_DIR + "/1_1_app0");
+    leftDir.mkdirs();
+    Files.write(new File(leftDir, "test.data").toPath(), new byte[60]);
+
+    LocalStorageTrash trash = new LocalStorageTrash(basePath, 1024 * 1024, 1000);
+    assertFalse(trash.moveToTrash(basePath + "/app2"));
+    assertTrue(trash.moveToTrash(basePath + "/app1"));
+    assertFalse(new File(basePath, "app1").exists());
+    assertEquals(1, trash.getPendingNum());
+    assertEquals(2, new File(basePath, LocalStorageTrash.TRASH_DIR).list().length);
+    assertEquals(1, ShuffleServerMetrics.getStorageTrashBacklogNumGauge(basePath).get());
+    // the size of the data is measured by the cleaner instead of moveToTrash
+    assertEquals(0, ShuffleServerMetrics.getStorageTrashBacklogSizeGauge(basePath).get());
+
+    trash.start();
+    await().atMost(5, TimeUnit.SECONDS).until(
+        () -> new File(basePath, LocalStorageTrash.TRASH_DIR).list().length == 0);
+    assertEquals(200, ShuffleServerMetrics.getStorageTrashReclaimedSizeCounter(basePath).get());
+    assertEquals(3, ShuffleServerMetrics.getStorageTrashReclaimedFileNumCounter(basePath).get());
+    await().atMost(1, TimeUnit.SECONDS).until(
+        () -> ShuffleServerMetrics.getStorageTrashBacklogNumGauge(basePath).get() == 0);
+    assertEquals(0, ShuffleServerMetrics.getStorageTrashBacklogSizeGauge(basePath).get());
+    trash.stop();
+  }
+
+  @Test
+  public void throttleTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    File appDir = new File(basePath, "app1");
+    appDir.mkdirs();
+    for (int i = 0; i < 10; i++) {
+      Files.write(new File(appDir, i + ".data").toPath(), new byte[100]);
+    }
+    // 10 files per second
+    LocalStorageTrash trash = new LocalStorageTrash(basePath, 1024 * 1024, 10);
+    trash.start();
+    long start = System.currentTimeMillis();
+    assertTrue(trash.moveToTrash(appDir.getAbsolutePath()));
+    await().atMost(5, TimeUnit.SECONDS).until(
+        () -> new File(basePath, LocalStorageTrash.TRASH_DIR).list().length == 0);
+    assertTrue(System.currentTimeMillis() - start >= 800);
+    trash.stop();
+
+    // 1000 bytes per second
+    appDir.mkdirs();
+    Files.write(new File(appDir, "test1.data").toPath(), new byte[1000]);
+    Files.write(new File(appDir, "test2.data").toPath(), new byte[1000]);
+    trash = new LocalStorageTrash(basePath, 1000, 1000);
+    trash.start();
+    start = System.currentTimeMillis();
+    assertTrue(trash.moveToTrash(appDir.getAbsolutePath()));
+    await().atMost(5, TimeUnit.SECONDS).until(
+        () -> new File(basePath, LocalStorageTrash.TRASH_DIR).list().length == 0);
+    assertTrue(System.currentTimeMillis() - start >= 800);
+    trash.stop();
+  }
+}
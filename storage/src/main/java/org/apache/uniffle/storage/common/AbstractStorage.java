@@ -17,10 +17,14 @@
 
 package org.apache.uniffle.storage.common;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.common.util.JavaUtils;
 import org.apache.uniffle.common.util.RssUtils;
 import org.apache.uniffle.storage.handler.api.ServerReadHandler;
@@ -81,6 +85,18 @@ public abstract class AbstractStorage implements Storage {
     return map.containsKey(partitionKey);
   }
 
+  public List<ShuffleWriteHandler> getWriteHandlers(String appId, int shuffleId) {
+    Map<String, ShuffleWriteHandler> map = writerHandlers.get(appId);
+    if (map == null) {
+      return Collections.emptyList();
+    }
+    String shuffleKeyPrefix = RssUtils.generateShuffleKey(appId, shuffleId) + Constants.KEY_SPLIT_CHAR;
+    return map.entrySet().stream()
+        .filter(entry -> entry.getKey().startsWith(shuffleKeyPrefix))
+        .map(Map.Entry::getValue)
+        .collect(Collectors.toList());
+  }
+
   @Override
   public void removeHandlers(String appId) {
     writerHandlers.remove(appId);
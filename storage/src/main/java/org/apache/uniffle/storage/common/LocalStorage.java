@@ -24,6 +24,7 @@ import java.nio.file.Files;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.io.FileUtils;
@@ -33,8 +34,13 @@ import org.slf4j.LoggerFactory;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.storage.StorageMedia;
 import org.apache.uniffle.common.util.RssUtils;
+import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.storage.handler.api.ServerReadHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
+import org.apache.uniffle.storage.handler.impl.LocalFileAsyncWriteHandler;
+import org.apache.uniffle.storage.handler.impl.LocalFileDataCache;
+import org.apache.uniffle.storage.handler.impl.LocalFileHandleCache;
+import org.apache.uniffle.storage.handler.impl.LocalFileIndexCache;
 import org.apache.uniffle.storage.handler.impl.LocalFileServerReadHandler;
 import org.apache.uniffle.storage.handler.impl.LocalFileWriteHandler;
 import org.apache.uniffle.storage.request.CreateShuffleReadHandlerRequest;
@@ -54,7 +60,12 @@ public class LocalStorage extends AbstractStorage {
   private final StorageMedia media;
   private boolean isSpaceEnough = true;
   private volatile boolean isCorrupted = false;
-
+  private final LocalFileHandleCache handleCache;
+  // the index cache shared by local storages, the index is read from file every time if it's null
+  private final LocalFileIndexCache indexCache;
+  private final LocalFileDataCache dataCache;
+  // the io threads of async write handlers, writes are done by the caller threads if it's null
+  private final ExecutorService flushExecutor;
 
   private LocalStorage(Builder builder) {
     this.basePath = builder.basePath;
@@ -62,13 +73,21 @@ public class LocalStorage extends AbstractStorage {
     this.lowWaterMarkOfWrite = builder.lowWaterMarkOfWrite;
     this.capacity = builder.capacity;
     this.media = builder.media;
+    this.handleCache = builder.maxOpenFiles > 0 ? new LocalFileHandleCache(builder.maxOpenFiles) : null;
+    this.flushExecutor = builder.asyncFlushThreads > 0
+        ? ThreadUtils.getDaemonFixedThreadPool(builder.asyncFlushThreads, "LocalStorageFlush-" + basePath)
+        : null;
+    this.indexCache = builder.indexCache;
+    this.dataCache = builder.dataCache;
 
     File baseFolder = new File(basePath);
     try {
       // similar to mkdir -p, ensure the base folder is a dir
       FileUtils.forceMkdir(baseFolder);
-      // clean the directory if it's data left from previous ran.
-      FileUtils.cleanDirectory(baseFolder);
+      // clean the directory if it's data left from previous ran and it isn't recovered
+      if (!builder.keepExistingData) {
+        FileUtils.cleanDirectory(baseFolder);
+      }
       FileStore store = Files.getFileStore(baseFolder.toPath());
       this.mountPoint =  store.name();
     } catch (IOException ioe) {
@@ -104,6 +123,9 @@ public class LocalStorage extends AbstractStorage {
     updateWrite(RssUtils.generateShuffleKey(metrics.getAppId(), metrics.getShuffleId()),
         metrics.getDataSize(),
         metrics.getPartitions());
+    if (indexCache != null && !metrics.getPartitions().isEmpty()) {
+      indexCache.invalidate(basePath, metrics.getAppId(), metrics.getShuffleId(), metrics.getPartitions().get(0));
+    }
   }
 
   @Override
@@ -115,12 +137,26 @@ public class LocalStorage extends AbstractStorage {
 
   @Override
   ShuffleWriteHandler newWriteHandler(CreateShuffleWriteHandlerRequest request) {
+    if (flushExecutor != null) {
+      return new LocalFileAsyncWriteHandler(request.getAppId(),
+          request.getShuffleId(),
+          request.getStartPartition(),
+          request.getEndPartition(),
+          basePath,
+          request.getFileNamePrefix(),
+          handleCache,
+          dataCache,
+          flushExecutor
+      );
+    }
     return new LocalFileWriteHandler(request.getAppId(),
         request.getShuffleId(),
         request.getStartPartition(),
         request.getEndPartition(),
         basePath,
-        request.getFileNamePrefix()
+        request.getFileNamePrefix(),
+        handleCache,
+        dataCache
     );
   }
 
@@ -132,7 +168,9 @@ public class LocalStorage extends AbstractStorage {
         request.getPartitionId(),
         request.getPartitionNumPerRange(),
         request.getPartitionNum(),
-        basePath);
+        basePath,
+        indexCache,
+        dataCache);
   }
 
   @Override
@@ -205,6 +243,23 @@ public class LocalStorage extends AbstractStorage {
     }
   }
 
+  @Override
+  public void removeHandlers(String appId) {
+    super.removeHandlers(appId);
+    if (handleCache != null) {
+      handleCache.closeHandlers(appId);
+    }
+  }
+
+  /**
+   * Close the open files of the shuffle, the files are reopened if the shuffle is written again.
+   */
+  public void closeWriteHandlers(String appId, int shuffleId) {
+    if (handleCache != null) {
+      handleCache.closeHandlers(appId, shuffleId);
+    }
+  }
+
   public boolean isCorrupted() {
     return isCorrupted;
   }
@@ -240,6 +295,11 @@ public class LocalStorage extends AbstractStorage {
     private double highWaterMarkOfWrite;
     private String basePath;
     private StorageMedia media;
+    private int maxOpenFiles;
+    private int asyncFlushThreads;
+    private LocalFileIndexCache indexCache;
+    private LocalFileDataCache dataCache;
+    private boolean keepExistingData;
 
     private Builder() {
     }
@@ -274,6 +334,48 @@ public class LocalStorage extends AbstractStorage {
       return this;
     }
 
+    /**
+     * Keep the files of write handlers open with the max number of open files,
+     * the files are closed after every write if it's not positive.
+     */
+    public Builder maxOpenFiles(int maxOpenFiles) {
+      this.maxOpenFiles = maxOpenFiles;
+      return this;
+    }
+
+    /**
+     * Write the files by async write handlers with the number of io threads,
+     * the files are written by the flush threads if it's not positive.
+     */
+    public Builder asyncFlushThreads(int asyncFlushThreads) {
+      this.asyncFlushThreads = asyncFlushThreads;
+      return this;
+    }
+
+    /**
+     * Serve the index of partitions from the cache, the index is read from file every time if it's null.
+     */
+    public Builder indexCache(LocalFileIndexCache indexCache) {
+      this.indexCache = indexCache;
+      return this;
+    }
+
+    /**
+     * Keep the data written recently in the cache and serve the reads from it if possible.
+     */
+    public Builder dataCache(LocalFileDataCache dataCache) {
+      this.dataCache = dataCache;
+      return this;
+    }
+
+    /**
+     * Keep the data left from previous ran, so it can be recovered and read again.
+     */
+    public Builder keepExistingData(boolean keepExistingData) {
+      this.keepExistingData = keepExistingData;
+      return this;
+    }
+
     public LocalStorage build() {
       return new LocalStorage(this);
     }
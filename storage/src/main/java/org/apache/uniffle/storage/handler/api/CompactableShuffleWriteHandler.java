@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.api;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+
+public interface CompactableShuffleWriteHandler extends ShuffleWriteHandler {
+
+  /**
+   * Merge the files written by this handler into one data file and one index file, the
+   * merged files are hidden from the readers once the compacted files are visible.
+   *
+   * @param minFileNum the minimum number of files to trigger the compaction
+   * @return the merged files which should be deleted after the readers of them finish,
+   *     or an empty list if nothing is compacted
+   */
+  List<Path> compact(int minFileNum) throws IOException;
+
+  void deleteFiles(List<Path> files) throws IOException;
+}
@@ -24,6 +24,12 @@ public interface ServerReadHandler {
 
   ShuffleDataResult getShuffleData(long offset, int length);
 
+  /**
+   * Get the shuffle data as a segment of the underlying file without reading it into memory,
+   * the segment is expected to be transferred to the network with zero-copy.
+   */
+  ShuffleDataResult getShuffleDataSegment(long offset, int length);
+
   ShuffleIndexResult getShuffleIndex();
 
 }
@@ -19,6 +19,7 @@ package org.apache.uniffle.storage.handler.impl;
 
 import java.io.FileNotFoundException;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -149,6 +150,10 @@ public class HadoopClientReadHandler extends AbstractClientReadHandler {
         }
       }
       Collections.shuffle(readHandlers);
+      // the compacted files are read first, the duplicated blocks in the merged files which
+      // are still visible to this reader will be skipped
+      readHandlers.sort(Comparator.comparing(
+          handler -> !new Path(handler.filePrefix).getName().contains(HadoopShuffleFileCompactor.COMPACTED_FILE_TAG)));
       LOG.info("Reading order of Hadoop files with name prefix: {}",
           readHandlers.stream().map(x -> x.filePrefix).collect(Collectors.toList())
       );
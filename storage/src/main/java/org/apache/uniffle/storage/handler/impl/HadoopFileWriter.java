@@ -18,8 +18,8 @@
 package org.apache.uniffle.storage.handler.impl;
 
 import java.io.Closeable;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 import org.apache.hadoop.conf.Configuration;
@@ -117,9 +117,10 @@ public class HadoopFileWriter implements FileWriter, Closeable {
     }
   }
 
-  public long copy(FileInputStream inputStream, int bufferSize) throws IOException {
+  public long copy(InputStream inputStream, int bufferSize) throws IOException {
     long start = fsDataOutputStream.getPos();
     IOUtils.copyBytes(inputStream, fsDataOutputStream, bufferSize);
-    return fsDataOutputStream.getPos() - start;
+    nextOffset = fsDataOutputStream.getPos();
+    return nextOffset - start;
   }
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.util.Constants;
+import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
+
+/**
+ * Merges the small shuffle files of a partition folder into one data file and one index file.
+ *
+ * <p>The index of compacted files is written with a temporary name and renamed at last, so the
+ * readers see either the source files or the compacted files. After that the source files are
+ * renamed with {@link #MERGED_FILE_SUFFIX}, they are invisible to the new readers but can still
+ * be read by the opened readers until they are deleted.
+ */
+public class HadoopShuffleFileCompactor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HadoopShuffleFileCompactor.class);
+
+  public static final String COMPACTED_FILE_TAG = "compacted";
+  public static final String MERGED_FILE_SUFFIX = ".merged";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private final FileSystem fileSystem;
+  private final Configuration hadoopConf;
+  private final String basePath;
+
+  public HadoopShuffleFileCompactor(FileSystem fileSystem, Configuration hadoopConf, String basePath) {
+    this.fileSystem = fileSystem;
+    this.hadoopConf = hadoopConf;
+    this.basePath = basePath;
+  }
+
+  /**
+   * List the index files whose name starts with the given prefix, the files compacted before are
+   * excluded, so they won't be copied again and nothing is compacted if no new file is written.
+   *
+   * @return the index files to compact, or an empty array if the file number is less than minFileNum
+   */
+  public FileStatus[] listSourceFiles(String fileNamePrefix, int minFileNum) throws IOException {
+    String compactedPrefix = fileNamePrefix + COMPACTED_FILE_TAG;
+    FileStatus[] indexFiles = fileSystem.listStatus(new Path(basePath),
+        path -> path.getName().startsWith(fileNamePrefix)
+            && !path.getName().startsWith(compactedPrefix)
+            && path.getName().endsWith(Constants.SHUFFLE_INDEX_FILE_SUFFIX));
+    if (indexFiles.length < Math.max(2, minFileNum)) {
+      return new FileStatus[0];
+    }
+    // keep the order of files to make the compaction repeatable
+    Arrays.sort(indexFiles, Comparator.comparing(status -> status.getPath().getName()));
+    return indexFiles;
+  }
+
+  /**
+   * Compact the given index files and their data files listed by {@link #listSourceFiles},
+   * the caller must make sure the files aren't being written.
+   *
+   * @return the merged source files
+   */
+  public List<Path> compact(String fileNamePrefix, FileStatus[] indexFiles) throws IOException {
+    if (indexFiles.length == 0) {
+      return Collections.emptyList();
+    }
+    long start = System.currentTimeMillis();
+    String compactedPrefix = fileNamePrefix + COMPACTED_FILE_TAG + "_" + start;
+    Path dataPath = new Path(basePath, ShuffleStorageUtils.generateDataFileName(compactedPrefix));
+    Path indexPath = new Path(basePath, ShuffleStorageUtils.generateIndexFileName(compactedPrefix));
+    Path tempIndexPath = new Path(basePath, indexPath.getName() + TEMP_FILE_SUFFIX);
+    List<Path> sourceFiles = Lists.newArrayList();
+    try {
+      try (HadoopFileWriter dataWriter = new HadoopFileWriter(fileSystem, dataPath, hadoopConf);
+           HadoopFileWriter indexWriter = new HadoopFileWriter(fileSystem, tempIndexPath, hadoopConf)) {
+        for (FileStatus indexFile : indexFiles) {
+          Path sourceIndexPath = indexFile.getPath();
+          Path sourceDataPath = new Path(basePath, ShuffleStorageUtils.generateDataFileName(
+              getFileNamePrefix(sourceIndexPath.getName())));
+          merge(sourceIndexPath, sourceDataPath, dataWriter, indexWriter);
+          sourceFiles.add(sourceIndexPath);
+          sourceFiles.add(sourceDataPath);
+        }
+      }
+      if (!fileSystem.rename(tempIndexPath, indexPath)) {
+        throw new IOException("Can't rename " + tempIndexPath + " to " + indexPath);
+      }
+    } catch (IOException e) {
+      fileSystem.delete(dataPath, false);
+      fileSystem.delete(tempIndexPath, false);
+      throw e;
+    }
+
+    List<Path> mergedFiles = Lists.newArrayList();
+    for (Path sourceFile : sourceFiles) {
+      Path mergedFile = new Path(basePath, sourceFile.getName() + MERGED_FILE_SUFFIX);
+      if (fileSystem.rename(sourceFile, mergedFile)) {
+        mergedFiles.add(mergedFile);
+      } else {
+        LOG.warn("Can't rename merged file {}, it may be read again with duplicated blocks", sourceFile);
+      }
+    }
+    LOG.info("Compact {} files into {} in {} for {} ms", indexFiles.length, compactedPrefix,
+        basePath, System.currentTimeMillis() - start);
+    return mergedFiles;
+  }
+
+  private void merge(
+      Path sourceIndexPath,
+      Path sourceDataPath,
+      HadoopFileWriter dataWriter,
+      HadoopFileWriter indexWriter) throws IOException {
+    long dataFileLen = fileSystem.exists(sourceDataPath) ? fileSystem.getFileStatus(sourceDataPath).getLen() : 0L;
+    long offsetDelta = dataWriter.nextOffset();
+    if (dataFileLen > 0) {
+      try (FSDataInputStream in = fileSystem.open(sourceDataPath)) {
+        dataWriter.copy(in, COPY_BUFFER_SIZE);
+      }
+    }
+    byte[] indexData;
+    try (FSDataInputStream in = fileSystem.open(sourceIndexPath)) {
+      long indexFileLen = fileSystem.getFileStatus(sourceIndexPath).getLen();
+      int segmentNum = (int) (indexFileLen / FileBasedShuffleSegment.SEGMENT_SIZE);
+      indexData = new byte[segmentNum * FileBasedShuffleSegment.SEGMENT_SIZE];
+      in.readFully(indexData);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(indexData);
+    while (buffer.hasRemaining()) {
+      long offset = buffer.getLong();
+      int length = buffer.getInt();
+      int uncompressLength = buffer.getInt();
+      long crc = buffer.getLong();
+      long blockId = buffer.getLong();
+      long taskAttemptId = buffer.getLong();
+      // the segment written partially by a failed write is dropped
+      if (offset + length > dataFileLen) {
+        LOG.warn("Drop the segment of block {} beyond the end of {}", blockId, sourceDataPath);
+        continue;
+      }
+      indexWriter.writeIndex(new FileBasedShuffleSegment(
+          blockId, offset + offsetDelta, length, uncompressLength, crc, taskAttemptId));
+    }
+  }
+
+  private String getFileNamePrefix(String fileName) {
+    return fileName.substring(0, fileName.lastIndexOf('.'));
+  }
+}
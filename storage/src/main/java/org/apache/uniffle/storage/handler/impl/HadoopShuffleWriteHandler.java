@@ -24,6 +24,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
@@ -34,10 +35,10 @@ import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.filesystem.HadoopFilesystemProvider;
 import org.apache.uniffle.common.util.ByteBufUtils;
 import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
-import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
+import org.apache.uniffle.storage.handler.api.CompactableShuffleWriteHandler;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
-public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
+public class HadoopShuffleWriteHandler implements CompactableShuffleWriteHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HadoopShuffleWriteHandler.class);
 
@@ -45,7 +46,10 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
   private String basePath;
   private String fileNamePrefix;
   private Lock writeLock = new ReentrantLock();
+  private final Lock compactLock = new ReentrantLock();
   private int failTimes = 0;
+  // the sequence of the file being written, a new file is used after a failed write or a compaction
+  private int fileSeq = 0;
   private String user;
   private FileSystem fileSystem;
 
@@ -111,8 +115,8 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
       final long ss = System.currentTimeMillis();
       // Write to HDFS will be failed with lease problem, and can't write the same file again
       // change the prefix of file name if write failed before
-      String dataFileName = ShuffleStorageUtils.generateDataFileName(fileNamePrefix + "_" + failTimes);
-      String indexFileName = ShuffleStorageUtils.generateIndexFileName(fileNamePrefix + "_" + failTimes);
+      String dataFileName = ShuffleStorageUtils.generateDataFileName(fileNamePrefix + "_" + fileSeq);
+      String indexFileName = ShuffleStorageUtils.generateIndexFileName(fileNamePrefix + "_" + fileSeq);
       try (HadoopFileWriter dataWriter = createWriter(dataFileName);
            HadoopFileWriter indexWriter = createWriter(indexFileName)) {
         for (ShufflePartitionedBlock block : shuffleBlocks) {
@@ -130,8 +134,10 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
             (System.currentTimeMillis() - ss),
             fileNamePrefix);
       } catch (IOException e) {
-        LOG.warn("Write failed with " + shuffleBlocks.size() + " blocks for " + fileNamePrefix + "_" + failTimes, e);
         failTimes++;
+        LOG.warn("Write failed with " + shuffleBlocks.size() + " blocks for " + fileNamePrefix + "_" + fileSeq
+            + ", failed times: " + failTimes, e);
+        fileSeq++;
         throw new RssException(e);
       }
     } finally {
@@ -144,6 +150,69 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
         fileNamePrefix);
   }
 
+  /**
+   * The files are listed and rolled under the write lock, and merged without it, so the writes
+   * aren't blocked by the copy in remote storage.
+   */
+  @Override
+  public List<Path> compact(int minFileNum) throws IOException {
+    String prefix = fileNamePrefix + "_";
+    compactLock.lock();
+    try {
+      FileStatus[] sourceFiles;
+      writeLock.lock();
+      try {
+        sourceFiles = listSourceFiles(prefix, minFileNum);
+        if (sourceFiles.length > 0) {
+          rollFile();
+        }
+      } finally {
+        writeLock.unlock();
+      }
+      return compact(prefix, sourceFiles);
+    } finally {
+      compactLock.unlock();
+    }
+  }
+
+  /**
+   * Compact the given files with the given prefix in the folder of this handler, the caller must
+   * make sure the files aren't being written by others.
+   */
+  List<Path> compact(String prefix, FileStatus[] sourceFiles) throws IOException {
+    return createCompactor().compact(prefix, sourceFiles);
+  }
+
+  /**
+   * List the files to compact with the given prefix in the folder of this handler.
+   */
+  FileStatus[] listSourceFiles(String prefix, int minFileNum) throws IOException {
+    return createCompactor().listSourceFiles(prefix, minFileNum);
+  }
+
+  private HadoopShuffleFileCompactor createCompactor() {
+    return new HadoopShuffleFileCompactor(fileSystem, hadoopConf, basePath);
+  }
+
+  /**
+   * Write to new files afterwards, the current files won't be appended any more.
+   */
+  void rollFile() {
+    writeLock.lock();
+    try {
+      fileSeq++;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void deleteFiles(List<Path> files) throws IOException {
+    for (Path file : files) {
+      fileSystem.delete(file, false);
+    }
+  }
+
   @VisibleForTesting
   public HadoopFileWriter createWriter(String fileName) throws IOException, IllegalStateException {
     Path path = new Path(basePath, fileName);
@@ -154,5 +223,6 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
   @VisibleForTesting
   public void setFailTimes(int failTimes) {
     this.failTimes = failTimes;
+    this.fileSeq = failTimes;
   }
 }
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
+import org.apache.uniffle.storage.handler.api.AsyncShuffleWriteHandler;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
+
+/**
+ * Writes the blocks of a partition to local files by {@link AsynchronousFileChannel}s whose
+ * operations run on the io executor of the disk, so the caller isn't blocked by the write.
+ *
+ * <p>The data of every write is put at the position reserved when it's submitted and the
+ * writes of blocks are issued concurrently. The index of a write is appended after its data
+ * and the index of previous writes are written, so the readers never see a block whose data
+ * isn't written.
+ */
+public class LocalFileAsyncWriteHandler extends LocalFileWriteHandler implements AsyncShuffleWriteHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalFileAsyncWriteHandler.class);
+  private static final Set<OpenOption> OPEN_OPTIONS =
+      Sets.newHashSet(StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+  private final ExecutorService ioExecutor;
+  private Channels channels;
+  // completed after the index of last write is written, it never fails
+  private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+  public LocalFileAsyncWriteHandler(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      LocalFileHandleCache handleCache,
+      ExecutorService ioExecutor) {
+    this(appId, shuffleId, startPartition, endPartition, storageBasePath, fileNamePrefix, handleCache, null,
+        ioExecutor);
+  }
+
+  public LocalFileAsyncWriteHandler(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      LocalFileHandleCache handleCache,
+      LocalFileDataCache dataCache,
+      ExecutorService ioExecutor) {
+    super(appId, shuffleId, startPartition, endPartition, storageBasePath, fileNamePrefix, handleCache, dataCache);
+    this.ioExecutor = ioExecutor;
+  }
+
+  @Override
+  public void write(List<ShufflePartitionedBlock> shuffleBlocks) throws Exception {
+    try {
+      writeAsync(shuffleBlocks).get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> writeAsync(List<ShufflePartitionedBlock> shuffleBlocks) {
+    lock.lock();
+    try {
+      // Ignore this write, if the shuffle directory is deleted after its app heartbeat times out.
+      File baseFolder = new File(basePath);
+      if (!baseFolder.exists()) {
+        LOG.warn("{} don't exist, the app or shuffle may be deleted", baseFolder.getAbsolutePath());
+        closeChannelsInternal();
+        return CompletableFuture.completedFuture(null);
+      }
+      final Channels current;
+      try {
+        current = openChannels();
+      } catch (IOException e) {
+        closeChannelsInternal();
+        return failedFuture(e);
+      }
+
+      final long startOffset = current.dataOffset;
+      List<CompletableFuture<Void>> dataWrites = Lists.newArrayList();
+      ByteBuf indexBuffer = ByteBufAllocator.DEFAULT.directBuffer(
+          shuffleBlocks.size() * FileBasedShuffleSegment.SEGMENT_SIZE);
+      try {
+        for (ShufflePartitionedBlock block : shuffleBlocks) {
+          indexBuffer.writeLong(current.dataOffset);
+          indexBuffer.writeInt(block.getLength());
+          indexBuffer.writeInt(block.getUncompressLength());
+          indexBuffer.writeLong(block.getCrc());
+          indexBuffer.writeLong(block.getBlockId());
+          indexBuffer.writeLong(block.getTaskAttemptId());
+          ByteBuf data = block.getData();
+          if (data.readableBytes() > 0) {
+            for (ByteBuffer buffer : data.nioBuffers()) {
+              int length = buffer.remaining();
+              dataWrites.add(writeToChannel(current.dataChannel, buffer, current.dataOffset));
+              current.dataOffset += length;
+            }
+          }
+        }
+      } catch (Exception e) {
+        // the data written is not indexed, it will be ignored by readers
+        indexBuffer.release();
+        return failedFuture(e);
+      }
+      CompletableFuture<Void> dataWritten = CompletableFuture.allOf(dataWrites.toArray(new CompletableFuture[0]));
+      CompletableFuture<Void> result = lastWrite
+          .thenCompose(v -> dataWritten)
+          .thenCompose(v -> {
+            // the writes of index are serialized by the chain of last write, the offset is advanced
+            // only if the index is written, and the partially written index is truncated
+            long position = current.indexOffset;
+            int length = indexBuffer.readableBytes();
+            return writeToChannel(current.indexChannel, indexBuffer.nioBuffer(), position)
+                .whenComplete((r, e) -> {
+                  if (e == null) {
+                    current.indexOffset = position + length;
+                  } else {
+                    truncateQuietly(current.indexChannel, position);
+                  }
+                });
+          });
+      result.whenComplete((v, e) -> indexBuffer.release());
+      if (dataCache != null) {
+        // the blocks may be released once the write completes, copy them in advance
+        ByteBuf cachedData = dataCache.copy(shuffleBlocks);
+        if (cachedData != null) {
+          result.whenComplete((v, e) -> {
+            if (e == null) {
+              dataCache.put(appId, shuffleId, getDataFileName(), startOffset, cachedData);
+            } else {
+              dataCache.discard(cachedData);
+            }
+          });
+        }
+      }
+      CompletableFuture<Void> written = result.handle((v, e) -> null);
+      lastWrite = written;
+      if (handleCache == null) {
+        written.thenRun(() -> closeIfIdle(written));
+      }
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Channels openChannels() throws IOException {
+    if (channels == null) {
+      File dataFile = new File(basePath, ShuffleStorageUtils.generateDataFileName(fileNamePrefix));
+      File indexFile = new File(basePath, ShuffleStorageUtils.generateIndexFileName(fileNamePrefix));
+      AsynchronousFileChannel dataChannel = null;
+      AsynchronousFileChannel indexChannel = null;
+      try {
+        dataChannel = AsynchronousFileChannel.open(dataFile.toPath(), OPEN_OPTIONS, ioExecutor);
+        indexChannel = AsynchronousFileChannel.open(indexFile.toPath(), OPEN_OPTIONS, ioExecutor);
+        channels = new Channels(dataChannel, indexChannel);
+      } catch (IOException e) {
+        closeQuietly(dataChannel);
+        closeQuietly(indexChannel);
+        throw e;
+      }
+    }
+    if (handleCache != null) {
+      handleCache.touch(this);
+    }
+    return channels;
+  }
+
+  private static CompletableFuture<Void> writeToChannel(
+      AsynchronousFileChannel channel, ByteBuffer buffer, long position) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      channel.write(buffer, position, position, new CompletionHandler<Integer, Long>() {
+        @Override
+        public void completed(Integer written, Long writePosition) {
+          if (buffer.hasRemaining()) {
+            long nextPosition = writePosition + written;
+            channel.write(buffer, nextPosition, nextPosition, this);
+          } else {
+            future.complete(null);
+          }
+        }
+
+        @Override
+        public void failed(Throwable throwable, Long writePosition) {
+          future.completeExceptionally(throwable);
+        }
+      });
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private void truncateQuietly(AsynchronousFileChannel channel, long size) {
+    try {
+      channel.truncate(size);
+    } catch (IOException e) {
+      LOG.warn("Failed to truncate the index file of {} to {}", basePath, size, e);
+    }
+  }
+
+  private void closeIfIdle(CompletableFuture<Void> written) {
+    lock.lock();
+    try {
+      if (lastWrite == written) {
+        closeChannelsInternal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  boolean tryCloseChannels() {
+    if (!lock.tryLock()) {
+      return false;
+    }
+    try {
+      if (!lastWrite.isDone()) {
+        return false;
+      }
+      closeChannelsInternal();
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
+  @Override
+  protected void closeChannelsInternal() {
+    if (channels != null) {
+      closeQuietly(channels.dataChannel);
+      closeQuietly(channels.indexChannel);
+      channels = null;
+    }
+    super.closeChannelsInternal();
+  }
+
+  private void closeQuietly(AsynchronousFileChannel channel) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close file channel of {}", basePath, e);
+    }
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(throwable);
+    return future;
+  }
+
+  @VisibleForTesting
+  @Override
+  boolean isOpen() {
+    return channels != null;
+  }
+
+  /**
+   * The channels opened together with the offsets of next write, a write always uses the
+   * channels it's submitted to even if they are reopened before it's completed.
+   */
+  private static class Channels {
+    private final AsynchronousFileChannel dataChannel;
+    private final AsynchronousFileChannel indexChannel;
+    private long dataOffset;
+    private long indexOffset;
+
+    Channels(AsynchronousFileChannel dataChannel, AsynchronousFileChannel indexChannel) throws IOException {
+      this.dataChannel = dataChannel;
+      this.indexChannel = indexChannel;
+      this.dataOffset = dataChannel.size();
+      this.indexOffset = indexChannel.size();
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+
+/**
+ * A size bounded cache of the data recently written to local data files, so the readers coming
+ * shortly after the flush are served from memory. The data is kept in off-heap buffers by the
+ * file and its offset, and the data of the least recently read or written file is evicted when
+ * the total size exceeds the capacity.
+ *
+ * <p>Only the data written successfully is cached. The data of a file is immutable after it's
+ * written, the cached data never becomes stale until the file is deleted.
+ *
+ * <p>The cache lock only guards the files and their access order, the data of a file is copied
+ * under the lock of the file, so the readers and writers of different files don't block each other.
+ */
+public class LocalFileDataCache {
+
+  private final long capacity;
+  // data file name -> cached data of the file, in access order
+  private final LinkedHashMap<String, FileData> files = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong size = new AtomicLong(0);
+
+  public LocalFileDataCache(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Copy the data of blocks before they are written.
+   *
+   * @return the copied data which should be put into cache after the write succeeds or be
+   *     discarded otherwise, or null if it's too big to be cached or there is no memory for it
+   */
+  public ByteBuf copy(List<ShufflePartitionedBlock> blocks) {
+    long length = 0;
+    for (ShufflePartitionedBlock block : blocks) {
+      length += block.getData().readableBytes();
+    }
+    if (length == 0 || length > capacity || !requireMemory(length)) {
+      return null;
+    }
+    ByteBuf buffer = ByteBufAllocator.DEFAULT.directBuffer((int) length);
+    for (ShufflePartitionedBlock block : blocks) {
+      ByteBuf data = block.getData();
+      buffer.writeBytes(data, data.readerIndex(), data.readableBytes());
+    }
+    return buffer;
+  }
+
+  /**
+   * Put the data written to the data file from the offset, the cache takes the ownership of data.
+   */
+  public void put(String appId, int shuffleId, String dataFileName, long offset, ByteBuf data) {
+    long length = data.readableBytes();
+    FileData fileData;
+    synchronized (this) {
+      fileData = files.computeIfAbsent(dataFileName, key -> new FileData(appId, shuffleId));
+    }
+    synchronized (fileData) {
+      // the file may be evicted or invalidated after it's got
+      if (fileData.removed) {
+        discard(data);
+        return;
+      }
+      // the data at the same offset may be written again after a failed write is reset
+      Map.Entry<Long, ByteBuf> floor = fileData.chunks.floorEntry(offset);
+      if (floor != null && floor.getKey() + floor.getValue().readableBytes() > offset) {
+        removeChunk(fileData, floor.getKey());
+      }
+      for (Long chunkOffset : fileData.chunks.subMap(offset, offset + length).keySet().toArray(new Long[0])) {
+        removeChunk(fileData, chunkOffset);
+      }
+      fileData.chunks.put(offset, data);
+      fileData.size += length;
+      size.addAndGet(length);
+    }
+    if (size.get() > capacity) {
+      evict();
+    }
+  }
+
+  /**
+   * Release the data copied but not put into the cache.
+   */
+  public void discard(ByteBuf data) {
+    long length = data.readableBytes();
+    data.release();
+    releaseMemory(length);
+  }
+
+  /**
+   * @return the cached data of the file from offset, or null if it's not fully cached
+   */
+  public byte[] read(String dataFileName, long offset, int length) {
+    FileData fileData;
+    synchronized (this) {
+      fileData = files.get(dataFileName);
+    }
+    byte[] result = null;
+    if (fileData != null) {
+      synchronized (fileData) {
+        result = fileData.read(offset, length);
+      }
+    }
+    if (result != null) {
+      onHit();
+    } else {
+      onMiss();
+    }
+    return result;
+  }
+
+  public void invalidate(String appId) {
+    invalidate(fileData -> fileData.appId.equals(appId));
+  }
+
+  public void invalidate(String appId, int shuffleId) {
+    invalidate(fileData -> fileData.appId.equals(appId) && fileData.shuffleId == shuffleId);
+  }
+
+  private synchronized void invalidate(Predicate<FileData> predicate) {
+    Iterator<FileData> iterator = files.values().iterator();
+    while (iterator.hasNext()) {
+      FileData fileData = iterator.next();
+      if (predicate.test(fileData)) {
+        release(fileData);
+        iterator.remove();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  long getSize() {
+    return size.get();
+  }
+
+  protected void onHit() {
+  }
+
+  protected void onMiss() {
+  }
+
+  /**
+   * Require the memory of the data copied into the cache.
+   *
+   * @return false if there is no memory for the data, then it isn't cached
+   */
+  protected boolean requireMemory(long length) {
+    return true;
+  }
+
+  protected void releaseMemory(long length) {
+  }
+
+  private synchronized void evict() {
+    Iterator<FileData> iterator = files.values().iterator();
+    while (size.get() > capacity && iterator.hasNext()) {
+      release(iterator.next());
+      iterator.remove();
+    }
+  }
+
+  private void release(FileData fileData) {
+    synchronized (fileData) {
+      fileData.removed = true;
+      fileData.chunks.values().forEach(this::discard);
+      fileData.chunks.clear();
+      size.addAndGet(-fileData.size);
+      fileData.size = 0;
+    }
+  }
+
+  private void removeChunk(FileData fileData, long offset) {
+    ByteBuf chunk = fileData.chunks.remove(offset);
+    fileData.size -= chunk.readableBytes();
+    size.addAndGet(-chunk.readableBytes());
+    discard(chunk);
+  }
+
+  private static class FileData {
+    private final String appId;
+    private final int shuffleId;
+    // offset -> data, the chunks don't overlap
+    private final NavigableMap<Long, ByteBuf> chunks = new TreeMap<>();
+    private long size = 0;
+    // the file is removed from the cache, no more data is put into it
+    private boolean removed = false;
+
+    FileData(String appId, int shuffleId) {
+      this.appId = appId;
+      this.shuffleId = shuffleId;
+    }
+
+    byte[] read(long offset, int length) {
+      Map.Entry<Long, ByteBuf> entry = chunks.floorEntry(offset);
+      if (entry == null) {
+        return null;
+      }
+      byte[] result = new byte[length];
+      int copied = 0;
+      long position = offset;
+      // the requested data may span the adjacent chunks written by different flushes
+      while (copied < length) {
+        if (entry == null || entry.getKey() > position) {
+          return null;
+        }
+        ByteBuf chunk = entry.getValue();
+        int chunkStart = (int) (position - entry.getKey());
+        int chunkLength = Math.min(chunk.readableBytes() - chunkStart, length - copied);
+        if (chunkLength <= 0) {
+          return null;
+        }
+        chunk.getBytes(chunk.readerIndex() + chunkStart, result, copied, chunkLength);
+        copied += chunkLength;
+        position += chunkLength;
+        entry = chunks.higherEntry(entry.getKey());
+      }
+      return result;
+    }
+  }
+}
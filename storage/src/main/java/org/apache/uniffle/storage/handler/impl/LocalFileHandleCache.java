@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+/**
+ * Keeps track of the {@link LocalFileWriteHandler}s which hold open file channels, the least
+ * recently used handlers are closed when the number of open files exceeds the limit.
+ */
+public class LocalFileHandleCache {
+
+  // every handler holds the channels of data file and index file
+  private static final int FILES_PER_HANDLER = 2;
+
+  private final int maxOpenHandlers;
+  private final LinkedHashSet<LocalFileWriteHandler> openHandlers = new LinkedHashSet<>();
+
+  public LocalFileHandleCache(int maxOpenFiles) {
+    this.maxOpenHandlers = Math.max(1, maxOpenFiles / FILES_PER_HANDLER);
+  }
+
+  /**
+   * Mark the handler as the most recently used one, and close the least recently used handlers
+   * if there are too many open files. The handler being written is kept open and tried later.
+   */
+  void touch(LocalFileWriteHandler handler) {
+    List<LocalFileWriteHandler> evicted = Lists.newArrayList();
+    synchronized (this) {
+      openHandlers.remove(handler);
+      openHandlers.add(handler);
+      Iterator<LocalFileWriteHandler> iterator = openHandlers.iterator();
+      while (openHandlers.size() - evicted.size() > maxOpenHandlers && iterator.hasNext()) {
+        LocalFileWriteHandler eldest = iterator.next();
+        if (eldest != handler) {
+          iterator.remove();
+          evicted.add(eldest);
+        }
+      }
+    }
+    // close the handlers out of the lock, because closing waits for the writing of handler
+    for (LocalFileWriteHandler eldest : evicted) {
+      if (!eldest.tryCloseChannels()) {
+        synchronized (this) {
+          openHandlers.add(eldest);
+        }
+      }
+    }
+  }
+
+  synchronized void remove(LocalFileWriteHandler handler) {
+    openHandlers.remove(handler);
+  }
+
+  public void closeHandlers(String appId) {
+    closeHandlers(handler -> handler.getAppId().equals(appId));
+  }
+
+  public void closeHandlers(String appId, int shuffleId) {
+    closeHandlers(handler -> handler.getAppId().equals(appId) && handler.getShuffleId() == shuffleId);
+  }
+
+  private void closeHandlers(Predicate<LocalFileWriteHandler> predicate) {
+    List<LocalFileWriteHandler> handlers = Lists.newArrayList();
+    synchronized (this) {
+      Iterator<LocalFileWriteHandler> iterator = openHandlers.iterator();
+      while (iterator.hasNext()) {
+        LocalFileWriteHandler handler = iterator.next();
+        if (predicate.test(handler)) {
+          iterator.remove();
+          handlers.add(handler);
+        }
+      }
+    }
+    for (LocalFileWriteHandler handler : handlers) {
+      handler.closeChannels();
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getOpenHandlerNum() {
+    return openHandlers.size();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.uniffle.common.ShuffleIndexResult;
+
+/**
+ * A size bounded LRU cache of the index data of local files, the least recently used index is
+ * evicted when the total size exceeds the capacity. The index of a partition must be invalidated
+ * after new data of the partition is written.
+ */
+public class LocalFileIndexCache {
+
+  private final long capacity;
+  private final long mmapThreshold;
+  private final LinkedHashMap<Key, ShuffleIndexResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // the partitions whose index is being loaded, an invalidation removes the partition so that
+  // the index loaded before it, which may be stale, isn't cached
+  private final Map<Key, Object> loadings = new HashMap<>();
+  private long size = 0;
+
+  /**
+   * @param capacity the max total size of cached index data
+   * @param mmapThreshold the index files not smaller than it are read by memory mapping,
+   *     memory mapping is disabled if it's not positive
+   */
+  public LocalFileIndexCache(long capacity, long mmapThreshold) {
+    this.capacity = capacity;
+    this.mmapThreshold = mmapThreshold;
+  }
+
+  /**
+   * @return the cached index of the partition, or the index got from loader if it's not cached.
+   *     The returned index data is shared by other readers and must not be modified
+   */
+  public ShuffleIndexResult get(
+      String basePath,
+      String appId,
+      int shuffleId,
+      int startPartition,
+      Supplier<ShuffleIndexResult> loader) {
+    Key key = new Key(basePath, appId, shuffleId, startPartition);
+    Object loading;
+    synchronized (this) {
+      ShuffleIndexResult result = entries.get(key);
+      if (result != null) {
+        onHit();
+        return duplicate(result);
+      }
+      loading = loadings.computeIfAbsent(key, k -> new Object());
+    }
+    onMiss();
+    ShuffleIndexResult result;
+    try {
+      result = loader.get();
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        loadings.remove(key, loading);
+      }
+      throw e;
+    }
+    long weight = result.getIndexData().remaining();
+    synchronized (this) {
+      boolean fresh = loadings.remove(key, loading);
+      if (!fresh || result.isEmpty() || weight > capacity) {
+        return result;
+      }
+      ShuffleIndexResult old = entries.put(key, result);
+      if (old != null) {
+        size -= old.getIndexData().remaining();
+      }
+      size += weight;
+      evict();
+    }
+    return duplicate(result);
+  }
+
+  public void invalidate(String basePath, String appId, int shuffleId, int startPartition) {
+    Key key = new Key(basePath, appId, shuffleId, startPartition);
+    synchronized (this) {
+      loadings.remove(key);
+      ShuffleIndexResult old = entries.remove(key);
+      if (old != null) {
+        size -= old.getIndexData().remaining();
+      }
+    }
+  }
+
+  public void invalidate(String appId) {
+    invalidate(key -> key.appId.equals(appId));
+  }
+
+  public void invalidate(String appId, int shuffleId) {
+    invalidate(key -> key.appId.equals(appId) && key.shuffleId == shuffleId);
+  }
+
+  private synchronized void invalidate(Predicate<Key> predicate) {
+    loadings.keySet().removeIf(predicate);
+    Iterator<Map.Entry<Key, ShuffleIndexResult>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, ShuffleIndexResult> entry = iterator.next();
+      if (predicate.test(entry.getKey())) {
+        size -= entry.getValue().getIndexData().remaining();
+        iterator.remove();
+      }
+    }
+  }
+
+  public long getMmapThreshold() {
+    return mmapThreshold;
+  }
+
+  @VisibleForTesting
+  synchronized long getSize() {
+    return size;
+  }
+
+  @VisibleForTesting
+  synchronized int getEntryNum() {
+    return entries.size();
+  }
+
+  protected void onHit() {
+  }
+
+  protected void onMiss() {
+  }
+
+  private void evict() {
+    Iterator<ShuffleIndexResult> iterator = entries.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      size -= iterator.next().getIndexData().remaining();
+      iterator.remove();
+    }
+  }
+
+  private static ShuffleIndexResult duplicate(ShuffleIndexResult result) {
+    // every reader gets its own position of the shared index data
+    return new ShuffleIndexResult(result.getIndexData().duplicate(), result.getDataFileLen());
+  }
+
+  private static class Key {
+    private final String basePath;
+    private final String appId;
+    private final int shuffleId;
+    private final int startPartition;
+
+    Key(String basePath, String appId, int shuffleId, int startPartition) {
+      this.basePath = basePath;
+      this.appId = appId;
+      this.shuffleId = shuffleId;
+      this.startPartition = startPartition;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return shuffleId == key.shuffleId && startPartition == key.startPartition
+          && basePath.equals(key.basePath) && appId.equals(key.appId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(basePath, appId, shuffleId, startPartition);
+    }
+  }
+}
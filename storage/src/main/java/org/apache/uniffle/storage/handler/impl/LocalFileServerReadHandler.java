@@ -20,6 +20,8 @@ package org.apache.uniffle.storage.handler.impl;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +30,7 @@ import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.ShuffleIndexResult;
 import org.apache.uniffle.common.exception.FileNotFoundException;
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.netty.buffer.FileSegmentManagedBuffer;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 import org.apache.uniffle.storage.handler.api.ServerReadHandler;
@@ -41,6 +44,13 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
   private String appId;
   private int shuffleId;
   private int partitionId;
+  private String path;
+  private int partitionNumPerRange;
+  private int partitionNum;
+  private int startPartition;
+  private boolean filePathPrepared = false;
+  private LocalFileIndexCache indexCache;
+  private LocalFileDataCache dataCache;
 
   public LocalFileServerReadHandler(
       String appId,
@@ -49,22 +59,54 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
       int partitionNumPerRange,
       int partitionNum,
       String path) {
-    this.appId = appId;
-    this.shuffleId = shuffleId;
-    this.partitionId = partitionId;
-    init(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, path);
+    this(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, path, null);
   }
 
-  private void init(
+  public LocalFileServerReadHandler(
       String appId,
       int shuffleId,
       int partitionId,
       int partitionNumPerRange,
       int partitionNum,
-      String path) {
+      String path,
+      LocalFileIndexCache indexCache) {
+    this(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, path, indexCache, null);
+  }
 
+  public LocalFileServerReadHandler(
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int partitionNumPerRange,
+      int partitionNum,
+      String path,
+      LocalFileIndexCache indexCache,
+      LocalFileDataCache dataCache) {
+    this.appId = appId;
+    this.shuffleId = shuffleId;
+    this.partitionId = partitionId;
+    this.path = path;
+    this.partitionNumPerRange = partitionNumPerRange;
+    this.partitionNum = partitionNum;
+    this.startPartition = ShuffleStorageUtils.getPartitionRange(partitionId, partitionNumPerRange, partitionNum)[0];
+    this.indexCache = indexCache;
+    this.dataCache = dataCache;
+    if (indexCache == null) {
+      init();
+    }
+  }
+
+  /**
+   * Find the files of the partition, it's deferred to the first read if the index is cached,
+   * so that a cache hit doesn't list the shuffle folder.
+   */
+  private synchronized void init() {
+    if (filePathPrepared) {
+      return;
+    }
     long start = System.currentTimeMillis();
     prepareFilePath(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, path);
+    filePathPrepared = true;
     LOG.debug("Prepare for appId[" + appId + "], shuffleId[" + shuffleId + "], partitionId[" + partitionId
         + "] cost " + (System.currentTimeMillis() - start) + " ms");
   }
@@ -120,6 +162,11 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
 
   @Override
   public ShuffleDataResult getShuffleData(long offset, int length) {
+    byte[] cachedData = readCachedData(offset, length);
+    if (cachedData != null) {
+      return new ShuffleDataResult(cachedData);
+    }
+    init();
     byte[] readBuffer = new byte[0];
 
     try {
@@ -137,8 +184,46 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
     return new ShuffleDataResult(readBuffer);
   }
 
+  private byte[] readCachedData(long offset, int length) {
+    if (dataCache == null || offset < 0 || length <= 0) {
+      return null;
+    }
+    init();
+    return dataCache.read(dataFileName, offset, length);
+  }
+
+  public long getDataFileLength() {
+    init();
+    return new File(dataFileName).length();
+  }
+
+  @Override
+  public ShuffleDataResult getShuffleDataSegment(long offset, int length) {
+    byte[] cachedData = readCachedData(offset, length);
+    if (cachedData != null) {
+      return new ShuffleDataResult(cachedData);
+    }
+    init();
+    File dataFile = new File(dataFileName);
+    long dataFileSize = dataFile.length();
+    if (offset < 0 || length <= 0 || offset + length > dataFileSize) {
+      LOG.warn("Can't read data for {}, offset[{}], length[{}], file length[{}]",
+          dataFileName, offset, length, dataFileSize);
+      return new ShuffleDataResult();
+    }
+    return new ShuffleDataResult(new FileSegmentManagedBuffer(dataFile, offset, length));
+  }
+
   @Override
   public ShuffleIndexResult getShuffleIndex() {
+    if (indexCache == null) {
+      return readShuffleIndex();
+    }
+    return indexCache.get(path, appId, shuffleId, startPartition, this::readShuffleIndex);
+  }
+
+  private ShuffleIndexResult readShuffleIndex() {
+    init();
     int indexNum = 0;
     int len = 0;
     try (LocalFileReader reader = createFileReader(indexFileName)) {
@@ -148,14 +233,26 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
       if (indexFileSize != len) {
         LOG.warn("Maybe the index file: {} is being written due to the shuffle-buffer flushing.", indexFileName);
       }
-      byte[] indexData = reader.read(0, len);
+      ByteBuffer indexData;
+      if (indexCache != null && indexCache.getMmapThreshold() > 0 && len >= indexCache.getMmapThreshold()) {
+        indexData = mapIndexFile(len);
+      } else {
+        indexData = ByteBuffer.wrap(reader.read(0, len));
+      }
       // get dataFileSize for read segment generation in DataSkippableReadHandler#readShuffleData
       long dataFileSize = new File(dataFileName).length();
-      return new ShuffleIndexResult(ByteBuffer.wrap(indexData), dataFileSize);
+      return new ShuffleIndexResult(indexData, dataFileSize);
     } catch (Exception e) {
       LOG.error("Fail to read index file {} indexNum {} len {}",
           indexFileName, indexNum, len);
       return new ShuffleIndexResult();
     }
   }
+
+  private ByteBuffer mapIndexFile(int len) throws Exception {
+    // the mapping is kept after the channel is closed until the buffer is garbage collected
+    try (FileChannel channel = FileChannel.open(new File(indexFileName).toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, len);
+    }
+  }
 }
@@ -19,26 +19,49 @@ package org.apache.uniffle.storage.handler.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.exception.RssException;
-import org.apache.uniffle.common.util.ByteBufUtils;
 import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
+/**
+ * Writes the blocks of a partition to local data and index files. The data of blocks is written
+ * from their buffers by a gathering write without copying, and the index entries of a write are
+ * encoded into one direct buffer.
+ *
+ * <p>If a {@link LocalFileHandleCache} is given, the file channels are kept open between writes
+ * and closed by the cache when there are too many open files, otherwise they are closed after
+ * every write. If a {@link LocalFileDataCache} is given, the data written is also kept in it.
+ */
 public class LocalFileWriteHandler implements ShuffleWriteHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(LocalFileWriteHandler.class);
 
-  private String fileNamePrefix;
-  private String basePath;
+  protected final String appId;
+  protected final int shuffleId;
+  protected String fileNamePrefix;
+  protected String basePath;
+  protected final LocalFileHandleCache handleCache;
+  protected final LocalFileDataCache dataCache;
+  protected final ReentrantLock lock = new ReentrantLock();
+  private FileChannel dataChannel;
+  private FileChannel indexChannel;
+  private long dataOffset;
 
   public LocalFileWriteHandler(
       String appId,
@@ -47,9 +70,36 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
       int endPartition,
       String storageBasePath,
       String fileNamePrefix) {
+    this(appId, shuffleId, startPartition, endPartition, storageBasePath, fileNamePrefix, null);
+  }
+
+  public LocalFileWriteHandler(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      LocalFileHandleCache handleCache) {
+    this(appId, shuffleId, startPartition, endPartition, storageBasePath, fileNamePrefix, handleCache, null);
+  }
+
+  public LocalFileWriteHandler(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      LocalFileHandleCache handleCache,
+      LocalFileDataCache dataCache) {
+    this.appId = appId;
+    this.shuffleId = shuffleId;
     this.fileNamePrefix = fileNamePrefix;
     this.basePath = ShuffleStorageUtils.getFullShuffleDataFolder(storageBasePath,
         ShuffleStorageUtils.getShuffleDataPath(appId, shuffleId, startPartition, endPartition));
+    this.handleCache = handleCache;
+    this.dataCache = dataCache;
     createBasePath();
   }
 
@@ -84,49 +134,174 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
   }
 
   @Override
-  public synchronized void write(
+  public void write(
       List<ShufflePartitionedBlock> shuffleBlocks) throws Exception {
+    lock.lock();
+    try {
+      // Ignore this write, if the shuffle directory is deleted after being uploaded in multi mode
+      // or after its app heartbeat times out.
+      File baseFolder = new File(basePath);
+      if (!baseFolder.exists()) {
+        LOG.warn("{} don't exist, the app or shuffle may be deleted", baseFolder.getAbsolutePath());
+        closeChannelsInternal();
+        return;
+      }
 
-    // Ignore this write, if the shuffle directory is deleted after being uploaded in multi mode
-    // or after its app heartbeat times out.
-    File baseFolder = new File(basePath);
-    if (!baseFolder.exists()) {
-      LOG.warn("{} don't exist, the app or shuffle may be deleted", baseFolder.getAbsolutePath());
-      return;
+      long accessTime = System.currentTimeMillis();
+      try {
+        openChannels();
+        long startTime = System.currentTimeMillis();
+        writeBlocks(shuffleBlocks);
+        LOG.debug(
+            "Write handler write {} blocks cost {} ms without file open close",
+            shuffleBlocks.size(),
+            (System.currentTimeMillis() - startTime));
+      } catch (Exception e) {
+        // the offset of data file is unknown after failure, it will be reset when the files are reopened
+        closeChannelsInternal();
+        throw e;
+      }
+      if (handleCache == null) {
+        closeChannelsInternal();
+      }
+      LOG.debug(
+          "Write handler write {} blocks cost {} ms with file open close",
+          shuffleBlocks.size(),
+          (System.currentTimeMillis() - accessTime));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void writeBlocks(List<ShufflePartitionedBlock> shuffleBlocks) throws IOException {
+    List<ByteBuffer> dataBuffers = Lists.newArrayListWithExpectedSize(shuffleBlocks.size());
+    ByteBuf indexBuffer = ByteBufAllocator.DEFAULT.directBuffer(
+        shuffleBlocks.size() * FileBasedShuffleSegment.SEGMENT_SIZE);
+    try {
+      long offset = dataOffset;
+      for (ShufflePartitionedBlock block : shuffleBlocks) {
+        ByteBuf data = block.getData();
+        int length = data.readableBytes();
+        if (length > 0) {
+          for (ByteBuffer buffer : data.nioBuffers()) {
+            dataBuffers.add(buffer);
+          }
+        }
+        indexBuffer.writeLong(offset);
+        indexBuffer.writeInt(block.getLength());
+        indexBuffer.writeInt(block.getUncompressLength());
+        indexBuffer.writeLong(block.getCrc());
+        indexBuffer.writeLong(block.getBlockId());
+        indexBuffer.writeLong(block.getTaskAttemptId());
+        offset += length;
+      }
+      // the data must be written before the index, the readers only read the data indexed
+      writeFully(dataChannel, dataBuffers.toArray(new ByteBuffer[0]));
+      long startOffset = dataOffset;
+      dataOffset = offset;
+      writeFully(indexChannel, indexBuffer.nioBuffers());
+      if (dataCache != null) {
+        ByteBuf cachedData = dataCache.copy(shuffleBlocks);
+        if (cachedData != null) {
+          dataCache.put(appId, shuffleId, getDataFileName(), startOffset, cachedData);
+        }
+      }
+    } finally {
+      indexBuffer.release();
     }
+  }
 
-    long accessTime = System.currentTimeMillis();
-    String dataFileName = ShuffleStorageUtils.generateDataFileName(fileNamePrefix);
-    String indexFileName = ShuffleStorageUtils.generateIndexFileName(fileNamePrefix);
+  private static void writeFully(FileChannel channel, ByteBuffer[] buffers) throws IOException {
+    int index = 0;
+    while (index < buffers.length) {
+      channel.write(buffers, index, buffers.length - index);
+      while (index < buffers.length && !buffers[index].hasRemaining()) {
+        index++;
+      }
+    }
+  }
 
-    try (LocalFileWriter dataWriter = createWriter(dataFileName);
-        LocalFileWriter indexWriter = createWriter(indexFileName)) {
+  /**
+   * @return the path of data file, it's the same as the one read by {@link LocalFileServerReadHandler}
+   */
+  protected String getDataFileName() {
+    return basePath + "/" + ShuffleStorageUtils.generateDataFileName(fileNamePrefix);
+  }
 
-      long startTime = System.currentTimeMillis();
-      for (ShufflePartitionedBlock block : shuffleBlocks) {
-        long blockId = block.getBlockId();
-        long crc = block.getCrc();
-        long startOffset = dataWriter.nextOffset();
-        dataWriter.writeData(ByteBufUtils.readBytes(block.getData()));
-
-        FileBasedShuffleSegment segment = new FileBasedShuffleSegment(
-            blockId, startOffset, block.getLength(), block.getUncompressLength(), crc, block.getTaskAttemptId());
-        indexWriter.writeIndex(segment);
+  private void openChannels() throws IOException {
+    if (dataChannel == null) {
+      File dataFile = new File(basePath, ShuffleStorageUtils.generateDataFileName(fileNamePrefix));
+      dataChannel = openChannel(dataFile);
+      dataOffset = dataChannel.size();
+    }
+    if (indexChannel == null) {
+      File indexFile = new File(basePath, ShuffleStorageUtils.generateIndexFileName(fileNamePrefix));
+      indexChannel = openChannel(indexFile);
+    }
+    if (handleCache != null) {
+      handleCache.touch(this);
+    }
+  }
+
+  private FileChannel openChannel(File file) throws IOException {
+    return FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Close the file channels if the handler isn't being written.
+   *
+   * @return false if the handler is being written
+   */
+  boolean tryCloseChannels() {
+    if (!lock.tryLock()) {
+      return false;
+    }
+    try {
+      closeChannelsInternal();
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
+  /**
+   * Close the file channels, they will be reopened by the next write.
+   */
+  public void closeChannels() {
+    lock.lock();
+    try {
+      closeChannelsInternal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  protected void closeChannelsInternal() {
+    dataChannel = closeQuietly(dataChannel);
+    indexChannel = closeQuietly(indexChannel);
+    if (handleCache != null) {
+      handleCache.remove(this);
+    }
+  }
+
+  private FileChannel closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close file channel of {}", basePath, e);
       }
-      LOG.debug(
-          "Write handler write {} blocks cost {} ms without file open close",
-          shuffleBlocks.size(),
-          (System.currentTimeMillis() - startTime));
     }
-    LOG.debug(
-        "Write handler write {} blocks cost {} ms with file open close",
-        shuffleBlocks.size(),
-        (System.currentTimeMillis() - accessTime));
+    return null;
   }
 
-  private LocalFileWriter createWriter(String fileName) throws IOException, IllegalStateException {
-    File file = new File(basePath, fileName);
-    return new LocalFileWriter(file);
+  String getAppId() {
+    return appId;
+  }
+
+  int getShuffleId() {
+    return shuffleId;
   }
 
   @VisibleForTesting
@@ -134,4 +309,8 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
     return basePath;
   }
 
+  @VisibleForTesting
+  boolean isOpen() {
+    return dataChannel != null;
+  }
 }
@@ -17,18 +17,26 @@
 
 package org.apache.uniffle.storage.handler.impl;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.storage.handler.api.CompactableShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
@@ -40,14 +48,18 @@ import org.apache.uniffle.storage.util.ShuffleStorageUtils;
  * By leveraging {@link LinkedBlockingDeque}, it will always write the same file when
  * no race condition, which is good for reducing file numbers for Hadoop FS.
  */
-public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
+public class PooledHadoopShuffleWriteHandler implements CompactableShuffleWriteHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(PooledHadoopShuffleWriteHandler.class);
 
   private final LinkedBlockingDeque<ShuffleWriteHandler> queue;
   private final int maxConcurrency;
   private final String basePath;
+  private final String fileNamePrefix;
   private Function<Integer, ShuffleWriteHandler> createWriterFunc;
   private volatile int initializedHandlerCnt = 0;
+  private final Lock compactLock = new ReentrantLock();
+  // the handler compacted the files, which is used to delete the merged files
+  private volatile HadoopShuffleWriteHandler compactHandler;
 
   // Only for tests
   @VisibleForTesting
@@ -55,6 +67,7 @@ public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
     this.queue = queue;
     this.maxConcurrency = queue.size();
     this.basePath = StringUtils.EMPTY;
+    this.fileNamePrefix = StringUtils.EMPTY;
   }
 
   @VisibleForTesting
@@ -65,6 +78,7 @@ public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
     this.queue = queue;
     this.maxConcurrency = maxConcurrency;
     this.basePath = StringUtils.EMPTY;
+    this.fileNamePrefix = StringUtils.EMPTY;
     this.createWriterFunc = createWriterFunc;
   }
 
@@ -82,6 +96,7 @@ public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
     this.queue = new LinkedBlockingDeque<>(maxConcurrency);
     this.basePath = ShuffleStorageUtils.getFullShuffleDataFolder(storageBasePath,
         ShuffleStorageUtils.getShuffleDataPath(appId, shuffleId, startPartition, endPartition));
+    this.fileNamePrefix = fileNamePrefix;
 
     this.createWriterFunc = index -> {
       try {
@@ -124,6 +139,55 @@ public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
     }
   }
 
+  /**
+   * Compact the files of all the underlying handlers, the writes are blocked only when the files
+   * are listed and rolled, the files are merged without blocking the writes.
+   */
+  @Override
+  public List<Path> compact(int minFileNum) throws IOException {
+    String prefix = fileNamePrefix + "_";
+    compactLock.lock();
+    try {
+      HadoopShuffleWriteHandler handler;
+      FileStatus[] sourceFiles;
+      synchronized (this) {
+        List<ShuffleWriteHandler> handlers = Lists.newArrayList();
+        try {
+          // take all the handlers to make sure no file is being written
+          for (int i = 0; i < initializedHandlerCnt; i++) {
+            handlers.add(queue.take());
+          }
+          if (handlers.isEmpty() || !(handlers.get(0) instanceof HadoopShuffleWriteHandler)) {
+            return Collections.emptyList();
+          }
+          handler = (HadoopShuffleWriteHandler) handlers.get(0);
+          sourceFiles = handler.listSourceFiles(prefix, minFileNum);
+          if (sourceFiles.length == 0) {
+            return Collections.emptyList();
+          }
+          handlers.forEach(h -> ((HadoopShuffleWriteHandler) h).rollFile());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted when compacting files in " + basePath, e);
+        } finally {
+          handlers.forEach(queue::addFirst);
+        }
+      }
+      compactHandler = handler;
+      return handler.compact(prefix, sourceFiles);
+    } finally {
+      compactLock.unlock();
+    }
+  }
+
+  @Override
+  public void deleteFiles(List<Path> files) throws IOException {
+    HadoopShuffleWriteHandler handler = compactHandler;
+    if (handler != null) {
+      handler.deleteFiles(files);
+    }
+  }
+
   @VisibleForTesting
   protected int getInitializedHandlerCnt() {
     return initializedHandlerCnt;
@@ -49,17 +49,7 @@ public class HadoopShuffleHandlerTestBase {
       HadoopShuffleWriteHandler writeHandler,
       int num, int length, long taskAttemptId,
       Map<Long, byte[]> expectedData) throws Exception {
-    List<ShufflePartitionedBlock> blocks = Lists.newArrayList();
-    for (int i = 0; i < num; i++) {
-      byte[] buf = new byte[length];
-      new Random().nextBytes(buf);
-      long blockId = (ATOMIC_LONG.getAndIncrement()
-          << (Constants.PARTITION_ID_MAX_LENGTH + Constants.TASK_ATTEMPT_ID_MAX_LENGTH)) + taskAttemptId;
-      blocks.add(new ShufflePartitionedBlock(
-          length, length, ChecksumUtils.getCrc32(buf), blockId, taskAttemptId, buf));
-      expectedData.put(blockId, buf);
-    }
-    writeHandler.write(blocks);
+    writeHandler.write(createBlocks(num, length, taskAttemptId, expectedData));
   }
 
   public static void writeTestData(
@@ -95,6 +85,21 @@ public class HadoopShuffleHandlerTestBase {
     expectedIndexSegments.put(partitionId, segments);
   }
 
+  public static List<ShufflePartitionedBlock> createBlocks(
+      int num, int length, long taskAttemptId, Map<Long, byte[]> expectedData) {
+    List<ShufflePartitionedBlock> blocks = Lists.newArrayList();
+    for (int i = 0; i < num; i++) {
+      byte[] buf = new byte[length];
+      new Random().nextBytes(buf);
+      long blockId = (ATOMIC_LONG.getAndIncrement()
+          << (Constants.PARTITION_ID_MAX_LENGTH + Constants.TASK_ATTEMPT_ID_MAX_LENGTH)) + taskAttemptId;
+      blocks.add(new ShufflePartitionedBlock(
+          length, length, ChecksumUtils.getCrc32(buf), blockId, taskAttemptId, buf));
+      expectedData.put(blockId, buf);
+    }
+    return blocks;
+  }
+
   public static byte[] writeData(HadoopFileWriter writer, int len) throws IOException {
     byte[] data = new byte[len];
     new Random().nextBytes(data);
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.BufferSegment;
+import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.storage.HadoopTestBase;
+
+import static org.apache.uniffle.storage.HadoopShuffleHandlerTestBase.checkData;
+import static org.apache.uniffle.storage.HadoopShuffleHandlerTestBase.createBlocks;
+import static org.apache.uniffle.storage.HadoopShuffleHandlerTestBase.writeTestData;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HadoopShuffleFileCompactorTest extends HadoopTestBase {
+
+  @Test
+  public void compactTest() throws Exception {
+    String basePath = HDFS_URI + "compactTest";
+    String partitionPath = basePath + "/appId/0/1-1";
+    HadoopShuffleWriteHandler writeHandler = new HadoopShuffleWriteHandler(
+        "appId", 0, 1, 1, basePath, "test", conf, StringUtils.EMPTY);
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    for (int i = 0; i < 5; i++) {
+      writeHandler.setFailTimes(i);
+      writeTestData(writeHandler, 10, 3, 0, expectedData);
+    }
+
+    // not enough files to compact
+    assertTrue(writeHandler.compact(6).isEmpty());
+    assertEquals(5, listIndexFiles(partitionPath).length);
+
+    List<Path> mergedFiles = writeHandler.compact(5);
+    assertEquals(10, mergedFiles.size());
+    FileStatus[] indexFiles = listIndexFiles(partitionPath);
+    assertEquals(1, indexFiles.length);
+    assertTrue(indexFiles[0].getPath().getName().startsWith("test_" + HadoopShuffleFileCompactor.COMPACTED_FILE_TAG));
+    assertEquals(expectedData.keySet(), readBlockIds(basePath, expectedData));
+
+    // the new data is written to a new file, and the compacted file is read first
+    writeTestData(writeHandler, 10, 3, 0, expectedData);
+    assertEquals(2, listIndexFiles(partitionPath).length);
+    HadoopClientReadHandler readHandler = createReadHandler(basePath, expectedData);
+    assertEquals(expectedData.keySet(), readBlockIds(readHandler, expectedData));
+    assertTrue(readHandler.getHdfsShuffleFileReadHandlers().get(0).filePrefix
+        .contains(HadoopShuffleFileCompactor.COMPACTED_FILE_TAG));
+
+    writeHandler.deleteFiles(mergedFiles);
+    for (Path mergedFile : mergedFiles) {
+      assertFalse(fs.exists(mergedFile));
+    }
+
+    // the compacted files aren't compacted again
+    assertTrue(writeHandler.compact(2).isEmpty());
+    writeTestData(writeHandler, 10, 3, 0, expectedData);
+    assertTrue(writeHandler.compact(2).isEmpty());
+    writeHandler.rollFile();
+    writeTestData(writeHandler, 10, 3, 0, expectedData);
+    assertEquals(4, writeHandler.compact(2).size());
+    assertEquals(2, listIndexFiles(partitionPath).length);
+    assertEquals(expectedData.keySet(), readBlockIds(basePath, expectedData));
+  }
+
+  @Test
+  public void pooledCompactTest() throws Exception {
+    String basePath = HDFS_URI + "pooledCompactTest";
+    String partitionPath = basePath + "/appId/0/1-1";
+    PooledHadoopShuffleWriteHandler pooledHandler = new PooledHadoopShuffleWriteHandler(
+        "appId", 0, 1, 1, basePath, "test", conf, StringUtils.EMPTY, 2);
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    // the file written by another underlying handler
+    HadoopShuffleWriteHandler writeHandler = new HadoopShuffleWriteHandler(
+        "appId", 0, 1, 1, basePath, "test_1", conf, StringUtils.EMPTY);
+    writeTestData(writeHandler, 10, 3, 0, expectedData);
+    pooledHandler.write(createBlocks(10, 3, 0, expectedData));
+    assertEquals(2, listIndexFiles(partitionPath).length);
+
+    List<Path> mergedFiles = pooledHandler.compact(2);
+    assertEquals(4, mergedFiles.size());
+    assertTrue(pooledHandler.compact(2).isEmpty());
+    assertEquals(1, listIndexFiles(partitionPath).length);
+    assertEquals(expectedData.keySet(), readBlockIds(basePath, expectedData));
+
+    pooledHandler.deleteFiles(mergedFiles);
+    for (Path mergedFile : mergedFiles) {
+      assertFalse(fs.exists(mergedFile));
+    }
+  }
+
+  private FileStatus[] listIndexFiles(String path) throws Exception {
+    return Arrays.stream(fs.listStatus(new Path(path)))
+        .filter(status -> status.getPath().getName().endsWith(".index"))
+        .toArray(FileStatus[]::new);
+  }
+
+  private HadoopClientReadHandler createReadHandler(String basePath, Map<Long, byte[]> expectedData) {
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    expectedData.keySet().forEach(expectBlockIds::addLong);
+    return new HadoopClientReadHandler("appId", 0, 1, 1024 * 10214, 1, 10, 1024,
+        expectBlockIds, Roaring64NavigableMap.bitmapOf(), basePath, conf);
+  }
+
+  private Set<Long> readBlockIds(String basePath, Map<Long, byte[]> expectedData) {
+    return readBlockIds(createReadHandler(basePath, expectedData), expectedData);
+  }
+
+  private Set<Long> readBlockIds(HadoopClientReadHandler handler, Map<Long, byte[]> expectedData) {
+    Set<Long> blockIds = Sets.newHashSet();
+    ShuffleDataResult result = handler.readShuffleData();
+    while (!result.isEmpty()) {
+      checkData(result, expectedData);
+      for (BufferSegment segment : result.getBufferSegments()) {
+        // every block is read only once
+        assertTrue(blockIds.add(segment.getBlockId()));
+      }
+      result = handler.readShuffleData();
+    }
+    handler.close();
+    return blockIds;
+  }
+}
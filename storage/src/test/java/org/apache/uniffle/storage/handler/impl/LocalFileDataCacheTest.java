@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LocalFileDataCacheTest {
+
+  @Test
+  public void readTest() {
+    LocalFileDataCache dataCache = new LocalFileDataCache(100);
+    dataCache.put("app1", 0, "file1", 0, newData(0, 30));
+    dataCache.put("app1", 0, "file1", 30, newData(30, 20));
+    dataCache.put("app1", 0, "file1", 60, newData(60, 10));
+    assertEquals(60, dataCache.getSize());
+
+    assertArrayEquals(newData(10, 20).array(), dataCache.read("file1", 10, 20));
+    // the data spans the adjacent chunks
+    assertArrayEquals(newData(20, 30).array(), dataCache.read("file1", 20, 30));
+    // there is a gap between the chunks
+    assertNull(dataCache.read("file1", 40, 25));
+    assertNull(dataCache.read("file1", 65, 10));
+    assertNull(dataCache.read("file2", 0, 10));
+
+    // the data written again replaces the overlapped chunks
+    dataCache.put("app1", 0, "file1", 20, newData(20, 50));
+    assertEquals(50, dataCache.getSize());
+    assertNull(dataCache.read("file1", 0, 10));
+    assertArrayEquals(newData(20, 50).array(), dataCache.read("file1", 20, 50));
+  }
+
+  @Test
+  public void evictTest() {
+    LocalFileDataCache dataCache = new LocalFileDataCache(100);
+    ByteBuf data1 = newData(0, 40);
+    dataCache.put("app1", 0, "file1", 0, data1);
+    dataCache.put("app1", 1, "file2", 0, newData(0, 40));
+    // the least recently used file is evicted
+    dataCache.read("file1", 0, 10);
+    dataCache.put("app2", 0, "file3", 0, newData(0, 40));
+    assertEquals(80, dataCache.getSize());
+    assertNull(dataCache.read("file2", 0, 10));
+    assertArrayEquals(newData(0, 10).array(), dataCache.read("file1", 0, 10));
+
+    dataCache.invalidate("app2", 0);
+    assertEquals(40, dataCache.getSize());
+    dataCache.invalidate("app1");
+    assertEquals(0, dataCache.getSize());
+    assertEquals(0, data1.refCnt());
+  }
+
+  @Test
+  public void memoryTest() {
+    AtomicLong usedMemory = new AtomicLong(0);
+    LocalFileDataCache dataCache = new LocalFileDataCache(100) {
+      @Override
+      protected boolean requireMemory(long length) {
+        if (usedMemory.get() + length > 60) {
+          return false;
+        }
+        usedMemory.addAndGet(length);
+        return true;
+      }
+
+      @Override
+      protected void releaseMemory(long length) {
+        usedMemory.addAndGet(-length);
+      }
+    };
+    ByteBuf data1 = dataCache.copy(newBlocks(40));
+    assertEquals(40, usedMemory.get());
+    // there is no memory for the data
+    assertNull(dataCache.copy(newBlocks(40)));
+    dataCache.put("app1", 0, "file1", 0, data1);
+    ByteBuf data2 = dataCache.copy(newBlocks(20));
+    assertEquals(60, usedMemory.get());
+
+    // the data not written is discarded
+    dataCache.discard(data2);
+    assertEquals(0, data2.refCnt());
+    assertEquals(40, usedMemory.get());
+    dataCache.invalidate("app1");
+    assertEquals(0, usedMemory.get());
+  }
+
+  private List<ShufflePartitionedBlock> newBlocks(int length) {
+    byte[] data = newData(0, length).array();
+    return Collections.singletonList(new ShufflePartitionedBlock(length, length, 0, 1, 1, data));
+  }
+
+  private ByteBuf newData(int start, int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (start + i);
+    }
+    return Unpooled.wrappedBuffer(data);
+  }
+}
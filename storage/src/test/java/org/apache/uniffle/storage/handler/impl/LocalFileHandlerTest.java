@@ -19,20 +19,32 @@ package org.apache.uniffle.storage.handler.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.common.ShuffleDataSegment;
 import org.apache.uniffle.common.ShuffleIndexResult;
+import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.config.RssBaseConf;
+import org.apache.uniffle.common.netty.buffer.FileSegmentManagedBuffer;
+import org.apache.uniffle.common.segment.FixedSizeSegmentSplitter;
+import org.apache.uniffle.common.util.ByteBufUtils;
+import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -109,6 +121,160 @@ public class LocalFileHandlerTest {
     }
   }
 
+  @Test
+  public void readDataSegmentTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    LocalFileWriteHandler writeHandler = new LocalFileWriteHandler("appId", 0, 1, 1, basePath, "pre");
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Set<Long> expectedBlockIds = Sets.newHashSet();
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(5, 32),
+        writeHandler, expectedData, expectedBlockIds);
+
+    LocalFileServerReadHandler readHandler = new LocalFileServerReadHandler(
+        "appId", 0, 1, 1, 10, basePath);
+    ShuffleIndexResult shuffleIndexResult = LocalFileHandlerTestBase.readIndex(readHandler);
+    List<ShuffleDataSegment> segments = new FixedSizeSegmentSplitter(64).split(shuffleIndexResult);
+    assertFalse(segments.isEmpty());
+    for (ShuffleDataSegment segment : segments) {
+      ShuffleDataResult result = readHandler.getShuffleDataSegment(segment.getOffset(), segment.getLength());
+      assertTrue(result.getManagedBuffer() instanceof FileSegmentManagedBuffer);
+      assertEquals(segment.getLength(), result.getManagedBuffer().size());
+      byte[] expected = readHandler.getShuffleData(segment.getOffset(), segment.getLength()).getData();
+      assertArrayEquals(expected, result.getData());
+    }
+
+    // the segment beyond the end of data file can't be read
+    ShuffleDataResult result = readHandler.getShuffleDataSegment(shuffleIndexResult.getDataFileLen(), 32);
+    assertTrue(result.isEmpty());
+    assertEquals(0, result.getManagedBuffer().size());
+  }
+
+  @Test
+  public void persistentWriteTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    LocalFileHandleCache handleCache = new LocalFileHandleCache(4);
+    final LocalFileWriteHandler writeHandler1 = new LocalFileWriteHandler("appId", 0, 1, 1,
+        basePath, "pre", handleCache);
+    final LocalFileWriteHandler writeHandler2 = new LocalFileWriteHandler("appId", 0, 2, 2,
+        basePath, "pre", handleCache);
+    final LocalFileWriteHandler writeHandler3 = new LocalFileWriteHandler("appId", 1, 1, 1,
+        basePath, "pre", handleCache);
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Set<Long> expectedBlockIds1 = Sets.newHashSet();
+    Set<Long> expectedBlockIds2 = Sets.newHashSet();
+
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(3, 32),
+        writeHandler1, expectedData, expectedBlockIds1);
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(2, 32),
+        writeHandler2, expectedData, expectedBlockIds2);
+    assertTrue(writeHandler1.isOpen());
+    assertTrue(writeHandler2.isOpen());
+    assertEquals(2, handleCache.getOpenHandlerNum());
+
+    // the least recently written handler is closed and reopened by next write
+    Set<Long> expectedBlockIds3 = Sets.newHashSet();
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(4, 32),
+        writeHandler3, expectedData, expectedBlockIds3);
+    assertFalse(writeHandler1.isOpen());
+    assertEquals(2, handleCache.getOpenHandlerNum());
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(2, 32),
+        writeHandler1, expectedData, expectedBlockIds1);
+    assertTrue(writeHandler1.isOpen());
+    assertFalse(writeHandler2.isOpen());
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(1, 32),
+        writeHandler1, expectedData, expectedBlockIds1);
+
+    LocalFileHandlerTestBase.validateResult(
+        new LocalFileServerReadHandler("appId", 0, 1, 1, 10, basePath), expectedBlockIds1, expectedData);
+    LocalFileHandlerTestBase.validateResult(
+        new LocalFileServerReadHandler("appId", 0, 2, 1, 10, basePath), expectedBlockIds2, expectedData);
+    LocalFileHandlerTestBase.validateResult(
+        new LocalFileServerReadHandler("appId", 1, 1, 1, 10, basePath), expectedBlockIds3, expectedData);
+
+    handleCache.closeHandlers("appId", 1);
+    assertFalse(writeHandler3.isOpen());
+    assertTrue(writeHandler1.isOpen());
+    handleCache.closeHandlers("appId");
+    assertFalse(writeHandler1.isOpen());
+    assertEquals(0, handleCache.getOpenHandlerNum());
+  }
+
+  @Test
+  public void indexCacheTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    LocalFileWriteHandler writeHandler = new LocalFileWriteHandler("appId", 0, 1, 1, basePath, "pre");
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Set<Long> expectedBlockIds = Sets.newHashSet();
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(3, 32),
+        writeHandler, expectedData, expectedBlockIds);
+
+    // index files are read by memory mapping
+    LocalFileIndexCache indexCache = new LocalFileIndexCache(1024, 1);
+    LocalFileServerReadHandler readHandler = new LocalFileServerReadHandler(
+        "appId", 0, 1, 1, 10, basePath, indexCache);
+    ShuffleIndexResult indexResult = readHandler.getShuffleIndex();
+    assertTrue(indexResult.getIndexData().isDirect());
+    assertEquals(3 * FileBasedShuffleSegment.SEGMENT_SIZE, indexResult.getIndexData().remaining());
+    LocalFileHandlerTestBase.validateResult(readHandler, expectedBlockIds, expectedData);
+    assertEquals(1, indexCache.getEntryNum());
+
+    // the cached index is used until it's invalidated after writing
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(2, 32),
+        writeHandler, expectedData, expectedBlockIds);
+    assertEquals(3 * FileBasedShuffleSegment.SEGMENT_SIZE, readHandler.getShuffleIndex().getIndexData().remaining());
+    indexCache.invalidate(basePath, "appId", 0, 1);
+    LocalFileHandlerTestBase.validateResult(readHandler, expectedBlockIds, expectedData);
+  }
+
+  @Test
+  public void dataCacheTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    LocalFileDataCache dataCache = new LocalFileDataCache(1024);
+    LocalFileWriteHandler writeHandler = new LocalFileWriteHandler("appId", 0, 1, 1, basePath, "pre", null, dataCache);
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Set<Long> expectedBlockIds = Sets.newHashSet();
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(3, 32),
+        writeHandler, expectedData, expectedBlockIds);
+    LocalFileHandlerTestBase.writeTestData(LocalFileHandlerTestBase.generateBlocks(2, 32),
+        writeHandler, expectedData, expectedBlockIds);
+    assertEquals(5 * 32, dataCache.getSize());
+
+    // the data is read from cache even if the data file is overwritten
+    File dataFile = new File(basePath, "appId/0/1-1/pre.data");
+    assertEquals(5 * 32, dataFile.length());
+    Files.write(dataFile.toPath(), new byte[5 * 32]);
+    LocalFileHandlerTestBase.validateResult(new LocalFileServerReadHandler(
+        "appId", 0, 1, 1, 10, basePath, null, dataCache), expectedBlockIds, expectedData);
+  }
+
+  @Test
+  public void asyncWriteTest(@TempDir File tmpDir) throws Exception {
+    String basePath = tmpDir.getAbsolutePath();
+    ExecutorService ioExecutor = Executors.newFixedThreadPool(2);
+    try {
+      LocalFileAsyncWriteHandler writeHandler = new LocalFileAsyncWriteHandler("appId", 0, 1, 1,
+          basePath, "pre", null, ioExecutor);
+      Map<Long, byte[]> expectedData = Maps.newHashMap();
+      Set<Long> expectedBlockIds = Sets.newHashSet();
+      List<CompletableFuture<Void>> futures = Lists.newArrayList();
+      for (int i = 0; i < 10; i++) {
+        List<ShufflePartitionedBlock> blocks = LocalFileHandlerTestBase.generateBlocks(5, 32);
+        for (ShufflePartitionedBlock block : blocks) {
+          expectedBlockIds.add(block.getBlockId());
+          expectedData.put(block.getBlockId(), ByteBufUtils.readBytes(block.getData()));
+        }
+        futures.add(writeHandler.writeAsync(blocks));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+      // the files are closed after all the writes are finished
+      assertFalse(writeHandler.isOpen());
+      LocalFileHandlerTestBase.validateResult(
+          new LocalFileServerReadHandler("appId", 0, 1, 1, 10, basePath), expectedBlockIds, expectedData);
+    } finally {
+      ioExecutor.shutdownNow();
+    }
+  }
+
   @Test
   public void writeBigDataTest(@TempDir File tmpDir) throws IOException  {
     File writeFile = new File(tmpDir, "writetest");
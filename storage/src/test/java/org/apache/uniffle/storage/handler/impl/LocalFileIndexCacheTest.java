@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.ShuffleIndexResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LocalFileIndexCacheTest {
+
+  @Test
+  public void getTest() {
+    AtomicInteger loadNum = new AtomicInteger(0);
+    LocalFileIndexCache indexCache = new LocalFileIndexCache(100, 0);
+    Supplier<ShuffleIndexResult> loader = () -> {
+      loadNum.incrementAndGet();
+      return new ShuffleIndexResult(ByteBuffer.allocate(40), 10);
+    };
+    ShuffleIndexResult result = indexCache.get("path", "app1", 0, 1, loader);
+    // the position of cached index isn't changed by readers
+    result.getIndexData().position(40);
+    result = indexCache.get("path", "app1", 0, 1, loader);
+    assertEquals(40, result.getIndexData().remaining());
+    assertEquals(10, result.getDataFileLen());
+    assertEquals(1, loadNum.get());
+
+    // empty index isn't cached
+    indexCache.get("path", "app1", 0, 2, ShuffleIndexResult::new);
+    assertEquals(1, indexCache.getEntryNum());
+
+    // the least recently used index is evicted
+    indexCache.get("path", "app1", 1, 1, loader);
+    indexCache.get("path", "app1", 0, 1, loader);
+    indexCache.get("path", "app2", 0, 1, loader);
+    assertEquals(2, indexCache.getEntryNum());
+    assertEquals(80, indexCache.getSize());
+    indexCache.get("path", "app1", 0, 1, loader);
+    assertEquals(3, loadNum.get());
+    indexCache.get("path", "app1", 1, 1, loader);
+    assertEquals(4, loadNum.get());
+
+    indexCache.invalidate("app2", 0);
+    assertEquals(2, indexCache.getEntryNum());
+    indexCache.invalidate("app1");
+    assertEquals(0, indexCache.getEntryNum());
+    assertEquals(0, indexCache.getSize());
+  }
+
+  @Test
+  public void invalidateWhenLoadingTest() {
+    LocalFileIndexCache indexCache = new LocalFileIndexCache(100, 0);
+    ShuffleIndexResult result = indexCache.get("path", "app1", 0, 1, () -> {
+      // the index is flushed while it's being loaded
+      indexCache.invalidate("path", "app1", 0, 1);
+      return new ShuffleIndexResult(ByteBuffer.allocate(40), 10);
+    });
+    assertEquals(40, result.getIndexData().remaining());
+    assertEquals(0, indexCache.getEntryNum());
+
+    // the invalidation of other partitions doesn't affect the loading index
+    indexCache.get("path", "app1", 0, 1, () -> {
+      indexCache.invalidate("path", "app1", 0, 2);
+      return new ShuffleIndexResult(ByteBuffer.allocate(40), 10);
+    });
+    assertEquals(1, indexCache.getEntryNum());
+    indexCache.invalidate("app1");
+
+    // the index bigger than capacity isn't cached
+    indexCache.get("path", "app1", 0, 1, () -> new ShuffleIndexResult(ByteBuffer.allocate(120), 10));
+    assertEquals(0, indexCache.getEntryNum());
+    assertEquals(0, indexCache.getSize());
+  }
+}